@@ -36,7 +36,9 @@ import java.util.Set;
 import org.openrdf.model.URI;
 import slib.sglib.model.graph.G;
 import slib.sglib.model.graph.utils.Direction;
+import slib.sglib.utils.WalkConstraintUtils;
 import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.ObjectIdIndex;
 
 /**
  *
@@ -112,4 +114,30 @@ public class AncestorEngine extends RVF_TAX {
         }
         return allAncs;
     }
+
+    /**
+     * Compute the inclusive ancestors of all vertices contained in the graph
+     * as compressed sets of vertex identifiers. The vertices are numbered in
+     * topological order, i.e. a class always has a lower identifier than its
+     * descendants.
+     *
+     * @return the compressed inclusive ancestors of each vertex
+     * @throws SLIB_Ex_Critic if the taxonomic graph is not acyclic
+     */
+    public CompressedClosure getAllAncestorsIncCompressed() throws SLIB_Ex_Critic {
+        return getAllAncestorsIncCompressed(CompressedClosure.buildTopologicalIndex(g, WalkConstraintUtils.getInverse(wc, false), g.getV()));
+    }
+
+    /**
+     * Compute the inclusive ancestors of the given vertices as compressed sets
+     * of vertex identifiers. Only the indexed vertices are considered, i.e.
+     * the ancestors which are not indexed are not reported.
+     *
+     * @param index the index of the vertices to consider
+     * @return the compressed inclusive ancestors of each indexed vertex
+     * @throws SLIB_Ex_Critic if the taxonomic graph is not acyclic
+     */
+    public CompressedClosure getAllAncestorsIncCompressed(ObjectIdIndex<URI> index) throws SLIB_Ex_Critic {
+        return new CompressedClosure(g, wc, index, nbThreads);
+    }
 }
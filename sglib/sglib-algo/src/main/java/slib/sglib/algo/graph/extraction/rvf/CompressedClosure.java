@@ -0,0 +1,495 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.algo.graph.extraction.rvf;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.openrdf.model.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.utils.WalkConstraint;
+import slib.sglib.utils.WalkConstraintUtils;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.CompressedIntSet;
+import slib.utils.impl.ObjectIdIndex;
+
+/**
+ * Inclusive sets of reachable vertices of all the vertices of an index,
+ * stored as {@link CompressedIntSet} of vertex identifiers. The closure of a
+ * vertex v is composed of v and of the vertices which can be reached from v
+ * following the walk constraint, only considering the indexed vertices.
+ *
+ * Closures are computed in a single pass over a topological ordering of the
+ * vertices, as in {@link RVF_DAG#getAllRV()}, optionally processing the
+ * vertices of a topological level concurrently. When the vertices are numbered
+ * using {@link #buildTopologicalIndex(G, WalkConstraint, Collection)}, the
+ * closures mostly contain long runs of consecutive identifiers, which makes
+ * them very compact compared to sets of URIs.
+ *
+ * The closures are immutable once computed and can safely be shared among
+ * threads.
+ *
+ * @author Harispe Sébastien
+ */
+public class CompressedClosure {
+
+    Logger logger = LoggerFactory.getLogger(CompressedClosure.class);
+    private final ObjectIdIndex<URI> index;
+    private final CompressedIntSet[] closures;
+
+    /**
+     * Wrap closures computed beforehand, e.g. stored in a snapshot.
+     *
+     * @param index the index of the vertices
+     * @param closures the closures indexed by vertex identifier, the array
+     * is not copied
+     * @throws IllegalArgumentException if the number of closures differs
+     * from the number of indexed vertices
+     */
+    public CompressedClosure(ObjectIdIndex<URI> index, CompressedIntSet[] closures) {
+        if (index.size() != closures.length) {
+            throw new IllegalArgumentException("The number of closures (" + closures.length + ") differs from the number of indexed vertices (" + index.size() + ")");
+        }
+        this.index = index;
+        this.closures = closures;
+    }
+
+    /**
+     * Compute the closures of all the vertices of the given index.
+     *
+     * @param g the graph
+     * @param wc the walk constraint defining the reachable vertices
+     * @param index the index of the vertices to consider, the vertices must
+     * be contained in the graph
+     * @throws SLIB_Ex_Critic if the subgraph defined by the walk constraint
+     * and the indexed vertices is not a Directed Acyclic Graph
+     */
+    public CompressedClosure(G g, WalkConstraint wc, ObjectIdIndex<URI> index) throws SLIB_Ex_Critic {
+        this(g, wc, index, 1);
+    }
+
+    /**
+     * Compute the closures of all the vertices of the given index using
+     * several threads. The vertices are processed by topological levels, the
+     * closures of the vertices of a level being computed concurrently from
+     * the closures of the previous levels.
+     *
+     * @param g the graph, which must not be modified during the computation
+     * @param wc the walk constraint defining the reachable vertices
+     * @param index the index of the vertices to consider, the vertices must
+     * be contained in the graph
+     * @param nbThreads the number of threads to use
+     * @throws SLIB_Ex_Critic if the subgraph defined by the walk constraint
+     * and the indexed vertices is not a Directed Acyclic Graph
+     */
+    public CompressedClosure(G g, WalkConstraint wc, ObjectIdIndex<URI> index, int nbThreads) throws SLIB_Ex_Critic {
+
+        logger.debug("Computing compressed closures of " + index.size() + " vertices (" + nbThreads + " thread(s))");
+
+        this.index = index;
+        final int n = index.size();
+        closures = new CompressedIntSet[n];
+
+        final int[][] reachable = new int[n][];
+        for (int i = 0; i < n; i++) {
+            reachable[i] = toIds(index, g.getV(index.get(i), wc));
+        }
+
+        TopologicalLevels levels = new TopologicalLevels(reachable);
+
+        if (!levels.isComplete()) {
+            logger.info("Incoherencies : " + (n - levels.getNbOrderedVertices()));
+            String incoherenceMessage = "incoherences found during a treatment, "
+                    + "this can be due to incoherences with regard to the graph properties "
+                    + "expected by the treatment performed. "
+                    + "Please check the processed graph is acyclic, i.e. is a Directed Acyclic Graph.";
+            throw new SLIB_Ex_Critic("ERROR " + incoherenceMessage);
+        }
+        logger.debug("Topological levels: " + levels.getNbLevels());
+
+        final ThreadLocal<UnionBuffer> buffers = new ThreadLocal<UnionBuffer>() {
+            @Override
+            protected UnionBuffer initialValue() {
+                return new UnionBuffer(n);
+            }
+        };
+
+        levels.forEachLevel(new TopologicalLevels.VertexTask() {
+            @Override
+            public void process(int v) {
+                closures[v] = buffers.get().union(closures, reachable[v], v);
+                reachable[v] = null;
+            }
+        }, nbThreads);
+
+        logger.debug("Compressed closures computed");
+    }
+
+    /**
+     * Scratch structures used to compute the union of compressed sets. A
+     * buffer must not be shared among threads.
+     */
+    static class UnionBuffer {
+
+        private final long[] bitmap;
+        private int[] buffer = new int[16];
+
+        /**
+         * @param n the number of values which can be stored, i.e. values are
+         * in [0, n[
+         */
+        UnionBuffer(int n) {
+            bitmap = new long[(n >>> 6) + 1];
+        }
+
+        /**
+         * Compute the union of sets.
+         *
+         * @param sets the sets
+         * @param members the indexes of the sets to merge
+         * @param extra a value to add to the union, -1 if none
+         * @return the union of the sets sets[members[i]] and of the extra
+         * value
+         */
+        CompressedIntSet union(CompressedIntSet[] sets, int[] members, int extra) {
+
+            int size = extra == -1 ? 0 : 1;
+            for (int r : members) {
+                size += sets[r].cardinality();
+            }
+
+            if (members.length == 0) {
+                return extra == -1 ? CompressedIntSet.EMPTY : CompressedIntSet.fromSorted(new int[]{extra}, 1);
+            } else if (members.length == 1 && extra == -1) {
+                return sets[members[0]];
+            } else if (size > bitmap.length) {
+
+                int fromWord = Integer.MAX_VALUE, toWord = 0;
+                if (extra != -1) {
+                    bitmap[extra >>> 6] |= 1L << extra;
+                    fromWord = extra >>> 6;
+                    toWord = fromWord + 1;
+                }
+                for (int r : members) {
+                    CompressedIntSet c = sets[r];
+                    if (!c.isEmpty()) {
+                        c.or(bitmap);
+                        fromWord = Math.min(fromWord, c.first() >>> 6);
+                        toWord = Math.max(toWord, (c.last() >>> 6) + 1);
+                    }
+                }
+                if (toWord == 0) {
+                    return CompressedIntSet.EMPTY;
+                }
+                CompressedIntSet union = CompressedIntSet.fromBitmap(bitmap, fromWord, toWord);
+                Arrays.fill(bitmap, fromWord, toWord, 0);
+                return union;
+            }
+
+            if (buffer.length < size) {
+                buffer = new int[Math.max(size, buffer.length * 2)];
+            }
+            int length = 0;
+            if (extra != -1) {
+                buffer[length++] = extra;
+            }
+            for (int r : members) {
+                length = sets[r].copyTo(buffer, length);
+            }
+            Arrays.sort(buffer, 0, length);
+            int distinct = length == 0 ? 0 : 1;
+            for (int i = 1; i < length; i++) {
+                if (buffer[i] != buffer[distinct - 1]) {
+                    buffer[distinct++] = buffer[i];
+                }
+            }
+            return CompressedIntSet.fromSorted(buffer, distinct);
+        }
+    }
+
+    /**
+     * Number the given vertices according to a reverse postorder of a
+     * depth-first traversal following the walk constraint, starting from the
+     * vertices which cannot be reached from any other vertex of the
+     * collection. In a Directed Acyclic Graph, a vertex therefore always
+     * receives a lower identifier than the vertices it can reach and the
+     * vertices reachable from a vertex are mostly numbered consecutively.
+     *
+     * As an example, numbering the classes of a taxonomy following the
+     * subClassOf relationships in the IN direction ensures that the ancestors
+     * of a class have lower identifiers than the class.
+     *
+     * @param g the graph
+     * @param wc the walk constraint followed by the traversal
+     * @param vertices the vertices to number, only those vertices are
+     * traversed
+     * @return the index of the vertices
+     */
+    public static ObjectIdIndex<URI> buildTopologicalIndex(G g, WalkConstraint wc, Collection<URI> vertices) {
+
+        ObjectIdIndex<URI> local = new ObjectIdIndex<URI>(vertices.size());
+        for (URI v : vertices) {
+            local.add(v);
+        }
+        int n = local.size();
+
+        WalkConstraint oppositeWC = WalkConstraintUtils.getInverse(wc, false);
+
+        int[][] next = new int[n][];
+        List<Integer> sources = new ArrayList<Integer>();
+
+        for (int i = 0; i < n; i++) {
+            URI v = local.get(i);
+            next[i] = toIds(local, g.getV(v, wc));
+            if (toIds(local, g.getV(v, oppositeWC)).length == 0) {
+                sources.add(i);
+            }
+        }
+
+        int[] postorder = new int[n];
+        int nbDone = 0;
+        boolean[] visited = new boolean[n];
+        int[] stack = new int[n];
+        int[] position = new int[n];
+
+        for (int s = 0; s < n + sources.size(); s++) {
+
+            int start = s < sources.size() ? sources.get(s) : s - sources.size();
+            if (visited[start]) {
+                continue;
+            }
+            visited[start] = true;
+            int depth = 0;
+            stack[0] = start;
+            position[0] = 0;
+
+            while (depth >= 0) {
+                int v = stack[depth];
+                if (position[depth] < next[v].length) {
+                    int w = next[v][position[depth]++];
+                    if (!visited[w]) {
+                        visited[w] = true;
+                        depth++;
+                        stack[depth] = w;
+                        position[depth] = 0;
+                    }
+                } else {
+                    postorder[nbDone++] = v;
+                    depth--;
+                }
+            }
+        }
+
+        ObjectIdIndex<URI> topological = new ObjectIdIndex<URI>(n);
+        for (int i = n - 1; i >= 0; i--) {
+            topological.add(local.get(postorder[i]));
+        }
+        return topological;
+    }
+
+    private static int[] toIds(ObjectIdIndex<URI> index, Set<URI> vertices) {
+        int[] ids = new int[vertices.size()];
+        int n = 0;
+        for (URI v : vertices) {
+            int id = index.getId(v);
+            if (id != -1) {
+                ids[n++] = id;
+            }
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    /**
+     * @return the index of the vertices
+     */
+    public ObjectIdIndex<URI> getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int size() {
+        return closures.length;
+    }
+
+    /**
+     * @return the closures indexed by vertex identifier, the array must not be
+     * modified
+     */
+    CompressedIntSet[] getClosureArray() {
+        return closures;
+    }
+
+    /**
+     * Access to the closure of a vertex.
+     *
+     * @param id the identifier of the vertex
+     * @return the identifiers of the vertices composing the inclusive closure
+     * of the vertex
+     */
+    public CompressedIntSet getClosure(int id) {
+        return closures[id];
+    }
+
+    /**
+     * Access to the closure of a vertex as an immutable set of URIs backed by
+     * the compressed representation.
+     *
+     * @param v the vertex
+     * @return the inclusive closure of the vertex, null if the vertex is not
+     * indexed
+     */
+    public Set<URI> getClosure(URI v) {
+        int id = index.getId(v);
+        if (id == -1) {
+            return null;
+        }
+        return new ClosureView(closures[id]);
+    }
+
+    /**
+     * @return an immutable view of the closures, the keys of the map are the
+     * indexed vertices
+     */
+    public Map<URI, Set<URI>> asMap() {
+        return new AbstractMap<URI, Set<URI>>() {
+            @Override
+            public Set<URI> get(Object key) {
+                int id = index.getId(key);
+                return id == -1 ? null : new ClosureView(closures[id]);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return index.contains(key);
+            }
+
+            @Override
+            public int size() {
+                return closures.length;
+            }
+
+            @Override
+            public Set<Entry<URI, Set<URI>>> entrySet() {
+                return new AbstractSet<Entry<URI, Set<URI>>>() {
+                    @Override
+                    public Iterator<Entry<URI, Set<URI>>> iterator() {
+                        return new Iterator<Entry<URI, Set<URI>>>() {
+                            int next = 0;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < closures.length;
+                            }
+
+                            @Override
+                            public Entry<URI, Set<URI>> next() {
+                                if (next >= closures.length) {
+                                    throw new NoSuchElementException();
+                                }
+                                int id = next++;
+                                return new SimpleImmutableEntry<URI, Set<URI>>(index.get(id), new ClosureView(closures[id]));
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return closures.length;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Immutable view of a closure as a set of URIs.
+     */
+    private class ClosureView extends AbstractSet<URI> {
+
+        private final CompressedIntSet ids;
+
+        ClosureView(CompressedIntSet ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = index.getId(o);
+            return id != -1 && ids.contains(id);
+        }
+
+        @Override
+        public int size() {
+            return ids.cardinality();
+        }
+
+        @Override
+        public Iterator<URI> iterator() {
+            final CompressedIntSet.IntIterator it = ids.iterator();
+            return new Iterator<URI>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public URI next() {
+                    return index.get(it.next());
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
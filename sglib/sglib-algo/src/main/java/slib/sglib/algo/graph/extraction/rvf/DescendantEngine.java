@@ -37,6 +37,7 @@ import org.openrdf.model.URI;
 import slib.sglib.model.graph.G;
 import slib.sglib.model.graph.utils.Direction;
 import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.ObjectIdIndex;
 
 /**
  *
@@ -107,4 +108,30 @@ public class DescendantEngine extends RVF_TAX {
         }
         return allDescs;
     }
+
+    /**
+     * Compute the inclusive descendants of all vertices contained in the graph
+     * as compressed sets of vertex identifiers. The vertices are numbered in
+     * topological order, i.e. a class always has a lower identifier than its
+     * descendants.
+     *
+     * @return the compressed inclusive descendants of each vertex
+     * @throws SLIB_Ex_Critic if the taxonomic graph is not acyclic
+     */
+    public CompressedClosure getAllDescendantsIncCompressed() throws SLIB_Ex_Critic {
+        return getAllDescendantsIncCompressed(CompressedClosure.buildTopologicalIndex(g, wc, g.getV()));
+    }
+
+    /**
+     * Compute the inclusive descendants of the given vertices as compressed sets
+     * of vertex identifiers. Only the indexed vertices are considered, i.e.
+     * the descendants which are not indexed are not reported.
+     *
+     * @param index the index of the vertices to consider
+     * @return the compressed inclusive descendants of each indexed vertex
+     * @throws SLIB_Ex_Critic if the taxonomic graph is not acyclic
+     */
+    public CompressedClosure getAllDescendantsIncCompressed(ObjectIdIndex<URI> index) throws SLIB_Ex_Critic {
+        return new CompressedClosure(g, wc, index, nbThreads);
+    }
 }
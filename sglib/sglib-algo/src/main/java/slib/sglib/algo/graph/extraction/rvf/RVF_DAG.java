@@ -35,6 +35,7 @@
 package slib.sglib.algo.graph.extraction.rvf;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -47,6 +48,8 @@ import slib.sglib.model.graph.utils.Direction;
 import slib.sglib.model.graph.utils.WalkConstraint;
 import slib.sglib.utils.WalkConstraintUtils;
 import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.CompressedIntSet;
+import slib.utils.impl.ObjectIdIndex;
 import slib.utils.impl.SetUtils;
 
 /**
@@ -59,6 +62,11 @@ import slib.utils.impl.SetUtils;
  */
 public class RVF_DAG extends RVF {
 
+    /**
+     * Number of threads used by the methods processing all the vertices.
+     */
+    protected int nbThreads = 1;
+
     /**
      * Create a basic RVF object considering an acyclic graph and a only one
      * type of relationships to consider during the traversal. Note that graph
@@ -82,6 +90,32 @@ public class RVF_DAG extends RVF {
         super(g, wc);
     }
 
+    /**
+     * Define the number of threads used by the methods processing all the
+     * vertices of the graph, i.e. {@link #getAllRV()},
+     * {@link #getTerminalVertices()}, {@link #computeNbPathLeadingToAllVertices()}
+     * and {@link #propagateNbOccurences(Map)}. When more than one thread is
+     * allowed, the vertices are grouped into topological levels and the
+     * vertices of a level are processed concurrently. The results are the same
+     * whatever the number of threads. Default value is 1.
+     *
+     * @param nbThreads the number of threads to use (at least 1)
+     */
+    public void setNbThreads(int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0: " + nbThreads);
+        }
+        this.nbThreads = nbThreads;
+    }
+
+    /**
+     * @return the number of threads used by the methods processing all the
+     * vertices of the graph
+     */
+    public int getNbThreads() {
+        return nbThreads;
+    }
+
     /**
      * Compute the set of reachable vertices for each vertices contained in the
      * graph according to the specified constraint associated to the instance in
@@ -98,6 +132,10 @@ public class RVF_DAG extends RVF {
         logger.debug("Get all reachable vertices : start");
         logger.debug("Walk constraint\n" + wc);
 
+        if (nbThreads > 1) {
+            return getAllRVByLevels();
+        }
+
         Map<URI, Set<URI>> allVertices = new HashMap<URI, Set<URI>>();
 
         Map<URI, Integer> inDegree = new HashMap<URI, Integer>();
@@ -198,6 +236,98 @@ public class RVF_DAG extends RVF {
         return allVertices;
     }
 
+    /**
+     * Level-synchronous version of {@link #getAllRV()}: the reachable vertices
+     * are first computed as compressed sets of identifiers, the vertices of a
+     * topological level being processed concurrently, and then converted to
+     * sets of URIs.
+     */
+    private Map<URI, Set<URI>> getAllRVByLevels() throws SLIB_Ex_Critic {
+
+        boolean hasTerminal = false;
+        for (URI v : g.getV()) {
+            if (g.getE(v, wc).isEmpty()) {
+                hasTerminal = true;
+                break;
+            }
+        }
+        if (!hasTerminal) {
+            throw new SLIB_Ex_Critic("Walk Constraint are to restrictive to use getAllVertices Method, cannot buil initialized queue..."
+                    + "Cannot find terminal vertices, i.e. vertices with no reachable vertices considering walkContraint: \n" + wc + "\nNumber of vertices tested " + g.getV().size());
+        }
+
+        ObjectIdIndex<URI> index = CompressedClosure.buildTopologicalIndex(g, WalkConstraintUtils.getInverse(wc, false), g.getV());
+        CompressedClosure closure = new CompressedClosure(g, wc, index, nbThreads);
+
+        Map<URI, Set<URI>> allVertices = toURISets(index, closure.getClosureArray(), true);
+
+        logger.debug("Get All reachable vertices : end");
+        return allVertices;
+    }
+
+    /**
+     * Convert sets of vertex identifiers into sets of URIs, concurrently.
+     *
+     * @param index the index of the vertices
+     * @param sets the set of identifiers associated to each vertex
+     * @param exclusive true if a vertex must be removed from its set
+     * @return the sets of URIs associated to each vertex
+     */
+    private Map<URI, Set<URI>> toURISets(final ObjectIdIndex<URI> index, final CompressedIntSet[] sets, final boolean exclusive) throws SLIB_Ex_Critic {
+
+        final List<Set<URI>> uriSets = new ArrayList<Set<URI>>(Collections.<Set<URI>>nCopies(sets.length, null));
+
+        TopologicalLevels.forEach(sets.length, new TopologicalLevels.VertexTask() {
+            @Override
+            public void process(int v) {
+                Set<URI> set = new HashSet<URI>();
+                CompressedIntSet.IntIterator it = sets[v].iterator();
+                while (it.hasNext()) {
+                    int r = it.next();
+                    if (!exclusive || r != v) {
+                        set.add(index.get(r));
+                    }
+                }
+                uriSets.set(v, set);
+            }
+        }, nbThreads);
+
+        Map<URI, Set<URI>> results = new HashMap<URI, Set<URI>>();
+        for (int v = 0; v < sets.length; v++) {
+            results.put(index.get(v), uriSets.get(v));
+        }
+        return results;
+    }
+
+    /**
+     * Index all the vertices of the graph and associate to each vertex the
+     * identifiers of the sources of the edges reaching it, considering the
+     * predicates of the walk constraint (one entry per edge).
+     */
+    private int[][] getSourcesOfIncomingEdges(ObjectIdIndex<URI> index) {
+
+        int[][] sources = new int[index.size()][];
+
+        for (int v = 0; v < sources.length; v++) {
+            Set<E> edges = g.getE(wc.getAcceptedPredicates(), index.get(v), Direction.IN);
+            int[] ids = new int[edges.size()];
+            int i = 0;
+            for (E e : edges) {
+                ids[i++] = index.getId(e.getSource());
+            }
+            sources[v] = ids;
+        }
+        return sources;
+    }
+
+    private ObjectIdIndex<URI> indexVertices() {
+        ObjectIdIndex<URI> index = new ObjectIdIndex<URI>(g.getV().size());
+        for (URI v : g.getV()) {
+            index.add(v);
+        }
+        return index;
+    }
+
     /**
      * Return the set of terminal vertices (leaves) reachable for all vertices
      * composing the loaded graph
@@ -211,6 +341,14 @@ public class RVF_DAG extends RVF {
 
         logger.info("Retrieving all reachable leaves");
 
+        if (nbThreads > 1) {
+            Map<URI, Set<URI>> allReachableLeaves = getTerminalVerticesByLevels();
+            if (allReachableLeaves != null) {
+                return allReachableLeaves;
+            }
+            logger.info("The graph is not acyclic, sequential processing is used");
+        }
+
         Map<URI, Set<URI>> allReachableLeaves = new HashMap<URI, Set<URI>>();
         Map<URI, Integer> inDegrees = new HashMap<URI, Integer>();
         Map<URI, Integer> inDegreesDone = new HashMap<URI, Integer>();
@@ -263,6 +401,47 @@ public class RVF_DAG extends RVF {
         return allReachableLeaves;
     }
 
+    /**
+     * Level-synchronous version of {@link #getTerminalVertices()}.
+     *
+     * @return the reachable leaves of each vertex, null if the graph is not
+     * acyclic
+     */
+    private Map<URI, Set<URI>> getTerminalVerticesByLevels() {
+
+        ObjectIdIndex<URI> index = indexVertices();
+        final int n = index.size();
+        final int[][] sources = getSourcesOfIncomingEdges(index);
+
+        TopologicalLevels levels = new TopologicalLevels(sources);
+        if (!levels.isComplete()) {
+            return null;
+        }
+
+        final CompressedIntSet[] leaves = new CompressedIntSet[n];
+        final ThreadLocal<CompressedClosure.UnionBuffer> buffers = new ThreadLocal<CompressedClosure.UnionBuffer>() {
+            @Override
+            protected CompressedClosure.UnionBuffer initialValue() {
+                return new CompressedClosure.UnionBuffer(n);
+            }
+        };
+
+        try {
+            levels.forEachLevel(new TopologicalLevels.VertexTask() {
+                @Override
+                public void process(int v) {
+                    int[] children = sources[v];
+                    leaves[v] = buffers.get().union(leaves, children, children.length == 0 ? v : -1);
+                }
+            }, nbThreads);
+
+            return toURISets(index, leaves, false);
+
+        } catch (SLIB_Ex_Critic e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
     /**
      *
      * @return @throws SLIB_Ex_Critic
@@ -289,11 +468,21 @@ public class RVF_DAG extends RVF {
      * occurrences of each vertices
      * @return ResultStack of type Double representing the number occurrences
      * propagated of each vertices
-     * @throws SLIB_Ex_Critic
+     * @throws SLIB_Ex_Critic if a vertex linked to another vertex by one of
+     * the relationships loaded is not associated to a number of occurrences
      */
     public Map<URI, Integer> propagateNbOccurences(Map<URI, Integer> nbOccurrence) throws SLIB_Ex_Critic {
 
-        Map<URI, Set<URI>> allVertices = new HashMap<URI, Set<URI>>();
+        checkNbOccurrences(nbOccurrence);
+
+        if (nbThreads > 1) {
+            Map<URI, Integer> nbOcc_prop = propagateNbOccurencesByLevels(nbOccurrence);
+            if (nbOcc_prop != null) {
+                return nbOcc_prop;
+            }
+            logger.info("The graph is not acyclic, sequential processing is used");
+        }
+
         Map<URI, Integer> inDegree = new HashMap<URI, Integer>();
         Map<URI, Integer> inDegreeDone = new HashMap<URI, Integer>();
         Map<URI, Integer> nbOcc_prop = new HashMap<URI, Integer>();
@@ -306,8 +495,7 @@ public class RVF_DAG extends RVF {
 
         for (URI v : g.getV()) {
 
-            allVertices.put(v, new HashSet<URI>());
-            int sizeOpposite = g.getE(wc.getAcceptedPredicates(), v, Direction.OUT).size();
+            int sizeOpposite = g.getE(wc.getAcceptedPredicates(), v, Direction.IN).size();
             inDegree.put(v, sizeOpposite);
             inDegreeDone.put(v, 0);
 
@@ -320,11 +508,8 @@ public class RVF_DAG extends RVF {
 
             URI current = queue.get(0);
             queue.remove(0);
-            allVertices.get(current).add(current);
-
-
-            Set<E> edges = g.getE(wc.getAcceptedPredicates(), current, Direction.IN);
 
+            Set<E> edges = g.getE(wc.getAcceptedPredicates(), current, Direction.OUT);
 
             for (E e : edges) {
                 URI dest = e.getTarget();
@@ -334,10 +519,6 @@ public class RVF_DAG extends RVF {
                 int done = inDegreeDone.get(dest) + 1;
                 inDegreeDone.put(dest, done);
 
-                // union
-                Set<URI> union = SetUtils.union(allVertices.get(current), allVertices.get(dest));
-                allVertices.put(dest, union);
-
                 if (done == inDegree.get(dest)) {
                     queue.add(dest);
                 }
@@ -345,4 +526,62 @@ public class RVF_DAG extends RVF {
         }
         return nbOcc_prop;
     }
+
+    /**
+     * Check that all the vertices involved in the propagation of the number
+     * of occurrences, i.e. linked to another vertex by one of the
+     * relationships loaded, are associated to a number of occurrences.
+     */
+    private void checkNbOccurrences(Map<URI, Integer> nbOccurrence) throws SLIB_Ex_Critic {
+
+        for (URI v : g.getV()) {
+            if (nbOccurrence.get(v) == null && !g.getE(wc.getAcceptedPredicates(), v, Direction.BOTH).isEmpty()) {
+                throw new SLIB_Ex_Critic("No number of occurrences is associated to vertex " + v + ", a number of occurrences is required for all the vertices linked by " + wc.getAcceptedPredicates());
+            }
+        }
+    }
+
+    /**
+     * Level-synchronous version of {@link #propagateNbOccurences(Map)}. The
+     * vertices which are not associated to a number of occurrences are not
+     * linked to other vertices (see {@link #checkNbOccurrences(Map)}) and
+     * are not part of the result.
+     *
+     * @return the propagated number of occurrences of each vertex, null if the
+     * graph is not acyclic
+     */
+    private Map<URI, Integer> propagateNbOccurencesByLevels(Map<URI, Integer> nbOccurrence) throws SLIB_Ex_Critic {
+
+        ObjectIdIndex<URI> index = indexVertices();
+        final int[][] sources = getSourcesOfIncomingEdges(index);
+
+        TopologicalLevels levels = new TopologicalLevels(sources);
+        if (!levels.isComplete()) {
+            return null;
+        }
+
+        final int[] nbOcc = new int[index.size()];
+        for (int v = 0; v < nbOcc.length; v++) {
+            Integer nb = nbOccurrence.get(index.get(v));
+            nbOcc[v] = nb == null ? 0 : nb;
+        }
+
+        levels.forEachLevel(new TopologicalLevels.VertexTask() {
+            @Override
+            public void process(int v) {
+                int nb = nbOcc[v];
+                for (int s : sources[v]) {
+                    nb += nbOcc[s];
+                }
+                nbOcc[v] = nb;
+            }
+        }, nbThreads);
+
+        Map<URI, Integer> nbOcc_prop = new HashMap<URI, Integer>();
+        for (URI v : nbOccurrence.keySet()) {
+            int id = index.getId(v);
+            nbOcc_prop.put(v, id == -1 ? nbOccurrence.get(v) : nbOcc[id]);
+        }
+        return nbOcc_prop;
+    }
 }
@@ -0,0 +1,265 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.algo.graph.extraction.rvf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Partition of the vertices of a Directed Acyclic Graph into topological
+ * levels: a vertex belongs to level 0 if it has no predecessor, to level
+ * l + 1 if the highest level of its predecessors is l. The vertices of a level
+ * only depend on vertices of lower levels and can therefore be processed
+ * concurrently once the lower levels have been processed.
+ *
+ * Vertices are identified by dense integer identifiers.
+ *
+ * @author Harispe Sébastien
+ */
+class TopologicalLevels {
+
+    /**
+     * Number of vertices under which a level is processed by the calling
+     * thread, the cost of scheduling tasks exceeding the gain otherwise.
+     */
+    private static final int MIN_PARALLEL_LEVEL_SIZE = 256;
+
+    /**
+     * Processing of a vertex.
+     */
+    interface VertexTask {
+
+        /**
+         * @param v the identifier of the vertex to process
+         * @throws Exception
+         */
+        void process(int v) throws Exception;
+    }
+
+    private final int[] order;
+    private final int[] levelStart;
+    private final int nbLevels;
+    private final int nbVertices;
+
+    /**
+     * Compute the topological levels of a graph.
+     *
+     * @param predecessors for each vertex, the vertices which must be
+     * processed before it, duplicates are allowed
+     */
+    TopologicalLevels(int[][] predecessors) {
+
+        nbVertices = predecessors.length;
+
+        int[] remaining = new int[nbVertices];
+        int[] nbSucc = new int[nbVertices + 1];
+
+        for (int v = 0; v < nbVertices; v++) {
+            remaining[v] = predecessors[v].length;
+            for (int p : predecessors[v]) {
+                nbSucc[p + 1]++;
+            }
+        }
+        for (int v = 0; v < nbVertices; v++) {
+            nbSucc[v + 1] += nbSucc[v];
+        }
+        int[] succ = new int[nbSucc[nbVertices]];
+        int[] fill = new int[nbVertices];
+        for (int v = 0; v < nbVertices; v++) {
+            for (int p : predecessors[v]) {
+                succ[nbSucc[p] + fill[p]++] = v;
+            }
+        }
+
+        order = new int[nbVertices];
+        List<Integer> starts = new ArrayList<Integer>();
+        int tail = 0;
+
+        for (int v = 0; v < nbVertices; v++) {
+            if (remaining[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+
+        int head = 0;
+        while (head < tail) {
+            starts.add(head);
+            int end = tail;
+            for (int i = head; i < end; i++) {
+                int v = order[i];
+                for (int s = nbSucc[v]; s < nbSucc[v + 1]; s++) {
+                    if (--remaining[succ[s]] == 0) {
+                        order[tail++] = succ[s];
+                    }
+                }
+            }
+            head = end;
+        }
+
+        nbLevels = starts.size();
+        levelStart = new int[nbLevels + 1];
+        for (int l = 0; l < nbLevels; l++) {
+            levelStart[l] = starts.get(l);
+        }
+        levelStart[nbLevels] = tail;
+    }
+
+    /**
+     * @return true if all the vertices have been associated to a level, i.e.
+     * the graph is acyclic
+     */
+    boolean isComplete() {
+        return levelStart[nbLevels] == nbVertices;
+    }
+
+    /**
+     * @return the number of vertices which have been associated to a level
+     */
+    int getNbOrderedVertices() {
+        return levelStart[nbLevels];
+    }
+
+    /**
+     * @return the number of levels
+     */
+    int getNbLevels() {
+        return nbLevels;
+    }
+
+    /**
+     * Process all the vertices associated to a level, level by level. The
+     * vertices of a level are distributed among the given number of threads
+     * and a level is only started when the previous one is fully processed.
+     *
+     * @param task the processing to apply to each vertex
+     * @param nbThreads the number of threads to use
+     * @throws SLIB_Ex_Critic if the processing of a vertex fails
+     */
+    void forEachLevel(VertexTask task, int nbThreads) throws SLIB_Ex_Critic {
+
+        ExecutorService pool = nbThreads > 1 ? Executors.newFixedThreadPool(nbThreads) : null;
+        try {
+            for (int l = 0; l < nbLevels; l++) {
+                run(pool, nbThreads, task, order, levelStart[l], levelStart[l + 1]);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Process the vertices [0, size[ using the given number of threads, in no
+     * particular order.
+     *
+     * @param size the number of vertices
+     * @param task the processing to apply to each vertex
+     * @param nbThreads the number of threads to use
+     * @throws SLIB_Ex_Critic if the processing of a vertex fails
+     */
+    static void forEach(int size, VertexTask task, int nbThreads) throws SLIB_Ex_Critic {
+
+        ExecutorService pool = nbThreads > 1 ? Executors.newFixedThreadPool(nbThreads) : null;
+        try {
+            run(pool, nbThreads, task, null, 0, size);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Apply the task to the vertices vertices[from, to[ (or to [from, to[ if
+     * no array is given).
+     */
+    private static void run(ExecutorService pool, int nbThreads, final VertexTask task, final int[] vertices, int from, int to) throws SLIB_Ex_Critic {
+
+        int size = to - from;
+
+        if (pool == null || size < MIN_PARALLEL_LEVEL_SIZE) {
+            try {
+                for (int i = from; i < to; i++) {
+                    task.process(vertices == null ? i : vertices[i]);
+                }
+            } catch (SLIB_Ex_Critic e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SLIB_Ex_Critic("Error processing a vertex: " + e.getMessage(), e);
+            }
+            return;
+        }
+
+        int chunk = (size + nbThreads - 1) / nbThreads;
+        List<Callable<Void>> chunks = new ArrayList<Callable<Void>>();
+
+        for (int start = from; start < to; start += chunk) {
+
+            final int s = start;
+            final int e = Math.min(to, start + chunk);
+
+            chunks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = s; i < e; i++) {
+                        task.process(vertices == null ? i : vertices[i]);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> f : pool.invokeAll(chunks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SLIB_Ex_Critic("Interrupted while processing vertices");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SLIB_Ex_Critic) {
+                throw (SLIB_Ex_Critic) e.getCause();
+            }
+            throw new SLIB_Ex_Critic("Error processing a vertex: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -34,8 +34,7 @@
  */
 package slib.sglib.algo.graph.shortest_path;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.openrdf.model.URI;
@@ -46,12 +45,21 @@ import slib.sglib.model.graph.elements.E;
 import slib.sglib.model.graph.utils.WalkConstraint;
 import slib.sglib.model.graph.weight.GWS;
 import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.ObjectIdIndex;
 
 /**
- * Basic implementation of the shortest path algorithm proposed by Dijkstra Only
+ * Implementation of the shortest path algorithm proposed by Dijkstra. Only
  * suited for shortest path exclusively composed of non-negative weight <a
- * href="http://en.wikipedia.org/wiki/Dijkstra's_algorithm">more about</a> TODO
- * optimize i.e Fibonacci heap implementation
+ * href="http://en.wikipedia.org/wiki/Dijkstra's_algorithm">more about</a>
+ *
+ * At the first query, the vertices of the graph are associated to dense
+ * identifiers (see {@link #getIndex()}) and the edges respecting the walk
+ * constraint are stored as adjacency arrays with their weights. The graph
+ * and the weighting scheme are therefore expected not to be modified once
+ * the first query has been performed. Queries rely on an indexed binary heap
+ * and on distance arrays which are reused by the queries performed by a same
+ * thread, a query only resets the entries it has modified. An instance can
+ * safely be queried by several threads.
  *
  * @author Sebastien Harispe
  */
@@ -61,6 +69,8 @@ public class Dijkstra {
     G g;
     WalkConstraint walkConstraints;
     GWS ws = null;
+    private volatile Adjacency adjacency;
+    private final ThreadLocal<SearchState[]> states = new ThreadLocal<SearchState[]>();
 
     /**
      * Check the weighting scheme only contains non negative weights
@@ -108,147 +118,368 @@ public class Dijkstra {
     }
 
     /**
-     * Compute shortest path between two nodes Note also that the resultStack is
-     * populated during computation
+     * Compute shortest path between two nodes. The search stops as soon as
+     * the target is reached.
      *
      * @param source
      * @param t
-     * @return the shortest path weight as double
+     * @return the shortest path weight as double, null if the target cannot
+     * be reached from the source
      */
     public Double shortestPath(URI source, URI t) {
 
         logger.debug("\tComputing Shortest path... from " + source + " to " + t + " " + ws);
 
-        HashMap<URI, Double> dists = new HashMap<URI, Double>();
-        HashMap<URI, Boolean> visited = new HashMap<URI, Boolean>();
+        ObjectIdIndex<URI> index = getIndex();
+        int s = index.getId(source);
+        int target = index.getId(t);
 
-        // initialize data structures
-        for (URI v : g.getV()) {
-            dists.put(v, null);
-            visited.put(v, false);
+        if (s == -1 || target == -1) {
+            return source.equals(t) ? 0. : null;
         }
+        return toDouble(shortestPath(s, target));
+    }
 
-        dists.put(source, 0.);
+    /**
+     * Compute shortest path between two nodes using a bidirectional search,
+     * i.e. two searches are performed alternately, from the source following
+     * the walk constraint and from the target following the inverse walk
+     * constraint, until the shortest path is found. This reduces the number
+     * of vertices explored compared to {@link #shortestPath(URI, URI)} when
+     * the target is far from the source.
+     *
+     * @param source
+     * @param t
+     * @return the shortest path weight as double, null if the target cannot
+     * be reached from the source
+     */
+    public Double shortestPathBidirectional(URI source, URI t) {
 
+        ObjectIdIndex<URI> index = getIndex();
+        int s = index.getId(source);
+        int target = index.getId(t);
 
-        for (int i = 0; i < dists.size(); i++) {
+        if (s == -1 || target == -1) {
+            return source.equals(t) ? 0. : null;
+        }
+        return toDouble(shortestPathBidirectional(s, target));
+    }
 
-            if (dists.size() >= 1000 && i % 1000 == 0) {
-                logger.info("\tComputing Shortest path... Step " + i + "/" + dists.size());
-            }
+    /**
+     * Compute the shortest paths from a vertex to all the vertices which can
+     * be reached from it.
+     *
+     * @param source
+     * @return the weight of the shortest path to each vertex reachable from
+     * the source (source included). Vertices which cannot be reached are not
+     * part of the result.
+     */
+    public ConcurrentHashMap<URI, Double> shortestPath(URI source) {
+
+        logger.debug("\tComputing Shortest path... from " + source + "  " + ws);
+
+        ConcurrentHashMap<URI, Double> dists = new ConcurrentHashMap<URI, Double>();
 
-            URI next = minVertex(dists, visited);
+        Adjacency adj = getAdjacency();
+        ObjectIdIndex<URI> index = adj.index;
+        int s = index.getId(source);
+
+        if (s == -1) {
+            dists.put(source, 0.);
+            return dists;
+        }
 
-            if (next == null) {
-                break;
-            } else if (next == t) {
-                return dists.get(t);
+        SearchState state = getStates()[0];
+        try {
+            state.search(adj.offsets, adj.targets, adj.weights, s, -1);
+            for (int i = 0; i < state.nbTouched; i++) {
+                int v = state.touched[i];
+                dists.put(index.get(v), state.dist[v]);
             }
+        } finally {
+            state.reset();
+        }
+        return dists;
+    }
 
-            visited.put(next, true);
+    /**
+     * Compute shortest path between two vertices given their identifiers.
+     *
+     * @param source the identifier of the source
+     * @param t the identifier of the target
+     * @return the shortest path weight, {@link Double#POSITIVE_INFINITY} if the
+     * target cannot be reached
+     * @see #getIndex()
+     */
+    public double shortestPath(int source, int t) {
+
+        Adjacency adj = getAdjacency();
+        SearchState state = getStates()[0];
+        try {
+            state.search(adj.offsets, adj.targets, adj.weights, source, t);
+            return state.dist[t];
+        } finally {
+            state.reset();
+        }
+    }
 
-            Set<E> edges = g.getE(next, walkConstraints);
+    /**
+     * Compute shortest path between two vertices given their identifiers
+     * using a bidirectional search.
+     *
+     * @param source the identifier of the source
+     * @param t the identifier of the target
+     * @return the shortest path weight, {@link Double#POSITIVE_INFINITY} if the
+     * target cannot be reached
+     * @see #shortestPathBidirectional(URI, URI)
+     */
+    public double shortestPathBidirectional(int source, int t) {
 
-            for (E e : edges) {
+        if (source == t) {
+            return 0;
+        }
 
+        Adjacency adj = getAdjacency();
+        SearchState[] st = getStates();
+        SearchState forward = st[0];
+        SearchState backward = st[1];
 
-                Double d = dists.get(next) + (ws == null ? 1 : ws.getWeight(e));
+        try {
+            forward.start(source);
+            backward.start(t);
 
-                URI target = e.getTarget();
+            double best = Double.POSITIVE_INFINITY;
 
-                if (!target.equals(next)) { // outEdge
-                    if (dists.get(target) == null || dists.get(target) > d) {
-                        dists.put(target, d);
-                    }
-                } else { // in Edges
-                    URI src = e.getSource();
-                    if (dists.get(src) == null || dists.get(src) > d) {
-                        dists.put(src, d);
-                    }
+            while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+
+                if (forward.heap.peekKey() + backward.heap.peekKey() >= best) {
+                    break;
+                }
+                if (forward.heap.size() <= backward.heap.size()) {
+                    best = forward.expand(adj.offsets, adj.targets, adj.weights, backward, best);
+                } else {
+                    best = backward.expand(adj.reverseOffsets, adj.reverseTargets, adj.reverseWeights, forward, best);
                 }
             }
-        }
+            return best;
 
-        return dists.get(t);
+        } finally {
+            forward.reset();
+            backward.reset();
+        }
     }
 
     /**
+     * Access to the identifiers associated to the vertices of the graph.
      *
-     * @param source
-     * @return
+     * @return the index of the vertices
      */
-    public ConcurrentHashMap<URI, Double> shortestPath(URI source) {
+    public ObjectIdIndex<URI> getIndex() {
+        return getAdjacency().index;
+    }
 
-        logger.debug("\tComputing Shortest path... from " + source + "  " + ws);
+    private static Double toDouble(double d) {
+        return d == Double.POSITIVE_INFINITY ? null : d;
+    }
 
-        ConcurrentHashMap<URI, Double> dists = new ConcurrentHashMap<URI, Double>();
-        ConcurrentHashMap<URI, Boolean> visited = new ConcurrentHashMap<URI, Boolean>();
+    private Adjacency getAdjacency() {
+        Adjacency adj = adjacency;
+        if (adj == null) {
+            synchronized (this) {
+                adj = adjacency;
+                if (adj == null) {
+                    adj = new Adjacency();
+                    adjacency = adj;
+                }
+            }
+        }
+        return adj;
+    }
 
-        // initialize data structures
-        for (URI v : g.getV()) {
-            dists.put(v, null);
-            visited.put(v, false);
+    private SearchState[] getStates() {
+        Adjacency adj = getAdjacency();
+        SearchState[] st = states.get();
+        if (st == null) {
+            int n = adj.index.size();
+            st = new SearchState[]{new SearchState(n), new SearchState(n)};
+            states.set(st);
         }
+        return st;
+    }
 
-        dists.put(source, new Double(0));
+    /**
+     * Weighted adjacency arrays of the graph considering the walk constraint,
+     * and of the inverse graph.
+     */
+    private class Adjacency {
+
+        final ObjectIdIndex<URI> index;
+        final int[] offsets;
+        final int[] targets;
+        final double[] weights;
+        final int[] reverseOffsets;
+        final int[] reverseTargets;
+        final double[] reverseWeights;
+
+        Adjacency() {
+
+            Set<URI> vertices = g.getV();
+            index = new ObjectIdIndex<URI>(vertices.size());
+            for (URI v : vertices) {
+                index.add(v);
+            }
+            int n = index.size();
 
+            offsets = new int[n + 1];
+            int[] tmpTargets = new int[16];
+            double[] tmpWeights = new double[16];
+            int nbArcs = 0;
 
-        for (int i = 0; i < dists.size(); i++) {
+            for (int v = 0; v < n; v++) {
 
-            if (dists.size() >= 1000 && i % 1000 == 0) {
-                logger.debug("\tComputing Shortest from " + source + " paths... Step " + i + "/" + dists.size());
-            }
+                URI uri = index.get(v);
 
-            URI next = minVertex(dists, visited);
+                for (E e : g.getE(uri, walkConstraints)) {
 
-            if (next == null) {
-                break;
+                    URI target = e.getTarget();
+                    int w = index.getId(target.equals(uri) ? e.getSource() : target);
+                    if (w == -1) {
+                        continue;
+                    }
+                    if (nbArcs == tmpTargets.length) {
+                        tmpTargets = Arrays.copyOf(tmpTargets, nbArcs * 2);
+                        tmpWeights = Arrays.copyOf(tmpWeights, nbArcs * 2);
+                    }
+                    tmpTargets[nbArcs] = w;
+                    tmpWeights[nbArcs] = ws == null ? 1 : ws.getWeight(e);
+                    nbArcs++;
+                }
+                offsets[v + 1] = nbArcs;
             }
+            targets = Arrays.copyOf(tmpTargets, nbArcs);
+            weights = Arrays.copyOf(tmpWeights, nbArcs);
 
-            visited.put(next, true);
+            reverseOffsets = new int[n + 1];
+            for (int a = 0; a < nbArcs; a++) {
+                reverseOffsets[targets[a] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                reverseOffsets[v + 1] += reverseOffsets[v];
+            }
+            reverseTargets = new int[nbArcs];
+            reverseWeights = new double[nbArcs];
+            int[] fill = Arrays.copyOf(reverseOffsets, n);
+            for (int v = 0; v < n; v++) {
+                for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+                    int pos = fill[targets[a]]++;
+                    reverseTargets[pos] = v;
+                    reverseWeights[pos] = weights[a];
+                }
+            }
+            logger.debug("Shortest path adjacency built: " + n + " vertices, " + nbArcs + " arcs");
+        }
+    }
 
-            Set<E> edges = g.getE(next, walkConstraints);
+    /**
+     * State of a search: tentative distances, settled vertices and heap of
+     * the vertices to explore. The arrays are allocated once per thread and
+     * only the entries modified by a search are reset after it.
+     */
+    private static class SearchState {
+
+        final double[] dist;
+        final boolean[] settled;
+        final IndexedMinHeap heap;
+        int[] touched = new int[16];
+        int nbTouched = 0;
+
+        SearchState(int n) {
+            dist = new double[n];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            settled = new boolean[n];
+            heap = new IndexedMinHeap(n);
+        }
 
-            for (E e : edges) {
+        void start(int source) {
+            touch(source);
+            dist[source] = 0;
+            heap.offer(source, 0);
+        }
 
-                Double d = dists.get(next) + (ws == null ? 1 : ws.getWeight(e));
+        /**
+         * Search from the source until the target is settled (-1 to explore
+         * all the reachable vertices).
+         */
+        void search(int[] offsets, int[] targets, double[] weights, int source, int target) {
 
-                URI target = e.getTarget();
+            start(source);
 
-                if (!target.equals(next)) { // outEdge
-                    if (dists.get(target) == null || dists.get(target) > d) {
-                        dists.put(target, d);
-                    }
-                } else { // in Edges
-                    URI src = e.getSource();
-                    if (dists.get(src) == null || dists.get(src) > d) {
-                        dists.put(src, d);
+            while (!heap.isEmpty()) {
+
+                int u = heap.poll();
+                settled[u] = true;
+                if (u == target) {
+                    return;
+                }
+                double du = dist[u];
+
+                for (int a = offsets[u]; a < offsets[u + 1]; a++) {
+                    int w = targets[a];
+                    double d = du + weights[a];
+                    if (!settled[w] && d < dist[w]) {
+                        if (dist[w] == Double.POSITIVE_INFINITY) {
+                            touch(w);
+                        }
+                        dist[w] = d;
+                        heap.offer(w, d);
                     }
                 }
             }
         }
 
-//		for(V v: g.getVertices())
-//			System.out.println("#"+v+"   "+dists.get(v));
-
-
-        return dists;
-    }
-
-    private URI minVertex(Map<URI, Double> dist, Map<URI, Boolean> visited) {
-
-        Double x = Double.MAX_VALUE;
+        /**
+         * Settle the next vertex of a bidirectional search.
+         *
+         * @return the weight of the best path found so far
+         */
+        double expand(int[] offsets, int[] targets, double[] weights, SearchState other, double best) {
+
+            int u = heap.poll();
+            settled[u] = true;
+            double du = dist[u];
+
+            for (int a = offsets[u]; a < offsets[u + 1]; a++) {
+                int w = targets[a];
+                double d = du + weights[a];
+                if (!settled[w] && d < dist[w]) {
+                    if (dist[w] == Double.POSITIVE_INFINITY) {
+                        touch(w);
+                    }
+                    dist[w] = d;
+                    heap.offer(w, d);
+                }
+                if (d + other.dist[w] < best) {
+                    best = d + other.dist[w];
+                }
+            }
+            return best;
+        }
 
-        URI next = null;   // graph not connected, or no unvisited vertices
-        
-        for (URI v : dist.keySet()) {
+        private void touch(int v) {
+            if (nbTouched == touched.length) {
+                touched = Arrays.copyOf(touched, nbTouched * 2);
+            }
+            touched[nbTouched++] = v;
+        }
 
-            
-            if (!visited.get(v) && dist.get(v) != null && dist.get(v) < x) {
-                next = v;
-                x = dist.get(v);
+        void reset() {
+            for (int i = 0; i < nbTouched; i++) {
+                int v = touched[i];
+                dist[v] = Double.POSITIVE_INFINITY;
+                settled[v] = false;
             }
+            nbTouched = 0;
+            heap.clear();
         }
-        return next;
     }
 }
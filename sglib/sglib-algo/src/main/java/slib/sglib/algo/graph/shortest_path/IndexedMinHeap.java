@@ -0,0 +1,208 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.algo.graph.shortest_path;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of integer identifiers in [0, capacity[ ordered by a double
+ * key. The position of each identifier in the heap is indexed, which makes
+ * it possible to decrease the key of an identifier already stored in the heap
+ * in O(log n).
+ *
+ * The heap is not thread safe.
+ *
+ * @author Harispe Sébastien
+ */
+public class IndexedMinHeap {
+
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] keys;
+    private int size;
+
+    /**
+     * Create an empty heap.
+     *
+     * @param capacity the number of identifiers which can be stored, i.e.
+     * identifiers are in [0, capacity[
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * @return the number of identifiers stored in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the heap does not contain any identifier
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param id the identifier
+     * @return true if the identifier is stored in the heap
+     */
+    public boolean contains(int id) {
+        return positions[id] != -1;
+    }
+
+    /**
+     * Add an identifier to the heap or decrease its key if it is already
+     * stored. Nothing is done if the identifier is stored with a lower or
+     * equal key.
+     *
+     * @param id the identifier
+     * @param key the key associated to the identifier
+     */
+    public void offer(int id, double key) {
+
+        int pos = positions[id];
+
+        if (pos == -1) {
+            pos = size++;
+            heap[pos] = id;
+            positions[id] = pos;
+        } else if (key >= keys[id]) {
+            return;
+        }
+        keys[id] = key;
+        siftUp(pos);
+    }
+
+    /**
+     * @return the identifier associated to the lowest key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * @return the lowest key of the heap
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public double peekKey() {
+        return keys[peek()];
+    }
+
+    /**
+     * Remove the identifier associated to the lowest key.
+     *
+     * @return the identifier associated to the lowest key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int poll() {
+
+        int min = peek();
+        positions[min] = -1;
+        size--;
+
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Remove all the identifiers, in O(size).
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+
+        int id = heap[pos];
+        double key = keys[id];
+
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int p = heap[parent];
+            if (keys[p] <= key) {
+                break;
+            }
+            heap[pos] = p;
+            positions[p] = pos;
+            pos = parent;
+        }
+        heap[pos] = id;
+        positions[id] = pos;
+    }
+
+    private void siftDown(int pos) {
+
+        int id = heap[pos];
+        double key = keys[id];
+        int half = size >>> 1;
+
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int c = heap[child];
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[c]) {
+                child = right;
+                c = heap[child];
+            }
+            if (key <= keys[c]) {
+                break;
+            }
+            heap[pos] = c;
+            positions[c] = pos;
+            pos = child;
+        }
+        heap[pos] = id;
+        positions[id] = pos;
+    }
+}
@@ -1,8 +1,13 @@
 package slib.sglib.io.conf;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import slib.sglib.io.util.GDataValidator;
 import slib.sglib.io.util.GFormat;
 import slib.utils.i.CheckableValidity;
+import slib.utils.impl.Compression;
 import slib.utils.impl.ParametrableImpl;
 
 /**
@@ -64,6 +69,57 @@ public class GDataConf extends ParametrableImpl implements CheckableValidity {
         this.loc = loc;
     }
 
+    /**
+     * Access to the compression of the data. The compression can be
+     * specified using the parameter "compression" (e.g. gzip, zip, none or
+     * auto), it is detected from the first bytes of the file otherwise.
+     *
+     * @return the compression of the data
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the parameter does not correspond
+     * to a compression
+     */
+    public Compression getCompression() throws IOException {
+        Object param = getParameter("compression");
+        Compression c = Compression.fromName(param == null ? null : param.toString());
+        return c != null ? c : Compression.detect(loc);
+    }
+
+    /**
+     * @return true if the data are compressed
+     * @throws IOException if the file cannot be read
+     * @see #getCompression()
+     */
+    public boolean isCompressed() throws IOException {
+        return getCompression() != Compression.NONE;
+    }
+
+    /**
+     * Open the data, compressed data are decompressed on the fly by a
+     * dedicated thread.
+     *
+     * @return a stream over the (decompressed) data, a
+     * {@link java.io.FileInputStream} if the data are not compressed
+     * @throws IOException if the file cannot be read or uses an unsupported
+     * compression
+     * @see #getCompression()
+     */
+    public InputStream openInputStream() throws IOException {
+        return getCompression().openFile(loc);
+    }
+
+    /**
+     * Open the data as a buffered reader relying on the default charset, see
+     * {@link #openInputStream()}.
+     *
+     * @return the reader
+     * @throws IOException if the file cannot be read or uses an unsupported
+     * compression
+     */
+    public BufferedReader openReader() throws IOException {
+        return new BufferedReader(new InputStreamReader(openInputStream()));
+    }
+
     /**
      *
      * @return
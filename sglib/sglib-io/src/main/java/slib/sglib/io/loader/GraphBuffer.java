@@ -0,0 +1,234 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.io.loader;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.openrdf.model.URI;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.graph.utils.Direction;
+import slib.sglib.model.graph.utils.WalkConstraint;
+import slib.sglib.model.impl.graph.elements.Edge;
+
+/**
+ * Graph used to buffer the vertices and the edges loaded from a data source,
+ * the buffered data are then added to the target graph using
+ * {@link #flush()}. Several sources can therefore be loaded concurrently
+ * into their own buffer, and merged into the same graph in a given order.
+ *
+ * A buffer is only populated by loaders which add vertices and edges
+ * without consulting or removing the content of the graph, see
+ * {@link GraphLoaderGeneric#load(slib.sglib.io.conf.GraphConf, G, int)}.
+ * The accessors therefore only consider the buffered data, except
+ * {@link #containsVertex(URI)} which also considers the target graph, and
+ * the traversal methods and the removals are not supported: a loader
+ * relying on them must not be loaded into a buffer.
+ *
+ * The target graph must not be modified while the buffer is populated.
+ *
+ * @author Harispe Sébastien
+ */
+class GraphBuffer implements G {
+
+    private final G target;
+    private Set<URI> vertices = new LinkedHashSet<URI>();
+    private Set<E> edges = new LinkedHashSet<E>();
+
+    /**
+     * @param target the graph in which the buffered data will be added
+     */
+    GraphBuffer(G target) {
+        this.target = target;
+    }
+
+    /**
+     * Add the buffered vertices and edges to the target graph, in the order
+     * in which they have been buffered. The buffer is then cleared.
+     */
+    void flush() {
+        target.addV(vertices);
+        target.addEdges(edges);
+        vertices = new LinkedHashSet<URI>();
+        edges = new LinkedHashSet<E>();
+    }
+
+    @Override
+    public URI getURI() {
+        return target.getURI();
+    }
+
+    @Override
+    public void addE(URI src, URI type, URI target) {
+        addE(new Edge(src, type, target));
+    }
+
+    @Override
+    public void addE(E e) {
+        if (edges.add(e)) {
+            vertices.add(e.getSource());
+            vertices.add(e.getTarget());
+        }
+    }
+
+    @Override
+    public void addEdges(Set<E> e) {
+        if (e == null) {
+            return;
+        }
+        for (E edge : e) {
+            addE(edge);
+        }
+    }
+
+    @Override
+    public void addV(URI v) {
+        if (v == null) {
+            throw new IllegalArgumentException("The URI must not be null");
+        }
+        vertices.add(v);
+    }
+
+    @Override
+    public void addV(Set<URI> v) {
+        if (v == null) {
+            return;
+        }
+        vertices.addAll(v);
+    }
+
+    @Override
+    public boolean containsVertex(URI v) {
+        return vertices.contains(v) || target.containsVertex(v);
+    }
+
+    /**
+     * @return the buffered vertices
+     */
+    @Override
+    public Set<URI> getV() {
+        return Collections.unmodifiableSet(vertices);
+    }
+
+    /**
+     * @return the buffered edges
+     */
+    @Override
+    public Set<E> getE() {
+        return Collections.unmodifiableSet(edges);
+    }
+
+    /**
+     * @return the number of buffered vertices
+     */
+    @Override
+    public int getNumberVertices() {
+        return vertices.size();
+    }
+
+    /**
+     * @return the number of buffered edges
+     */
+    @Override
+    public int getNumberEdges() {
+        return edges.size();
+    }
+
+    @Override
+    public Set<E> getE(URI v, Direction dir) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public Set<E> getE(URI predicate) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public Set<E> getE(Set<URI> types) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public Set<E> getE(URI predicate, URI v, Direction dir) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public Set<E> getE(Set<URI> predicates, URI source, Direction dir) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public Set<E> getE(URI v, WalkConstraint wc) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public Set<URI> getV(URI v, WalkConstraint wc) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public Set<URI> getV(URI v, URI predicate, Direction dir) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public void removeE(E e) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public void removeE(URI t) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public void removeE(Set<E> e) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public void removeV(URI v) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+
+    @Override
+    public void removeV(Set<URI> setV) {
+        throw new UnsupportedOperationException("Not supported by a graph buffer");
+    }
+}
@@ -34,7 +34,14 @@
  */
 package slib.sglib.io.loader;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.openrdf.model.URI;
 import org.openrdf.rio.RDFFormat;
@@ -49,9 +56,12 @@ import slib.sglib.io.loader.bio.gaf2.GraphLoader_GAF_2;
 import slib.sglib.io.loader.bio.mesh.GraphLoader_MESH_XML;
 import slib.sglib.io.loader.bio.obo.GraphLoader_OBO_1_2;
 import slib.sglib.io.loader.bio.snomedct.GraphLoaderSnomedCT_RF2;
+import slib.sglib.io.loader.bio.snomedct.GraphLoaderSnomedCT_RF2_Streaming;
 import slib.sglib.io.loader.csv.GraphLoader_CSV;
+import slib.sglib.io.loader.rdf.GraphLoader_NTriples;
 import slib.sglib.io.loader.rdf.RDFLoader;
 import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.loader.snapshot.GraphLoader_Snapshot;
 import slib.sglib.io.util.GFormat;
 import slib.sglib.model.graph.G;
 import slib.sglib.model.impl.graph.memory.GraphMemory;
@@ -74,8 +84,8 @@ public class GraphLoaderGeneric {
      * The formats currently supported by the generic loader.
      */
     public static GFormat[] supportedFormat = {
-        GFormat.OBO, GFormat.GAF2, GFormat.NTRIPLES, GFormat.RDF_XML,
-        GFormat.RDF_XML, GFormat.SNOMED_CT_RF2, GFormat.MESH_XML, GFormat.CSV, GFormat.TSV_ANNOT
+        GFormat.OBO, GFormat.GAF2, GFormat.NTRIPLES, GFormat.NTRIPLES_FAST, GFormat.RDF_XML,
+        GFormat.RDF_XML, GFormat.SNOMED_CT_RF2, GFormat.SNOMED_CT_RF2_STREAMING, GFormat.MESH_XML, GFormat.CSV, GFormat.TSV_ANNOT, GFormat.SNAPSHOT
     };
 
     /**
@@ -118,7 +128,9 @@ public class GraphLoaderGeneric {
     /**
      * Build the graph considering the given configuration.
      *
-     * Add the loaded graph to the {@link DataRepository}.
+     * Add the loaded graph to the {@link DataRepository}. The data sources
+     * are loaded in parallel if the parameter "threads" of the configuration
+     * is greater than 1.
      *
      * @param graphConf the graph configuration
      * @return the graph which as been build form the configuration
@@ -126,12 +138,39 @@ public class GraphLoaderGeneric {
      * @throws SLIB_Exception
      */
     public static G load(GraphConf graphConf) throws SLIB_Exception {
+        return load(graphConf, getNbThreads(graphConf));
+    }
+
+    /**
+     * Build the graph considering the given configuration, the data sources
+     * are loaded in parallel, see {@link #load(GraphConf, G, int)}.
+     *
+     * Add the loaded graph to the {@link DataRepository}.
+     *
+     * @param graphConf the graph configuration
+     * @param nbThreads the number of data sources loaded concurrently
+     * @return the graph which as been build form the configuration
+     *
+     * @throws SLIB_Exception
+     */
+    public static G load(GraphConf graphConf, int nbThreads) throws SLIB_Exception {
 
         logger.info("Loading Graph " + graphConf.getUri());
 
+        List<GDataConf> data = graphConf.getData();
+
+        if (data.size() == 1 && data.get(0).getFormat() == GFormat.SNAPSHOT
+                && (graphConf.getActions() == null || graphConf.getActions().isEmpty())) {
+
+            // the immutable graph of the snapshot can directly be used
+            G g = GraphLoader_Snapshot.open(data.get(0)).getGraph(graphConf.getUri());
+            GraphRepositoryMemory.getSingleton().registerGraph(g);
+            return g;
+        }
+
         G g = createGraph(graphConf.getUri());
 
-        return load(graphConf, g);
+        return load(graphConf, g, nbThreads);
     }
 
     /**
@@ -139,6 +178,9 @@ public class GraphLoaderGeneric {
      * will be populated by the data and actions will be performed on it if any
      * exist.
      *
+     * The data sources are loaded in parallel if the parameter "threads" of
+     * the configuration is greater than 1, see
+     * {@link #load(GraphConf, G, int)}.
      *
      * @param graphConf the graph configuration
      * @return the graph which as been build form the configuration
@@ -146,12 +188,49 @@ public class GraphLoaderGeneric {
      * @throws SLIB_Exception
      */
     public static G load(GraphConf graphConf, G g) throws SLIB_Exception {
-        
+        return load(graphConf, g, getNbThreads(graphConf));
+    }
+
+    /**
+     * Impact the given graph considering the given configuration, loading
+     * independent data sources in parallel. The actions are performed once
+     * all the data sources have been loaded.
+     *
+     * The data sources are processed by stages of consecutive sources. The
+     * sources of a stage are loaded concurrently, each into its own buffer,
+     * and the buffers are then added to the graph in the order of the
+     * configuration. A source therefore sees the data loaded by the previous
+     * stages but not the data of the sources of its own stage. The stages are
+     * defined such as the graph is the same as the one obtained by loading
+     * the sources one after the other: only consecutive sources whose loader
+     * adds vertices and edges without consulting or modifying the content of
+     * the graph, e.g. ontologies (OBO, RDF, SLIB...), are grouped together.
+     * The other sources, e.g. GAF, CSV or MeSH, are loaded alone, directly
+     * into the graph.
+     *
+     * @param graphConf the graph configuration
+     * @param g the graph to populate
+     * @param nbThreads the number of data sources loaded concurrently
+     * @return the graph which as been build form the configuration
+     *
+     * @throws SLIB_Exception
+     */
+    public static G load(GraphConf graphConf, G g, int nbThreads) throws SLIB_Exception {
+
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0, given " + nbThreads);
+        }
+
         logger.info("-------------------------------------");
         logger.info(" Loading DATA");
         logger.info("-------------------------------------");
-        for (GDataConf dataConf : graphConf.getData()) {
-            populate(dataConf, g);
+
+        if (nbThreads == 1) {
+            for (GDataConf dataConf : graphConf.getData()) {
+                populate(dataConf, g);
+            }
+        } else {
+            loadParallel(graphConf.getData(), g, nbThreads);
         }
 
         URIFactory factory = URIFactoryMemory.getSingleton();
@@ -174,6 +253,162 @@ public class GraphLoaderGeneric {
         }
     }
 
+    /**
+     * Load the collection of configurations, the data sources of each graph
+     * are loaded in parallel, see {@link #load(GraphConf, G, int)}.
+     *
+     * @param graphConfs the collection of configurations
+     * @param nbThreads the number of data sources loaded concurrently
+     *
+     * @throws SLIB_Exception
+     */
+    public static void load(Collection<GraphConf> graphConfs, int nbThreads) throws SLIB_Exception {
+
+        for (GraphConf conf : graphConfs) {
+            load(conf, nbThreads);
+        }
+    }
+
+    /**
+     * The number of threads can be specified using the parameter "threads"
+     * of the configuration.
+     */
+    private static int getNbThreads(GraphConf conf) throws SLIB_Ex_Critic {
+
+        Object threads = conf.getParameter("threads");
+        if (threads == null) {
+            return 1;
+        }
+        try {
+            int n = Integer.parseInt(threads.toString().trim());
+            if (n < 1) {
+                throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be greater than 0");
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be an integer");
+        }
+    }
+
+    private static void loadParallel(List<GDataConf> data, G g, int nbThreads) throws SLIB_Exception {
+
+        ExecutorService threads = Executors.newFixedThreadPool(nbThreads);
+
+        try {
+            int start = 0;
+
+            while (start < data.size()) {
+
+                int end = start + 1;
+                while (end < data.size() && sameStage(data.get(start), data.get(end))) {
+                    end++;
+                }
+                List<GDataConf> stage = data.subList(start, end);
+
+                if (stage.size() == 1) {
+                    // no need to buffer the data
+                    GDataConf dataConf = stage.get(0);
+                    long t = System.currentTimeMillis();
+                    int nbEdges = g.getNumberEdges();
+                    int nbVertices = g.getNumberVertices();
+                    populate(dataConf, g);
+
+                    logger.info(dataConf.getFormat() + " " + dataConf.getLoc() + ": "
+                            + (g.getNumberVertices() - nbVertices) + " new vertices, " + (g.getNumberEdges() - nbEdges) + " new edges, loaded in "
+                            + (System.currentTimeMillis() - t) + "ms");
+                    start = end;
+                    continue;
+                }
+                logger.info("Loading " + stage.size() + " data sources in parallel");
+
+                List<Future<SourceLoading>> loadings = new ArrayList<Future<SourceLoading>>();
+                for (GDataConf dataConf : stage) {
+                    loadings.add(threads.submit(new SourceLoading(dataConf, g)));
+                }
+
+                // the buffers are added to the graph in the order of the configuration
+                for (Future<SourceLoading> f : loadings) {
+
+                    SourceLoading loading = get(f);
+
+                    long t = System.currentTimeMillis();
+                    int nbEdges = loading.buffer.getNumberEdges();
+                    int nbVertices = loading.buffer.getNumberVertices();
+                    loading.buffer.flush();
+
+                    logger.info(loading.dataConf.getFormat() + " " + loading.dataConf.getLoc() + ": "
+                            + nbVertices + " vertices, " + nbEdges + " edges, loaded in "
+                            + loading.time + "ms, merged in " + (System.currentTimeMillis() - t) + "ms");
+                }
+                start = end;
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static SourceLoading get(Future<SourceLoading> f) throws SLIB_Exception {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SLIB_Ex_Critic(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SLIB_Exception) {
+                throw (SLIB_Exception) e.getCause();
+            }
+            throw new SLIB_Ex_Critic(e.getCause());
+        }
+    }
+
+    /**
+     * Check if two data sources can be loaded in the same stage, see
+     * {@link #load(GraphConf, G, int)}.
+     */
+    private static boolean sameStage(GDataConf first, GDataConf conf) {
+        return isAddOnly(first.getFormat()) && isAddOnly(conf.getFormat());
+    }
+
+    /**
+     * @return true if the loader of the format only adds vertices and edges
+     * to the graph which is populated, i.e. it neither consults nor removes
+     * the content of the graph. Such loaders can populate a
+     * {@link GraphBuffer}.
+     */
+    private static boolean isAddOnly(GFormat format) {
+        return format == GFormat.OBO
+                || format == GFormat.RDF_XML
+                || format == GFormat.NTRIPLES
+                || format == GFormat.NTRIPLES_FAST
+                || format == GFormat.TURTLE
+                || format == GFormat.SLIB
+                || format == GFormat.SNOMED_CT_RF2
+                || format == GFormat.SNAPSHOT;
+    }
+
+    /**
+     * Loading of a data source into its own buffer.
+     */
+    private static class SourceLoading implements Callable<SourceLoading> {
+
+        final GDataConf dataConf;
+        final GraphBuffer buffer;
+        long time;
+
+        SourceLoading(GDataConf dataConf, G g) {
+            this.dataConf = dataConf;
+            this.buffer = new GraphBuffer(g);
+        }
+
+        @Override
+        public SourceLoading call() throws Exception {
+            long t = System.currentTimeMillis();
+            populate(dataConf, buffer);
+            time = System.currentTimeMillis() - t;
+            return this;
+        }
+    }
+
     /**
      * Retrieve the loader associated to a specific data configuration.
      *
@@ -192,12 +427,16 @@ public class GraphLoaderGeneric {
             return new RDFLoader(RDFFormat.RDFXML);
         } else if (data.getFormat() == GFormat.NTRIPLES) {
             return new RDFLoader(RDFFormat.NTRIPLES);
+        } else if (data.getFormat() == GFormat.NTRIPLES_FAST) {
+            return new GraphLoader_NTriples();
         } else if (data.getFormat() == GFormat.TURTLE) {
             return new RDFLoader(RDFFormat.TURTLE);
         } else if (data.getFormat() == GFormat.CSV) {
             return new GraphLoader_CSV();
         } else if (data.getFormat() == GFormat.SNOMED_CT_RF2) {
             return new GraphLoaderSnomedCT_RF2();
+        } else if (data.getFormat() == GFormat.SNOMED_CT_RF2_STREAMING) {
+            return new GraphLoaderSnomedCT_RF2_Streaming();
         } else if (data.getFormat() == GFormat.SLIB) {
             return new GraphLoader_SLIB();
         } else if (data.getFormat() == GFormat.MESH_XML) {
@@ -205,7 +444,9 @@ public class GraphLoaderGeneric {
         } 
         else if (data.getFormat() == GFormat.TSV_ANNOT) {
             return new GraphLoader_TSVannot();
-        }else {
+        } else if (data.getFormat() == GFormat.SNAPSHOT) {
+            return new GraphLoader_Snapshot();
+        } else {
             throw new SLIB_Ex_Critic("Unknown Graph format " + data.getFormat());
         }
     }
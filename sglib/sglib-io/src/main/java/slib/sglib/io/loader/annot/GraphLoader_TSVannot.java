@@ -32,7 +32,6 @@
 package slib.sglib.io.loader.annot;
 
 import au.com.bytecode.opencsv.CSVReader;
-import java.io.FileReader;
 import java.util.Arrays;
 import java.util.regex.Pattern;
 import org.openrdf.model.URI;
@@ -41,6 +40,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import slib.sglib.io.conf.GDataConf;
 import slib.sglib.io.loader.GraphLoader;
+import slib.sglib.io.util.GFormat;
 import slib.sglib.model.graph.G;
 import slib.sglib.model.graph.elements.E;
 import slib.sglib.model.impl.graph.elements.Edge;
@@ -93,7 +93,7 @@ public class GraphLoader_TSVannot implements GraphLoader {
         this.g = g;
 
         loadConf(conf);
-        loadTSV(conf.getLoc());
+        loadTSV(conf);
         logger.info("TSV specification loaded.");
         logger.info("-------------------------------------");
     }
@@ -135,9 +135,17 @@ public class GraphLoader_TSVannot implements GraphLoader {
     }
 
     public void loadTSV(String fileLoc) throws SLIB_Ex_Critic {
+        loadTSV(new GDataConf(GFormat.TSV_ANNOT, fileLoc));
+    }
+
+    private void loadTSV(GDataConf conf) throws SLIB_Ex_Critic {
+
+        String fileLoc = conf.getLoc();
 
         try {
-            CSVReader csvReader = new CSVReader(new FileReader(fileLoc), '\t');
+            // compressed files are decompressed on the fly, the compression
+            // can be specified by the configuration
+            CSVReader csvReader = new CSVReader(conf.openReader(), '\t');
             String[] row;
             String subjectLocalName;
             String[] data;
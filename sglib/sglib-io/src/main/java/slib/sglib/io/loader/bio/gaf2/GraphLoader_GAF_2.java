@@ -34,7 +34,14 @@
  */
 package slib.sglib.io.loader.bio.gaf2;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -49,10 +56,16 @@ import slib.sglib.io.loader.utils.filter.graph.gaf2.FilterGraph_GAF2;
 import slib.sglib.io.loader.utils.filter.graph.gaf2.FilterGraph_GAF2_cst;
 import slib.sglib.io.loader.utils.filter.graph.repo.FilterRepository;
 import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.impl.graph.elements.Edge;
 import slib.sglib.model.impl.repo.URIFactoryMemory;
 import slib.sglib.model.repo.URIFactory;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.impl.BigFileReader;
+import slib.utils.impl.ByteSlice;
+import slib.utils.impl.LineChunkReader;
+import slib.utils.impl.MappedLineReader;
+import slib.utils.threads.OrderedPipeline;
 
 /**
  * GAF 2 parser used to construct a graph from a GAF 2.0 annotation file
@@ -82,12 +95,55 @@ public class GraphLoader_GAF_2 implements GraphLoader {
     public final static int ASSIGNED_BY = 14;
     public final static int ANNOTATION_XP = 15;
     public final static int GENE_PRODUCT_ISOFORM = 16;
+    /**
+     * Number of bytes of the chunks processed in parallel.
+     */
+    static final int CHUNK_SIZE = 1 << 22;
+    /**
+     * Number of lines of the batches processed sequentially.
+     */
+    static final int BATCH_SIZE = 10000;
     private G graph;
     Logger logger = LoggerFactory.getLogger(this.getClass());
     URIFactoryMemory factory = URIFactoryMemory.getSingleton();
     String prefixUriInstance;
     String defaultURIprefix;
     Pattern colon = Pattern.compile(":");
+    Pattern p_tab = Pattern.compile("\t");
+    Pattern p_taxid;
+    Set<String> taxons;
+    Set<String> excludedEC;
+    int nbThreads = 1;
+    // loading state
+    boolean validHeader;
+    long nbLines;
+    int countEntities;
+    int countAnnotsLoaded;
+    int existsQualifier; // a qualifier exists for the annotation
+    int not_found; // the annotation is not found on the loaded graph
+    int eC_restriction; // excluded due to evidence code restriction
+    int taxonsRestriction;
+
+    /**
+     * Build a loader parsing the files using a single thread.
+     */
+    public GraphLoader_GAF_2() {
+    }
+
+    /**
+     * Build a loader parsing the files using several threads, the graph
+     * which is loaded does not depend on the number of threads. The number
+     * of threads can also be specified for a specific file using the
+     * parameter "threads" of the configuration.
+     *
+     * @param nbThreads the number of threads (at least 1)
+     */
+    public GraphLoader_GAF_2(int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0, given " + nbThreads);
+        }
+        this.nbThreads = nbThreads;
+    }
 
     /**
      * Method used to load an annotation repository considering a specific
@@ -183,151 +239,386 @@ public class GraphLoader_GAF_2 implements GraphLoader {
         }
 
 
-        Pattern p_tab = Pattern.compile("\t");
-        Pattern p_taxid = null;
-
         String fileLocation = conf.getLoc();
 
-        if (taxons != null) {
-            p_taxid = Pattern.compile(".?taxon:(\\d+).?");
-        }
+        this.excludedEC = excludedEC;
+        this.taxons = taxons;
+        this.p_taxid = taxons != null ? Pattern.compile(".?taxon:(\\d+).?") : null;
 
+        countEntities = 0;
+        countAnnotsLoaded = 0;
+        existsQualifier = 0;
+        not_found = 0;
+        eC_restriction = 0;
+        taxonsRestriction = 0;
+        validHeader = false;
+        nbLines = 0;
 
-        int countEntities = 0;
-        int countAnnotsLoaded = 0;
+        int nbThreads = getNbThreads(conf);
 
         logger.info("file location : " + fileLocation);
+        logger.info("Loading...");
 
+        try {
+            if (nbThreads > 1 || conf.isCompressed()) {
+                // compressed files are decompressed ahead of the parsing
+                logger.info("Parsing using " + nbThreads + " thread(s), compression: " + conf.getCompression());
+                processParallel(conf.openInputStream(), nbThreads);
+            } else {
+                processSequential(fileLocation);
+            }
+        } catch (Exception e) {
+            throw new SLIB_Ex_Critic(e);
+        }
+
+        if (!validHeader) {
+            throw new SLIB_Ex_Critic("Invalid header for GAF-2 file " + fileLocation + "\nExpecting \"!gaf-version: 2.0\" as first line");
+        }
 
+        logger.info("\tExcluded  - Taxons restriction         : " + taxonsRestriction);
+        logger.info("\tExcluded  - Evidence Code restriction  : " + eC_restriction);
+        logger.info("\tExcluded  - Contains qualifier 	      : " + existsQualifier);
+        logger.info("\tNot found unexisting term in the graph :	" + not_found);
+
+        logger.info("Number of Instance loaded 	  	: " + countEntities);
+        logger.info("Number of Annotation loaded 	: " + countAnnotsLoaded);
+        logger.info("GAF2 Loader done.");
+    }
 
+    /**
+     * The number of threads can be specified using the parameter "threads"
+     * of the configuration.
+     */
+    private int getNbThreads(GDataConf conf) throws SLIB_Ex_Critic {
 
+        Object threads = conf.getParameter("threads");
+        if (threads == null) {
+            return nbThreads;
+        }
+        try {
+            int n = Integer.parseInt(threads.toString().trim());
+            if (n < 1) {
+                throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be greater than 0");
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be an integer");
+        }
+    }
 
-        int existsQualifier = 0; // a qualifier exists for the annotation
-        int not_found = 0; // the annotation is not found on the loaded graph
-        int eC_restriction = 0; // excluded due to evidence code restriction
-        int taxonsRestriction = 0;
+    private void processSequential(String fileLocation) throws Exception {
 
+        if (MappedLineReader.isSupported(Charset.defaultCharset())) {
 
-        logger.info("Loading...");
+            MappedLineReader file = new MappedLineReader(fileLocation);
+            ByteSlice[] fields = MappedLineReader.newSlices(TAXON + 1, file.getCharset());
+            Batch batch = new Batch();
 
+            try {
+                while (file.nextLine()) {
 
+                    parse(file.line(), fields, batch);
 
-        URIFactory uriManager = URIFactoryMemory.getSingleton();
+                    if (batch.nbLines == BATCH_SIZE) {
+                        apply(batch);
+                        batch = new Batch();
+                    }
+                }
+                apply(batch);
+            } finally {
+                file.close();
+            }
+            return;
+        }
 
-        boolean validHeader = false;
-        String line, qualifier, gotermURIstring, evidenceCode, taxon_ids;
-        int c = 0;
+        BigFileReader file = new BigFileReader(fileLocation);
+        Batch batch = new Batch();
 
         try {
+            while (file.hasNext()) {
 
-            BigFileReader file = new BigFileReader(fileLocation);
-            String[] data;
-            URI uriGOterm, entityID;
+                parse(file.nextTrimmed(), batch);
 
-            while (file.hasNext()) {
+                if (batch.nbLines == BATCH_SIZE) {
+                    apply(batch);
+                    batch = new Batch();
+                }
+            }
+            apply(batch);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * The file is read by chunks of lines, the chunks are parsed and filtered
+     * in parallel and the resulting annotations are added to the graph by
+     * the calling thread in the order of the file. The graph is therefore
+     * the same as the one obtained by the sequential processing.
+     */
+    private void processParallel(InputStream in, int nbThreads) throws Exception {
+
+        final Charset charset = Charset.defaultCharset();
+
+        try {
+            OrderedPipeline<byte[], Batch> pipeline = new OrderedPipeline<byte[], Batch>(nbThreads);
 
-                line = file.nextTrimmed();
+            pipeline.run(new LineChunkReader(Channels.newChannel(in), CHUNK_SIZE), new OrderedPipeline.Worker<byte[], Batch>() {
+                @Override
+                public Batch process(byte[] chunk) {
 
-                if (line.startsWith("!")) {
+                    Batch batch = new Batch();
 
-                    data = line.split(":");
+                    if (MappedLineReader.isSupported(charset)) {
 
-                    if (data.length == 2) {
-                        String flag = data[0].trim().substring(1);
-                        String version = data[1].trim();
+                        ByteSlice line = new ByteSlice(charset);
+                        ByteSlice[] fields = MappedLineReader.newSlices(TAXON + 1, charset);
+                        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                        int start = 0;
 
-                        if (flag.equals("gaf-version") && (version.equals("2") || version.equals("2.0"))) {
-                            validHeader = true;
+                        // split as BufferedReader.readLine does
+                        for (int i = 0; i < chunk.length; i++) {
+                            byte b = chunk[i];
+                            if (b == '\n' || b == '\r') {
+                                parse(line.set(buffer, start, i - start), fields, batch);
+                                if (b == '\r' && i + 1 < chunk.length && chunk[i + 1] == '\n') {
+                                    i++;
+                                }
+                                start = i + 1;
+                            }
                         }
+                        if (start < chunk.length) {
+                            parse(line.set(buffer, start, chunk.length - start), fields, batch);
+                        }
+                        return batch;
                     }
-                } else if (validHeader) {
 
-                    data = p_tab.split(line);
+                    String text = new String(chunk, charset);
+                    int length = text.length();
+                    int start = 0;
+
+                    // split as BufferedReader.readLine does
+                    for (int i = 0; i < length; i++) {
+                        char ch = text.charAt(i);
+                        if (ch == '\n' || ch == '\r') {
+                            parse(text.substring(start, i).trim(), batch);
+                            if (ch == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                                i++;
+                            }
+                            start = i + 1;
+                        }
+                    }
+                    if (start < length) {
+                        parse(text.substring(start).trim(), batch);
+                    }
+                    return batch;
+                }
+            }, new OrderedPipeline.Writer<Batch>() {
+                @Override
+                public void write(Batch batch) throws Exception {
+                    apply(batch);
+                }
+            });
+            logger.info("parsing: " + pipeline.getStats());
+        } finally {
+            in.close();
+        }
+    }
 
+    /**
+     * Parse a line of the file. The result is stored into the given batch
+     * and will be taken into account by {@link #apply(Batch)}, which is
+     * responsible of the modifications of the graph. This method can be
+     * called concurrently, errors are stored into the batch since they must
+     * be ignored if they occur before the header of the file.
+     */
+    private void parse(String line, Batch batch) {
 
+        batch.nbLines++;
 
-                    entityID = uriManager.createURI(prefixUriInstance + data[DB_OBJECT_ID]);
-                    gotermURIstring = buildURI(data[GOID]);
-                    qualifier = data[QUALIFIER];
-                    evidenceCode = data[EVIDENCE_CODE];
-                    taxon_ids = data[TAXON];
+        try {
+            if (line.startsWith("!")) {
+
+                String[] data = line.split(":");
 
+                if (data.length == 2) {
+                    String flag = data[0].trim().substring(1);
+                    String version = data[1].trim();
+
+                    if (flag.equals("gaf-version") && (version.equals("2") || version.equals("2.0"))) {
+                        batch.add(Batch.VALID_HEADER, null, null);
+                    }
+                }
+                return;
+            }
+
+            String[] data = p_tab.split(line);
+
+            parseAnnotation(data[DB_OBJECT_ID], data[GOID], data[QUALIFIER], data[EVIDENCE_CODE], data[TAXON], batch);
+
+        } catch (Exception e) {
+            batch.addError(e);
+        }
+    }
 
-                    // check if Evidence Code is valid
-                    if (excludedEC == null || EvidenceCodeRules.areValid(excludedEC, evidenceCode)) {
+    /**
+     * Parse a line of the file read by a {@link MappedLineReader}, the
+     * fields of the line are only decoded if required. The given views are
+     * used to split the line, at least {@link #TAXON} + 1 views are
+     * required.
+     */
+    private void parse(ByteSlice line, ByteSlice[] fields, Batch batch) {
 
+        line.trim();
 
-                        // We do not consider go term associated with a qualifier 
-                        // e.g. NOT, contributes_to ...
-                        // TODO take into consideration this information !
-                        if (qualifier.isEmpty()) {
+        if (line.isEmpty() || line.byteAt(0) == '!' || line.split((byte) '\t', fields) <= TAXON) {
+            // headers and invalid lines
+            parse(line.toString(), batch);
+            return;
+        }
 
-                            uriGOterm = uriManager.createURI(gotermURIstring);
+        batch.nbLines++;
 
-                            if (graph.containsVertex(uriGOterm)) { // if the annotation is in the graph
+        try {
+            parseAnnotation(fields[DB_OBJECT_ID], fields[GOID], fields[QUALIFIER], fields[EVIDENCE_CODE], fields[TAXON], batch);
+        } catch (Exception e) {
+            batch.addError(e);
+        }
+    }
 
+    private void parseAnnotation(CharSequence objectId,
+            CharSequence goId,
+            CharSequence qualifier,
+            CharSequence evidenceCode,
+            CharSequence taxon_ids,
+            Batch batch) throws SLIB_Ex_Critic {
+
+        URI entityID = factory.createURI(prefixUriInstance + objectId);
+        String gotermURIstring = buildURI(goId.toString());
+
+        // check if Evidence Code is valid
+        if (excludedEC != null && !EvidenceCodeRules.areValid(excludedEC, evidenceCode.toString())) {
+            batch.add(Batch.EC_RESTRICTION, null, null);
+        } // We do not consider go term associated with a qualifier 
+        // e.g. NOT, contributes_to ...
+        // TODO take into consideration this information !
+        else if (qualifier.length() != 0) {
+            batch.add(Batch.QUALIFIER, null, null);
+        } else {
 
-                                boolean valid = true;
+            URI uriGOterm = factory.createURI(gotermURIstring);
 
-                                if (p_taxid != null) {
+            boolean valid = true;
 
+            if (p_taxid != null) {
 
-                                    Matcher m = p_taxid.matcher(taxon_ids);
-                                    valid = false;
+                Matcher m = p_taxid.matcher(taxon_ids.toString());
+                valid = false;
 
-                                    while (m.find() && !valid) {
+                while (m.find() && !valid) {
 
-                                        if (taxons != null && taxons.contains(m.group(1))) {
-                                            valid = true;
-                                        }
-                                    }
-                                }
-                                if (valid) {
-
-                                    if (!graph.containsVertex(entityID)) {
-                                        graph.addV(entityID);
-                                        countEntities++;
-                                    }
-                                    graph.addE(entityID, RDF.TYPE, uriGOterm);
-                                    countAnnotsLoaded++;
-                                } else {
-                                    taxonsRestriction++;
-                                }
-                            } else {
-                                not_found++;
-                                logger.debug("Cannot found GO term " + uriGOterm);
-                            }
-                        } else {
-                            existsQualifier++;
-                        }
-                    } else {
-                        eC_restriction++;
+                    if (taxons != null && taxons.contains(m.group(1))) {
+                        valid = true;
                     }
                 }
-                c++;
+            }
+            batch.add(valid ? Batch.ANNOTATION : Batch.TAXON_RESTRICTION, entityID, uriGOterm);
+        }
+    }
 
-                if (c % 1000000 == 0) {
-                    logger.info(c + " GAF entries processed");
+    /**
+     * Take into account the annotations of a batch, batches must be applied
+     * in the order of the file.
+     */
+    private void apply(Batch batch) throws Exception {
+
+        Set<E> edges = new HashSet<E>();
+
+        for (int i = 0; i < batch.size; i++) {
+
+            byte type = batch.types[i];
+
+            if (type == Batch.VALID_HEADER) {
+                validHeader = true;
+            } else if (!validHeader) {
+                // lines preceding the header are ignored
+            } else if (type == Batch.ERROR) {
+                throw batch.errors.get(i);
+            } else if (type == Batch.EC_RESTRICTION) {
+                eC_restriction++;
+            } else if (type == Batch.QUALIFIER) {
+                existsQualifier++;
+            } else {
+
+                URI uriGOterm = batch.goTerms[i];
+
+                if (graph.containsVertex(uriGOterm)) { // if the annotation is in the graph
+
+                    if (type == Batch.ANNOTATION) {
+
+                        URI entityID = batch.entities[i];
+
+                        if (!graph.containsVertex(entityID)) {
+                            graph.addV(entityID);
+                            countEntities++;
+                        }
+                        edges.add(new Edge(entityID, RDF.TYPE, uriGOterm));
+                        countAnnotsLoaded++;
+                    } else {
+                        taxonsRestriction++;
+                    }
+                } else {
+                    not_found++;
+                    logger.debug("Cannot found GO term " + uriGOterm);
                 }
             }
-            file.close();
-
-        } catch (Exception e) {
-            throw new SLIB_Ex_Critic(e);
         }
+        graph.addEdges(edges);
 
-        if (!validHeader) {
-            throw new SLIB_Ex_Critic("Invalid header for GAF-2 file " + fileLocation + "\nExpecting \"!gaf-version: 2.0\" as first line");
+        long previous = nbLines;
+        nbLines += batch.nbLines;
+
+        if (nbLines / 1000000 != previous / 1000000) {
+            logger.info((nbLines / 1000000) * 1000000 + " GAF entries processed");
         }
+    }
 
-        logger.info("\tExcluded  - Taxons restriction         : " + taxonsRestriction);
-        logger.info("\tExcluded  - Evidence Code restriction  : " + eC_restriction);
-        logger.info("\tExcluded  - Contains qualifier 	      : " + existsQualifier);
-        logger.info("\tNot found unexisting term in the graph :	" + not_found);
+    /**
+     * Result of the parsing of a set of consecutive lines.
+     */
+    private static class Batch {
+
+        static final byte VALID_HEADER = 0;
+        static final byte ERROR = 1;
+        static final byte EC_RESTRICTION = 2;
+        static final byte QUALIFIER = 3;
+        static final byte TAXON_RESTRICTION = 4;
+        static final byte ANNOTATION = 5;
+        int nbLines = 0;
+        int size = 0;
+        byte[] types = new byte[64];
+        URI[] entities = new URI[64];
+        URI[] goTerms = new URI[64];
+        Map<Integer, Exception> errors = new HashMap<Integer, Exception>();
+
+        void add(byte type, URI entity, URI goTerm) {
+
+            if (size == types.length) {
+                int length = size * 2;
+                types = Arrays.copyOf(types, length);
+                entities = Arrays.copyOf(entities, length);
+                goTerms = Arrays.copyOf(goTerms, length);
+            }
+            types[size] = type;
+            entities[size] = entity;
+            goTerms[size] = goTerm;
+            size++;
+        }
 
-        logger.info("Number of Instance loaded 	  	: " + countEntities);
-        logger.info("Number of Annotation loaded 	: " + countAnnotsLoaded);
-        logger.info("GAF2 Loader done.");
+        void addError(Exception e) {
+            errors.put(size, e);
+            add(ERROR, null, null);
+        }
     }
 
     private String buildURI(String value) throws SLIB_Ex_Critic {
@@ -34,16 +34,18 @@
  */
 package slib.sglib.io.loader.bio.obo;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import org.openrdf.model.URI;
 import org.openrdf.model.vocabulary.RDFS;
@@ -62,7 +64,9 @@ import slib.sglib.model.impl.repo.URIFactoryMemory;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
 import slib.utils.ex.SLIB_Ex_Warning;
+import slib.utils.impl.LineChunkReader;
 import slib.utils.impl.OBOconstants;
+import slib.utils.threads.OrderedPipeline;
 
 /**
  * TODO update doc Graph Loader used to map an OBO 1.2 specification as a Graph
@@ -128,14 +132,26 @@ import slib.utils.impl.OBOconstants;
  * <li> transitive_over/XREF...: These information are not loaded. </li> </ul>
  * TODO : load instances
  *
+ * <b> Parsing </b> <br/>
+ *
+ * The file is read by chunks of complete stanzas, the lines of the chunks are
+ * scanned and the stanzas are parsed in parallel into {@link OboTerm} and
+ * {@link OboType}. The stanzas are then merged in a single pass, in the order
+ * of the file, before the graph is built. The graph which is loaded therefore
+ * does not depend on the number of threads, which can be specified using the
+ * parameter "threads" of the configuration.
+ *
  */
 public class GraphLoader_OBO_1_2 implements GraphLoader {
 
+    /**
+     * Number of bytes of the chunks processed in parallel.
+     */
+    static final int CHUNK_SIZE = 1 << 22;
     URIFactoryMemory data = URIFactoryMemory.getSingleton();
     GraphConf conf;
     Logger logger = LoggerFactory.getLogger(this.getClass());
-    boolean onTermSpec = false;
-    boolean onTypeDef = false;
+    int nbThreads = 1;
     G g;
     URI graphURI;
     String filepath;
@@ -146,11 +162,27 @@ public class GraphLoader_OBO_1_2 implements GraphLoader {
     HashMap<String, OboTerm> oboTerms;
     HashMap<String, OboType> oboTypes;
     HashMap<String, String> inverseRel;
-    OboTerm oboTermCurrent = null;
-    OboType oboTypeCurrent = null;
-    Pattern colon = Pattern.compile(":");
-    Pattern exclamation = Pattern.compile("!");
-    Pattern spaces = Pattern.compile("\\s+");
+
+    /**
+     * Build a loader parsing the files using a single thread.
+     */
+    public GraphLoader_OBO_1_2() {
+    }
+
+    /**
+     * Build a loader parsing the files using several threads, the graph
+     * which is loaded does not depend on the number of threads. The number
+     * of threads can also be specified for a specific file using the
+     * parameter "threads" of the configuration.
+     *
+     * @param nbThreads the number of threads (at least 1)
+     */
+    public GraphLoader_OBO_1_2(int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0, given " + nbThreads);
+        }
+        this.nbThreads = nbThreads;
+    }
 
     private void init(G g, String file, String defaultNamespace) {
 
@@ -170,9 +202,6 @@ public class GraphLoader_OBO_1_2 implements GraphLoader {
         oboTypes = new HashMap<String, OboType>();
 
         inverseRel = new HashMap<String, String>();
-
-        oboTermCurrent = null;
-        oboTypeCurrent = null;
     }
 
     @Override
@@ -195,206 +224,307 @@ public class GraphLoader_OBO_1_2 implements GraphLoader {
         logger.info("-------------------------------------");
 
         
-        loadOboSpec();
+        loadOboSpec(conf, getNbThreads(conf));
 
         logger.info("OBO specification loaded.");
         logger.info("-------------------------------------");
     }
 
-    private void loadOboSpec() throws SLIB_Exception {
+    /**
+     * The number of threads can be specified using the parameter "threads"
+     * of the configuration.
+     */
+    private int getNbThreads(GDataConf conf) throws SLIB_Ex_Critic {
 
+        Object threads = conf.getParameter("threads");
+        if (threads == null) {
+            return nbThreads;
+        }
         try {
+            int n = Integer.parseInt(threads.toString().trim());
+            if (n < 1) {
+                throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be greater than 0");
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be an integer");
+        }
+    }
 
-            FileInputStream fstream = new FileInputStream(filepath);
-            DataInputStream in = new DataInputStream(fstream);
-            BufferedReader br = new BufferedReader(new InputStreamReader(in));
-
-
-            boolean metadataLoaded = false;
-
-            String line, flag, value;
+    private void loadOboSpec(GDataConf conf, int threads) throws SLIB_Exception {
 
-            String subClassOfURI = RDFS.SUBCLASSOF.stringValue();
+        final List<Batch> batches = new ArrayList<Batch>();
 
-            String[] data;
+        logger.info("Parsing OBO file using " + threads + " thread(s)...");
 
-            String gNamespace = g.getURI().getNamespace();
+        try {
+            // compressed files are decompressed on the fly
+            InputStream in = conf.openInputStream();
 
-            while ((line = br.readLine()) != null) {
+            try {
+                StanzaChunkReader reader = new StanzaChunkReader(Channels.newChannel(in), CHUNK_SIZE);
 
-                flag = null;
-                value = null;
-                data = null;
+                if (threads == 1) {
+                    byte[] chunk;
+                    while ((chunk = reader.next()) != null) {
+                        batches.add(parse(chunk));
+                    }
+                } else {
+                    OrderedPipeline<byte[], Batch> pipeline = new OrderedPipeline<byte[], Batch>(threads);
 
-                line = line.trim();
+                    pipeline.run(reader, new OrderedPipeline.Worker<byte[], Batch>() {
+                        @Override
+                        public Batch process(byte[] chunk) {
+                            return parse(chunk);
+                        }
+                    }, new OrderedPipeline.Writer<Batch>() {
+                        @Override
+                        public void write(Batch batch) {
+                            batches.add(batch);
+                        }
+                    });
+                    logger.info("parsing: " + pipeline.getStats());
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new SLIB_Ex_Critic(e.getMessage());
+        }
 
-                if (!metadataLoaded) { // loading OBO meta data
+        merge(batches);
+        loadGraph();
 
-                    if (line.equals(OBOconstants.TERM_FLAG) || line.equals(OBOconstants.TYPEDEF_FLAG)) {
+        logger.info("OBO Loading ok.");
+    }
 
-                        metadataLoaded = true;
+    /**
+     * Parse a chunk of the file. The chunk only contains complete stanzas,
+     * except the first chunk which starts by the header of the file. This
+     * method can be called concurrently, the error which stops the parsing
+     * is stored into the batch since it must be raised in the order of the
+     * file.
+     */
+    private Batch parse(byte[] chunk) {
 
-                        // check format-version 
-                        if (!format_version.equals(format_parser) && !allow_all_gafVersion) {
-                            throw new SLIB_Ex_Warning("Parser of format-version '" + format_parser + "' used to load OBO version '" + format_version + "'");
-                        }
+        Batch batch = new Batch();
+        String text = new String(chunk, Charset.defaultCharset());
+        int length = text.length();
+        int start = 0;
 
-                        if (line.equals(OBOconstants.TERM_FLAG)) {
-                            onTermSpec = true;
-                        } else {
-                            onTypeDef = true;
-                        }
-                    } else {
-                        data = getDataColonSplit(line);
-
-                        if (data != null) {
-
-//							if(data[0].equals(OBOconstants.DEF_NAMESPACE_FLAG))
-//								defaultNamespace = data[1];
-//
-//							else 
-                            if (data[0].equals(OBOconstants.FORMAT_VERSION_FLAG)) {
-                                format_version = data[1];
-                            }
-                        }
+        try {
+            // split as BufferedReader.readLine does
+            for (int i = 0; i < length; i++) {
+                char ch = text.charAt(i);
+                if (ch == '\n' || ch == '\r') {
+                    parseLine(text, start, i, batch);
+                    if (ch == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                        i++;
                     }
-                } else {
-                    if (onTermSpec) { // loading [Term]
-
-                        checkLine(line);
-
-                        if (onTermSpec) {
-
-                            data = getDataColonSplit(line);
+                    start = i + 1;
+                }
+            }
+            if (start < length) {
+                parseLine(text, start, length, batch);
+            }
+        } catch (SLIB_Ex_Critic e) {
+            batch.error = e;
+            if (batch.current != null) {
+                batch.current.complete = false;
+            }
+        }
+        return batch;
+    }
 
-                            if (data == null || data.length != 2) {
-                                continue;
-                            }
+    private void parseLine(String text, int start, int end, Batch batch) throws SLIB_Ex_Critic {
 
-                            flag = data[0];
-                            value = data[1];
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
 
-                            if (flag.equals(OBOconstants.TERM_ID_FLAG)) { // id
+        if (text.charAt(start) == '[') {
 
-                                oboTermCurrent = new OboTerm();
+            String flag = text.substring(start, end);
+            batch.current = null;
 
-                                oboTermCurrent.setURIstring(buildURI(value));
-                            } else if (flag.equals(OBOconstants.ISA_FLAG)) { // is_a
-                                oboTermCurrent.addRel(subClassOfURI, buildURI(value));
-                            } // is_obsolete:
-                            else if (flag.equals(OBOconstants.OBSOLETE_FLAG)) { // is_obsolete
+            if (flag.equals(OBOconstants.TERM_FLAG) || flag.equals(OBOconstants.TYPEDEF_FLAG)) {
+                batch.current = new Stanza(flag.equals(OBOconstants.TERM_FLAG));
+                batch.stanzas.add(batch.current);
+                batch.hasStanza = true;
+            }
+            // other stanzas e.g. [Instance] are not loaded
+            batch.onHeader = false;
+            return;
+        }
 
-                                if (value.equals("true")) {
-                                    oboTermCurrent.setObsolete(true);
-                                }
-                            } else if (flag.equals(OBOconstants.RELATIONSHIP_FLAG)) { // relationship
+        if (batch.current == null && !batch.onHeader) {
+            return;
+        }
 
-                                String[] datasub = spaces.split(value);
+        // tag: value ! comment
+        int colon = -1;
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            if (ch == ':') {
+                colon = i;
+                break;
+            } else if (ch == '!') {
+                break;
+            }
+        }
+        if (colon == -1) {
+            return;
+        }
+        int valueEnd = text.indexOf('!', colon + 1);
+        if (valueEnd == -1 || valueEnd > end) {
+            valueEnd = end;
+        }
 
-                                String relType = buildURI(datasub[0].trim());
-                                String targetURI = buildURI(datasub[1].trim());
+        String flag = text.substring(start, colon).trim();
+        String value = text.substring(colon + 1, valueEnd).trim();
 
-                                oboTermCurrent.addRel(relType, targetURI);
-                            }
+        if (batch.onHeader) {
+            if (flag.equals(OBOconstants.FORMAT_VERSION_FLAG)) {
+                batch.formatVersion = value;
+            }
+            return;
+        }
 
-                        }
-                    } else if (onTypeDef) { // Loading [TypeDef]
+        Stanza stanza = batch.current;
 
-                        checkLine(line);
+        if (stanza.term != null) { // [Term]
 
-                        if (onTypeDef) {
+            if (flag.equals(OBOconstants.TERM_ID_FLAG)) { // id
 
-                            data = getDataColonSplit(line);
+                stanza.term = new OboTerm();
+                stanza.term.setURIstring(buildURI(value));
+            } else if (flag.equals(OBOconstants.ISA_FLAG)) { // is_a
+                stanza.term.addRel(RDFS.SUBCLASSOF.stringValue(), buildURI(value));
+            } else if (flag.equals(OBOconstants.OBSOLETE_FLAG)) { // is_obsolete
 
-                            if (data == null || data.length != 2) {
-                                continue;
-                            }
+                if (value.equals("true")) {
+                    stanza.term.setObsolete(true);
+                }
+            } else if (flag.equals(OBOconstants.RELATIONSHIP_FLAG)) { // relationship
 
-                            flag = data[0];
-                            value = data[1];
+                int i = 0;
+                while (i < value.length() && value.charAt(i) > ' ') {
+                    i++;
+                }
+                int j = i;
+                while (j < value.length() && value.charAt(j) <= ' ') {
+                    j++;
+                }
+                int k = j;
+                while (k < value.length() && value.charAt(k) > ' ') {
+                    k++;
+                }
+                if (j == k) {
+                    throw new SLIB_Ex_Critic("Invalid relationship '" + value + "' for [Term] " + stanza.term.getURIstring());
+                }
+                stanza.term.addRel(buildURI(value.substring(0, i)), buildURI(value.substring(j, k)));
+            }
+        } else { // [Typedef]
 
-                            // id:
-                            if (flag.equals(OBOconstants.TYPEDEF_ID_FLAG)) {
-                                oboTypeCurrent = new OboType(buildURI(value));
-                            } // is_transitive:
-                            else if (flag.equals(OBOconstants.TYPEDEF_ISTRANSIVE_FLAG)) {
+            // id:
+            if (flag.equals(OBOconstants.TYPEDEF_ID_FLAG)) {
+                stanza.type = new OboType(buildURI(value));
+            } // is_transitive:
+            else if (flag.equals(OBOconstants.TYPEDEF_ISTRANSIVE_FLAG)) {
 
-                                if (value.equals("true")) {
-                                    oboTypeCurrent.setTransitivity(true);
-                                }
-                            } // inverse_of:
-                            else if (flag.equals(OBOconstants.TYPEDEF_INVERSE_OF_FLAG)) {
+                if (value.equals("true")) {
+                    stanza.type.setTransitivity(true);
+                }
+            } // inverse_of:
+            else if (flag.equals(OBOconstants.TYPEDEF_INVERSE_OF_FLAG)) {
 
-                                String uri_opp = buildURI(value);
+                String uri_opp = buildURI(value);
 
-                                setOppositeRel(oboTypeCurrent.getURIstring(), uri_opp);
-                                setOppositeRel(uri_opp, oboTypeCurrent.getURIstring());
-                            } // is_symmetric:
-                            else if (flag.equals(OBOconstants.TYPEDEF_SYMMETRIC_FLAG)) {
+                stanza.addOppositeRel(stanza.type.getURIstring(), uri_opp);
+                stanza.addOppositeRel(uri_opp, stanza.type.getURIstring());
+            } // is_symmetric:
+            else if (flag.equals(OBOconstants.TYPEDEF_SYMMETRIC_FLAG)) {
 
-                                if (value.equals("true")) {
-                                    oboTypeCurrent.setSymmetricity(true);
-                                    setOppositeRel(oboTypeCurrent.getURIstring(), oboTypeCurrent.getURIstring());
-                                }
-                            } // is_obsolete:
-                            else if (flag.equals(OBOconstants.OBSOLETE_FLAG)) {
+                if (value.equals("true")) {
+                    stanza.type.setSymmetricity(true);
+                    stanza.addOppositeRel(stanza.type.getURIstring(), stanza.type.getURIstring());
+                }
+            } // is_obsolete:
+            else if (flag.equals(OBOconstants.OBSOLETE_FLAG)) {
 
-                                if (value.equals("true")) {
-                                    oboTypeCurrent.setObsolete(true);
-                                }
-                            }
-                        }
-                    }
+                if (value.equals("true")) {
+                    stanza.type.setObsolete(true);
                 }
             }
-            handleElement();
-
-            in.close();
-        } catch (IOException e) {
-            throw new SLIB_Ex_Critic(e.getMessage());
         }
-        loadGraph();
-
-        logger.info("OBO Loading ok.");
     }
 
     private String buildURI(String value) throws SLIB_Ex_Critic {
 
-        String info[] = getDataColonSplit(value);
+        int colon = value.indexOf(':');
 
+        if (colon != -1) {
 
-        if (info != null && info.length == 2) {
-
-            String ns = data.getNamespace(info[0]);
+            String prefix = value.substring(0, colon).trim();
+            String ns = data.getNamespace(prefix);
             if (ns == null) {
-                throw new SLIB_Ex_Critic("No namespace associated to prefix " + info[0] + ". Cannot load " + value + ", please load required namespace prefix");
+                throw new SLIB_Ex_Critic("No namespace associated to prefix " + prefix + ". Cannot load " + value + ", please load required namespace prefix");
             }
 
-            return ns + info[1];
+            return ns + value.substring(colon + 1).trim();
         } else {
             return defaultNamespace + value;
         }
     }
 
-    private void checkLine(String line) throws SLIB_Ex_Critic {
+    /**
+     * Merge the stanzas in the order of the file, the format-version is
+     * checked before the first stanza is considered.
+     */
+    private void merge(List<Batch> batches) throws SLIB_Exception {
 
-        if (line.equals(OBOconstants.TERM_FLAG)) {
-            handleElement();
-            onTermSpec = true;
-            onTypeDef = false;
-        } else if (line.equals(OBOconstants.TYPEDEF_FLAG)) {
-            handleElement();
-            onTermSpec = false;
-            onTypeDef = true;
+        if (!batches.isEmpty() && batches.get(0).formatVersion != null) {
+            format_version = batches.get(0).formatVersion;
         }
-    }
 
-    private void handleElement() throws SLIB_Ex_Critic {
+        boolean checked = false;
+
+        for (Batch batch : batches) {
+
+            if (!checked && batch.hasStanza) {
 
-        if (onTermSpec) {
-            handleTerm();
-        } else if (onTypeDef) {
-            handleTypeDef();
+                checked = true;
+
+                if (!format_version.equals(format_parser) && !allow_all_gafVersion) {
+                    throw new SLIB_Ex_Warning("Parser of format-version '" + format_parser + "' used to load OBO version '" + format_version + "'");
+                }
+            }
+
+            for (Stanza stanza : batch.stanzas) {
+
+                if (stanza.oppositeRels != null) {
+                    for (String[] rel : stanza.oppositeRels) {
+                        setOppositeRel(rel[0], rel[1]);
+                    }
+                }
+                if (!stanza.complete) {
+                    break;
+                }
+                if (stanza.term != null) {
+                    handleTerm(stanza.term);
+                } else {
+                    handleTypeDef(stanza.type);
+                }
+            }
+            if (batch.error != null) {
+                throw batch.error;
+            }
         }
     }
 
@@ -417,45 +547,28 @@ public class GraphLoader_OBO_1_2 implements GraphLoader {
         inverseRel.put(uri, oppositeURI);
     }
 
-    private void handleTerm() throws SLIB_Ex_Critic {
-
-        if (onTermSpec) {
+    private void handleTerm(OboTerm term) throws SLIB_Ex_Critic {
 
-            if (oboTerms.containsKey(oboTermCurrent.getURIstring())) {
-                throw new SLIB_Ex_Critic("Duplicate entry for [Term] " + oboTermCurrent.getURIstring());
-            }
-
-            oboTerms.put(oboTermCurrent.getURIstring(), oboTermCurrent);
-            oboTermCurrent = new OboTerm();
+        if (term.getURIstring() == null) { // no id
+            return;
         }
-    }
-
-    private void handleTypeDef() throws SLIB_Ex_Critic {
-
-        if (onTypeDef) {
-            if (oboTypes.containsKey(oboTypeCurrent.getURIstring())) {
-                throw new SLIB_Ex_Critic("Duplicate entry for [Typedef] " + oboTypeCurrent.getURIstring());
-            }
-
-            oboTypes.put(oboTypeCurrent.getURIstring(), oboTypeCurrent);
-            oboTermCurrent = new OboTerm();
+        if (oboTerms.containsKey(term.getURIstring())) {
+            throw new SLIB_Ex_Critic("Duplicate entry for [Term] " + term.getURIstring());
         }
+
+        oboTerms.put(term.getURIstring(), term);
     }
 
-    private String[] getDataColonSplit(String line) {
+    private void handleTypeDef(OboType type) throws SLIB_Ex_Critic {
 
-        if (line.isEmpty()) {
-            return null;
+        if (type.getURIstring() == null) { // no id
+            return;
         }
-
-        String data[] = colon.split(exclamation.split(line, 2)[0], 2);
-        data[0] = data[0].trim();
-
-        if (data.length > 1) {
-            data[1] = data[1].trim();
+        if (oboTypes.containsKey(type.getURIstring())) {
+            throw new SLIB_Ex_Critic("Duplicate entry for [Typedef] " + type.getURIstring());
         }
 
-        return data;
+        oboTypes.put(type.getURIstring(), type);
     }
 
     /**
@@ -548,4 +661,72 @@ public class GraphLoader_OBO_1_2 implements GraphLoader {
     public void setAllow_all_gafVersion(boolean allow_all_gafVersion) {
         this.allow_all_gafVersion = allow_all_gafVersion;
     }
+
+    /**
+     * Stanza of the file, i.e. a [Term] or a [Typedef].
+     */
+    static class Stanza {
+
+        OboTerm term;
+        OboType type;
+        // inverse relationships in the order of the file
+        List<String[]> oppositeRels;
+        boolean complete = true;
+
+        Stanza(boolean isTerm) {
+            if (isTerm) {
+                term = new OboTerm();
+            } else {
+                type = new OboType();
+            }
+        }
+
+        void addOppositeRel(String uri, String oppositeURI) {
+            if (oppositeRels == null) {
+                oppositeRels = new ArrayList<String[]>();
+            }
+            oppositeRels.add(new String[]{uri, oppositeURI});
+        }
+    }
+
+    /**
+     * Result of the parsing of a chunk of the file.
+     */
+    static class Batch {
+
+        List<Stanza> stanzas = new ArrayList<Stanza>();
+        Stanza current;
+        boolean onHeader = true;
+        boolean hasStanza;
+        String formatVersion;
+        SLIB_Ex_Critic error;
+    }
+
+    /**
+     * Read the file by chunks of complete stanzas: the chunks are cut before
+     * the last line starting a stanza.
+     */
+    static class StanzaChunkReader extends LineChunkReader {
+
+        StanzaChunkReader(ReadableByteChannel channel, int chunkSize) {
+            super(channel, chunkSize);
+        }
+
+        @Override
+        protected int cut(ByteBuffer buffer, int end) {
+
+            for (int p = end - 1; p > 0; p--) {
+                if (isLineStart(buffer, p, end)) {
+                    int i = p;
+                    while (i < end && (buffer.get(i) == ' ' || buffer.get(i) == '\t')) {
+                        i++;
+                    }
+                    if (i < end && buffer.get(i) == '[') {
+                        return p;
+                    }
+                }
+            }
+            return 0;
+        }
+    }
 }
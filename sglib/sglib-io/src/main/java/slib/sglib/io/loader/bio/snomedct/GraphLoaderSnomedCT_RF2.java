@@ -2,7 +2,6 @@ package slib.sglib.io.loader.bio.snomedct;
 
 import java.io.BufferedReader;
 import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -23,6 +22,7 @@ import slib.sglib.model.impl.repo.URIFactoryMemory;
 import slib.sglib.model.repo.URIFactory;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.Compression;
 
 /**
  * @author Harispe Sébastien <harispe.sebastien@gmail.com>
@@ -116,11 +116,9 @@ public class GraphLoaderSnomedCT_RF2 implements GraphLoader {
         DateFormat formatter = new SimpleDateFormat("yyyyMMdd");
         Map<String, ConceptSnomedCT> concepts = new HashMap<String, ConceptSnomedCT>();
 
-        FileInputStream fstream;
         try {
-            fstream = new FileInputStream(concept_file);
-
-            DataInputStream in = new DataInputStream(fstream);
+            // compressed files are decompressed on the fly
+            DataInputStream in = new DataInputStream(Compression.open(concept_file));
             BufferedReader br = new BufferedReader(new InputStreamReader(in));
 
             String line;
@@ -168,7 +166,7 @@ public class GraphLoaderSnomedCT_RF2 implements GraphLoader {
             logger.info("Number of activeconcepts loaded " + loaded + " on "+concepts.size()+" concepts");            
             logger.info("Relationship file: " + relationship_file);
 
-            in = new DataInputStream(new FileInputStream(relationship_file));
+            in = new DataInputStream(Compression.open(relationship_file));
             br = new BufferedReader(new InputStreamReader(in));
 
             Map<String, RelationshipSnomedCT> relationships = new HashMap<String, RelationshipSnomedCT>();
@@ -0,0 +1,543 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.io.loader.bio.snomedct;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.GraphLoader;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.impl.graph.elements.Edge;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.ByteSlice;
+import slib.utils.impl.Compression;
+import slib.utils.impl.LineChunkReader;
+
+/**
+ * Streaming loader of SNOMED-CT RF2 Snapshot and Delta releases.
+ *
+ * Contrary to {@link GraphLoaderSnomedCT_RF2}, which resolves the successive
+ * versions of the components of a Full release, the rows are processed as
+ * they are read: the active flag and the type of the relationships are
+ * checked on the bytes of the rows and URIs are only created for the
+ * components which are loaded. The concepts are loaded as vertices of the
+ * graph, which is then used to check that the source and the destination of
+ * a relationship are active concepts. The memory required is therefore
+ * proportional to the active taxonomy, not to the size of the files.
+ *
+ * The parameters are those of {@link GraphLoaderSnomedCT_RF2} (the inactive
+ * components are never loaded) plus:
+ * <ul>
+ * <li>{@value #ARG_RELEASE_TYPE}: {@value #RELEASE_SNAPSHOT} (default) or
+ * {@value #RELEASE_DELTA}</li>
+ * <li>{@value #ARG_RELATIONSHIP_TYPES}: the comma separated ids of the types
+ * of relationships to load, all the types are loaded by default</li>
+ * <li>{@value #ARG_TRACK_RELATIONSHIPS}: true to keep track of the active
+ * relationships defining the edges of the graph, for graphs which will
+ * receive deltas (false by default)</li>
+ * </ul>
+ *
+ * A Delta release is applied to the graph, which is expected to contain the
+ * previous release: activated concepts are added, inactivated concepts are
+ * removed with their relationships, activated relationships are added and
+ * inactivated relationships are removed. Several relationships, e.g. of
+ * distinct relationship groups, can define the same edge (same source, type
+ * and destination). When {@value #ARG_TRACK_RELATIONSHIPS} is enabled, the
+ * loader keeps track of the active relationships defining each edge of the
+ * graph, as long as the graph is referenced, and an edge is only removed
+ * once none of them is active; the following deltas applied to the graph
+ * keep on updating them. Otherwise, e.g. if the previous release has been
+ * loaded from a snapshot of the graph, these relationships are unknown and
+ * an inactivated relationship removes its edge unless an active relationship
+ * of the delta defines it. Only the last
+ * version of each component of the delta is considered, the concept file or
+ * the relationship file can be omitted.
+ *
+ * @author Harispe Sébastien
+ */
+public class GraphLoaderSnomedCT_RF2_Streaming implements GraphLoader {
+
+    public final static String ARG_RELEASE_TYPE = "release_type";
+    public final static String ARG_RELATIONSHIP_TYPES = "relationship_types";
+    public final static String ARG_TRACK_RELATIONSHIPS = "track_relationships";
+    public final static String RELEASE_SNAPSHOT = "snapshot";
+    public final static String RELEASE_DELTA = "delta";
+    static final Charset ASCII = Charset.forName("US-ASCII");
+    // Concept file columns
+    static final int CONCEPT_ID = 0;
+    static final int CONCEPT_DATE = 1;
+    static final int CONCEPT_ACTIVE = 2;
+    // Relationships file columns
+    static final int RELATIONSHIP_ID = 0;
+    static final int RELATIONSHIP_DATE = 1;
+    static final int RELATIONSHIP_ACTIVE = 2;
+    static final int RELATIONSHIP_SOURCE_CONCEPT_ID = 4;
+    static final int RELATIONSHIP_TARGET_CONCEPT_ID = 5;
+    static final int RELATIONSHIP_TYPE_ID = 7;
+    // active relationships defining the edges of the graphs loaded with
+    // the tracking enabled
+    private static final Map<G, RelationshipIndex> indexes = Collections.synchronizedMap(new WeakHashMap<G, RelationshipIndex>());
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+    URIFactory repo = URIFactoryMemory.getSingleton();
+    G g;
+    String prefix;
+    String[] relationshipTypes;
+    boolean trackRelationships;
+
+    @Override
+    public void populate(GDataConf conf, G g) throws SLIB_Exception {
+
+        String concept_file = (String) conf.getParameter(GraphLoaderSnomedCT_RF2.ARG_CONCEPT_FILE);
+        String relationship_file = (String) conf.getParameter(GraphLoaderSnomedCT_RF2.ARG_RELATIONSHIP_FILE);
+        String release = (String) conf.getParameter(ARG_RELEASE_TYPE);
+        String types = (String) conf.getParameter(ARG_RELATIONSHIP_TYPES);
+        Object track = conf.getParameter(ARG_TRACK_RELATIONSHIPS);
+
+        this.g = g;
+        this.prefix = (String) conf.getParameter(GraphLoaderSnomedCT_RF2.ARG_PREFIX);
+
+        if (prefix == null && g.getURI() != null) {
+            prefix = g.getURI().getNamespace();
+        }
+
+        trackRelationships = track != null && Boolean.parseBoolean(track.toString().trim());
+
+        relationshipTypes = null;
+        if (types != null) {
+            relationshipTypes = types.trim().split("\\s*,\\s*");
+        }
+
+        logger.info("-------------------------------------");
+        logger.info("Loading SNOMED-CT [RF2]      ");
+        logger.info("-------------------------------------");
+        logger.info("Concept file:      " + concept_file);
+        logger.info("Relationship file: " + relationship_file);
+
+        if (release == null || release.equalsIgnoreCase(RELEASE_SNAPSHOT)) {
+
+            if (concept_file == null) {
+                throw new SLIB_Ex_Critic("Please specify a file containing the concept specification, argument " + GraphLoaderSnomedCT_RF2.ARG_CONCEPT_FILE);
+            }
+            if (relationship_file == null) {
+                throw new SLIB_Ex_Critic("Please specify a file containing the relationship specification, argument " + GraphLoaderSnomedCT_RF2.ARG_RELATIONSHIP_FILE);
+            }
+            loadSnapshot(concept_file, relationship_file);
+
+        } else if (release.equalsIgnoreCase(RELEASE_DELTA)) {
+
+            if (concept_file == null && relationship_file == null) {
+                throw new SLIB_Ex_Critic("Please specify the concept file and/or the relationship file of the delta, arguments " + GraphLoaderSnomedCT_RF2.ARG_CONCEPT_FILE + ", " + GraphLoaderSnomedCT_RF2.ARG_RELATIONSHIP_FILE);
+            }
+            if (concept_file != null) {
+                applyConceptDelta(concept_file);
+            }
+            if (relationship_file != null) {
+                applyRelationshipDelta(relationship_file);
+            }
+        } else {
+            throw new SLIB_Ex_Critic("Unsupported value '" + release + "' for parameter " + ARG_RELEASE_TYPE + ", expected " + RELEASE_SNAPSHOT + " or " + RELEASE_DELTA);
+        }
+        logger.info("-------------------------------------");
+    }
+
+    private void loadSnapshot(String concept_file, String relationship_file) throws SLIB_Exception {
+
+        final long[] counts = new long[3];
+        final RelationshipIndex index = trackRelationships ? new RelationshipIndex() : null;
+
+        logger.info("Loading concepts");
+
+        scan(concept_file, CONCEPT_ACTIVE + 1, new RowHandler() {
+            @Override
+            public void handle(ByteSlice[] fields) {
+                if (fields[CONCEPT_ACTIVE].contentEquals("1")) {
+                    g.addV(repo.createURI(prefix + fields[CONCEPT_ID]));
+                    counts[0]++;
+                }
+            }
+        });
+        logger.info("Number of active concepts loaded " + counts[0]);
+
+        logger.info("Loading relationships");
+
+        scan(relationship_file, RELATIONSHIP_TYPE_ID + 1, new RowHandler() {
+            @Override
+            public void handle(ByteSlice[] fields) {
+
+                if (!fields[RELATIONSHIP_ACTIVE].contentEquals("1") || !isLoaded(fields[RELATIONSHIP_TYPE_ID])) {
+                    return;
+                }
+                URI src = getConcept(fields[RELATIONSHIP_SOURCE_CONCEPT_ID].toString());
+                URI tar = getConcept(fields[RELATIONSHIP_TARGET_CONCEPT_ID].toString());
+
+                if (src != null && tar != null) {
+                    E e = new Edge(src, getPredicate(fields[RELATIONSHIP_TYPE_ID].toString()), tar);
+                    g.addE(e);
+                    if (index != null) {
+                        index.add(fields[RELATIONSHIP_ID].toString(), e);
+                    }
+                    counts[1]++;
+                } else {
+                    counts[2]++;
+                }
+            }
+        });
+        if (index != null) {
+            indexes.put(g, index);
+        } else {
+            indexes.remove(g);
+        }
+        logger.info("Number of relationships loaded: " + counts[1]);
+        logger.info("Number of relationships involving inactive concepts: " + counts[2]);
+    }
+
+    private void applyConceptDelta(String concept_file) throws SLIB_Exception {
+
+        // last version of the concepts: date * 2 + active
+        final Map<String, Integer> concepts = new HashMap<String, Integer>();
+
+        scan(concept_file, CONCEPT_ACTIVE + 1, new RowHandler() {
+            @Override
+            public void handle(ByteSlice[] fields) {
+
+                int version = fields[CONCEPT_DATE].parseInt() * 2 + (fields[CONCEPT_ACTIVE].contentEquals("1") ? 1 : 0);
+                String id = fields[CONCEPT_ID].toString();
+                Integer previous = concepts.get(id);
+
+                if (previous == null || previous / 2 <= version / 2) {
+                    concepts.put(id, version);
+                }
+            }
+        });
+
+        long added = 0, removed = 0;
+
+        for (Map.Entry<String, Integer> e : concepts.entrySet()) {
+
+            if (e.getValue() % 2 == 1) {
+                URI c = repo.createURI(prefix + e.getKey());
+                if (!g.containsVertex(c)) {
+                    g.addV(c);
+                    added++;
+                }
+            } else {
+                URI c = getConcept(e.getKey());
+                if (c != null) {
+                    g.removeV(c);
+                    removed++;
+                }
+            }
+        }
+        RelationshipIndex index = indexes.get(g);
+        if (index != null && removed != 0) {
+            // the relationships of the removed concepts have been removed
+            index.retainVertices(g);
+        }
+        logger.info("Concepts of the delta: " + concepts.size() + ", activated " + added + ", inactivated " + removed);
+    }
+
+    private void applyRelationshipDelta(String relationship_file) throws SLIB_Exception {
+
+        final Map<String, RelationshipDelta> relationships = new HashMap<String, RelationshipDelta>();
+
+        scan(relationship_file, RELATIONSHIP_TYPE_ID + 1, new RowHandler() {
+            @Override
+            public void handle(ByteSlice[] fields) {
+
+                if (!isLoaded(fields[RELATIONSHIP_TYPE_ID])) {
+                    return;
+                }
+                int date = fields[RELATIONSHIP_DATE].parseInt();
+                String id = fields[RELATIONSHIP_ID].toString();
+                RelationshipDelta previous = relationships.get(id);
+
+                if (previous == null || previous.date <= date) {
+                    relationships.put(id, new RelationshipDelta(id,
+                            fields[RELATIONSHIP_SOURCE_CONCEPT_ID].toString(),
+                            fields[RELATIONSHIP_TARGET_CONCEPT_ID].toString(),
+                            fields[RELATIONSHIP_TYPE_ID].toString(),
+                            date,
+                            fields[RELATIONSHIP_ACTIVE].contentEquals("1")));
+                }
+            }
+        });
+
+        RelationshipIndex index = indexes.get(g);
+        boolean tracked = index != null || trackRelationships;
+        long added = 0, removed = 0;
+
+        if (index == null) {
+            logger.warn("The relationships defining the edges of the previous release are not tracked (parameter " + ARG_TRACK_RELATIONSHIPS + "), an edge defined by several relationships is removed as soon as one of them is inactivated");
+            index = new RelationshipIndex();
+            // only the relationships of the delta are known
+            for (RelationshipDelta r : relationships.values()) {
+                URI src = getConcept(r.source);
+                URI tar = getConcept(r.target);
+                if (src != null && tar != null) {
+                    E e = new Edge(src, getPredicate(r.type), tar);
+                    if (g.getE().contains(e)) {
+                        index.add(r.id, e);
+                    }
+                }
+            }
+        }
+
+        // edges which may no longer be defined by an active relationship
+        Set<E> inactivated = new HashSet<E>();
+
+        for (RelationshipDelta r : relationships.values()) {
+            E e = index.remove(r.id);
+            if (e != null) {
+                inactivated.add(e);
+            }
+        }
+        for (RelationshipDelta r : relationships.values()) {
+            if (r.active) {
+                URI src = getConcept(r.source);
+                URI tar = getConcept(r.target);
+                if (src != null && tar != null) {
+                    E e = new Edge(src, getPredicate(r.type), tar);
+                    if (!index.contains(e)) {
+                        g.addE(e);
+                        added++;
+                    }
+                    index.add(r.id, e);
+                }
+            }
+        }
+        for (E e : inactivated) {
+            if (!index.contains(e)) {
+                g.removeE(e);
+                removed++;
+            }
+        }
+        if (tracked) {
+            indexes.put(g, index);
+        }
+        logger.info("Relationships of the delta: " + relationships.size() + ", activated " + added + ", inactivated " + removed);
+    }
+
+    /**
+     * @return the concept if it is a vertex of the graph, null otherwise
+     */
+    private URI getConcept(String id) {
+        URI c = repo.getURI(prefix + id, false);
+        return g.containsVertex(c) ? c : null;
+    }
+
+    private URI getPredicate(String typeId) {
+        if (typeId.equals(GraphLoaderSnomedCT_RF2.ID_SUBCLASSOF_SNOMED)) {
+            return RDFS.SUBCLASSOF;
+        }
+        return repo.createURI(prefix + typeId);
+    }
+
+    private boolean isLoaded(ByteSlice typeId) {
+        if (relationshipTypes == null) {
+            return true;
+        }
+        for (String t : relationshipTypes) {
+            if (typeId.contentEquals(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the rows of an RF2 file, the header is skipped.
+     *
+     * @param file the location of the file, compressed files are
+     * decompressed on the fly
+     * @param nbFields the minimal number of fields of the rows
+     * @param handler the handler of the rows
+     */
+    private void scan(String file, int nbFields, RowHandler handler) throws SLIB_Exception {
+
+        ByteSlice line = new ByteSlice(ASCII);
+        ByteSlice[] fields = new ByteSlice[nbFields];
+        for (int i = 0; i < nbFields; i++) {
+            fields[i] = new ByteSlice(ASCII);
+        }
+        long lineNumber = 0;
+
+        try {
+            InputStream in = Compression.open(file);
+
+            try {
+                LineChunkReader reader = new LineChunkReader(Channels.newChannel(in));
+                byte[] chunk;
+
+                while ((chunk = reader.next()) != null) {
+
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                    int start = 0;
+
+                    // the lines end by \n, \r\n or \r
+                    for (int i = 0; i <= chunk.length; i++) {
+
+                        if (i < chunk.length && chunk[i] != '\n' && chunk[i] != '\r') {
+                            continue;
+                        }
+                        int end = i;
+                        if (i + 1 < chunk.length && chunk[i] == '\r' && chunk[i + 1] == '\n') {
+                            i++;
+                        }
+                        if (end > start) {
+                            lineNumber++;
+                            if (lineNumber > 1) { // header
+                                line.set(buffer, start, end - start);
+                                if (line.split((byte) '\t', fields) < nbFields) {
+                                    throw new SLIB_Ex_Critic("Invalid RF2 row at line " + lineNumber + " of " + file + ": " + line);
+                                }
+                                handler.handle(fields);
+                            }
+                        }
+                        start = i + 1;
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new SLIB_Ex_Critic("Error reading " + file + ": " + e.getMessage());
+        } catch (NumberFormatException e) {
+            throw new SLIB_Ex_Critic("Invalid effective time at line " + lineNumber + " of " + file + ": " + e.getMessage());
+        }
+    }
+
+    private interface RowHandler {
+
+        void handle(ByteSlice[] fields) throws SLIB_Exception;
+    }
+
+    /**
+     * Active relationships defining the edges of a graph, the edges are
+     * identified by their source, type and destination.
+     */
+    static class RelationshipIndex {
+
+        // relationship id -> edge
+        final Map<String, E> edges = new HashMap<String, E>();
+        // edge -> number of active relationships defining it
+        final Map<E, Integer> counts = new HashMap<E, Integer>();
+
+        void add(String id, E e) {
+            remove(id);
+            edges.put(id, e);
+            Integer n = counts.get(e);
+            counts.put(e, n == null ? 1 : n + 1);
+        }
+
+        /**
+         * @return the edge defined by the relationship, null if the
+         * relationship is not active
+         */
+        E remove(String id) {
+            E e = edges.remove(id);
+            if (e != null) {
+                int n = counts.get(e);
+                if (n == 1) {
+                    counts.remove(e);
+                } else {
+                    counts.put(e, n - 1);
+                }
+            }
+            return e;
+        }
+
+        /**
+         * @return true if an active relationship defines the edge
+         */
+        boolean contains(E e) {
+            return counts.containsKey(e);
+        }
+
+        /**
+         * Remove the relationships involving a concept which is not a
+         * vertex of the graph.
+         */
+        void retainVertices(G g) {
+            Iterator<Map.Entry<String, E>> it = edges.entrySet().iterator();
+            while (it.hasNext()) {
+                E e = it.next().getValue();
+                if (!g.containsVertex(e.getSource()) || !g.containsVertex(e.getTarget())) {
+                    it.remove();
+                    counts.remove(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Last version of a relationship of a delta.
+     */
+    static class RelationshipDelta {
+
+        final String id;
+        final String source;
+        final String target;
+        final String type;
+        final int date;
+        final boolean active;
+
+        RelationshipDelta(String id, String source, String target, String type, int date, boolean active) {
+            this.id = id;
+            this.source = source;
+            this.target = target;
+            this.type = type;
+            this.date = date;
+            this.active = active;
+        }
+    }
+}
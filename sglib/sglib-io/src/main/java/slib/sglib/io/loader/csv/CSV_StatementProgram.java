@@ -0,0 +1,200 @@
+package slib.sglib.io.loader.csv;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import org.openrdf.model.URI;
+import slib.sglib.model.repo.URIFactory;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Compiled form of the statement templates of a CSV loader.
+ *
+ * The mappings and the constraints of the templates are resolved once: the
+ * columns used by the templates are associated to slots, the URI of a slot
+ * is built once per row even if the column is used by several templates, and
+ * the constraints are reduced to flags associated to the statements. A
+ * program is immutable, a row can be evaluated concurrently by several
+ * threads.
+ *
+ * The constraints are not evaluated by the program since they depend on the
+ * statements previously added to the graph, see {@link Batch}.
+ *
+ * @author Sébastien Harispe
+ */
+class CSV_StatementProgram {
+
+    /**
+     * Flag of a statement which is only loaded if its subject is a vertex.
+     */
+    static final byte SUBJECT_EXISTS = 1;
+    /**
+     * Flag of a statement which is only loaded if its object is a vertex.
+     */
+    static final byte OBJECT_EXISTS = 2;
+    final URIFactory factory;
+    // slots
+    final int[] slotColumns;
+    final String[] slotPrefixes;
+    // statements
+    final int[] subjectSlots;
+    final int[] objectSlots;
+    final URI[] predicates;
+    final byte[] flags;
+    final boolean constrained;
+    /**
+     * Number of fields of a row to decode, i.e. the greatest column used
+     * plus one.
+     */
+    final int nbFields;
+
+    /**
+     * Compile the given templates.
+     *
+     * @param mappings the mappings of the columns
+     * @param templates the templates
+     * @param factory the factory used to create the URIs
+     * @throws SLIB_Ex_Critic if a template refers to a column without mapping
+     */
+    CSV_StatementProgram(Map<Integer, CSV_Mapping> mappings, Collection<CSV_StatementTemplate> templates, URIFactory factory) throws SLIB_Ex_Critic {
+
+        this.factory = factory;
+
+        int nbTemplates = templates.size();
+        int[] columns = new int[2 * nbTemplates];
+        String[] prefixes = new String[2 * nbTemplates];
+        int nbSlots = 0;
+
+        subjectSlots = new int[nbTemplates];
+        objectSlots = new int[nbTemplates];
+        predicates = new URI[nbTemplates];
+        flags = new byte[nbTemplates];
+
+        int max = 0;
+        int i = 0;
+        boolean hasConstraint = false;
+
+        for (CSV_StatementTemplate t : templates) {
+
+            int[] ids = {t.src_id, t.target_id};
+            int[] slots = new int[2];
+
+            for (int k = 0; k < 2; k++) {
+
+                CSV_Mapping vmap = mappings.get(ids[k]);
+                if (vmap == null) {
+                    throw new SLIB_Ex_Critic("Cannot load statement considering the given configuration, no mapping defined for column " + ids[k]);
+                }
+                int slot = 0;
+                while (slot < nbSlots && columns[slot] != ids[k]) {
+                    slot++;
+                }
+                if (slot == nbSlots) {
+                    columns[slot] = ids[k];
+                    prefixes[slot] = vmap.prefix != null ? vmap.prefix : "";
+                    nbSlots++;
+                }
+                slots[k] = slot;
+                max = Math.max(max, ids[k] + 1);
+            }
+
+            subjectSlots[i] = slots[0];
+            objectSlots[i] = slots[1];
+            predicates[i] = t.predicate;
+
+            for (CSV_StatementTemplate_Constraint c : t.constraints) {
+                if (c.type == StatementTemplate_Constraint_Type.EXISTS) {
+                    if (c.onElement == StatementTemplateElement.SUBJECT) {
+                        flags[i] |= SUBJECT_EXISTS;
+                    } else if (c.onElement == StatementTemplateElement.OBJECT) {
+                        flags[i] |= OBJECT_EXISTS;
+                    }
+                }
+            }
+            hasConstraint |= flags[i] != 0;
+            i++;
+        }
+
+        slotColumns = Arrays.copyOf(columns, nbSlots);
+        slotPrefixes = Arrays.copyOf(prefixes, nbSlots);
+        constrained = hasConstraint;
+        nbFields = max;
+    }
+
+    /**
+     * @return the number of statements produced by a row
+     */
+    int getNbStatements() {
+        return predicates.length;
+    }
+
+    /**
+     * @return true if some statements are subject to constraints
+     */
+    boolean isConstrained() {
+        return constrained;
+    }
+
+    /**
+     * Evaluate the templates on a row and add the resulting statements to
+     * the given batch.
+     *
+     * @param data the fields of the row
+     * @param nbFields the number of fields of the row
+     * @param slots an array used to store the URIs of the slots, of length
+     * {@link #getNbSlots()}
+     * @param batch the batch in which the statements are stored
+     * @throws SLIB_Ex_Critic if the row does not contain a field used by the
+     * templates
+     */
+    void run(CharSequence[] data, int nbFields, URI[] slots, Batch batch) throws SLIB_Ex_Critic {
+
+        for (int s = 0; s < slotColumns.length; s++) {
+
+            int id = slotColumns[s];
+
+            if (nbFields - 1 < id) {
+                throw new SLIB_Ex_Critic("Cannot load statement considering the given configuration. Error parsing " + Arrays.toString(Arrays.copyOf(data, Math.min(nbFields, data.length))));
+            }
+            slots[s] = factory.createURI(slotPrefixes[s].concat(data[id].toString()));
+        }
+
+        for (int i = 0; i < predicates.length; i++) {
+            batch.add(slots[subjectSlots[i]], predicates[i], slots[objectSlots[i]], flags[i]);
+        }
+    }
+
+    /**
+     * @return the number of slots of the program
+     */
+    int getNbSlots() {
+        return slotColumns.length;
+    }
+
+    /**
+     * Statements produced by a set of consecutive rows. The statements are
+     * stored in the order of the rows and of the templates, the constraints
+     * are checked when the batch is added to the graph.
+     */
+    static class Batch {
+
+        int nbLines = 0;
+        int size = 0;
+        URI[] triples = new URI[3 * 1024];
+        byte[] flags = new byte[1024];
+        String error;
+        int errorLine;
+
+        void add(URI s, URI p, URI o, byte f) {
+
+            if (size == flags.length) {
+                triples = Arrays.copyOf(triples, size * 6);
+                flags = Arrays.copyOf(flags, size * 2);
+            }
+            triples[3 * size] = s;
+            triples[3 * size + 1] = p;
+            triples[3 * size + 2] = o;
+            flags[size++] = f;
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package slib.sglib.io.loader.csv;
 
 import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.openrdf.model.URI;
@@ -16,25 +19,74 @@ import org.slf4j.LoggerFactory;
 
 import slib.sglib.io.conf.GDataConf;
 import slib.sglib.io.loader.GraphLoader;
+import slib.sglib.io.loader.csv.CSV_StatementProgram.Batch;
 import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.impl.graph.elements.Edge;
 import slib.sglib.model.impl.repo.URIFactoryMemory;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.ByteSlice;
+import slib.utils.impl.LineChunkReader;
+import slib.utils.impl.MappedLineReader;
 import slib.utils.impl.Util;
+import slib.utils.threads.OrderedPipeline;
 
 /**
+ * Loader of statements defined in CSV files.
+ *
+ * The statement templates are compiled before the loading, see
+ * {@link CSV_StatementProgram}. The statements are added to the graph by
+ * batches, in the order of the file. Using several threads, the file is read
+ * by chunks of lines which are parsed in parallel, the graph which is loaded
+ * does not depend on the number of threads. The number of threads can be
+ * specified for a specific file using the parameter "threads" of the
+ * configuration.
  *
  * @author Sébastien Harispe
  */
 public class GraphLoader_CSV implements GraphLoader {
 
+    /**
+     * Number of bytes of the chunks processed in parallel.
+     */
+    static final int CHUNK_SIZE = 1 << 22;
+    /**
+     * Number of lines of the batches of the sequential processing.
+     */
+    static final int BATCH_SIZE = 10000;
     boolean skipHeader = false;
     URIFactoryMemory dataRepo = URIFactoryMemory.getSingleton();
     Map<Integer, CSV_Mapping> mappings = new HashMap<Integer, CSV_Mapping>();
     Map<Integer, CSV_StatementTemplate> statementTemplates = new HashMap<Integer, CSV_StatementTemplate>();
     Pattern pattern = null; // the one used
+    byte separatorByte = -1; // the separator if it is a single ASCII character
     G g;
     Logger logger = LoggerFactory.getLogger(this.getClass());
+    int nbThreads = 1;
+    CSV_StatementProgram program;
+    // loading state, only accessed by the thread applying the batches
+    long nbLines;
+    long evaluated; // number of statements evaluated according to the templates defined
+    long rejected; // those excluded due to specified constraints.
+
+    /**
+     * Build a loader parsing the files using a single thread.
+     */
+    public GraphLoader_CSV() {
+    }
+
+    /**
+     * Build a loader parsing the files using several threads.
+     *
+     * @param nbThreads the number of threads (at least 1)
+     */
+    public GraphLoader_CSV(int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0, given " + nbThreads);
+        }
+        this.nbThreads = nbThreads;
+    }
 
     /**
      *
@@ -73,7 +125,7 @@ public class GraphLoader_CSV implements GraphLoader {
         this.g = g;
 
         loadConf(conf);
-        loadCSV(conf.getLoc());
+        loadCSV(conf);
         logger.info("CSV specification loaded.");
         logger.info("-------------------------------------");
     }
@@ -93,8 +145,15 @@ public class GraphLoader_CSV implements GraphLoader {
 
         if (separator == null) {
             pattern = Pattern.compile("\\t");
+            separatorByte = '\t';
         } else {
             pattern = Pattern.compile(separator);
+            separatorByte = -1;
+            if (separator.equals("\\t")) {
+                separatorByte = '\t';
+            } else if (separator.length() == 1 && separator.charAt(0) < 128 && ".$|()[]{}^?*+\\".indexOf(separator.charAt(0)) == -1) {
+                separatorByte = (byte) separator.charAt(0);
+            }
         }
 
         HashMap<Integer, CSV_Mapping> mappingsLocal = (HashMap<Integer, CSV_Mapping>) conf.getParameter("mappings");
@@ -120,107 +179,295 @@ public class GraphLoader_CSV implements GraphLoader {
 
     }
 
-    private void loadCSV(String filepath) throws SLIB_Exception {
-
-        long evaluated = 0; // number of statements evaluated according to the templates defined
-        long rejected = 0; // those excluded due to specified constraints.
+    /**
+     * The number of threads can be specified using the parameter "threads"
+     * of the configuration.
+     */
+    private int getNbThreads(GDataConf conf) throws SLIB_Ex_Critic {
 
+        Object threads = conf.getParameter("threads");
+        if (threads == null) {
+            return nbThreads;
+        }
         try {
+            int n = Integer.parseInt(threads.toString().trim());
+            if (n < 1) {
+                throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be greater than 0");
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be an integer");
+        }
+    }
+
+    private void loadCSV(GDataConf conf) throws SLIB_Exception {
 
-            FileInputStream fstream = new FileInputStream(filepath);
-            DataInputStream in = new DataInputStream(fstream);
-            BufferedReader br = new BufferedReader(new InputStreamReader(in));
+        String filepath = conf.getLoc();
 
+        program = new CSV_StatementProgram(mappings, statementTemplates.values(), dataRepo);
+        nbLines = 0;
+        evaluated = 0;
+        rejected = 0;
 
+        int threads = getNbThreads(conf);
 
-            String line;
+        try {
+            if (threads > 1) {
+                logger.info("Parsing using " + threads + " thread(s), compression: " + conf.getCompression());
+                processParallel(conf.openInputStream(), threads);
+            } else if (separatorByte != -1 && MappedLineReader.isSupported(Charset.defaultCharset()) && !conf.isCompressed()) {
+                processMapped(filepath);
+            } else {
+                processSequential(conf);
+            }
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SLIB_Ex_Critic("Error loading CSV file " + filepath + ": " + e.getMessage());
+        }
 
-            String[] data;
+        logger.info("Number of statements rejected due to constraint: " + rejected + "/" + evaluated);
+        logger.info("CSV Loading ok.");
+    }
 
-            while ((line = br.readLine()) != null) {
+    /**
+     * Sequential processing in which the fields are only decoded if they are
+     * used by a template.
+     */
+    private void processMapped(String filepath) throws Exception {
+
+        MappedLineReader reader = new MappedLineReader(filepath);
+        ByteSlice[] fields = MappedLineReader.newSlices(program.nbFields, reader.getCharset());
+        URI[] slots = new URI[program.getNbSlots()];
+        Batch batch = new Batch();
+        boolean header = skipHeader;
+
+        try {
+            while (reader.nextLine()) {
 
-                if (skipHeader) {
-                    skipHeader = false;
+                if (header) {
+                    header = false;
+                    nbLines++;
                     continue;
                 }
+                ByteSlice line = reader.line().trim();
 
-                line = line.trim();
-                data = pattern.split(line);
+                if (!parse(fields, line.split(separatorByte, fields), slots, batch) || batch.nbLines == BATCH_SIZE) {
+                    apply(batch);
+                    batch = new Batch();
+                }
+            }
+            apply(batch);
+        } finally {
+            reader.close();
+        }
+    }
 
-                for (CSV_StatementTemplate t : statementTemplates.values()) {
+    private void processSequential(GDataConf conf) throws Exception {
 
-                    if (!buildStatement(t, data)) {
-                        rejected++;
-                    }
-                    evaluated++;
-                }
+        BufferedReader br = conf.openReader();
+        URI[] slots = new URI[program.getNbSlots()];
+        Batch batch = new Batch();
+        boolean header = skipHeader;
+        String line;
+
+        try {
+            while ((line = br.readLine()) != null) {
 
+                if (header) {
+                    header = false;
+                    nbLines++;
+                    continue;
+                }
+                String[] data = pattern.split(line.trim());
 
+                if (!parse(data, data.length, slots, batch) || batch.nbLines == BATCH_SIZE) {
+                    apply(batch);
+                    batch = new Batch();
+                }
             }
-            in.close();
-        } catch (IOException e) {
-            throw new SLIB_Ex_Critic(e.getMessage());
+            apply(batch);
+        } finally {
+            br.close();
         }
-
-        logger.info("Number of statements rejected due to constraint: " + rejected + "/" + evaluated);
-        logger.info("CSV Loading ok.");
     }
 
     /**
-     *
-     * @param t
-     * @param data
-     * @return boolean success.
-     * @throws SGL_Ex_Critic
+     * The file is read by chunks of lines, the statements of the chunks are
+     * built in parallel and added to the graph by the calling thread in the
+     * order of the file. The graph is therefore the same as the one obtained
+     * by the sequential processing.
      */
-    private boolean buildStatement(CSV_StatementTemplate t, String[] data) throws SLIB_Ex_Critic {
-
-
+    private void processParallel(InputStream in, int nbThreads) throws Exception {
 
-        URI subject = buildURI(t.src_id, data);
-        URI object = buildURI(t.target_id, data);
+        final Charset charset = Charset.defaultCharset();
+        final LineChunkReader chunks = new LineChunkReader(Channels.newChannel(in), CHUNK_SIZE);
 
-        boolean valid = true;
+        if (skipHeader) {
+            nbLines++; // the header is removed from the first chunk
+        }
 
-        for (CSV_StatementTemplate_Constraint c : t.constraints) {
+        try {
+            OrderedPipeline<byte[], Batch> pipeline = new OrderedPipeline<byte[], Batch>(nbThreads);
 
-            // Check existence of an element of the statement
-            if (c.type == StatementTemplate_Constraint_Type.EXISTS) {
+            pipeline.run(new OrderedPipeline.Reader<byte[]>() {
+                boolean header = skipHeader;
 
-                if (c.onElement == StatementTemplateElement.SUBJECT && !g.containsVertex(subject)) {
-                    valid = false;
+                @Override
+                public byte[] next() throws Exception {
+                    byte[] chunk = chunks.next();
+                    if (chunk != null && header) {
+                        header = false;
+                        chunk = Arrays.copyOfRange(chunk, endOfFirstLine(chunk), chunk.length);
+                    }
+                    return chunk;
                 }
+            }, new OrderedPipeline.Worker<byte[], Batch>() {
+                @Override
+                public Batch process(byte[] chunk) {
+
+                    Batch batch = new Batch();
+                    URI[] slots = new URI[program.getNbSlots()];
+
+                    if (separatorByte != -1 && MappedLineReader.isSupported(charset)) {
+
+                        ByteSlice line = new ByteSlice(charset);
+                        ByteSlice[] fields = MappedLineReader.newSlices(program.nbFields, charset);
+                        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                        int start = 0;
+
+                        // split as BufferedReader.readLine does
+                        for (int i = 0; i <= chunk.length; i++) {
+
+                            if (i == chunk.length && start == i) {
+                                break;
+                            }
+                            if (i == chunk.length || chunk[i] == '\n' || chunk[i] == '\r') {
+
+                                line.set(buffer, start, i - start).trim();
+                                if (!parse(fields, line.split(separatorByte, fields), slots, batch)) {
+                                    return batch;
+                                }
+                                if (i < chunk.length && chunk[i] == '\r' && i + 1 < chunk.length && chunk[i + 1] == '\n') {
+                                    i++;
+                                }
+                                start = i + 1;
+                            }
+                        }
+                        return batch;
+                    }
 
-                if (c.onElement == StatementTemplateElement.OBJECT && !g.containsVertex(object)) {
-                    valid = false;
+                    String text = new String(chunk, charset);
+                    int length = text.length();
+                    int start = 0;
+
+                    // split as BufferedReader.readLine does
+                    for (int i = 0; i <= length; i++) {
+
+                        if (i == length && start == i) {
+                            break;
+                        }
+                        if (i == length || text.charAt(i) == '\n' || text.charAt(i) == '\r') {
+
+                            String[] data = pattern.split(text.substring(start, i).trim());
+                            if (!parse(data, data.length, slots, batch)) {
+                                return batch;
+                            }
+                            if (i < length && text.charAt(i) == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                                i++;
+                            }
+                            start = i + 1;
+                        }
+                    }
+                    return batch;
                 }
+            }, new OrderedPipeline.Writer<Batch>() {
+                @Override
+                public void write(Batch batch) throws Exception {
+                    apply(batch);
+                }
+            });
+            logger.info("parsing: " + pipeline.getStats());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the index of the first byte following the first line of the
+     * chunk, the line terminator included
+     */
+    private static int endOfFirstLine(byte[] chunk) {
 
+        for (int i = 0; i < chunk.length; i++) {
+            if (chunk[i] == '\n') {
+                return i + 1;
             }
-            if (!valid) {
-                break;
+            if (chunk[i] == '\r') {
+                return i + 1 < chunk.length && chunk[i + 1] == '\n' ? i + 2 : i + 1;
             }
         }
-        if (valid) {
-            g.addE(subject, t.predicate, object);
+        return chunk.length;
+    }
+
+    /**
+     * Evaluate the templates on a line, this method can be called
+     * concurrently.
+     *
+     * @return false if the line cannot be loaded, the error is stored into
+     * the batch
+     */
+    private boolean parse(CharSequence[] data, int nbFields, URI[] slots, Batch batch) {
+
+        batch.nbLines++;
+        try {
+            program.run(data, nbFields, slots, batch);
             return true;
+        } catch (SLIB_Ex_Critic e) {
+            batch.error = e.getMessage();
+            batch.errorLine = batch.nbLines;
+            return false;
         }
-        return false;
     }
 
-    private URI buildURI(int id, String[] data) throws SLIB_Ex_Critic {
+    /**
+     * Add the statements of a batch which respect their constraints to the
+     * graph, batches must be applied in the order of the file. A vertex
+     * introduced by a previous statement of the batch satisfies the
+     * constraints as if the statements were added one by one.
+     */
+    private void apply(Batch batch) throws SLIB_Ex_Critic {
 
-        CSV_Mapping vmap = mappings.get(id);
+        Set<E> edges = new HashSet<E>();
+        Set<URI> vertices = program.isConstrained() ? new HashSet<URI>() : null;
+        URI[] t = batch.triples;
 
-        if (vmap == null || data.length - 1 < id) {
-            throw new SLIB_Ex_Critic("Cannot load statement considering the given configuration. Error parsing " + Arrays.toString(data));
-        }
+        for (int i = 0; i < batch.size; i++) {
 
-        String uriAsString = data[id];
+            URI subject = t[3 * i];
+            URI object = t[3 * i + 2];
+            byte f = batch.flags[i];
 
-        if (vmap.prefix != null) {
-            uriAsString = vmap.prefix + uriAsString;
+            evaluated++;
+
+            if (((f & CSV_StatementProgram.SUBJECT_EXISTS) != 0 && !g.containsVertex(subject) && !vertices.contains(subject))
+                    || ((f & CSV_StatementProgram.OBJECT_EXISTS) != 0 && !g.containsVertex(object) && !vertices.contains(object))) {
+                rejected++;
+                continue;
+            }
+            edges.add(new Edge(subject, t[3 * i + 1], object));
+
+            if (vertices != null) {
+                vertices.add(subject);
+                vertices.add(object);
+            }
         }
+        g.addEdges(edges);
 
-        return dataRepo.createURI(uriAsString);
+        if (batch.error != null) {
+            nbLines += batch.errorLine;
+            throw new SLIB_Ex_Critic(batch.error + " (line " + nbLines + ")");
+        }
+        nbLines += batch.nbLines;
     }
 }
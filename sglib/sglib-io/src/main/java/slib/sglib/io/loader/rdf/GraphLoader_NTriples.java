@@ -0,0 +1,556 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.io.loader.rdf;
+
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.openrdf.model.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.GraphLoader;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.impl.graph.elements.Edge;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.LineChunkReader;
+import slib.utils.threads.OrderedPipeline;
+
+/**
+ * Streaming loader dedicated to large N-Triples files.
+ *
+ * Contrary to {@link RDFLoader} the file is not processed through the Sesame
+ * parser, the statements are tokenized directly from the bytes of the file.
+ * The file is read by chunks of lines which are tokenized in parallel, the
+ * statements are then added to the graph by the calling thread in the order
+ * of the file. The graph which is loaded therefore does not depend on the
+ * number of threads. The URIs are interned, i.e. a single {@link URI}
+ * instance is created for all the occurrences of a URI.
+ *
+ * As for {@link RDFLoader}, only the statements for which the subject and
+ * the object are URIs are loaded into the graph, statements involving blank
+ * nodes or literals are skipped. The loading is stopped at the first
+ * malformed statement.
+ *
+ * The number of threads can be specified for a specific file using the
+ * parameter "threads" of the configuration.
+ *
+ * @author Harispe Sébastien
+ */
+public class GraphLoader_NTriples implements GraphLoader {
+
+    /**
+     * Number of bytes of the chunks processed in parallel.
+     */
+    static final int CHUNK_SIZE = 1 << 22;
+    /**
+     * Number of lines between two progress reports.
+     */
+    static final long PROGRESS_STEP = 1000000;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+    URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+    int nbThreads = 1;
+    private G graph;
+    // loading state, only accessed by the thread applying the batches
+    long nbLines;
+    long nbBytes;
+    long nbLoaded;
+    long nbSkipped;
+    long start;
+
+    /**
+     * Build a loader tokenizing the files using a single thread.
+     */
+    public GraphLoader_NTriples() {
+    }
+
+    /**
+     * Build a loader tokenizing the files using several threads.
+     *
+     * @param nbThreads the number of threads (at least 1)
+     */
+    public GraphLoader_NTriples(int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0, given " + nbThreads);
+        }
+        this.nbThreads = nbThreads;
+    }
+
+    @Override
+    public void populate(GDataConf conf, G g) throws SLIB_Ex_Critic {
+
+        logger.info("-------------------------------------");
+        logger.info(" N-Triples Loader");
+        logger.info("-------------------------------------");
+
+        if (g == null) {
+            throw new SLIB_Ex_Critic("Cannot process Null Graph");
+        }
+        logger.info("Populate graph " + g.getURI() + " from " + conf.getLoc());
+        load(g, conf, getNbThreads(conf));
+        logger.info("Graph " + g.getURI() + " populated by N-Triples data");
+        logger.info("-------------------------------------");
+    }
+
+    /**
+     * Load the statements of an N-Triples file into a graph using the number
+     * of threads of the loader. Compressed files are decompressed on the fly,
+     * see {@link GDataConf#getCompression()}.
+     *
+     * @param g the graph to populate
+     * @param file the location of the file
+     * @throws SLIB_Ex_Critic if the file cannot be read or contains a
+     * malformed statement
+     */
+    public void load(G g, String file) throws SLIB_Ex_Critic {
+        load(g, new GDataConf(GFormat.NTRIPLES_FAST, file), nbThreads);
+    }
+
+    private void load(G g, GDataConf conf, int threads) throws SLIB_Ex_Critic {
+
+        String file = conf.getLoc();
+
+        graph = g;
+        nbLines = 0;
+        nbBytes = 0;
+        nbLoaded = 0;
+        nbSkipped = 0;
+        start = System.currentTimeMillis();
+
+        logger.info("Parsing N-Triples file using " + threads + " thread(s)...");
+
+        try {
+            InputStream in = conf.openInputStream();
+
+            try {
+                OrderedPipeline<byte[], Batch> pipeline = new OrderedPipeline<byte[], Batch>(threads);
+
+                pipeline.run(new LineChunkReader(Channels.newChannel(in), CHUNK_SIZE), new OrderedPipeline.Worker<byte[], Batch>() {
+                    @Override
+                    public Batch process(byte[] chunk) {
+                        return tokenize(chunk);
+                    }
+                }, new OrderedPipeline.Writer<Batch>() {
+                    @Override
+                    public void write(Batch batch) throws Exception {
+                        apply(batch);
+                    }
+                });
+                logger.info("parsing: " + pipeline.getStats());
+            } finally {
+                in.close();
+            }
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SLIB_Ex_Critic("Error loading N-Triples file " + file + ": " + e.getMessage());
+        }
+
+        logger.info("Ending Processing " + nbLoaded + " statements loaded " + progress());
+        logger.info("Skipped (statement involving non URI ressources) : " + nbSkipped);
+    }
+
+    /**
+     * The number of threads can be specified using the parameter "threads"
+     * of the configuration.
+     */
+    private int getNbThreads(GDataConf conf) throws SLIB_Ex_Critic {
+
+        Object threads = conf.getParameter("threads");
+        if (threads == null) {
+            return nbThreads;
+        }
+        try {
+            int n = Integer.parseInt(threads.toString().trim());
+            if (n < 1) {
+                throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be greater than 0");
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new SLIB_Ex_Critic("Invalid number of threads " + threads + ", must be an integer");
+        }
+    }
+
+    /**
+     * Add the statements of a batch to the graph, batches must be applied in
+     * the order of the file.
+     */
+    private void apply(Batch batch) throws SLIB_Ex_Critic {
+
+        Set<E> edges = new HashSet<E>();
+        URI[] t = batch.triples;
+
+        for (int i = 0; i < batch.size; i += 3) {
+            edges.add(new Edge(t[i], t[i + 1], t[i + 2]));
+        }
+        graph.addEdges(edges);
+
+        nbLoaded += batch.size / 3;
+        nbSkipped += batch.skipped;
+        nbBytes += batch.nbBytes;
+
+        if (batch.error != null) {
+            nbLines += batch.errorLine;
+            throw new SLIB_Ex_Critic("Malformed N-Triples statement at line " + nbLines + ": " + batch.error);
+        }
+
+        long previous = nbLines;
+        nbLines += batch.nbLines;
+
+        if (nbLines / PROGRESS_STEP != previous / PROGRESS_STEP) {
+            logger.info(nbLoaded + " statements already loaded, " + nbSkipped + " skipped " + progress());
+        }
+    }
+
+    /**
+     * Progress of the loading, only relies on the counters since walking
+     * the graph is expensive when it becomes large.
+     */
+    private String progress() {
+
+        double seconds = Math.max(System.currentTimeMillis() - start, 1) / 1000.0;
+        return String.format("(%d lines, %.1f MB in %.1fs, %.0f statements/s, %.1f MB/s)",
+                nbLines, nbBytes / 1048576.0, seconds, (nbLoaded + nbSkipped) / seconds, nbBytes / 1048576.0 / seconds);
+    }
+
+    /**
+     * Tokenize the lines of a chunk, this method can be called concurrently.
+     * The tokenizing stops at the first malformed line, the error is stored
+     * into the batch.
+     */
+    private Batch tokenize(byte[] chunk) {
+
+        Batch batch = new Batch();
+        batch.nbBytes = chunk.length;
+        Tokenizer tokenizer = new Tokenizer(chunk);
+        int start = 0;
+
+        // split as BufferedReader.readLine does
+        for (int i = 0; i <= chunk.length; i++) {
+
+            if (i == chunk.length && start == i) {
+                break;
+            }
+            if (i == chunk.length || chunk[i] == '\n' || chunk[i] == '\r') {
+
+                batch.nbLines++;
+                String error = tokenizer.tokenize(start, i);
+
+                if (error != null) {
+                    batch.error = error;
+                    batch.errorLine = batch.nbLines;
+                    return batch;
+                }
+                if (tokenizer.isEmpty()) {
+                    // blank line or comment
+                } else if (tokenizer.kinds[0] == URI_TERM && tokenizer.kinds[2] == URI_TERM) {
+                    try {
+                        batch.add(factory.createURI(tokenizer.uri(0)), factory.createURI(tokenizer.uri(1)), factory.createURI(tokenizer.uri(2)));
+                    } catch (IllegalArgumentException e) {
+                        batch.error = e.getMessage();
+                        batch.errorLine = batch.nbLines;
+                        return batch;
+                    }
+                } else {
+                    batch.skipped++;
+                }
+
+                if (i < chunk.length && chunk[i] == '\r' && i + 1 < chunk.length && chunk[i + 1] == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        return batch;
+    }
+
+    static final byte URI_TERM = 0;
+    static final byte BNODE_TERM = 1;
+    static final byte LITERAL_TERM = 2;
+
+    /**
+     * Tokenizer of the N-Triples statements of a chunk. The positions of the
+     * subject, the predicate and the object of the last line are stored, the
+     * values of the URIs are only decoded on demand.
+     */
+    static class Tokenizer {
+
+        final byte[] b;
+        final byte[] kinds = new byte[3];
+        final int[] from = new int[3];
+        final int[] to = new int[3];
+        int nbTerms;
+        int pos;
+        int end;
+
+        Tokenizer(byte[] bytes) {
+            this.b = bytes;
+        }
+
+        /**
+         * @return true if the last line does not contain any statement
+         */
+        boolean isEmpty() {
+            return nbTerms == 0;
+        }
+
+        /**
+         * Tokenize the line delimited by the given positions.
+         *
+         * @return null if the line is valid, the description of the error
+         * otherwise
+         */
+        String tokenize(int from, int to) {
+
+            nbTerms = 0;
+            pos = from;
+            end = to;
+
+            skipSpaces();
+            if (pos == end || b[pos] == '#') {
+                return null;
+            }
+
+            String error = term(0, true, false);
+            if (error == null) {
+                error = term(1, false, false);
+            }
+            if (error == null) {
+                error = term(2, true, true);
+            }
+            if (error != null) {
+                return error;
+            }
+            skipSpaces();
+            if (pos == end || b[pos] != '.') {
+                return "expected '.' at the end of the statement";
+            }
+            pos++;
+            skipSpaces();
+            if (pos != end && b[pos] != '#') {
+                return "unexpected content after the end of the statement";
+            }
+            nbTerms = 3;
+            return null;
+        }
+
+        private void skipSpaces() {
+            while (pos < end && (b[pos] == ' ' || b[pos] == '\t')) {
+                pos++;
+            }
+        }
+
+        private String term(int i, boolean allowBNode, boolean allowLiteral) {
+
+            skipSpaces();
+
+            if (pos == end) {
+                return "unexpected end of line";
+            }
+            byte c = b[pos];
+
+            if (c == '<') {
+                int close = uriEnd(pos + 1);
+                if (close == -1) {
+                    return "unterminated URI";
+                }
+                kinds[i] = URI_TERM;
+                from[i] = pos + 1;
+                to[i] = close;
+                pos = close + 1;
+            } else if (c == '_' && allowBNode) {
+                if (pos + 2 > end || b[pos + 1] != ':') {
+                    return "invalid blank node";
+                }
+                int s = pos;
+                while (pos < end && b[pos] != ' ' && b[pos] != '\t') {
+                    pos++;
+                }
+                // the label of a blank node cannot end with a dot
+                if (b[pos - 1] == '.' && pos - s > 3) {
+                    pos--;
+                }
+                kinds[i] = BNODE_TERM;
+                from[i] = s;
+                to[i] = pos;
+            } else if (c == '"' && allowLiteral) {
+                int s = pos;
+                pos++;
+                while (pos < end && b[pos] != '"') {
+                    pos += b[pos] == '\\' ? 2 : 1;
+                }
+                if (pos >= end) {
+                    return "unterminated literal";
+                }
+                pos++;
+                if (pos < end && b[pos] == '@') {
+                    pos++;
+                    int tag = pos;
+                    while (pos < end && (isLetterOrDigit(b[pos]) || b[pos] == '-')) {
+                        pos++;
+                    }
+                    if (pos == tag) {
+                        return "invalid language tag";
+                    }
+                } else if (pos + 1 < end && b[pos] == '^' && b[pos + 1] == '^') {
+                    pos += 2;
+                    if (pos == end || b[pos] != '<' || (pos = uriEnd(pos + 1)) == -1) {
+                        return "invalid datatype";
+                    }
+                    pos++;
+                }
+                kinds[i] = LITERAL_TERM;
+                from[i] = s;
+                to[i] = pos;
+            } else {
+                return "unexpected character '" + (char) c + "'";
+            }
+
+            if (pos < end && b[pos] != ' ' && b[pos] != '\t' && b[pos] != '.') {
+                return "unexpected character '" + (char) b[pos] + "' after term";
+            }
+            return null;
+        }
+
+        private int uriEnd(int p) {
+            while (p < end && b[p] != '>') {
+                if (b[p] == ' ') {
+                    return -1;
+                }
+                p++;
+            }
+            return p < end ? p : -1;
+        }
+
+        private static boolean isLetterOrDigit(byte c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+
+        /**
+         * @param i the index of the term, 0 for the subject, 1 for the
+         * predicate and 2 for the object
+         * @return the value of the URI of the given term
+         */
+        String uri(int i) {
+
+            int s = from[i];
+            int e = to[i];
+
+            for (int p = s; p < e; p++) {
+                if (b[p] == '\\') {
+                    return unescape(new String(b, s, e - s, UTF8));
+                }
+            }
+            return new String(b, s, e - s, UTF8);
+        }
+
+        /**
+         * Decode the escape sequences of a value, e.g. unicode escapes or tabulations.
+         */
+        static String unescape(String s) {
+
+            StringBuilder sb = new StringBuilder(s.length());
+            int length = s.length();
+
+            for (int i = 0; i < length; i++) {
+
+                char c = s.charAt(i);
+
+                if (c != '\\' || i + 1 == length) {
+                    sb.append(c);
+                    continue;
+                }
+                char n = s.charAt(++i);
+
+                if (n == 'u' || n == 'U') {
+                    int digits = n == 'u' ? 4 : 8;
+                    if (i + digits >= length) {
+                        throw new IllegalArgumentException("Incomplete escape sequence in " + s);
+                    }
+                    try {
+                        sb.appendCodePoint(Integer.parseInt(s.substring(i + 1, i + 1 + digits), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid escape sequence in " + s);
+                    }
+                    i += digits;
+                } else if (n == 't') {
+                    sb.append('\t');
+                } else if (n == 'r') {
+                    sb.append('\r');
+                } else if (n == 'n') {
+                    sb.append('\n');
+                } else if (n == 'b') {
+                    sb.append('\b');
+                } else if (n == 'f') {
+                    sb.append('\f');
+                } else {
+                    sb.append(n);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Result of the tokenizing of a chunk of lines.
+     */
+    private static class Batch {
+
+        int nbLines = 0;
+        int nbBytes = 0;
+        int skipped = 0;
+        int size = 0;
+        URI[] triples = new URI[3 * 1024];
+        String error;
+        int errorLine;
+
+        void add(URI s, URI p, URI o) {
+
+            if (size == triples.length) {
+                triples = Arrays.copyOf(triples, size * 2);
+            }
+            triples[size++] = s;
+            triples[size++] = p;
+            triples[size++] = o;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package slib.sglib.io.loader.rdf;
 
-import java.io.FileReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.openrdf.model.URI;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFParser;
@@ -18,8 +21,11 @@ import slib.sglib.io.conf.GDataConf;
 import slib.sglib.io.loader.GraphLoader;
 import slib.sglib.io.util.GFormat;
 import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.Compression;
 
 /**
  *
@@ -57,7 +63,13 @@ public class RDFLoader implements GraphLoader {
         logger.info(" RDF Loader");
         logger.info("-------------------------------------");
         logger.info("Populate graph " + g.getURI()+" from "+conf.getLoc());
-        load(g, conf.getLoc());
+        try {
+            // compressed files are decompressed on the fly, the compression
+            // can be specified by the configuration
+            parse(g, conf.openReader());
+        } catch (IOException e) {
+            throw new SLIB_Ex_Critic("Error reading " + conf.getLoc() + ": " + e.getMessage());
+        }
         logger.info("Graph " + g.getURI() + " populated by RDF data ");
         logger.info("-------------------------------------");
 
@@ -81,13 +93,13 @@ public class RDFLoader implements GraphLoader {
 
     private void loadFormat(RDFFormat format) throws SLIB_Ex_Critic {
         if (format.equals(RDFFormat.NTRIPLES)) {
-            parser = new NTriplesParser(new MemValueFactory());
+            parser = new NTriplesParser(new InterningValueFactory());
         } else if (format.equals(RDFFormat.RDFXML)) {
-            parser = new RDFXMLParser(new MemValueFactory());
+            parser = new RDFXMLParser(new InterningValueFactory());
             parser.setStopAtFirstError(false);
         } 
         else if (format.equals(RDFFormat.TURTLE)) {
-            parser = new TurtleParser(new MemValueFactory());
+            parser = new TurtleParser(new InterningValueFactory());
             //parser.setStopAtFirstError(false);
         }
         else {
@@ -103,14 +115,28 @@ public class RDFLoader implements GraphLoader {
      */
     public void load(G g, String file) throws SLIB_Ex_Critic {
 
+        try {
+            // compressed files are decompressed on the fly
+            parse(g, Compression.openReader(file, Charset.defaultCharset()));
+        } catch (IOException e) {
+            throw new SLIB_Ex_Critic("Error reading " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse the given data, the reader is closed.
+     */
+    private void parse(G g, BufferedReader reader) throws SLIB_Ex_Critic {
 
         RDFHandler rdfHandler = new SlibRdfHandler(g);
         try {
             parser.setRDFHandler(rdfHandler);
-            FileReader reader = new FileReader(file);
-            //BufferedReader br = new BufferedReader(new InputStreamReader(new DataInputStream(new FileInputStream(file))));
-            logger.info("Parsing RDF file...");
-            parser.parse(reader, "");
+            try {
+                logger.info("Parsing RDF file...");
+                parser.parse(reader, "");
+            } finally {
+                reader.close();
+            }
         } catch (Exception e) {
             e.printStackTrace();
             throw new SLIB_Ex_Critic(e.getMessage());
@@ -142,4 +168,24 @@ public class RDFLoader implements GraphLoader {
             load(g, e.getKey(), e.getValue());
         }
     }
+
+    /**
+     * Value factory used by the parsers, the URIs are created through the
+     * {@link URIFactoryMemory} in order to share a single instance of each
+     * URI between the loaders.
+     */
+    private static class InterningValueFactory extends MemValueFactory {
+
+        final URIFactory factory = URIFactoryMemory.getSingleton();
+
+        @Override
+        public URI createURI(String uri) {
+            return factory.createURI(uri);
+        }
+
+        @Override
+        public URI createURI(String namespace, String localName) {
+            return factory.createURI(namespace, localName);
+        }
+    }
 }
@@ -65,15 +65,15 @@ public class SlibRdfHandler implements RDFHandler {
         if (s instanceof URI && o instanceof URI) {
             g.addE((URI) s,st.getPredicate(),(URI) o);
             count++;
+            if(count % 100000 == 0){
+                logger.info(count+" statements already loaded");
+                logger.info("Number of vertices: "+g.getV().size());
+                logger.info("Number of edges   : "+g.getE().size());
+            }
         }
         else{
             countSkipped++;
         }
-        if(count % 100000 == 0){
-            logger.info(count+" statements already loaded");
-            logger.info("Number of vertices: "+g.getV().size());
-            logger.info("Number of edges   : "+g.getE().size());
-        }
     }
 
     @Override
@@ -36,11 +36,9 @@ package slib.sglib.io.loader.slibformat;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import org.openrdf.model.URI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +50,8 @@ import slib.sglib.model.impl.repo.URIFactoryMemory;
 import slib.sglib.model.repo.URIFactory;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.ByteSlice;
+import slib.utils.impl.MappedLineReader;
 
 /**
  * TODO Comment DO not Support transitivity and inverse definitions anymore
@@ -93,9 +93,13 @@ public class GraphLoader_SLIB implements GraphLoader {
 
         try {
 
-            FileInputStream fstream = new FileInputStream(filepath);
-            DataInputStream in = new DataInputStream(fstream);
-            BufferedReader br = new BufferedReader(new InputStreamReader(in));
+            if (MappedLineReader.isSupported(Charset.defaultCharset()) && !conf.isCompressed()) {
+                loadMapped(g);
+                logger.info("-------------------------------------");
+                return;
+            }
+
+            BufferedReader br = conf.openReader();
 
             String line;
 
@@ -125,13 +129,52 @@ public class GraphLoader_SLIB implements GraphLoader {
                     throw new SLIB_Ex_Critic("Cannot process the following line " + line);
                 }
             }
-            in.close();
+            br.close();
         } catch (IOException e) {
             throw new SLIB_Ex_Critic(e.getMessage());
         }
         logger.info("-------------------------------------");
     }
 
+    /**
+     * Same as the loading performed using a BufferedReader, the fields of
+     * the lines are only decoded when the lines are valid.
+     */
+    private void loadMapped(G g) throws IOException, SLIB_Ex_Critic {
+
+        MappedLineReader reader = new MappedLineReader(filepath);
+        ByteSlice[] fields = MappedLineReader.newSlices(3, reader.getCharset());
+
+        try {
+            while (reader.nextLine()) {
+
+                ByteSlice line = reader.line().trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                int nbFields = line.split((byte) '\t', fields);
+
+                if (nbFields == 1) { // vertex
+                    URI vURI = factory.createURI(fields[0].toString());
+                    g.addV(vURI);
+                } else if (nbFields == 3) {
+                    URI sURI = factory.createURI(fields[0].toString());
+                    URI pURI = factory.createURI(fields[1].toString());
+                    URI oURI = factory.createURI(fields[2].toString());
+
+                    g.addV(sURI);
+                    g.addV(oURI);
+                    g.addE(sURI, pURI, oURI);
+                } else {
+                    throw new SLIB_Ex_Critic("Cannot process the following line " + line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
     /**
      *
      * @param g
@@ -0,0 +1,102 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.io.loader.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.GraphLoader;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphCSR;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Loader of the graph snapshots written by {@link GraphSnapshotWriter}.
+ *
+ * A snapshot is rejected if one of the files from which it has been built
+ * has been modified since it has been written, this check can be disabled
+ * setting the parameter "check_sources" of the configuration to false.
+ *
+ * Populating a graph requires to copy the edges of the snapshot, note that
+ * {@link slib.sglib.io.loader.GraphLoaderGeneric} directly relies on the
+ * {@link GraphCSR} of the snapshot when a graph is only built from a
+ * snapshot and does not require any action.
+ *
+ * @author Harispe Sébastien
+ */
+public class GraphLoader_Snapshot implements GraphLoader {
+
+    static Logger logger = LoggerFactory.getLogger(GraphLoader_Snapshot.class);
+
+    @Override
+    public void populate(GDataConf conf, G g) throws SLIB_Ex_Critic {
+
+        logger.info("-------------------------------------");
+        logger.info(" Snapshot Loader");
+        logger.info("-------------------------------------");
+
+        if (g == null) {
+            throw new SLIB_Ex_Critic("Cannot process Null Graph");
+        }
+        GraphCSR snapshot = open(conf).getGraph();
+
+        logger.info("Populate graph " + g.getURI() + " from " + conf.getLoc());
+        g.addV(snapshot.getV());
+        g.addEdges(snapshot.getE());
+        logger.info("Graph " + g.getURI() + " populated by snapshot " + conf.getLoc());
+        logger.info("-------------------------------------");
+    }
+
+    /**
+     * Open the snapshot defined by a configuration and check it is up to
+     * date, see {@link GraphSnapshot#isStale()}.
+     *
+     * @param conf the configuration
+     * @return the snapshot
+     * @throws SLIB_Ex_Critic if the snapshot cannot be loaded or is stale
+     */
+    public static GraphSnapshot open(GDataConf conf) throws SLIB_Ex_Critic {
+
+        GraphSnapshot snapshot = GraphSnapshot.open(conf.getLoc());
+        Object check = conf.getParameter("check_sources");
+
+        if (check == null || Boolean.parseBoolean(check.toString().trim())) {
+            if (snapshot.isStale()) {
+                throw new SLIB_Ex_Critic("Snapshot " + conf.getLoc() + " is stale, the following files have been modified since it has been written: " + snapshot.getStaleSources());
+            }
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,491 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.io.loader.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import org.openrdf.model.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sglib.model.impl.graph.memory.GraphCSR;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Binary snapshot of a graph, written by {@link GraphSnapshotWriter}.
+ *
+ * A snapshot is loaded through a memory mapped buffer and gives access to
+ * an immutable {@link GraphCSR} built from the adjacency arrays stored in
+ * the snapshot, i.e. without creating any edge object. Loading a snapshot
+ * is therefore much faster than parsing and processing the original files.
+ *
+ * The file starts by a header of {@value #HEADER_SIZE} bytes: the magic
+ * bytes "SLIBSNAP", the version of the format, reserved flags, the length
+ * of the payload and the CRC32 checksum of the payload. Snapshots written
+ * with another version of the format or corrupted snapshots are rejected.
+ * The payload contains, in this order:
+ * <ul>
+ * <li>the URI of the graph;</li>
+ * <li>the files from which the graph has been built (location, size and
+ * date of last modification), see {@link #isStale()};</li>
+ * <li>the dictionary of URIs: the vertices (ids 0 to
+ * nbVertices - 1, the ids of the vertices in the graph) followed by the
+ * predicates which are not vertices, URIs are stored as a namespace id and
+ * a local name;</li>
+ * <li>for each predicate, the compressed rows of the outgoing and incoming
+ * edges (see {@link GraphCSR#getAdjacency(int,
+ * slib.sglib.model.graph.utils.Direction)});</li>
+ * <li>named tables associating sets of URIs, integers or doubles to
+ * URIs.</li>
+ * </ul>
+ * All values are stored in big-endian order, strings are stored as their
+ * length in bytes followed by their UTF-8 encoding.
+ *
+ * @author Harispe Sébastien
+ */
+public class GraphSnapshot {
+
+    /**
+     * Magic bytes starting a snapshot.
+     */
+    public static final byte[] MAGIC = {'S', 'L', 'I', 'B', 'S', 'N', 'A', 'P'};
+    /**
+     * Current version of the format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    public static final int HEADER_SIZE = 32;
+    static final byte TABLE_SETS = 1;
+    static final byte TABLE_INTS = 2;
+    static final byte TABLE_DOUBLES = 3;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static Logger logger = LoggerFactory.getLogger(GraphSnapshot.class);
+    private final String location;
+    private final long checksum;
+    private final URI graphURI;
+    private final Map<String, long[]> sources;
+    private final URI[] dictionary;
+    private final int nbVertices;
+    private final URI[] predicates;
+    private final int[][] outOffsets;
+    private final int[][] outTargets;
+    private final int[][] inOffsets;
+    private final int[][] inSources;
+    private final Map<String, Table> tables;
+    private GraphCSR graph;
+
+    /**
+     * Load a snapshot.
+     *
+     * @param file the location of the snapshot
+     * @return the snapshot
+     * @throws SLIB_Ex_Critic if the file cannot be read, is not a snapshot,
+     * has been written using another version of the format or is corrupted
+     */
+    public static GraphSnapshot open(String file) throws SLIB_Ex_Critic {
+
+        long start = System.currentTimeMillis();
+
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new SLIB_Ex_Critic("Snapshot " + file + " is too large to be mapped (" + channel.size() + " bytes)");
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                GraphSnapshot snapshot = new GraphSnapshot(file, buffer);
+                logger.info("Snapshot " + file + " loaded in " + (System.currentTimeMillis() - start) + "ms");
+                return snapshot;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw new SLIB_Ex_Critic("Error reading snapshot " + file + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            // buffer underflows, invalid ids...
+            throw new SLIB_Ex_Critic("Invalid snapshot " + file + ": " + e);
+        }
+    }
+
+    private GraphSnapshot(String location, ByteBuffer buffer) throws SLIB_Ex_Critic {
+
+        this.location = location;
+
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new SLIB_Ex_Critic(location + " is not a graph snapshot");
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new SLIB_Ex_Critic(location + " is not a graph snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new SLIB_Ex_Critic("Snapshot " + location + " has been written using version " + version + " of the format, version " + VERSION + " expected, please rebuild the snapshot");
+        }
+        buffer.getInt(); // flags
+        long length = buffer.getLong();
+        checksum = buffer.getLong();
+
+        if (length != buffer.remaining()) {
+            throw new SLIB_Ex_Critic("Snapshot " + location + " is truncated, " + length + " bytes expected, " + buffer.remaining() + " found");
+        }
+        if (checksum(buffer.duplicate()) != checksum) {
+            throw new SLIB_Ex_Critic("Snapshot " + location + " is corrupted, invalid checksum");
+        }
+
+        graphURI = URIFactoryMemory.getSingleton().createURI(readString(buffer));
+
+        int nbSources = buffer.getInt();
+        sources = new LinkedHashMap<String, long[]>();
+        for (int i = 0; i < nbSources; i++) {
+            sources.put(readString(buffer), new long[]{buffer.getLong(), buffer.getLong()});
+        }
+
+        String[] namespaces = new String[buffer.getInt()];
+        for (int i = 0; i < namespaces.length; i++) {
+            namespaces[i] = readString(buffer);
+        }
+        URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+        dictionary = new URI[buffer.getInt()];
+        nbVertices = buffer.getInt();
+        for (int i = 0; i < dictionary.length; i++) {
+            String namespace = namespaces[buffer.getInt()];
+            dictionary[i] = factory.createURI(namespace + readString(buffer));
+        }
+
+        int nbPredicates = buffer.getInt();
+        predicates = new URI[nbPredicates];
+        outOffsets = new int[nbPredicates][];
+        outTargets = new int[nbPredicates][];
+        inOffsets = new int[nbPredicates][];
+        inSources = new int[nbPredicates][];
+
+        for (int p = 0; p < nbPredicates; p++) {
+            predicates[p] = dictionary[buffer.getInt()];
+            int nbEdges = buffer.getInt();
+            outOffsets[p] = readInts(buffer, nbVertices + 1);
+            outTargets[p] = readInts(buffer, nbEdges);
+            inOffsets[p] = readInts(buffer, nbVertices + 1);
+            inSources[p] = readInts(buffer, nbEdges);
+        }
+
+        int nbTables = buffer.getInt();
+        tables = new LinkedHashMap<String, Table>();
+        for (int i = 0; i < nbTables; i++) {
+            String name = readString(buffer);
+            Table t = new Table(buffer.get());
+            t.keys = readInts(buffer, buffer.getInt());
+            if (t.type == TABLE_SETS) {
+                int nbMembers = buffer.getInt();
+                t.offsets = readInts(buffer, t.keys.length + 1);
+                t.members = readInts(buffer, nbMembers);
+            } else if (t.type == TABLE_INTS) {
+                t.ints = readInts(buffer, t.keys.length);
+            } else if (t.type == TABLE_DOUBLES) {
+                t.doubles = new double[t.keys.length];
+                buffer.asDoubleBuffer().get(t.doubles);
+                buffer.position(buffer.position() + 8 * t.doubles.length);
+            } else {
+                throw new SLIB_Ex_Critic("Snapshot " + location + " is corrupted, unknown type of table " + t.type);
+            }
+            tables.put(name, t);
+        }
+    }
+
+    private static long checksum(ByteBuffer buffer) {
+
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[1 << 16];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(bytes.length, buffer.remaining());
+            buffer.get(bytes, 0, n);
+            crc.update(bytes, 0, n);
+        }
+        return crc.getValue();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * length);
+        return values;
+    }
+
+    /**
+     * @return the location of the snapshot
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the CRC32 checksum of the payload of the snapshot
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return the URI of the graph stored in the snapshot
+     */
+    public URI getGraphURI() {
+        return graphURI;
+    }
+
+    /**
+     * @return the absolute locations of the files from which the graph has
+     * been built
+     */
+    public Set<String> getSources() {
+        return Collections.unmodifiableSet(sources.keySet());
+    }
+
+    /**
+     * Access to the files from which the graph has been built and which have
+     * been modified (size or date of last modification) or removed since the
+     * snapshot has been written.
+     *
+     * @return the locations of the modified files, empty if the snapshot is
+     * up to date
+     */
+    public List<String> getStaleSources() {
+
+        List<String> stale = new ArrayList<String>();
+        for (Map.Entry<String, long[]> e : sources.entrySet()) {
+            File f = new File(e.getKey());
+            if (!f.isFile() || f.length() != e.getValue()[0] || f.lastModified() != e.getValue()[1]) {
+                stale.add(e.getKey());
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * @return true if one of the files from which the graph has been built
+     * has been modified since the snapshot has been written
+     * @see GraphSnapshotWriter#addSource(String)
+     */
+    public boolean isStale() {
+        return !getStaleSources().isEmpty();
+    }
+
+    /**
+     * Access to the graph stored in the snapshot. The graph is built once and
+     * shares the arrays of the snapshot.
+     *
+     * @return the graph
+     */
+    public synchronized GraphCSR getGraph() {
+        if (graph == null) {
+            graph = getGraph(graphURI);
+        }
+        return graph;
+    }
+
+    /**
+     * Build a new graph from the snapshot with a specific URI. The arrays of
+     * the snapshot are shared by all the graphs.
+     *
+     * @param uri the URI of the graph
+     * @return the graph
+     */
+    public GraphCSR getGraph(URI uri) {
+        return new GraphCSR(uri, Arrays.copyOf(dictionary, nbVertices), predicates, outOffsets, outTargets, inOffsets, inSources);
+    }
+
+    /**
+     * @return the names of the tables stored in the snapshot
+     */
+    public Set<String> getTableNames() {
+        return Collections.unmodifiableSet(tables.keySet());
+    }
+
+    /**
+     * @param name the name of a table
+     * @return true if the snapshot contains the table
+     */
+    public boolean hasTable(String name) {
+        return tables.containsKey(name);
+    }
+
+    /**
+     * Access to a table of sets.
+     *
+     * @param name the name of the table
+     * @return the sets indexed by URI
+     * @throws SLIB_Ex_Critic if the table does not exist or does not contain
+     * sets
+     */
+    public Map<URI, Set<URI>> getSets(String name) throws SLIB_Ex_Critic {
+
+        Table t = getTable(name, TABLE_SETS);
+        Map<URI, Set<URI>> sets = new HashMap<URI, Set<URI>>(t.keys.length * 2);
+
+        for (int i = 0; i < t.keys.length; i++) {
+            Set<URI> set = new HashSet<URI>((t.offsets[i + 1] - t.offsets[i]) * 2);
+            for (int m = t.offsets[i]; m < t.offsets[i + 1]; m++) {
+                set.add(dictionary[t.members[m]]);
+            }
+            sets.put(dictionary[t.keys[i]], set);
+        }
+        return sets;
+    }
+
+    /**
+     * Access to a table of integers.
+     *
+     * @param name the name of the table
+     * @return the values indexed by URI
+     * @throws SLIB_Ex_Critic if the table does not exist or does not contain
+     * integers
+     */
+    public Map<URI, Integer> getInts(String name) throws SLIB_Ex_Critic {
+
+        Table t = getTable(name, TABLE_INTS);
+        Map<URI, Integer> values = new HashMap<URI, Integer>(t.keys.length * 2);
+        for (int i = 0; i < t.keys.length; i++) {
+            values.put(dictionary[t.keys[i]], t.ints[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Access to a table of doubles.
+     *
+     * @param name the name of the table
+     * @return the values indexed by URI
+     * @throws SLIB_Ex_Critic if the table does not exist or does not contain
+     * doubles
+     */
+    public Map<URI, Double> getDoubles(String name) throws SLIB_Ex_Critic {
+
+        Table t = getTable(name, TABLE_DOUBLES);
+        Map<URI, Double> values = new HashMap<URI, Double>(t.keys.length * 2);
+        for (int i = 0; i < t.keys.length; i++) {
+            values.put(dictionary[t.keys[i]], t.doubles[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Access to the URI associated to an id of the dictionary of the
+     * snapshot. The ids of the vertices are the ones of the graph.
+     *
+     * @param id the id
+     * @return the URI
+     */
+    public URI getDictionaryURI(int id) {
+        return dictionary[id];
+    }
+
+    /**
+     * Access to the keys of a table as ids of the dictionary, see
+     * {@link #getDictionaryURI(int)}. The returned array must not be
+     * modified.
+     *
+     * @param name the name of the table
+     * @return the keys
+     * @throws SLIB_Ex_Critic if the table does not exist
+     */
+    public int[] getTableKeys(String name) throws SLIB_Ex_Critic {
+        return getTable(name, (byte) 0).keys;
+    }
+
+    /**
+     * Access to the members of the set associated to the i-th key of a
+     * table of sets, as sorted ids of the dictionary. This method avoids the
+     * creation of the sets of URIs, see {@link #getSets(String)}.
+     *
+     * @param name the name of the table
+     * @param i the index of the key, see {@link #getTableKeys(String)}
+     * @return the ids of the members of the set
+     * @throws SLIB_Ex_Critic if the table does not exist or does not contain
+     * sets
+     */
+    public int[] getTableSet(String name, int i) throws SLIB_Ex_Critic {
+        Table t = getTable(name, TABLE_SETS);
+        return Arrays.copyOfRange(t.members, t.offsets[i], t.offsets[i + 1]);
+    }
+
+    private Table getTable(String name, byte type) throws SLIB_Ex_Critic {
+        Table t = tables.get(name);
+        if (t == null) {
+            throw new SLIB_Ex_Critic("Snapshot " + location + " does not contain table " + name);
+        }
+        if (type != 0 && t.type != type) {
+            throw new SLIB_Ex_Critic("Table " + name + " of snapshot " + location + " is not of the expected type");
+        }
+        return t;
+    }
+
+    private static class Table {
+
+        final byte type;
+        int[] keys;
+        int[] offsets;
+        int[] members;
+        int[] ints;
+        double[] doubles;
+
+        Table(byte type) {
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.io.loader.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import org.openrdf.model.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.utils.Direction;
+import slib.sglib.model.impl.graph.memory.GraphCSR;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.ObjectIdIndex;
+
+/**
+ * Writer of graph snapshots, see {@link GraphSnapshot} for the description
+ * of the format.
+ *
+ * A snapshot contains the graph and optional tables associated to its
+ * vertices, e.g. precomputed closures, depths or information content
+ * values. The files from which the graph has been built can be registered
+ * in order to detect stale snapshots when they are loaded.
+ *
+ * Usage:
+ * <pre>
+ * GraphSnapshotWriter writer = new GraphSnapshotWriter(g);
+ * writer.addSource("go.obo");
+ * writer.addDoubles("ic", ics);
+ * writer.write("go.snapshot");
+ * </pre>
+ *
+ * @author Harispe Sébastien
+ */
+public class GraphSnapshotWriter {
+
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final GraphCSR graph;
+    private final ObjectIdIndex<URI> dictionary;
+    private final List<String> sources = new ArrayList<String>();
+    private final Map<String, Table> tables = new LinkedHashMap<String, Table>();
+
+    /**
+     * Build a writer for the given graph. A compressed copy of the graph is
+     * built if the graph is not a {@link GraphCSR}, the graph must therefore
+     * not be modified until the snapshot is written.
+     *
+     * @param g the graph to write
+     */
+    public GraphSnapshotWriter(G g) {
+
+        graph = g instanceof GraphCSR ? (GraphCSR) g : new GraphCSR(g);
+        dictionary = new ObjectIdIndex<URI>(graph.getNumberVertices() + graph.getNumberPredicates());
+
+        for (int v = 0; v < graph.getNumberVertices(); v++) {
+            dictionary.add(graph.getVertex(v));
+        }
+        for (int p = 0; p < graph.getNumberPredicates(); p++) {
+            dictionary.add(graph.getPredicate(p));
+        }
+    }
+
+    /**
+     * Register a file from which the graph has been built. The size and the
+     * date of last modification of the file are stored in the snapshot,
+     * the snapshot will be considered as stale if the file is modified.
+     *
+     * @param file the location of the file
+     * @throws SLIB_Ex_Critic if the file does not exist
+     * @see GraphSnapshot#isStale()
+     */
+    public void addSource(String file) throws SLIB_Ex_Critic {
+        if (!new File(file).isFile()) {
+            throw new SLIB_Ex_Critic("Cannot register source " + file + ", the file does not exist");
+        }
+        sources.add(file);
+    }
+
+    /**
+     * Add a table associating sets of URIs to URIs, e.g. the ancestors of
+     * the classes.
+     *
+     * @param name the name of the table
+     * @param sets the sets, the keys and the members of the sets must be
+     * vertices or predicates of the graph
+     */
+    public void addSets(String name, Map<URI, ? extends Collection<URI>> sets) {
+
+        Table t = new Table(GraphSnapshot.TABLE_SETS, sets.size());
+        int total = 0;
+        for (Collection<URI> set : sets.values()) {
+            total += set.size();
+        }
+        t.offsets = new int[sets.size() + 1];
+        t.members = new int[total];
+
+        int i = 0;
+        int m = 0;
+        for (Entry<URI, ? extends Collection<URI>> e : sets.entrySet()) {
+            t.keys[i] = id(e.getKey());
+            int start = m;
+            for (URI u : e.getValue()) {
+                t.members[m++] = id(u);
+            }
+            Arrays.sort(t.members, start, m);
+            t.offsets[++i] = m;
+        }
+        put(name, t);
+    }
+
+    /**
+     * Add a table associating integer values to URIs, e.g. depths.
+     *
+     * @param name the name of the table
+     * @param values the values, the keys must be vertices or predicates of
+     * the graph
+     */
+    public void addInts(String name, Map<URI, Integer> values) {
+
+        Table t = new Table(GraphSnapshot.TABLE_INTS, values.size());
+        t.ints = new int[values.size()];
+        int i = 0;
+        for (Entry<URI, Integer> e : values.entrySet()) {
+            t.keys[i] = id(e.getKey());
+            t.ints[i++] = e.getValue();
+        }
+        put(name, t);
+    }
+
+    /**
+     * Add a table associating double values to URIs, e.g. information
+     * content values.
+     *
+     * @param name the name of the table
+     * @param values the values, the keys must be vertices or predicates of
+     * the graph
+     */
+    public void addDoubles(String name, Map<URI, Double> values) {
+
+        Table t = new Table(GraphSnapshot.TABLE_DOUBLES, values.size());
+        t.doubles = new double[values.size()];
+        int i = 0;
+        for (Entry<URI, Double> e : values.entrySet()) {
+            t.keys[i] = id(e.getKey());
+            t.doubles[i++] = e.getValue();
+        }
+        put(name, t);
+    }
+
+    private void put(String name, Table t) {
+        if (name == null || tables.containsKey(name)) {
+            throw new IllegalArgumentException("Invalid or duplicated table name " + name);
+        }
+        tables.put(name, t);
+    }
+
+    private int id(URI u) {
+        int id = dictionary.getId(u);
+        if (id == -1) {
+            throw new IllegalArgumentException(u + " is not a vertex or a predicate of the graph " + graph.getURI());
+        }
+        return id;
+    }
+
+    /**
+     * Write the snapshot. The snapshot is first written into a temporary
+     * file which is then renamed, an existing snapshot is therefore never
+     * partially overwritten.
+     *
+     * @param file the location of the snapshot
+     * @throws SLIB_Ex_Critic if the snapshot cannot be written
+     */
+    public void write(String file) throws SLIB_Ex_Critic {
+
+        logger.info("Writing snapshot of graph " + graph.getURI() + " into " + file);
+
+        File target = new File(file);
+        File tmp = new File(file + ".tmp");
+
+        try {
+            FileOutputStream fos = new FileOutputStream(tmp);
+            CheckedOutputStream checked;
+            DataOutputStream out = null;
+            try {
+                // the header is written once the payload is known
+                fos.write(new byte[GraphSnapshot.HEADER_SIZE]);
+                checked = new CheckedOutputStream(new BufferedOutputStream(fos, 1 << 16), new CRC32());
+                out = new DataOutputStream(checked);
+                writePayload(out);
+                out.flush();
+            } finally {
+                if (out != null) {
+                    out.close();
+                } else {
+                    fos.close();
+                }
+            }
+
+            long payloadLength = tmp.length() - GraphSnapshot.HEADER_SIZE;
+            RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+            try {
+                raf.write(GraphSnapshot.MAGIC);
+                raf.writeInt(GraphSnapshot.VERSION);
+                raf.writeInt(0);
+                raf.writeLong(payloadLength);
+                raf.writeLong(checked.getChecksum().getValue());
+            } finally {
+                raf.close();
+            }
+
+            if (target.exists() && !target.delete()) {
+                throw new SLIB_Ex_Critic("Cannot replace snapshot " + file);
+            }
+            if (!tmp.renameTo(target)) {
+                throw new SLIB_Ex_Critic("Cannot rename " + tmp + " to " + file);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw new SLIB_Ex_Critic("Error writing snapshot " + file + ": " + e.getMessage());
+        }
+        logger.info("Snapshot written: " + graph.getNumberVertices() + " vertices, " + graph.getNumberEdges() + " edges, " + tables.size() + " table(s), " + target.length() + " bytes");
+    }
+
+    private void writePayload(DataOutputStream out) throws IOException {
+
+        writeString(out, graph.getURI().stringValue());
+
+        out.writeInt(sources.size());
+        for (String source : sources) {
+            File f = new File(source);
+            writeString(out, f.getAbsolutePath());
+            out.writeLong(f.length());
+            out.writeLong(f.lastModified());
+        }
+
+        // dictionary, URIs are split into namespaces and local names
+        ObjectIdIndex<String> namespaces = new ObjectIdIndex<String>();
+        int[] nsIds = new int[dictionary.size()];
+        for (int i = 0; i < dictionary.size(); i++) {
+            nsIds[i] = namespaces.add(dictionary.get(i).getNamespace());
+        }
+        out.writeInt(namespaces.size());
+        for (int i = 0; i < namespaces.size(); i++) {
+            writeString(out, namespaces.get(i));
+        }
+        out.writeInt(dictionary.size());
+        out.writeInt(graph.getNumberVertices());
+        for (int i = 0; i < dictionary.size(); i++) {
+            out.writeInt(nsIds[i]);
+            writeString(out, dictionary.get(i).getLocalName());
+        }
+
+        // adjacency
+        int nbV = graph.getNumberVertices();
+        out.writeInt(graph.getNumberPredicates());
+        for (int p = 0; p < graph.getNumberPredicates(); p++) {
+            out.writeInt(dictionary.getId(graph.getPredicate(p)));
+            out.writeInt(graph.getAdjacency(p, Direction.OUT).length);
+            writeInts(out, graph.getAdjacencyOffsets(p, Direction.OUT));
+            writeInts(out, graph.getAdjacency(p, Direction.OUT));
+            writeInts(out, graph.getAdjacencyOffsets(p, Direction.IN));
+            writeInts(out, graph.getAdjacency(p, Direction.IN));
+        }
+
+        // tables
+        out.writeInt(tables.size());
+        for (Entry<String, Table> e : tables.entrySet()) {
+            Table t = e.getValue();
+            writeString(out, e.getKey());
+            out.writeByte(t.type);
+            out.writeInt(t.keys.length);
+            writeInts(out, t.keys);
+            if (t.type == GraphSnapshot.TABLE_SETS) {
+                out.writeInt(t.members.length);
+                writeInts(out, t.offsets);
+                writeInts(out, t.members);
+            } else if (t.type == GraphSnapshot.TABLE_INTS) {
+                writeInts(out, t.ints);
+            } else {
+                for (double d : t.doubles) {
+                    out.writeDouble(d);
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(GraphSnapshot.UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int v : values) {
+            out.writeInt(v);
+        }
+    }
+
+    private static class Table {
+
+        final byte type;
+        final int[] keys;
+        int[] offsets;
+        int[] members;
+        int[] ints;
+        double[] doubles;
+
+        Table(byte type, int size) {
+            this.type = type;
+            this.keys = new int[size];
+        }
+    }
+}
@@ -56,6 +56,11 @@ public enum GFormat {
      *
      */
     NTRIPLES,
+    /**
+     * N-Triples loaded using the dedicated streaming loader instead of the
+     * Sesame parser, see {@link slib.sglib.io.loader.rdf.GraphLoader_NTriples}.
+     */
+    NTRIPLES_FAST,
     /**
      *
      */
@@ -68,6 +73,11 @@ public enum GFormat {
      *
      */
     SNOMED_CT_RF2,
+    /**
+     * SNOMED-CT RF2 Snapshot or Delta release loaded in streaming, see
+     * {@link slib.sglib.io.loader.bio.snomedct.GraphLoaderSnomedCT_RF2_Streaming}.
+     */
+    SNOMED_CT_RF2_STREAMING,
     /**
      *
      */
@@ -83,5 +93,10 @@ public enum GFormat {
     /**
      *
      */
-    TSV_ANNOT;
+    TSV_ANNOT,
+    /**
+     * Binary snapshot of a graph, see
+     * {@link slib.sglib.io.loader.snapshot.GraphSnapshot}.
+     */
+    SNAPSHOT;
 }
@@ -0,0 +1,793 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.model.impl.graph.memory;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.openrdf.model.URI;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.graph.utils.Direction;
+import slib.sglib.model.graph.utils.WalkConstraint;
+import slib.sglib.model.impl.graph.elements.Edge;
+import slib.utils.impl.ObjectIdIndex;
+
+/**
+ * Immutable in memory implementation of {@link G} relying on Compressed Sparse
+ * Rows (CSR).
+ *
+ * The graph is built once from a populated graph, e.g. a {@link GraphMemory}.
+ * Vertices and predicates are associated to dense integer ids and, for each
+ * predicate, the adjacency of the vertices is stored in two pairs of int
+ * arrays (outgoing and incoming edges): an array of offsets indexed by vertex
+ * id and an array of neighbor ids. The rows are sorted to allow edge lookups
+ * through binary search. No {@link E} object is stored, edges are only
+ * materialized when the views returned by the graph are iterated. The memory
+ * footprint is therefore a small fraction of the one of {@link GraphMemory}
+ * and traversals are cache friendly.
+ *
+ * All the methods modifying the graph throw an
+ * {@link UnsupportedOperationException}.
+ *
+ * @author Harispe Sébastien
+ */
+public class GraphCSR implements G {
+
+    private static final int[] EMPTY = new int[0];
+    private final URI uri;
+    private final ObjectIdIndex<URI> vertices;
+    private final ObjectIdIndex<URI> predicates;
+    /*
+     * Adjacency indexed by predicate id. For a predicate p and a vertex v the
+     * targets of the edges v p ? are stored in outTargets[p] between
+     * outOffsets[p][v] (inclusive) and outOffsets[p][v+1] (exclusive).
+     */
+    private final int[][] outOffsets;
+    private final int[][] outTargets;
+    private final int[][] inOffsets;
+    private final int[][] inSources;
+    private final int[] allPredicates;
+    private final int nbEdges;
+
+    /**
+     * Build an immutable copy of the given graph. The given graph is not
+     * modified and can be discarded once the copy is built.
+     *
+     * @param g the graph to copy
+     */
+    public GraphCSR(G g) {
+
+        this.uri = g.getURI();
+
+        int nbV = g.getNumberVertices();
+        vertices = new ObjectIdIndex<URI>(nbV);
+        for (URI v : g.getV()) {
+            vertices.add(v);
+        }
+        predicates = new ObjectIdIndex<URI>();
+
+        // first pass: degrees per predicate (shifted by one for prefix sums)
+        List<int[]> outDegrees = new ArrayList<int[]>();
+        List<int[]> inDegrees = new ArrayList<int[]>();
+        int edgeCount = 0;
+
+        for (E e : g.getE()) {
+
+            int p = predicates.add(e.getURI());
+            if (p == outDegrees.size()) {
+                outDegrees.add(new int[nbV + 1]);
+                inDegrees.add(new int[nbV + 1]);
+            }
+            outDegrees.get(p)[vertexIdChecked(e.getSource()) + 1]++;
+            inDegrees.get(p)[vertexIdChecked(e.getTarget()) + 1]++;
+            edgeCount++;
+        }
+
+        int nbP = predicates.size();
+        nbEdges = edgeCount;
+        outOffsets = new int[nbP][];
+        outTargets = new int[nbP][];
+        inOffsets = new int[nbP][];
+        inSources = new int[nbP][];
+        allPredicates = new int[nbP];
+
+        for (int p = 0; p < nbP; p++) {
+            allPredicates[p] = p;
+            outOffsets[p] = prefixSums(outDegrees.get(p));
+            inOffsets[p] = prefixSums(inDegrees.get(p));
+            outTargets[p] = new int[outOffsets[p][nbV]];
+            inSources[p] = new int[inOffsets[p][nbV]];
+        }
+        outDegrees = null;
+        inDegrees = null;
+
+        // second pass: fill the rows
+        int[][] outCursor = new int[nbP][];
+        int[][] inCursor = new int[nbP][];
+        for (int p = 0; p < nbP; p++) {
+            outCursor[p] = Arrays.copyOf(outOffsets[p], nbV);
+            inCursor[p] = Arrays.copyOf(inOffsets[p], nbV);
+        }
+
+        for (E e : g.getE()) {
+            int p = predicates.getId(e.getURI());
+            int s = vertices.getId(e.getSource());
+            int t = vertices.getId(e.getTarget());
+            outTargets[p][outCursor[p][s]++] = t;
+            inSources[p][inCursor[p][t]++] = s;
+        }
+
+        for (int p = 0; p < nbP; p++) {
+            for (int v = 0; v < nbV; v++) {
+                Arrays.sort(outTargets[p], outOffsets[p][v], outOffsets[p][v + 1]);
+                Arrays.sort(inSources[p], inOffsets[p][v], inOffsets[p][v + 1]);
+            }
+        }
+    }
+
+    /**
+     * Build a graph from compressed rows computed beforehand, e.g. read from a
+     * snapshot of a graph previously built by {@link #GraphCSR(G)}. The arrays
+     * are not copied, they must not be modified afterwards. The rows must be
+     * sorted and the adjacency of the two directions must be coherent, i.e.
+     * the arrays must be the ones returned by
+     * {@link #getAdjacencyOffsets(int, Direction)} and
+     * {@link #getAdjacency(int, Direction)}. Only the sizes of the arrays are
+     * checked.
+     *
+     * @param uri the URI of the graph
+     * @param vertices the vertices indexed by id
+     * @param predicates the predicates indexed by id
+     * @param outOffsets the offsets of the outgoing rows indexed by predicate
+     * id
+     * @param outTargets the targets of the outgoing rows indexed by predicate
+     * id
+     * @param inOffsets the offsets of the incoming rows indexed by predicate
+     * id
+     * @param inSources the sources of the incoming rows indexed by predicate
+     * id
+     * @throws IllegalArgumentException if the sizes of the arrays are not
+     * coherent or if a vertex or a predicate is duplicated
+     */
+    public GraphCSR(URI uri, URI[] vertices, URI[] predicates,
+            int[][] outOffsets, int[][] outTargets,
+            int[][] inOffsets, int[][] inSources) {
+
+        this.uri = uri;
+        int nbV = vertices.length;
+        int nbP = predicates.length;
+
+        this.vertices = new ObjectIdIndex<URI>(nbV);
+        for (URI v : vertices) {
+            if (this.vertices.add(v) != this.vertices.size() - 1) {
+                throw new IllegalArgumentException("Duplicated vertex " + v);
+            }
+        }
+        this.predicates = new ObjectIdIndex<URI>(nbP);
+        for (URI p : predicates) {
+            if (this.predicates.add(p) != this.predicates.size() - 1) {
+                throw new IllegalArgumentException("Duplicated predicate " + p);
+            }
+        }
+
+        if (outOffsets.length != nbP || outTargets.length != nbP || inOffsets.length != nbP || inSources.length != nbP) {
+            throw new IllegalArgumentException("Adjacency arrays must be provided for the " + nbP + " predicates");
+        }
+        int edgeCount = 0;
+        allPredicates = new int[nbP];
+
+        for (int p = 0; p < nbP; p++) {
+            allPredicates[p] = p;
+            if (outOffsets[p].length != nbV + 1 || inOffsets[p].length != nbV + 1
+                    || outOffsets[p][nbV] != outTargets[p].length
+                    || inOffsets[p][nbV] != inSources[p].length
+                    || outTargets[p].length != inSources[p].length) {
+                throw new IllegalArgumentException("Incoherent adjacency arrays for predicate " + predicates[p]);
+            }
+            edgeCount += outTargets[p].length;
+        }
+        this.nbEdges = edgeCount;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+    }
+
+    private int vertexIdChecked(URI v) {
+        int id = vertices.getId(v);
+        if (id == -1) {
+            throw new IllegalArgumentException("Incoherent graph, vertex " + v + " is involved in an edge but is not part of the vertices of the graph " + uri);
+        }
+        return id;
+    }
+
+    private static int[] prefixSums(int[] degrees) {
+        for (int i = 1; i < degrees.length; i++) {
+            degrees[i] += degrees[i - 1];
+        }
+        return degrees;
+    }
+
+    /**
+     * Access to the id associated to a vertex.
+     *
+     * @param v the vertex
+     * @return the id of the vertex, -1 if the vertex is not part of the graph
+     */
+    public int getVertexId(URI v) {
+        return vertices.getId(v);
+    }
+
+    /**
+     * Access to the vertex associated to an id.
+     *
+     * @param id the id of the vertex, between 0 and
+     * {@link #getNumberVertices()} - 1
+     * @return the vertex
+     */
+    public URI getVertex(int id) {
+        return vertices.get(id);
+    }
+
+    /**
+     * Access to the id associated to a predicate.
+     *
+     * @param predicate the predicate URI
+     * @return the id of the predicate, -1 if no edge of the graph is
+     * characterized by the given predicate
+     */
+    public int getPredicateId(URI predicate) {
+        return predicates.getId(predicate);
+    }
+
+    /**
+     * Access to the predicate associated to an id.
+     *
+     * @param id the id of the predicate, between 0 and
+     * {@link #getNumberPredicates()} - 1
+     * @return the predicate URI
+     */
+    public URI getPredicate(int id) {
+        return predicates.get(id);
+    }
+
+    /**
+     * @return the number of distinct predicates characterizing the edges
+     */
+    public int getNumberPredicates() {
+        return predicates.size();
+    }
+
+    /**
+     * Access to the offsets of the compressed rows associated to a predicate
+     * and a direction. The neighbors of the vertex v are stored in the array
+     * returned by {@link #getAdjacency(int, Direction)} from index offsets[v]
+     * (inclusive) to offsets[v+1] (exclusive).
+     *
+     * Note that the returned value corresponds to the data structure on which
+     * the graph relies, it must not be modified.
+     *
+     * @param predicateId the id of the predicate
+     * @param dir OUT or IN
+     * @return the offsets of the rows
+     */
+    public int[] getAdjacencyOffsets(int predicateId, Direction dir) {
+        return dir == Direction.IN ? inOffsets[predicateId] : outOffsets[predicateId];
+    }
+
+    /**
+     * Access to the neighbor ids associated to a predicate and a direction:
+     * the targets of the edges for direction OUT and the sources of the edges
+     * for direction IN. The neighbors of a vertex are sorted by id, see
+     * {@link #getAdjacencyOffsets(int, Direction)}.
+     *
+     * Note that the returned value corresponds to the data structure on which
+     * the graph relies, it must not be modified.
+     *
+     * @param predicateId the id of the predicate
+     * @param dir OUT or IN
+     * @return the neighbor ids
+     */
+    public int[] getAdjacency(int predicateId, Direction dir) {
+        return dir == Direction.IN ? inSources[predicateId] : outTargets[predicateId];
+    }
+
+    private boolean containsEdge(int s, int p, int t) {
+        return Arrays.binarySearch(outTargets[p], outOffsets[p][s], outOffsets[p][s + 1], t) >= 0;
+    }
+
+    private int[] predicateIds(URI predicate) {
+        if (predicate == null) {
+            return allPredicates;
+        }
+        int p = predicates.getId(predicate);
+        return p == -1 ? EMPTY : new int[]{p};
+    }
+
+    private int[] predicateIds(Set<URI> preds) {
+        if (preds == null) {
+            return allPredicates;
+        }
+        int[] ids = new int[preds.size()];
+        int c = 0;
+        for (URI pred : preds) {
+            int p = predicates.getId(pred);
+            if (p != -1) {
+                ids[c++] = p;
+            }
+        }
+        return c == ids.length ? ids : Arrays.copyOf(ids, c);
+    }
+
+    private Set<E> vertexEdges(URI v, int[] preds, Direction dir) {
+        int id = vertices.getId(v);
+        if (id == -1 || dir == null) {
+            return new EdgeView(-1, EMPTY, EMPTY);
+        }
+        return new EdgeView(id,
+                dir == Direction.OUT || dir == Direction.BOTH ? preds : EMPTY,
+                dir == Direction.IN || dir == Direction.BOTH ? preds : EMPTY);
+    }
+
+    @Override
+    public Set<E> getE() {
+        return new EdgeView(-1, allPredicates, EMPTY);
+    }
+
+    @Override
+    public Set<E> getE(URI v, Direction dir) {
+        if (v == null) {
+            return getE();
+        }
+        return vertexEdges(v, allPredicates, dir == null ? Direction.BOTH : dir);
+    }
+
+    @Override
+    public Set<E> getE(URI predicate) {
+        return new EdgeView(-1, predicateIds(predicate), EMPTY);
+    }
+
+    @Override
+    public Set<E> getE(Set<URI> types) {
+        if (types == null || types.isEmpty()) {
+            return getE();
+        }
+        return new EdgeView(-1, predicateIds(types), EMPTY);
+    }
+
+    @Override
+    public Set<E> getE(URI predicate, URI v, Direction dir) {
+        if (v == null) {
+            return getE(predicate);
+        }
+        return vertexEdges(v, predicateIds(predicate), dir == null ? Direction.BOTH : dir);
+    }
+
+    @Override
+    public Set<E> getE(Set<URI> predicates, URI source, Direction dir) {
+        return vertexEdges(source, predicateIds(predicates), dir);
+    }
+
+    @Override
+    public Set<E> getE(URI v, WalkConstraint wc) {
+        int id = vertices.getId(v);
+        if (id == -1) {
+            return new EdgeView(-1, EMPTY, EMPTY);
+        }
+        int[] outP = wc.acceptOutWalks() ? predicateIds(wc.getAcceptedWalks_DIR_OUT()) : EMPTY;
+        int[] inP = wc.acceptInWalks() ? predicateIds(wc.getAcceptedWalks_DIR_IN()) : EMPTY;
+        return new EdgeView(id, outP, inP);
+    }
+
+    @Override
+    public Set<URI> getV(URI v, WalkConstraint wc) {
+
+        Set<URI> valid = new HashSet<URI>();
+        int id = vertices.getId(v);
+        if (id != -1) {
+            if (wc.acceptOutWalks()) {
+                addNeighbors(id, predicateIds(wc.getAcceptedWalks_DIR_OUT()), outOffsets, outTargets, valid);
+            }
+            if (wc.acceptInWalks()) {
+                addNeighbors(id, predicateIds(wc.getAcceptedWalks_DIR_IN()), inOffsets, inSources, valid);
+            }
+        }
+        return valid;
+    }
+
+    @Override
+    public Set<URI> getV(URI v, URI predicate, Direction dir) {
+
+        Set<URI> vert = new HashSet<URI>();
+        int id = vertices.getId(v);
+        if (id != -1) {
+            int[] preds = predicateIds(predicate);
+            if (dir == Direction.OUT || dir == Direction.BOTH) {
+                addNeighbors(id, preds, outOffsets, outTargets, vert);
+            }
+            if (dir == Direction.IN || dir == Direction.BOTH) {
+                addNeighbors(id, preds, inOffsets, inSources, vert);
+            }
+        }
+        return vert;
+    }
+
+    private void addNeighbors(int v, int[] preds, int[][] offsets, int[][] adjacency, Set<URI> result) {
+        for (int p : preds) {
+            int[] adj = adjacency[p];
+            for (int k = offsets[p][v]; k < offsets[p][v + 1]; k++) {
+                result.add(vertices.get(adj[k]));
+            }
+        }
+    }
+
+    @Override
+    public Set<URI> getV() {
+        return new AbstractSet<URI>() {
+            @Override
+            public Iterator<URI> iterator() {
+                return new Iterator<URI>() {
+                    int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < vertices.size();
+                    }
+
+                    @Override
+                    public URI next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return vertices.get(next++);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("Immutable view");
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return vertices.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return vertices.contains(o);
+            }
+        };
+    }
+
+    @Override
+    public boolean containsVertex(URI v) {
+        return vertices.contains(v);
+    }
+
+    @Override
+    public int getNumberVertices() {
+        return vertices.size();
+    }
+
+    @Override
+    public int getNumberEdges() {
+        return nbEdges;
+    }
+
+    @Override
+    public URI getURI() {
+        return uri;
+    }
+
+    private UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("Graph " + uri + " cannot be modified, " + getClass().getSimpleName() + " is immutable");
+    }
+
+    @Override
+    public void addE(URI src, URI type, URI target) {
+        throw immutable();
+    }
+
+    @Override
+    public void addE(E e) {
+        throw immutable();
+    }
+
+    @Override
+    public void addEdges(Set<E> e) {
+        throw immutable();
+    }
+
+    @Override
+    public void removeE(E e) {
+        throw immutable();
+    }
+
+    @Override
+    public void removeE(URI t) {
+        throw immutable();
+    }
+
+    @Override
+    public void removeE(Set<E> e) {
+        throw immutable();
+    }
+
+    @Override
+    public void addV(URI v) {
+        throw immutable();
+    }
+
+    @Override
+    public void addV(Set<URI> v) {
+        throw immutable();
+    }
+
+    @Override
+    public void removeV(URI v) {
+        throw immutable();
+    }
+
+    @Override
+    public void removeV(Set<URI> setV) {
+        throw immutable();
+    }
+
+    @Override
+    public String toString() {
+
+        String out = "";
+
+        if (uri == null) {
+            out += "Uri undefined\n";
+        } else {
+            out += uri.toString() + "\n";
+        }
+        String exURiVertex = "";
+
+        if (vertices.size() != 0) {
+            exURiVertex = "{e.g. " + vertices.get(0).toString() + "}";
+        }
+
+        out += "Vertices\n";
+        out += "\tTotal   : " + vertices.size() + "  " + exURiVertex + "\n";
+        out += "Edges 	  : " + nbEdges + "\n";
+        out += "Predicates: " + predicates.size() + " (CSR)\n\n";
+
+        return out;
+    }
+
+    /**
+     * Unmodifiable view of a set of edges, edges are built on the fly during
+     * the iteration.
+     *
+     * If no vertex is specified (vertex set to -1) the view covers all the
+     * edges characterized by the predicates of outP. Otherwise the view covers
+     * the outgoing edges of the vertex characterized by the predicates of outP
+     * and the incoming edges characterized by the predicates of inP. Loops
+     * which would be covered twice are only considered once.
+     */
+    private class EdgeView extends AbstractSet<E> {
+
+        final int vertex;
+        final int[] outP;
+        final int[] inP;
+
+        EdgeView(int vertex, int[] outP, int[] inP) {
+            this.vertex = vertex;
+            this.outP = outP;
+            this.inP = inP;
+        }
+
+        private boolean isOutPredicate(int p) {
+            for (int o : outP) {
+                if (o == p) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Check if the incoming edge s p vertex is also covered as an outgoing
+         * edge of the vertex (loop).
+         */
+        private boolean coveredAsOut(int s, int p) {
+            return s == vertex && isOutPredicate(p);
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            if (vertex == -1) {
+                for (int p : outP) {
+                    size += outTargets[p].length;
+                }
+            } else {
+                for (int p : outP) {
+                    size += outOffsets[p][vertex + 1] - outOffsets[p][vertex];
+                }
+                for (int p : inP) {
+                    size += inOffsets[p][vertex + 1] - inOffsets[p][vertex];
+                    if (isOutPredicate(p) && Arrays.binarySearch(inSources[p], inOffsets[p][vertex], inOffsets[p][vertex + 1], vertex) >= 0) {
+                        size--;
+                    }
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+
+            if (!(o instanceof E)) {
+                return false;
+            }
+            E e = (E) o;
+            int p = predicates.getId(e.getURI());
+            int s = vertices.getId(e.getSource());
+            int t = vertices.getId(e.getTarget());
+
+            if (p == -1 || s == -1 || t == -1 || !containsEdge(s, p, t)) {
+                return false;
+            }
+            if (vertex == -1) {
+                return isOutPredicate(p);
+            }
+            if (s == vertex && isOutPredicate(p)) {
+                return true;
+            }
+            if (t == vertex) {
+                for (int i : inP) {
+                    if (i == p) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new EdgeIterator();
+        }
+
+        private class EdgeIterator implements Iterator<E> {
+
+            boolean inPhase = false;
+            int predIdx = 0;
+            int pos;
+            int end;
+            int src; // current source when the view covers all edges
+            E next;
+
+            EdgeIterator() {
+                initRow();
+                next = advance();
+            }
+
+            private int[] preds() {
+                return inPhase ? inP : outP;
+            }
+
+            /**
+             * Load the bounds of the row associated to the current predicate.
+             */
+            private void initRow() {
+                if (predIdx >= preds().length) {
+                    pos = end = 0;
+                    return;
+                }
+                int p = preds()[predIdx];
+                if (vertex == -1) {
+                    pos = 0;
+                    end = outTargets[p].length;
+                    src = 0;
+                } else if (inPhase) {
+                    pos = inOffsets[p][vertex];
+                    end = inOffsets[p][vertex + 1];
+                } else {
+                    pos = outOffsets[p][vertex];
+                    end = outOffsets[p][vertex + 1];
+                }
+            }
+
+            private E advance() {
+
+                while (true) {
+
+                    if (pos < end) {
+                        int p = preds()[predIdx];
+                        int k = pos++;
+
+                        if (vertex == -1) {
+                            int[] offsets = outOffsets[p];
+                            while (offsets[src + 1] <= k) {
+                                src++;
+                            }
+                            return new Edge(vertices.get(src), predicates.get(p), vertices.get(outTargets[p][k]));
+                        } else if (inPhase) {
+                            int s = inSources[p][k];
+                            if (coveredAsOut(s, p)) {
+                                continue;
+                            }
+                            return new Edge(vertices.get(s), predicates.get(p), vertices.get(vertex));
+                        } else {
+                            return new Edge(vertices.get(vertex), predicates.get(p), vertices.get(outTargets[p][k]));
+                        }
+                    }
+
+                    predIdx++;
+                    if (predIdx >= preds().length) {
+                        if (inPhase || vertex == -1) {
+                            return null;
+                        }
+                        inPhase = true;
+                        predIdx = 0;
+                    }
+                    initRow();
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public E next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                E current = next;
+                next = advance();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Immutable view");
+            }
+        }
+    }
+}
@@ -34,11 +34,11 @@
  */
 package slib.sglib.model.impl.repo;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import org.openrdf.model.URI;
-import org.openrdf.sail.memory.model.MemValueFactory;
+import org.openrdf.model.impl.URIImpl;
 import slib.sglib.model.repo.URIFactory;
 import slib.utils.ex.SLIB_Ex_Critic;
 
@@ -52,13 +52,17 @@ import slib.utils.ex.SLIB_Ex_Critic;
  * in a graph are linked to the corresponding storage element in the Data
  * repository. All change of the graph must be propagated on the Data Repository
  *
+ * The URIs are interned, see {@link URIInterner}: a single instance is created
+ * for each URI, and each URI is associated to a dense integer id. The factory
+ * can safely be used by concurrent threads.
+ *
  * @author Sebastien Harispe
  *
  */
 public class URIFactoryMemory implements URIFactory {
 
-    MemValueFactory internalUriFactory;
-    private static URIFactoryMemory repository;
+    volatile URIInterner internalUriFactory;
+    private static final URIFactoryMemory repository = new URIFactoryMemory();
     private Map<String, String> namespacePrefixes2namespaces;
     private Map<String, String> namespaces2namespacePrefixes;
     Pattern colon = Pattern.compile(":");
@@ -69,10 +73,6 @@ public class URIFactoryMemory implements URIFactory {
      * @return the singleton
      */
     public static URIFactoryMemory getSingleton() {
-
-        if (repository == null) {
-            repository = new URIFactoryMemory();
-        }
         return repository;
     }
 
@@ -81,13 +81,13 @@ public class URIFactoryMemory implements URIFactory {
      */
     private URIFactoryMemory() {
 
-        internalUriFactory = new MemValueFactory();
-        namespacePrefixes2namespaces = new HashMap<String, String>();
-        namespaces2namespacePrefixes = new HashMap<String, String>();
+        internalUriFactory = new URIInterner();
+        namespacePrefixes2namespaces = new ConcurrentHashMap<String, String>();
+        namespaces2namespacePrefixes = new ConcurrentHashMap<String, String>();
     }
 
     @Override
-    public boolean loadNamespacePrefix(String prefix, String reference) throws SLIB_Ex_Critic {
+    public synchronized boolean loadNamespacePrefix(String prefix, String reference) throws SLIB_Ex_Critic {
 
 
         if (!namespacePrefixes2namespaces.containsKey(prefix)) {
@@ -109,45 +109,81 @@ public class URIFactoryMemory implements URIFactory {
         return namespacePrefixes2namespaces.get(ns_prefix);
     }
 
+    /**
+     * Reset the factory: the namespace prefixes are removed and the URIs
+     * are no longer interned, i.e. the ids restart from 0.
+     *
+     * The URIs previously created remain valid URIs equal to the ones which
+     * will be created from the same strings, but they are no longer
+     * associated to an id, see {@link #idOf(URI)}. The factory must
+     * therefore not be cleared while graphs or engines relying on the ids
+     * are in use.
+     */
     @Override
-    public void clear() {
+    public synchronized void clear() {
         namespacePrefixes2namespaces.clear();
+        namespaces2namespacePrefixes.clear();
+        internalUriFactory = new URIInterner();
     }
 
     @Override
     public URI createURI(String sURI) {
-        return internalUriFactory.createURI(sURI);
+        return internalUriFactory.intern(sURI);
 
     }
 
     @Override
     public URI createURI(String snamespace, String sURI) {
-        return internalUriFactory.createURI(snamespace, sURI);
+        return internalUriFactory.intern(snamespace, sURI);
     }
 
     @Override
     public URI createURI(String sURI, boolean useLoadedPrefix) {
-        if (!useLoadedPrefix) {
-            return createURI(sURI);
-        } else {
+        return createURI(expand(sURI, useLoadedPrefix));
+    }
+
+    @Override
+    public URI getURI(String sURI, boolean useLoadedPrefix) {
+        String s = expand(sURI, useLoadedPrefix);
+        URI u = internalUriFactory.get(s);
+        return u != null ? u : new URIImpl(s);
+    }
+
+    @Override
+    public int idOf(URI uri) {
+        return internalUriFactory.idOf(uri);
+    }
+
+    @Override
+    public URI uriOf(int id) {
+        return internalUriFactory.uriOf(id);
+    }
+
+    /**
+     * @return the number of URIs created by the factory
+     */
+    public int size() {
+        return internalUriFactory.size();
+    }
+
+    private String expand(String sURI, boolean useLoadedPrefix) {
+        if (useLoadedPrefix) {
             int idx = sURI.indexOf(":");
             if (idx != -1) {
-                String prefix = sURI.substring(0, idx);
-                if (namespacePrefixes2namespaces.containsKey(prefix)) {
-                    return createURI(namespacePrefixes2namespaces.get(prefix), sURI.substring(idx + 1));
-                } else {
-                    return createURI(sURI);
+                String namespace = namespacePrefixes2namespaces.get(sURI.substring(0, idx));
+                if (namespace != null) {
+                    return namespace + sURI.substring(idx + 1);
                 }
-            } else {
-                return createURI(sURI);
             }
         }
+        return sURI;
     }
 
     @Override
     public String shortURIasString(URI uri) {
-        if (namespaces2namespacePrefixes.containsKey(uri.getNamespace())) {
-            return namespaces2namespacePrefixes.get(uri.getNamespace()) + ":" + uri.getLocalName();
+        String prefix = namespaces2namespacePrefixes.get(uri.getNamespace());
+        if (prefix != null) {
+            return prefix + ":" + uri.getLocalName();
         } else {
             return uri.stringValue();
         }
@@ -0,0 +1,276 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.model.impl.repo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+
+/**
+ * Concurrent interner of URIs.
+ *
+ * A single canonical instance is created for each URI string, the
+ * canonical instances cache their hash code and two canonical instances of
+ * the same interner are compared by reference. They remain equal to the
+ * other implementations of {@link URI} referring to the same string.
+ *
+ * Each canonical instance is associated to a dense integer id, i.e. ids
+ * range from 0 to {@link #size()} (excluded), see {@link #idOf(URI)} and
+ * {@link #uriOf(int)}.
+ *
+ * The canonical instances are indexed by lock striping: the strings are
+ * dispatched over several maps according to their hash code. Lookups do
+ * not require any lock, the creation of a canonical instance locks the map
+ * associated to the string and, briefly, the table of ids: an id is only
+ * published, i.e. counted by {@link #size()}, once the instance it refers to
+ * has been stored, {@link #uriOf(int)} therefore never misses an id which
+ * has been returned by {@link #idOf(URI)}.
+ *
+ * @author Harispe Sébastien
+ */
+public class URIInterner {
+
+    /**
+     * Default number of stripes.
+     */
+    public static final int DEFAULT_NB_STRIPES = 64;
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private final ConcurrentHashMap<String, InternedURI>[] stripes;
+    private final int mask;
+    // id -> canonical instance, by segments allocated on demand
+    // segments and slots are written under idLock before size is published
+    private final URI[][] segments = new URI[1 << (31 - SEGMENT_BITS)][];
+    private final Object idLock = new Object();
+    private volatile int size;
+
+    /**
+     * Build an interner relying on {@value #DEFAULT_NB_STRIPES} stripes.
+     */
+    public URIInterner() {
+        this(DEFAULT_NB_STRIPES);
+    }
+
+    /**
+     * @param nbStripes the number of stripes, rounded up to a power of 2
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public URIInterner(int nbStripes) {
+
+        if (nbStripes < 1) {
+            throw new IllegalArgumentException("The number of stripes must be greater than 0, given " + nbStripes);
+        }
+        int n = Integer.highestOneBit(nbStripes);
+        if (n < nbStripes) {
+            n <<= 1;
+        }
+        stripes = new ConcurrentHashMap[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new ConcurrentHashMap<String, InternedURI>();
+        }
+        mask = n - 1;
+    }
+
+    private ConcurrentHashMap<String, InternedURI> stripe(String s) {
+        int h = s.hashCode();
+        h ^= (h >>> 16);
+        return stripes[(h ^ (h >>> 8)) & mask];
+    }
+
+    /**
+     * Access to the canonical instance of a URI, the instance is created if
+     * required.
+     *
+     * @param s the URI
+     * @return the canonical instance
+     * @throws IllegalArgumentException if the given string is not a valid
+     * URI
+     */
+    public URI intern(String s) {
+        return intern(s, -1);
+    }
+
+    /**
+     * Access to the canonical instance of a URI specified by its namespace
+     * and its local name, the instance is created if required.
+     *
+     * The namespace and the local name of the created instance are the ones
+     * given. If the URI has already been interned, the canonical instance is
+     * returned as is, i.e. with the namespace and local name it has been
+     * created with.
+     *
+     * @param namespace the namespace of the URI
+     * @param localName the local name of the URI
+     * @return the canonical instance
+     * @throws IllegalArgumentException if the concatenation of the namespace
+     * and the local name is not a valid URI
+     */
+    public URI intern(String namespace, String localName) {
+        return intern(namespace + localName, namespace.length());
+    }
+
+    private URI intern(String s, int localNameIdx) {
+
+        ConcurrentHashMap<String, InternedURI> stripe = stripe(s);
+        InternedURI u = stripe.get(s);
+
+        if (u == null) {
+            synchronized (stripe) {
+                u = stripe.get(s);
+                if (u == null) {
+                    // the id is only assigned once the URI has been validated
+                    u = new InternedURI(s, localNameIdx, this);
+                    register(u);
+                    stripe.put(s, u);
+                }
+            }
+        }
+        return u;
+    }
+
+    /**
+     * Assign an id to a canonical instance, store the instance in the table
+     * of ids and publish the id.
+     */
+    private void register(InternedURI u) {
+
+        synchronized (idLock) {
+            int id = size;
+            if (id == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many URIs");
+            }
+            int index = id >>> SEGMENT_BITS;
+            if (segments[index] == null) {
+                segments[index] = new URI[SEGMENT_SIZE];
+            }
+            u.id = id;
+            segments[index][id & (SEGMENT_SIZE - 1)] = u;
+            size = id + 1;
+        }
+    }
+
+    /**
+     * Access to the canonical instance of a URI without creating it.
+     *
+     * @param s the URI
+     * @return the canonical instance, null if the URI has not been interned
+     */
+    public URI get(String s) {
+        return stripe(s).get(s);
+    }
+
+    /**
+     * Access to the id of a URI.
+     *
+     * @param u the URI
+     * @return the id of the URI, -1 if the URI has not been interned
+     */
+    public int idOf(URI u) {
+
+        if (u instanceof InternedURI && ((InternedURI) u).owner == this) {
+            return ((InternedURI) u).id;
+        }
+        InternedURI i = stripe(u.stringValue()).get(u.stringValue());
+        return i == null ? -1 : i.id;
+    }
+
+    /**
+     * Access to the canonical instance associated to an id.
+     *
+     * @param id the id, between 0 and {@link #size()} (excluded)
+     * @return the canonical instance
+     * @throws IllegalArgumentException if no URI is associated to the id
+     */
+    public URI uriOf(int id) {
+
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No URI is associated to id " + id);
+        }
+        return segments[id >>> SEGMENT_BITS][id & (SEGMENT_SIZE - 1)];
+    }
+
+    /**
+     * @return the number of URIs interned
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Canonical instance of a URI.
+     */
+    static final class InternedURI extends URIImpl {
+
+        private static final long serialVersionUID = 1L;
+        final transient URIInterner owner;
+        final int hash;
+        // index of the local name, -1 if it is computed by URIImpl
+        final int localNameIdx;
+        int id;
+
+        InternedURI(String s, int localNameIdx, URIInterner owner) {
+            super(s);
+            this.owner = owner;
+            this.hash = s.hashCode();
+            this.localNameIdx = localNameIdx;
+        }
+
+        @Override
+        public String getNamespace() {
+            return localNameIdx < 0 ? super.getNamespace() : stringValue().substring(0, localNameIdx);
+        }
+
+        @Override
+        public String getLocalName() {
+            return localNameIdx < 0 ? super.getLocalName() : stringValue().substring(localNameIdx);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o instanceof InternedURI && ((InternedURI) o).owner == owner && owner != null) {
+                return false;
+            }
+            return super.equals(o);
+        }
+    }
+}
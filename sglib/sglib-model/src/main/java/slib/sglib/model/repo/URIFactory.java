@@ -77,6 +77,35 @@ public interface URIFactory{
     public URI createURI(String sURI,boolean useLoadedPrefix);
     
     public URI createURI(String snamespace, String localName);
+
+    /**
+     * Access to a URI without registering it in the factory, e.g. to query
+     * a graph. The instance created by the factory is returned if any.
+     *
+     * @param sURI
+     * @param useLoadedPrefix set to true loaded prefixes will be used.
+     * @throws IllegalArgumentException if the URI is not well formed
+     * @return the URI
+     */
+    public URI getURI(String sURI, boolean useLoadedPrefix);
+
+    /**
+     * Access to the id associated to a URI created by the factory.
+     * Ids range from 0 to the number of URIs created (excluded).
+     *
+     * @param uri the URI
+     * @return the id of the URI, -1 if the URI has not been created by the factory
+     */
+    public int idOf(URI uri);
+
+    /**
+     * Access to the URI associated to an id, see {@link #idOf(URI)}.
+     *
+     * @param id the id
+     * @throws IllegalArgumentException if no URI is associated to the id
+     * @return the URI
+     */
+    public URI uriOf(int id);
     
     public void clear();
     
@@ -0,0 +1,241 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.algo.graph.extraction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.algo.graph.extraction.rvf.CompressedClosure;
+import slib.sglib.algo.graph.extraction.rvf.RVF_DAG;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.utils.Direction;
+import slib.sglib.model.graph.utils.WalkConstraint;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sglib.utils.WalkConstraintGeneric;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.CompressedIntSet;
+import slib.utils.impl.ObjectIdIndex;
+
+/**
+ * Compare the closures computed by {@link CompressedClosure} to the ones
+ * computed by {@link RVF_DAG} on random Directed Acyclic Graphs.
+ *
+ * @author seb
+ */
+public class TestCompressedClosure {
+
+    URIFactory factory = URIFactoryMemory.getSingleton();
+
+    /**
+     * A random taxonomy in which each class has one to three parents among
+     * the classes created before it, the classes being created in a random
+     * order so that their URIs do not follow a topological order.
+     */
+    private G randomDAG(String name, int nbClasses, Random random) {
+
+        G g = new GraphMemory(factory.createURI("http://" + name + "/"));
+        URI[] classes = new URI[nbClasses];
+        for (int i = 0; i < nbClasses; i++) {
+            classes[i] = factory.createURI("http://" + name + "/C_" + random.nextInt(1000000) + "_" + i);
+            g.addV(classes[i]);
+        }
+        for (int i = 1; i < nbClasses; i++) {
+            int nbParents = 1 + random.nextInt(3);
+            for (int p = 0; p < nbParents; p++) {
+                int parent = Math.max(0, i - 1 - random.nextInt(Math.min(i, 30)));
+                g.addE(classes[i], RDFS.SUBCLASSOF, classes[parent]);
+            }
+        }
+        return g;
+    }
+
+    private static Set<URI> toURIs(ObjectIdIndex<URI> index, CompressedIntSet ids) {
+        Set<URI> uris = new HashSet<URI>();
+        CompressedIntSet.IntIterator it = ids.iterator();
+        while (it.hasNext()) {
+            uris.add(index.get(it.next()));
+        }
+        return uris;
+    }
+
+    /**
+     * Check the closures against the exclusive closures computed by
+     * {@link RVF_DAG} to which the vertices are added.
+     */
+    private void checkClosures(G g, WalkConstraint wc, CompressedClosure closure) throws SLIB_Ex_Critic {
+
+        Map<URI, Set<URI>> expected = new RVF_DAG(g, wc).getAllRV();
+        ObjectIdIndex<URI> index = closure.getIndex();
+
+        assertEquals(expected.size(), closure.size());
+        assertEquals(expected.size(), closure.asMap().size());
+
+        for (Map.Entry<URI, Set<URI>> e : expected.entrySet()) {
+
+            URI v = e.getKey();
+            Set<URI> inclusive = new HashSet<URI>(e.getValue());
+            inclusive.add(v);
+
+            int id = index.getId(v);
+            assertTrue(id != -1);
+            assertEquals(v.toString(), inclusive, toURIs(index, closure.getClosure(id)));
+            assertEquals(v.toString(), inclusive, closure.getClosure(v));
+            assertEquals(v.toString(), inclusive.size(), closure.getClosure(v).size());
+            assertEquals(v.toString(), inclusive, closure.asMap().get(v));
+            for (URI u : inclusive) {
+                assertTrue(closure.getClosure(v).contains(u));
+            }
+        }
+        assertNull(closure.getClosure(factory.createURI("http://unknown/vertex")));
+    }
+
+    /**
+     * Ancestors and descendants of random taxonomies, computed sequentially
+     * and concurrently.
+     */
+    @Test
+    public void testRandomDAG() throws SLIB_Ex_Critic {
+
+        Random random = new Random(11);
+        WalkConstraint ancestors = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.OUT);
+        WalkConstraint descendants = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.IN);
+
+        for (int run = 0; run < 5; run++) {
+
+            G g = randomDAG("closure" + run, 50 + random.nextInt(400), random);
+            List<URI> vertices = new ArrayList<URI>(g.getV());
+
+            for (WalkConstraint wc : new WalkConstraint[]{ancestors, descendants}) {
+
+                ObjectIdIndex<URI> index = CompressedClosure.buildTopologicalIndex(g, descendants, vertices);
+                CompressedClosure sequential = new CompressedClosure(g, wc, index);
+                CompressedClosure parallel = new CompressedClosure(g, wc, index, 4);
+
+                checkClosures(g, wc, sequential);
+                checkClosures(g, wc, parallel);
+
+                for (int id = 0; id < index.size(); id++) {
+                    assertEquals(sequential.getClosure(id), parallel.getClosure(id));
+                }
+
+                // closures reloaded from a snapshot
+                CompressedIntSet[] copy = new CompressedIntSet[index.size()];
+                for (int id = 0; id < copy.length; id++) {
+                    copy[id] = sequential.getClosure(id);
+                }
+                checkClosures(g, wc, new CompressedClosure(index, copy));
+            }
+        }
+    }
+
+    /**
+     * Numbering the classes following the subClassOf relationships in the IN
+     * direction gives every ancestor a lower identifier than its descendants.
+     */
+    @Test
+    public void testTopologicalIndex() throws SLIB_Ex_Critic {
+
+        Random random = new Random(13);
+        WalkConstraint ancestors = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.OUT);
+        WalkConstraint descendants = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.IN);
+
+        for (int run = 0; run < 5; run++) {
+
+            G g = randomDAG("topo" + run, 50 + random.nextInt(400), random);
+            ObjectIdIndex<URI> index = CompressedClosure.buildTopologicalIndex(g, descendants, g.getV());
+            assertEquals(g.getV().size(), index.size());
+
+            Map<URI, Set<URI>> allAncestors = new RVF_DAG(g, ancestors).getAllRV();
+            for (URI c : g.getV()) {
+                int id = index.getId(c);
+                assertEquals(c, index.get(id));
+                for (URI a : allAncestors.get(c)) {
+                    assertTrue(a + " ancestor of " + c, index.getId(a) < id);
+                }
+            }
+
+            // the closure of a vertex only contains lower identifiers
+            CompressedClosure closure = new CompressedClosure(g, ancestors, index);
+            for (int id = 0; id < index.size(); id++) {
+                assertEquals(id, closure.getClosure(id).last());
+            }
+        }
+    }
+
+    @Test
+    public void testCycle() {
+
+        G g = new GraphMemory(factory.createURI("http://cycle/"));
+        URI a = factory.createURI("http://cycle/a");
+        URI b = factory.createURI("http://cycle/b");
+        URI c = factory.createURI("http://cycle/c");
+        g.addE(b, RDFS.SUBCLASSOF, a);
+        g.addE(c, RDFS.SUBCLASSOF, b);
+        g.addE(a, RDFS.SUBCLASSOF, c);
+
+        WalkConstraint wc = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.OUT);
+        ObjectIdIndex<URI> index = new ObjectIdIndex<URI>(3);
+        index.add(a);
+        index.add(b);
+        index.add(c);
+
+        for (int nbThreads : new int[]{1, 4}) {
+            try {
+                new CompressedClosure(g, wc, index, nbThreads);
+                fail("cycle");
+            } catch (SLIB_Ex_Critic e) {
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidClosures() {
+        ObjectIdIndex<URI> index = new ObjectIdIndex<URI>(1);
+        index.add(factory.createURI("http://invalid/a"));
+        new CompressedClosure(index, new CompressedIntSet[2]);
+    }
+}
@@ -34,8 +34,11 @@
  */
 package slib.sglib.test.algo.graph.extraction;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import org.openrdf.model.URI;
@@ -48,6 +51,9 @@ import slib.sglib.io.util.GFormat;
 import slib.sglib.model.graph.G;
 import slib.sglib.model.graph.utils.Direction;
 import slib.sglib.model.graph.utils.WalkConstraint;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
 import slib.sglib.utils.WalkConstraintGeneric;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
@@ -234,4 +240,127 @@ public class TestReachableVerticesFinder {
 
         assertTrue(all.size() == g.getV().size());
     }
+
+    /**
+     * The level-synchronous processing must give the same results as the
+     * sequential one.
+     *
+     * @throws SLIB_Ex_Critic
+     */
+    @Test
+    public void test_dag_parallel() throws SLIB_Ex_Critic {
+
+        for (Direction dir : new Direction[]{Direction.OUT, Direction.IN}) {
+
+            RVF_TAX sequential = new RVF_TAX(g, dir);
+            RVF_TAX parallel = new RVF_TAX(g, dir);
+            parallel.setNbThreads(4);
+
+            assertEquals(sequential.getAllRV(), parallel.getAllRV());
+            assertEquals(sequential.getTerminalVertices(), parallel.getTerminalVertices());
+            assertEquals(sequential.computeNbPathLeadingToAllVertices(), parallel.computeNbPathLeadingToAllVertices());
+        }
+    }
+
+    /**
+     * Same as {@link #test_dag_parallel()} on a graph whose levels are large
+     * enough to be distributed among the threads.
+     *
+     * @throws SLIB_Ex_Critic
+     */
+    @Test
+    public void test_dag_parallel_wide() throws SLIB_Ex_Critic {
+
+        URIFactory factory = URIFactoryMemory.getSingleton();
+        G wide = new GraphMemory(factory.createURI("http://wide/"));
+        Random random = new Random(42);
+
+        int nbLevels = 4;
+        int levelSize = 1000;
+        URI[][] levels = new URI[nbLevels][];
+        levels[0] = new URI[]{factory.createURI("http://wide/root")};
+        wide.addV(levels[0][0]);
+
+        for (int l = 1; l < nbLevels; l++) {
+            levels[l] = new URI[levelSize];
+            for (int i = 0; i < levelSize; i++) {
+                levels[l][i] = factory.createURI("http://wide/" + l + "_" + i);
+                int nbParents = 1 + random.nextInt(3);
+                for (int p = 0; p < nbParents; p++) {
+                    URI[] previous = levels[l - 1];
+                    wide.addE(levels[l][i], RDFS.SUBCLASSOF, previous[random.nextInt(previous.length)]);
+                }
+            }
+        }
+
+        for (Direction dir : new Direction[]{Direction.OUT, Direction.IN}) {
+
+            RVF_TAX sequential = new RVF_TAX(wide, dir);
+            RVF_TAX parallel = new RVF_TAX(wide, dir);
+            parallel.setNbThreads(4);
+
+            assertEquals(sequential.getAllRV(), parallel.getAllRV());
+            assertEquals(sequential.getTerminalVertices(), parallel.getTerminalVertices());
+            assertEquals(sequential.computeNbPathLeadingToAllVertices(), parallel.computeNbPathLeadingToAllVertices());
+        }
+    }
+
+    /**
+     * The number of occurrences of a vertex is propagated to its subsumers:
+     * d is subsumed by b and c, which are subsumed by a.
+     *
+     * @throws SLIB_Ex_Critic
+     */
+    @Test
+    public void test_dag_propagate_occurrences() throws SLIB_Ex_Critic {
+
+        URIFactory factory = URIFactoryMemory.getSingleton();
+        G diamond = new GraphMemory(factory.createURI("http://diamond/"));
+        URI a = factory.createURI("http://diamond/a");
+        URI b = factory.createURI("http://diamond/b");
+        URI c = factory.createURI("http://diamond/c");
+        URI d = factory.createURI("http://diamond/d");
+        URI isolated = factory.createURI("http://diamond/isolated");
+
+        diamond.addE(b, RDFS.SUBCLASSOF, a);
+        diamond.addE(c, RDFS.SUBCLASSOF, a);
+        diamond.addE(d, RDFS.SUBCLASSOF, b);
+        diamond.addE(d, RDFS.SUBCLASSOF, c);
+        diamond.addV(isolated);
+
+        for (int nbThreads : new int[]{1, 4}) {
+
+            RVF_TAX rvf = new RVF_TAX(diamond, Direction.IN);
+            rvf.setNbThreads(nbThreads);
+
+            Map<URI, Integer> nbPaths = rvf.computeNbPathLeadingToAllVertices();
+            assertEquals(5, nbPaths.get(a).intValue());
+            assertEquals(2, nbPaths.get(b).intValue());
+            assertEquals(2, nbPaths.get(c).intValue());
+            assertEquals(1, nbPaths.get(d).intValue());
+            assertEquals(1, nbPaths.get(isolated).intValue());
+
+            Map<URI, Integer> occurrences = new HashMap<URI, Integer>();
+            occurrences.put(a, 0);
+            occurrences.put(b, 1);
+            occurrences.put(c, 0);
+            occurrences.put(d, 3);
+
+            Map<URI, Integer> propagated = rvf.propagateNbOccurences(occurrences);
+            assertEquals(occurrences.keySet(), propagated.keySet());
+            assertEquals(7, propagated.get(a).intValue());
+            assertEquals(4, propagated.get(b).intValue());
+            assertEquals(3, propagated.get(c).intValue());
+            assertEquals(3, propagated.get(d).intValue());
+
+            // a vertex involved in the propagation must be associated to a number
+            occurrences.remove(c);
+            try {
+                rvf.propagateNbOccurences(occurrences);
+                assertTrue("A missing number of occurrences must be reported", false);
+            } catch (SLIB_Ex_Critic e) {
+                assertTrue(e.getMessage().contains(c.stringValue()));
+            }
+        }
+    }
 }
@@ -0,0 +1,231 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.algo.graph.shortest_path;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.algo.graph.shortest_path.Dijkstra;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.graph.utils.Direction;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.graph.weight.GWS_impl;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sglib.utils.WalkConstraintGeneric;
+import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.ObjectIdIndex;
+
+/**
+ * Compare the shortest paths computed by {@link Dijkstra}, forward and
+ * bidirectional, to a quadratic implementation of the algorithm on random
+ * weighted graphs.
+ *
+ * @author seb
+ */
+public class TestDijkstra {
+
+    static final String NS = "http://graph/dijkstra/";
+    URIFactory factory = URIFactoryMemory.getSingleton();
+    URI other = factory.createURI(NS + "other");
+
+    /**
+     * Random graph of subClassOf edges, some vertices being isolated, and of
+     * edges of another predicate which must not be walked. The weights are
+     * integers in [0, maxWeight], i.e. many paths have the same weight, or
+     * reals if maxWeight is 0.
+     */
+    private G randomGraph(String name, int nbVertices, int nbEdges, int maxWeight, GWS_impl ws, long seed) {
+
+        Random random = new Random(seed);
+        G g = new GraphMemory(factory.createURI(NS + name));
+
+        for (int i = 0; i < nbVertices; i++) {
+            g.addV(factory.createURI(NS + name + "/v" + i));
+        }
+        // the last tenth of the vertices is isolated
+        int nbLinked = nbVertices - nbVertices / 10;
+        for (int i = 0; i < nbEdges; i++) {
+            URI s = factory.createURI(NS + name + "/v" + random.nextInt(nbLinked));
+            URI t = factory.createURI(NS + name + "/v" + random.nextInt(nbLinked));
+            g.addE(s, random.nextInt(5) == 0 ? other : RDFS.SUBCLASSOF, t);
+        }
+        for (E e : g.getE()) {
+            ws.setWeight(e, maxWeight == 0 ? random.nextDouble() * 10 : random.nextInt(maxWeight + 1));
+        }
+        return g;
+    }
+
+    /**
+     * @return the weights of the shortest paths from the source to every
+     * vertex of the index, infinite if the vertex cannot be reached
+     */
+    private static double[] reference(G g, GWS_impl ws, Direction dir, ObjectIdIndex<URI> index, int source) {
+
+        int n = index.size();
+        double[][] arcs = new double[n][n];
+        for (double[] row : arcs) {
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+        }
+        for (E e : g.getE(RDFS.SUBCLASSOF)) {
+            int s = index.getId(e.getSource());
+            int t = index.getId(e.getTarget());
+            double w = ws.getWeight(e);
+            if (dir != Direction.IN) {
+                arcs[s][t] = Math.min(arcs[s][t], w);
+            }
+            if (dir != Direction.OUT) {
+                arcs[t][s] = Math.min(arcs[t][s], w);
+            }
+        }
+
+        double[] dist = new double[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0;
+
+        while (true) {
+            int u = -1;
+            for (int v = 0; v < n; v++) {
+                if (!done[v] && dist[v] != Double.POSITIVE_INFINITY && (u == -1 || dist[v] < dist[u])) {
+                    u = v;
+                }
+            }
+            if (u == -1) {
+                return dist;
+            }
+            done[u] = true;
+            for (int v = 0; v < n; v++) {
+                if (dist[u] + arcs[u][v] < dist[v]) {
+                    dist[v] = dist[u] + arcs[u][v];
+                }
+            }
+        }
+    }
+
+    private void check(String name, int maxWeight, long seed) throws SLIB_Exception {
+
+        GWS_impl ws = new GWS_impl();
+        G g = randomGraph(name, 120, 260, maxWeight, ws, seed);
+        double delta = maxWeight == 0 ? 1e-9 : 0;
+
+        for (Direction dir : new Direction[]{Direction.OUT, Direction.IN, Direction.BOTH}) {
+
+            Dijkstra dijkstra = new Dijkstra(g, new WalkConstraintGeneric(RDFS.SUBCLASSOF, dir), ws);
+            ObjectIdIndex<URI> index = dijkstra.getIndex();
+            int n = index.size();
+            int nbUnreachable = 0;
+
+            for (int s = 0; s < n; s++) {
+
+                double[] expected = reference(g, ws, dir, index, s);
+                URI source = index.get(s);
+                Map<URI, Double> all = dijkstra.shortestPath(source);
+
+                for (int t = 0; t < n; t++) {
+
+                    URI target = index.get(t);
+                    String msg = dir + " " + source + " " + target;
+
+                    assertEquals(msg, expected[t], dijkstra.shortestPath(s, t), delta);
+                    assertEquals(msg, expected[t], dijkstra.shortestPathBidirectional(s, t), delta);
+
+                    if (expected[t] == Double.POSITIVE_INFINITY) {
+                        nbUnreachable++;
+                        assertNull(msg, dijkstra.shortestPath(source, target));
+                        assertNull(msg, dijkstra.shortestPathBidirectional(source, target));
+                        assertNull(msg, all.get(target));
+                    } else {
+                        assertEquals(msg, expected[t], dijkstra.shortestPath(source, target), delta);
+                        assertEquals(msg, expected[t], dijkstra.shortestPathBidirectional(source, target), delta);
+                        assertEquals(msg, expected[t], all.get(target), delta);
+                    }
+                }
+                assertEquals(0, dijkstra.shortestPath(s, s), 0);
+                assertEquals(0, dijkstra.shortestPathBidirectional(s, s), 0);
+            }
+            // the isolated vertices at least
+            assertEquals(true, nbUnreachable > 0);
+        }
+    }
+
+    /**
+     * Integer weights, zero included: many shortest paths are tied.
+     */
+    @Test
+    public void testTiedWeights() throws SLIB_Exception {
+        check("tied", 2, 3);
+        check("unit", 1, 5);
+    }
+
+    @Test
+    public void testRealWeights() throws SLIB_Exception {
+        check("real", 0, 7);
+    }
+
+    /**
+     * A vertex which is not part of the graph only reaches itself.
+     */
+    @Test
+    public void testUnknownVertices() throws SLIB_Exception {
+
+        GWS_impl ws = new GWS_impl();
+        G g = randomGraph("unknown", 10, 20, 2, ws, 11);
+        Dijkstra dijkstra = new Dijkstra(g, new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.OUT), ws);
+        URI unknown = factory.createURI(NS + "unknown/none");
+        URI v = factory.createURI(NS + "unknown/v0");
+
+        assertEquals(0, dijkstra.shortestPath(unknown, unknown), 0);
+        assertEquals(0, dijkstra.shortestPathBidirectional(unknown, unknown), 0);
+        assertNull(dijkstra.shortestPath(unknown, v));
+        assertNull(dijkstra.shortestPathBidirectional(v, unknown));
+        assertEquals(1, dijkstra.shortestPath(unknown).size());
+    }
+
+    @Test(expected = SLIB_Exception.class)
+    public void testNegativeWeight() throws SLIB_Exception {
+
+        GWS_impl ws = new GWS_impl();
+        G g = randomGraph("negative", 10, 20, 2, ws, 13);
+        ws.setWeight(g.getE(RDFS.SUBCLASSOF).iterator().next(), -1);
+        new Dijkstra(g, new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.OUT), ws);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.algo.graph.shortest_path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import slib.sglib.algo.graph.shortest_path.IndexedMinHeap;
+
+/**
+ * Check the order in which the identifiers are polled from an
+ * {@link IndexedMinHeap}, the decrease of their keys and the reuse of the
+ * heap once emptied.
+ *
+ * @author seb
+ */
+public class TestIndexedMinHeap {
+
+    /**
+     * Random offers, the key of an identifier already stored being kept if
+     * it is lower: the identifiers are polled by increasing key and the
+     * heap grows and shrinks to the number of distinct identifiers offered.
+     */
+    @Test
+    public void testRandom() {
+
+        Random random = new Random(3);
+        int capacity = 200;
+        IndexedMinHeap heap = new IndexedMinHeap(capacity);
+
+        for (int run = 0; run < 200; run++) {
+
+            double[] keys = new double[capacity];
+            Arrays.fill(keys, Double.NaN);
+            int nbOffers = random.nextInt(3 * capacity);
+            int nbIds = 0;
+
+            for (int i = 0; i < nbOffers; i++) {
+
+                int id = random.nextInt(capacity);
+                // few distinct keys, i.e. many ties
+                double key = random.nextInt(20);
+                heap.offer(id, key);
+
+                if (Double.isNaN(keys[id])) {
+                    keys[id] = key;
+                    nbIds++;
+                } else {
+                    keys[id] = Math.min(keys[id], key);
+                }
+                assertEquals(nbIds, heap.size());
+                assertTrue(heap.contains(id));
+            }
+
+            double previous = Double.NEGATIVE_INFINITY;
+            while (!heap.isEmpty()) {
+                double key = heap.peekKey();
+                int id = heap.poll();
+                assertEquals(keys[id], key, 0);
+                assertTrue(key >= previous);
+                assertFalse(heap.contains(id));
+                keys[id] = Double.NaN;
+                previous = key;
+                nbIds--;
+                assertEquals(nbIds, heap.size());
+            }
+            for (double k : keys) {
+                assertTrue(Double.isNaN(k));
+            }
+        }
+    }
+
+    @Test
+    public void testDecreaseKey() {
+
+        IndexedMinHeap heap = new IndexedMinHeap(10);
+        for (int id = 0; id < 10; id++) {
+            heap.offer(id, 100 + id);
+        }
+        // decreased: 9 becomes the minimum, an increase is ignored
+        heap.offer(9, 1);
+        heap.offer(0, 500);
+        heap.offer(5, 50);
+
+        assertEquals(10, heap.size());
+        assertEquals(9, heap.peek());
+        assertEquals(1, heap.peekKey(), 0);
+
+        int[] expected = {9, 5, 0, 1, 2, 3, 4, 6, 7, 8};
+        for (int id : expected) {
+            assertEquals(id, heap.poll());
+        }
+        assertTrue(heap.isEmpty());
+    }
+
+    /**
+     * All the identifiers of the capacity can be stored, offered by
+     * decreasing key so that each offer moves up to the root.
+     */
+    @Test
+    public void testFullCapacity() {
+
+        int capacity = 1000;
+        IndexedMinHeap heap = new IndexedMinHeap(capacity);
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int id = 0; id < capacity; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, new Random(5));
+
+        for (int i = 0; i < capacity; i++) {
+            heap.offer(ids.get(i), capacity - i);
+            assertEquals((int) ids.get(i), heap.peek());
+        }
+        assertEquals(capacity, heap.size());
+
+        for (int i = capacity - 1; i >= 0; i--) {
+            assertEquals((int) ids.get(i), heap.poll());
+        }
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+
+        IndexedMinHeap heap = new IndexedMinHeap(5);
+        heap.offer(1, 3);
+        heap.offer(4, 2);
+        heap.clear();
+
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(1));
+        assertFalse(heap.contains(4));
+
+        // the identifiers can be offered again with any key
+        heap.offer(1, 7);
+        heap.offer(4, 8);
+        assertEquals(1, heap.poll());
+        assertEquals(4, heap.poll());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testEmpty() {
+        new IndexedMinHeap(3).poll();
+    }
+}
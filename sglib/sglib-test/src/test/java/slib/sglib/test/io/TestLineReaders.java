@@ -0,0 +1,228 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import slib.sglib.test.io.loader.LoaderTestUtils;
+import slib.utils.impl.BigFileReader;
+import slib.utils.impl.LineChunkReader;
+import slib.utils.impl.MappedLineReader;
+
+/**
+ * Check that the lines read by {@link MappedLineReader},
+ * {@link BigFileReader} and from the chunks of {@link LineChunkReader} are
+ * the lines read by {@link BufferedReader#readLine()}, whatever the line
+ * terminators of the file.
+ *
+ * @author seb
+ */
+public class TestLineReaders {
+
+    static final String[] TERMINATORS = {"\n", "\r\n", "\r"};
+    List<String> contents = new ArrayList<String>();
+
+    public TestLineReaders() {
+
+        contents.add("");
+        contents.add("a");
+        contents.add("a\n");
+        contents.add("a\r\n");
+        contents.add("a\r");
+        contents.add("\n\r\n\r");
+        contents.add("a\nb\r\nc\rd");
+        contents.add("a\r\rb\n\nc\r\n\r\nd\r");
+        contents.add(" a \t\n\tb c\r\n");
+
+        Random random = new Random(42);
+
+        for (String terminator : TERMINATORS) {
+            contents.add(randomContent(random, new String[]{terminator}));
+        }
+        contents.add(randomContent(random, TERMINATORS));
+    }
+
+    private static String randomContent(Random random, String[] terminators) {
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            int length = random.nextInt(30);
+            for (int j = 0; j < length; j++) {
+                content.append((char) ('a' + random.nextInt(26)));
+            }
+            content.append(terminators[random.nextInt(terminators.length)]);
+        }
+        return content.toString();
+    }
+
+    private static List<String> readLines(String content) throws IOException {
+
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new StringReader(content));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static String escape(String content) {
+        return content.replace("\r", "\\r").replace("\n", "\\n");
+    }
+
+    @Test
+    public void testMappedLineReader() throws IOException {
+
+        for (String content : contents) {
+
+            List<String> expected = readLines(content);
+            String file = LoaderTestUtils.write(content, ".txt");
+
+            // small windows, the lines cross the windows
+            for (int windowSize = 1; windowSize <= MappedLineReader.DEFAULT_WINDOW_SIZE; windowSize *= 64) {
+
+                List<String> lines = new ArrayList<String>();
+                MappedLineReader reader = new MappedLineReader(file, Charset.forName("UTF-8"), windowSize);
+                try {
+                    while (reader.nextLine()) {
+                        lines.add(reader.lineAsString());
+                        assertEquals(lines.size(), reader.getLineNumber());
+                    }
+                } finally {
+                    reader.close();
+                }
+                assertEquals(escape(content), expected, lines);
+            }
+            assertEquals(escape(content), expected.size(), MappedLineReader.countLines(file));
+        }
+    }
+
+    @Test
+    public void testBigFileReader() throws IOException {
+
+        for (String content : contents) {
+
+            List<String> expected = readLines(content);
+            String file = LoaderTestUtils.write(content, ".txt");
+
+            for (int i = 0; i < 2; i++) {
+
+                List<String> lines = new ArrayList<String>();
+                BigFileReader reader = new BigFileReader(file, i == 0);
+                try {
+                    while (reader.hasNext()) {
+                        lines.add(reader.next());
+                    }
+                } finally {
+                    reader.close();
+                }
+                assertEquals(escape(content), expected, lines);
+            }
+        }
+    }
+
+    @Test
+    public void testLineChunkReader() throws IOException {
+
+        for (String content : contents) {
+
+            byte[] bytes = content.getBytes("UTF-8");
+            List<String> expected = readLines(content);
+
+            for (int chunkSize = 1; chunkSize <= 4096; chunkSize *= 8) {
+
+                LineChunkReader reader = new LineChunkReader(Channels.newChannel(new ByteArrayInputStream(bytes)), chunkSize);
+                ByteArrayOutputStream read = new ByteArrayOutputStream();
+                List<String> lines = new ArrayList<String>();
+                byte[] previous = null;
+                byte[] chunk;
+
+                while ((chunk = reader.next()) != null) {
+
+                    assertTrue(chunk.length > 0);
+
+                    if (previous != null) {
+                        // chunks are only cut after a line terminator, and never
+                        // between the carriage return and the line feed of a line
+                        byte last = previous[previous.length - 1];
+                        assertTrue(escape(content), last == '\n' || last == '\r');
+                        assertTrue(escape(content), last != '\r' || chunk[0] != '\n');
+                    }
+                    // the chunks are split independently
+                    lines.addAll(readLines(new String(chunk, "UTF-8")));
+                    read.write(chunk);
+                    previous = chunk;
+                }
+
+                assertEquals(escape(content), content, new String(read.toByteArray(), "UTF-8"));
+                assertEquals(escape(content), expected, lines);
+            }
+        }
+    }
+
+    @Test
+    public void testCarriageReturnChunks() throws IOException {
+
+        // files only using carriage returns are split into several chunks
+        for (String terminator : TERMINATORS) {
+
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                content.append("line ").append(i).append(terminator);
+            }
+
+            LineChunkReader reader = new LineChunkReader(Channels.newChannel(new ByteArrayInputStream(content.toString().getBytes("UTF-8"))), 100);
+            int nbChunks = 0;
+            byte[] chunk;
+
+            while ((chunk = reader.next()) != null) {
+                assertTrue(chunk.length <= 100);
+                nbChunks++;
+            }
+            assertTrue(escape(terminator), nbChunks > 1);
+        }
+    }
+}
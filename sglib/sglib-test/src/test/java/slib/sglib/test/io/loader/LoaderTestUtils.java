@@ -0,0 +1,149 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.openrdf.model.URI;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.GraphLoader;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Utilities used to compare the graphs produced by the loaders.
+ *
+ * @author seb
+ */
+public class LoaderTestUtils {
+
+    /**
+     * @param g the graph
+     * @return the edges of the graph as "source predicate target" strings
+     */
+    public static Set<String> edges(G g) {
+        Set<String> edges = new HashSet<String>();
+        for (E e : g.getE()) {
+            edges.add(e.getSource() + " " + e.getURI() + " " + e.getTarget());
+        }
+        return edges;
+    }
+
+    /**
+     * @param g the graph
+     * @return the vertices of the graph as strings
+     */
+    public static Set<String> vertices(G g) {
+        Set<String> vertices = new HashSet<String>();
+        for (URI v : g.getV()) {
+            vertices.add(v.stringValue());
+        }
+        return vertices;
+    }
+
+    /**
+     * Load the given data into a new graph.
+     *
+     * @param loader the loader
+     * @param conf the data to load
+     * @param vertices the vertices added to the graph before the loading
+     * @return the graph
+     * @throws SLIB_Exception
+     */
+    public static G load(GraphLoader loader, GDataConf conf, Set<URI> vertices) throws SLIB_Exception {
+        G g = new GraphMemory(URIFactoryMemory.getSingleton().createURI("http://graph/"));
+        if (vertices != null) {
+            g.addV(vertices);
+        }
+        loader.populate(conf, g);
+        return g;
+    }
+
+    /**
+     * Write the given content into a temporary file, deleted on exit.
+     *
+     * @param content the content of the file
+     * @param suffix the suffix of the file name, ".gz", ".zip" or ".bz2" to
+     * compress it
+     * @return the location of the file
+     * @throws IOException
+     */
+    public static String write(String content, String suffix) throws IOException {
+        return write(content, suffix, suffix.endsWith(".gz") ? "gzip" : suffix.endsWith(".zip") ? "zip" : suffix.endsWith(".bz2") ? "bzip2" : "none");
+    }
+
+    /**
+     * Write the given content into a temporary file, deleted on exit.
+     *
+     * @param content the content of the file
+     * @param suffix the suffix of the file name
+     * @param compression the compression of the file: gzip, zip, bzip2 or none
+     * @return the location of the file
+     * @throws IOException
+     */
+    public static String write(String content, String suffix, String compression) throws IOException {
+
+        File file = File.createTempFile("slib_loader_test", suffix);
+        file.deleteOnExit();
+
+        OutputStream out = new FileOutputStream(file);
+        if (compression.equals("gzip")) {
+            out = new GZIPOutputStream(out);
+        } else if (compression.equals("zip")) {
+            ZipOutputStream zip = new ZipOutputStream(out);
+            zip.putNextEntry(new ZipEntry("data"));
+            out = zip;
+        } else if (compression.equals("bzip2")) {
+            out = new BZip2CompressorOutputStream(out);
+        }
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file.getAbsolutePath();
+    }
+}
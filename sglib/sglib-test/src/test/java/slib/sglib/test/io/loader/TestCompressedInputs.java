@@ -0,0 +1,223 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.GraphLoader;
+import slib.sglib.io.loader.annot.GraphLoader_TSVannot;
+import slib.sglib.io.loader.bio.obo.GraphLoader_OBO_1_2;
+import slib.sglib.io.loader.rdf.GraphLoader_NTriples;
+import slib.sglib.io.loader.rdf.RDFLoader;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+
+/**
+ * Check that the loaders produce the same graphs from plain and compressed
+ * files, the compression being detected or specified using the parameter
+ * "compression" of the configuration.
+ *
+ * @author seb
+ */
+public class TestCompressedInputs {
+
+    static final String SUBCLASSOF = "http://www.w3.org/2000/01/rdf-schema#subClassOf";
+    static final String NTRIPLES = ""
+            + "<http://example.org/a> <" + SUBCLASSOF + "> <http://example.org/b> .\n"
+            + "<http://example.org/b> <" + SUBCLASSOF + "> <http://example.org/c> .\n"
+            + "<http://example.org/c> <http://www.w3.org/2000/01/rdf-schema#label> \"c\" .\n";
+    URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+
+    /**
+     * Load the content from a plain file and from compressed files, the
+     * graphs must be the same and must not be empty.
+     */
+    private void check(GraphLoader loader, GFormat format, String content, Map<String, String> params, Set<URI> vertices) throws Exception {
+
+        GDataConf plain = conf(format, LoaderTestUtils.write(content, ".txt"), params);
+        G reference = LoaderTestUtils.load(loader, plain, vertices);
+        Set<String> edges = LoaderTestUtils.edges(reference);
+        assertTrue(!edges.isEmpty());
+
+        GDataConf[] confs = {
+            // detected from the content of the files
+            conf(format, LoaderTestUtils.write(content, ".gz"), params),
+            conf(format, LoaderTestUtils.write(content, ".zip"), params),
+            conf(format, LoaderTestUtils.write(content, ".bz2"), params),
+            conf(format, LoaderTestUtils.write(content, ".dat", "gzip"), params),
+            conf(format, writeConcatenatedBzip2(content), params),
+            // specified by the configuration
+            conf(format, LoaderTestUtils.write(content, ".dat", "gzip"), params, "gzip"),
+            conf(format, LoaderTestUtils.write(content, ".dat", "zip"), params, "zip"),
+            conf(format, LoaderTestUtils.write(content, ".dat", "bzip2"), params, "bz2"),
+            conf(format, plain.getLoc(), params, "none")
+        };
+
+        for (GDataConf conf : confs) {
+            G g = LoaderTestUtils.load(loader, conf, vertices);
+            assertEquals(conf.getLoc() + " " + conf.getParameter("compression"), edges, LoaderTestUtils.edges(g));
+            assertEquals(LoaderTestUtils.vertices(reference), LoaderTestUtils.vertices(g));
+        }
+
+        // the compression specified by the configuration prevails over the
+        // detected one, zstd is not supported
+        for (String compression : new String[]{"bzip2", "zstd"}) {
+            try {
+                LoaderTestUtils.load(loader, conf(format, plain.getLoc(), params, compression), vertices);
+                assertTrue("the compression of the configuration must be considered", false);
+            } catch (Exception e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Write the content as two concatenated bzip2 streams, as produced by
+     * parallel compressors.
+     */
+    private static String writeConcatenatedBzip2(String content) throws IOException {
+
+        File file = File.createTempFile("slib_loader_test", ".bz2");
+        file.deleteOnExit();
+        byte[] bytes = content.getBytes("UTF-8");
+        int half = bytes.length / 2;
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            BZip2CompressorOutputStream bzip2 = new BZip2CompressorOutputStream(out);
+            bzip2.write(bytes, 0, half);
+            bzip2.finish();
+            bzip2 = new BZip2CompressorOutputStream(out);
+            bzip2.write(bytes, half, bytes.length - half);
+            bzip2.finish();
+        } finally {
+            out.close();
+        }
+        return file.getAbsolutePath();
+    }
+
+    private static GDataConf conf(GFormat format, String file, Map<String, String> params) {
+        return conf(format, file, params, null);
+    }
+
+    private static GDataConf conf(GFormat format, String file, Map<String, String> params, String compression) {
+        GDataConf conf = new GDataConf(format, file);
+        if (params != null) {
+            for (Map.Entry<String, String> e : params.entrySet()) {
+                conf.addParameter(e.getKey(), e.getValue());
+            }
+        }
+        if (compression != null) {
+            conf.addParameter("compression", compression);
+        }
+        return conf;
+    }
+
+    @Test
+    public void testSLIB() throws Exception {
+
+        String content = "http://example.org/d\n"
+                + "http://example.org/a\t" + SUBCLASSOF + "\thttp://example.org/b\n"
+                + "http://example.org/b\t" + SUBCLASSOF + "\thttp://example.org/c\n";
+
+        check(new GraphLoader_SLIB(), GFormat.SLIB, content, null, null);
+    }
+
+    @Test
+    public void testNTriples() throws Exception {
+        check(new GraphLoader_NTriples(), GFormat.NTRIPLES_FAST, NTRIPLES, null, null);
+    }
+
+    /**
+     * Relies on the Sesame parser.
+     */
+    @Test
+    public void testRDF() throws Exception {
+        check(new RDFLoader(), GFormat.NTRIPLES, NTRIPLES, null, null);
+    }
+
+    @Test
+    public void testOBO() throws Exception {
+
+        // other tests may have bound the GO prefix to another namespace
+        factory.clear();
+        factory.loadNamespacePrefix("GO", "http://purl.obolibrary.org/obo/GO_");
+
+        String content = "format-version: 1.2\n"
+                + "\n"
+                + "[Term]\n"
+                + "id: GO:0000001\n"
+                + "name: a\n"
+                + "\n"
+                + "[Term]\n"
+                + "id: GO:0000002\n"
+                + "name: b\n"
+                + "is_a: GO:0000001 ! a\n";
+
+        check(new GraphLoader_OBO_1_2(), GFormat.OBO, content, null, null);
+    }
+
+    @Test
+    public void testTSVannot() throws Exception {
+
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(GraphLoader_TSVannot.PARAM_PREFIX_SUBJECT, "http://example.org/s/");
+        params.put(GraphLoader_TSVannot.PARAM_PREFIX_OBJECT, "http://example.org/o/");
+
+        Set<URI> vertices = new HashSet<URI>();
+        for (int i = 1; i <= 3; i++) {
+            vertices.add(factory.createURI("http://example.org/o/" + i));
+        }
+        String content = "entity\tobjects\n"
+                + "e1\t1;2\n"
+                + "e2\t3\n";
+
+        check(new GraphLoader_TSVannot(), GFormat.TSV_ANNOT, content, params, vertices);
+    }
+}
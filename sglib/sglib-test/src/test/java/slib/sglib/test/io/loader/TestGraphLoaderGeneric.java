@@ -0,0 +1,206 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io.loader;
+
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.vocabulary.RDF;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.conf.GraphConf;
+import slib.sglib.io.loader.GraphLoaderGeneric;
+import slib.sglib.io.loader.annot.GraphLoader_TSVannot;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the graphs obtained by loading the data sources of a configuration
+ * one after the other and in parallel, see
+ * {@link GraphLoaderGeneric#load(GraphConf, G, int)}.
+ *
+ * @author seb
+ */
+public class TestGraphLoaderGeneric {
+
+    static final String GO_NS = "http://purl.obolibrary.org/obo/GO_";
+    static final String EX = "http://example.org/";
+    static final String SUBCLASSOF = "http://www.w3.org/2000/01/rdf-schema#subClassOf";
+    static final int NB_TERMS = 300;
+    URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+    Random random = new Random(42);
+    GraphConf conf = new GraphConf(factory.createURI("http://graph/"));
+
+    public TestGraphLoaderGeneric() throws Exception {
+
+        // other tests may have bound the GO prefix to another namespace
+        factory.clear();
+        factory.loadNamespacePrefix("GO", GO_NS);
+
+        // the sources are listed in an order such as the annotations depend
+        // on the sources loaded before them
+        conf.addGDataConf(new GDataConf(GFormat.OBO, LoaderTestUtils.write(obo(0, NB_TERMS / 2), ".obo")));
+        conf.addGDataConf(new GDataConf(GFormat.NTRIPLES_FAST, LoaderTestUtils.write(ntriples(NB_TERMS / 2), ".nt")));
+        conf.addGDataConf(new GDataConf(GFormat.SLIB, LoaderTestUtils.write(slib(), ".slib")));
+
+        GDataConf gaf = new GDataConf(GFormat.GAF2, LoaderTestUtils.write(gaf(), ".gaf"));
+        gaf.addParameter("prefix", EX + "gaf/");
+        conf.addGDataConf(gaf);
+
+        conf.addGDataConf(new GDataConf(GFormat.OBO, LoaderTestUtils.write(obo(NB_TERMS / 2, NB_TERMS), ".obo")));
+        conf.addGDataConf(new GDataConf(GFormat.NTRIPLES, LoaderTestUtils.write(ntriples(NB_TERMS), ".nt")));
+
+        GDataConf tsv = new GDataConf(GFormat.TSV_ANNOT, LoaderTestUtils.write(tsv(), ".tsv"));
+        tsv.addParameter(GraphLoader_TSVannot.PARAM_PREFIX_SUBJECT, EX + "tsv/");
+        tsv.addParameter(GraphLoader_TSVannot.PARAM_PREFIX_OBJECT, GO_NS);
+        conf.addGDataConf(tsv);
+
+        conf.addGDataConf(new GDataConf(GFormat.SLIB, LoaderTestUtils.write(slib(), ".slib")));
+    }
+
+    private static String id(int i) {
+        return String.format("%07d", i);
+    }
+
+    private String obo(int from, int to) {
+
+        StringBuilder s = new StringBuilder("format-version: 1.2\n\n");
+        for (int i = from; i < to; i++) {
+            s.append("[Term]\nid: GO:").append(id(i)).append("\n");
+            if (i > 0) {
+                s.append("is_a: GO:").append(id(random.nextInt(i))).append("\n");
+            }
+            s.append("\n");
+        }
+        return s.toString();
+    }
+
+    private String ntriples(int nbTerms) {
+
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            s.append("<").append(EX).append("nt/").append(random.nextInt(50)).append("> <").append(SUBCLASSOF);
+            s.append("> <").append(GO_NS).append(id(random.nextInt(nbTerms))).append("> .\n");
+        }
+        return s.toString();
+    }
+
+    private String slib() {
+
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            s.append(EX).append("slib/").append(random.nextInt(50)).append("\t").append(SUBCLASSOF);
+            s.append("\t").append(EX).append("nt/").append(random.nextInt(50)).append("\n");
+        }
+        return s.toString();
+    }
+
+    private String gaf() {
+
+        StringBuilder s = new StringBuilder("!gaf-version: 2.0\n");
+        for (int i = 0; i < 2000; i++) {
+            s.append("UniProtKB\tP").append(random.nextInt(500)).append("\tSYMBOL\t\tGO:").append(id(random.nextInt(NB_TERMS)));
+            s.append("\tPMID:1\tIDA\t\tP\tname\t\tprotein\ttaxon:9606\t20120101\tUniProt\t\t\n");
+        }
+        return s.toString();
+    }
+
+    private String tsv() {
+
+        StringBuilder s = new StringBuilder("entity\tobjects\n");
+        for (int i = 0; i < 200; i++) {
+            s.append("e").append(i).append("\t").append(id(random.nextInt(NB_TERMS))).append(";").append(id(random.nextInt(NB_TERMS))).append("\n");
+        }
+        return s.toString();
+    }
+
+    private G load(int threads) throws SLIB_Exception {
+        return GraphLoaderGeneric.load(conf, new GraphMemory(conf.getUri()), threads);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+
+        G sequential = load(1);
+        Set<String> edges = LoaderTestUtils.edges(sequential);
+        Set<String> vertices = LoaderTestUtils.vertices(sequential);
+
+        // the GAF file only annotates the terms loaded before it
+        boolean annotated = false;
+        for (String e : edges) {
+            if (e.startsWith(EX + "gaf/")) {
+                annotated = true;
+                int term = Integer.parseInt(e.substring(e.lastIndexOf('_') + 1));
+                assertTrue(e, term < NB_TERMS / 2);
+                assertTrue(e, e.contains(" " + RDF.TYPE + " "));
+            }
+        }
+        assertTrue(annotated);
+        assertTrue(vertices.contains(GO_NS + id(NB_TERMS - 1)));
+
+        for (int threads = 2; threads <= 8; threads *= 2) {
+            G g = load(threads);
+            assertEquals(edges, LoaderTestUtils.edges(g));
+            assertEquals(vertices, LoaderTestUtils.vertices(g));
+        }
+    }
+
+    /**
+     * The number of threads can be specified by the configuration.
+     */
+    @Test
+    public void testThreadsParameter() throws Exception {
+
+        Set<String> edges = LoaderTestUtils.edges(load(1));
+        assertFalse(edges.isEmpty());
+
+        conf.addParameter("threads", "4");
+        G g = GraphLoaderGeneric.load(conf, new GraphMemory(conf.getUri()));
+        assertEquals(edges, LoaderTestUtils.edges(g));
+
+        conf.addParameter("threads", "0");
+        try {
+            GraphLoaderGeneric.load(conf, new GraphMemory(conf.getUri()));
+            assertTrue("the number of threads must be checked", false);
+        } catch (SLIB_Exception e) {
+            assertTrue(e.getMessage().contains("Invalid number of threads"));
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io.loader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.bio.snomedct.GraphLoaderSnomedCT_RF2;
+import slib.sglib.io.loader.bio.snomedct.GraphLoaderSnomedCT_RF2_Streaming;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Check that applying a Delta release to the graph loaded from the previous
+ * Snapshot release leads to the graph loaded from the next Snapshot release,
+ * see {@link GraphLoaderSnomedCT_RF2_Streaming}.
+ *
+ * @author seb
+ */
+public class TestGraphLoaderSnomedCT_RF2_Streaming {
+
+    static final String PREFIX = "http://snomed.info/id/";
+    static final String ISA = GraphLoaderSnomedCT_RF2.ID_SUBCLASSOF_SNOMED;
+    static final String[] TYPES = {ISA, ISA, "363698007", "123005000"};
+    static final String CONCEPT_HEADER = "id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId\n";
+    static final String RELATIONSHIP_HEADER = "id\teffectiveTime\tactive\tmoduleId\tsourceId\tdestinationId\trelationshipGroup\ttypeId\tcharacteristicTypeId\tmodifierId\n";
+    static final int DATE_1 = 20120731;
+    static final int DATE_2 = 20130131;
+    static final int NB_CONCEPTS = 400;
+    static final int NB_RELATIONSHIPS = 2000;
+    URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+
+    /**
+     * Component of a release.
+     */
+    static class Component {
+
+        final String id;
+        int date;
+        boolean active;
+        // relationships only
+        int source, target;
+        String type;
+        int group;
+
+        Component(String id, int date, boolean active) {
+            this.id = id;
+            this.date = date;
+            this.active = active;
+        }
+
+        Component copy() {
+            Component c = new Component(id, date, active);
+            c.source = source;
+            c.target = target;
+            c.type = type;
+            c.group = group;
+            return c;
+        }
+
+        String conceptRow() {
+            return id + "\t" + date + "\t" + (active ? 1 : 0) + "\t900000000000207008\t900000000000074008\n";
+        }
+
+        String relationshipRow() {
+            return id + "\t" + date + "\t" + (active ? 1 : 0) + "\t900000000000207008\t" + source + "\t" + target
+                    + "\t" + group + "\t" + type + "\t900000000000011006\t900000000000451002\n";
+        }
+    }
+
+    /**
+     * Release of the terminology: last version of each component and rows
+     * of the delta leading to the release.
+     */
+    static class Release {
+
+        Map<String, Component> concepts = new LinkedHashMap<String, Component>();
+        Map<String, Component> relationships = new LinkedHashMap<String, Component>();
+        StringBuilder conceptDelta = new StringBuilder(CONCEPT_HEADER);
+        StringBuilder relationshipDelta = new StringBuilder(RELATIONSHIP_HEADER);
+
+        Release next() {
+            Release r = new Release();
+            for (Component c : concepts.values()) {
+                r.concepts.put(c.id, c.copy());
+            }
+            for (Component c : relationships.values()) {
+                r.relationships.put(c.id, c.copy());
+            }
+            return r;
+        }
+
+        boolean isActive(int concept) {
+            Component c = concepts.get(String.valueOf(concept));
+            return c != null && c.active;
+        }
+
+        void updateConcept(Component c) {
+            concepts.put(c.id, c);
+            conceptDelta.append(c.conceptRow());
+        }
+
+        void updateRelationship(Component c) {
+            relationships.put(c.id, c);
+            relationshipDelta.append(c.relationshipRow());
+        }
+
+        String conceptSnapshot() {
+            StringBuilder s = new StringBuilder(CONCEPT_HEADER);
+            for (Component c : concepts.values()) {
+                s.append(c.conceptRow());
+            }
+            return s.toString();
+        }
+
+        String relationshipSnapshot() {
+            StringBuilder s = new StringBuilder(RELATIONSHIP_HEADER);
+            for (Component c : relationships.values()) {
+                s.append(c.relationshipRow());
+            }
+            return s.toString();
+        }
+    }
+
+    private static int conceptId(int i) {
+        return 100000 + i;
+    }
+
+    private static Component relationship(String id, int date, int source, int target, String type, int group) {
+        Component c = new Component(id, date, true);
+        c.source = source;
+        c.target = target;
+        c.type = type;
+        c.group = group;
+        return c;
+    }
+
+    /**
+     * First release: the edges are frequently defined by several
+     * relationships of distinct groups.
+     */
+    private Release firstRelease(Random random) {
+
+        Release r = new Release();
+        for (int i = 0; i < NB_CONCEPTS; i++) {
+            r.updateConcept(new Component(String.valueOf(conceptId(i)), DATE_1, random.nextInt(20) != 0));
+        }
+        int n = 0;
+        while (r.relationships.size() < NB_RELATIONSHIPS) {
+            int source = 1 + random.nextInt(NB_CONCEPTS - 1);
+            int target = Math.max(0, source - 1 - random.nextInt(3));
+            if (r.isActive(conceptId(source)) && r.isActive(conceptId(target))) {
+                Component c = relationship("R" + n++, DATE_1, conceptId(source), conceptId(target), TYPES[random.nextInt(TYPES.length)], random.nextInt(3));
+                c.active = random.nextInt(10) != 0;
+                r.updateRelationship(c);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Next release, the delta also contains intermediate versions of the
+     * components which are overridden by their last version.
+     *
+     * @param round the number of releases published after the first one
+     */
+    private Release nextRelease(Release previous, Random random, int round) {
+
+        int date = DATE_2 + 1000 * round;
+        int nbConcepts = NB_CONCEPTS + 20 * (round + 1);
+        Release r = previous.next();
+        List<Component> concepts = new ArrayList<Component>(r.concepts.values());
+        List<Component> relationships = new ArrayList<Component>(r.relationships.values());
+
+        // inactivated concepts and their relationships
+        for (Component c : concepts) {
+            if (c.active && random.nextInt(20) == 0) {
+                Component u = c.copy();
+                u.date = date;
+                u.active = false;
+                r.updateConcept(u);
+                for (Component rel : relationships) {
+                    if (rel.active && (String.valueOf(rel.source).equals(c.id) || String.valueOf(rel.target).equals(c.id))) {
+                        Component v = rel.copy();
+                        v.date = date;
+                        v.active = false;
+                        r.updateRelationship(v);
+                    }
+                }
+            } else if (!c.active && random.nextInt(2) == 0) {
+                // reactivated, with an intermediate version
+                Component u = c.copy();
+                u.date = date - 10;
+                u.active = true;
+                r.updateConcept(u);
+                u = u.copy();
+                u.date = date;
+                u.active = random.nextBoolean();
+                r.updateConcept(u);
+            }
+        }
+        // new concepts
+        for (int i = nbConcepts - 20; i < nbConcepts; i++) {
+            r.updateConcept(new Component(String.valueOf(conceptId(i)), date, true));
+        }
+
+        for (Component rel : relationships) {
+
+            if (rel.date == date || !r.isActive(rel.source) || !r.isActive(rel.target)) {
+                continue;
+            }
+            int p = random.nextInt(20);
+            Component u = rel.copy();
+            u.date = date;
+
+            if (p < 3) { // inactivated, the edge may remain defined by another relationship
+                u.active = false;
+            } else if (p == 3 && rel.target != conceptId(0)) { // new destination
+                u.target = rel.target - 1;
+                u.active = r.isActive(u.target);
+            } else if (p == 4) { // reactivated or reinactivated
+                Component v = u.copy();
+                v.date = date - 10;
+                v.active = !rel.active;
+                r.updateRelationship(v);
+                u.active = !rel.active;
+            } else if (p == 5) { // intermediate version overridden
+                Component v = u.copy();
+                v.date = date - 10;
+                v.active = !rel.active;
+                r.updateRelationship(v);
+                u.active = rel.active;
+            } else {
+                continue;
+            }
+            r.updateRelationship(u);
+        }
+
+        // new relationships, some of them defining existing edges
+        for (int n = 0; n < 300; n++) {
+            int source = 1 + random.nextInt(nbConcepts - 1);
+            int target = Math.max(0, source - 1 - random.nextInt(3));
+            if (r.isActive(conceptId(source)) && r.isActive(conceptId(target))) {
+                r.updateRelationship(relationship("N" + round + "_" + n, date, conceptId(source), conceptId(target), TYPES[random.nextInt(TYPES.length)], random.nextInt(3)));
+            }
+        }
+        return r;
+    }
+
+    private GDataConf conf(String conceptFile, String relationshipFile, String release, boolean track) {
+
+        GDataConf conf = new GDataConf(GFormat.SNOMED_CT_RF2_STREAMING, relationshipFile != null ? relationshipFile : conceptFile);
+        conf.addParameter(GraphLoaderSnomedCT_RF2.ARG_PREFIX, PREFIX);
+        conf.addParameter(GraphLoaderSnomedCT_RF2_Streaming.ARG_RELEASE_TYPE, release);
+        if (track) {
+            conf.addParameter(GraphLoaderSnomedCT_RF2_Streaming.ARG_TRACK_RELATIONSHIPS, "true");
+        }
+        if (conceptFile != null) {
+            conf.addParameter(GraphLoaderSnomedCT_RF2.ARG_CONCEPT_FILE, conceptFile);
+        }
+        if (relationshipFile != null) {
+            conf.addParameter(GraphLoaderSnomedCT_RF2.ARG_RELATIONSHIP_FILE, relationshipFile);
+        }
+        return conf;
+    }
+
+    private void populate(G g, String concepts, String relationships, String release, String lineEnd) throws Exception {
+        populate(g, concepts, relationships, release, lineEnd, true);
+    }
+
+    private void populate(G g, String concepts, String relationships, String release, String lineEnd, boolean track) throws Exception {
+
+        String conceptFile = concepts == null ? null : LoaderTestUtils.write(concepts.replace("\n", lineEnd), ".txt");
+        String relationshipFile = relationships == null ? null : LoaderTestUtils.write(relationships.replace("\n", lineEnd), ".txt");
+        new GraphLoaderSnomedCT_RF2_Streaming().populate(conf(conceptFile, relationshipFile, release, track), g);
+    }
+
+    private G snapshot(Release r, String lineEnd) throws Exception {
+
+        G g = new GraphMemory(factory.createURI("http://graph/"));
+        populate(g, r.conceptSnapshot(), r.relationshipSnapshot(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_SNAPSHOT, lineEnd);
+        return g;
+    }
+
+    private void applyDelta(G g, Release r, String lineEnd) throws Exception {
+        populate(g, r.conceptDelta.toString(), r.relationshipDelta.toString(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, lineEnd);
+    }
+
+    @Test
+    public void testDeltaSnapshot() throws Exception {
+
+        for (String lineEnd : new String[]{"\n", "\r\n", "\r"}) {
+
+            Random random = new Random(42);
+            Release first = firstRelease(random);
+            Release second = nextRelease(first, random, 0);
+
+            G expected = snapshot(second, lineEnd);
+            G g = snapshot(first, lineEnd);
+
+            assertEquals(LoaderTestUtils.vertices(snapshot(first, "\n")), LoaderTestUtils.vertices(g));
+            assertFalse(LoaderTestUtils.edges(expected).equals(LoaderTestUtils.edges(g)));
+
+            applyDelta(g, second, lineEnd);
+
+            assertEquals(LoaderTestUtils.vertices(expected), LoaderTestUtils.vertices(g));
+            assertEquals(LoaderTestUtils.edges(expected), LoaderTestUtils.edges(g));
+        }
+    }
+
+    /**
+     * Successive deltas, each one applied to the result of the previous one.
+     */
+    @Test
+    public void testSuccessiveDeltas() throws Exception {
+
+        Random random = new Random(7);
+        Release release = firstRelease(random);
+        G g = snapshot(release, "\n");
+
+        for (int round = 0; round < 3; round++) {
+
+            release = nextRelease(release, random, round);
+            applyDelta(g, release, "\n");
+
+            G expected = snapshot(release, "\n");
+            assertEquals(LoaderTestUtils.vertices(expected), LoaderTestUtils.vertices(g));
+            assertEquals(LoaderTestUtils.edges(expected), LoaderTestUtils.edges(g));
+        }
+    }
+
+    /**
+     * An edge defined by several relationships is only removed once all of
+     * them are inactive.
+     */
+    @Test
+    public void testSharedEdge() throws Exception {
+
+        Release r = new Release();
+        for (int i = 0; i < 3; i++) {
+            r.updateConcept(new Component(String.valueOf(conceptId(i)), DATE_1, true));
+        }
+        r.updateRelationship(relationship("R1", DATE_1, conceptId(1), conceptId(0), ISA, 0));
+        r.updateRelationship(relationship("R2", DATE_1, conceptId(1), conceptId(0), ISA, 1));
+        r.updateRelationship(relationship("R3", DATE_1, conceptId(2), conceptId(1), ISA, 0));
+
+        G g = snapshot(r, "\r\n");
+        String edge = PREFIX + conceptId(1) + " " + RDFS.SUBCLASSOF + " " + PREFIX + conceptId(0);
+        assertEquals(2, g.getNumberEdges());
+
+        Component inactive = relationship("R1", DATE_2, conceptId(1), conceptId(0), ISA, 0);
+        inactive.active = false;
+        populate(g, null, RELATIONSHIP_HEADER + inactive.relationshipRow(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\r\n");
+        assertTrue(LoaderTestUtils.edges(g).contains(edge));
+
+        // a relationship of the delta which changes of destination
+        Component moved = relationship("R2", DATE_2, conceptId(1), conceptId(2), ISA, 1);
+        populate(g, null, RELATIONSHIP_HEADER + moved.relationshipRow(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\r\n");
+        assertFalse(LoaderTestUtils.edges(g).contains(edge));
+        assertEquals(2, g.getNumberEdges());
+
+        // reactivated
+        inactive.date++;
+        inactive.active = true;
+        populate(g, null, RELATIONSHIP_HEADER + inactive.relationshipRow(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\r\n");
+        assertTrue(LoaderTestUtils.edges(g).contains(edge));
+        assertEquals(3, g.getNumberEdges());
+    }
+
+    /**
+     * The relationships of the inactivated concepts are forgotten: they do not
+     * define the edges of the reactivated concepts.
+     */
+    @Test
+    public void testConceptDelta() throws Exception {
+
+        Release r = new Release();
+        for (int i = 0; i < 3; i++) {
+            r.updateConcept(new Component(String.valueOf(conceptId(i)), DATE_1, true));
+        }
+        r.updateRelationship(relationship("R1", DATE_1, conceptId(1), conceptId(0), ISA, 0));
+        r.updateRelationship(relationship("R2", DATE_1, conceptId(2), conceptId(1), ISA, 0));
+
+        G g = snapshot(r, "\n");
+        String edge = PREFIX + conceptId(2) + " " + RDFS.SUBCLASSOF + " " + PREFIX + conceptId(1);
+
+        // inactivated concept, with an intermediate active version
+        Component c = new Component(String.valueOf(conceptId(2)), DATE_2 - 1, true);
+        String rows = CONCEPT_HEADER + c.conceptRow();
+        c = new Component(c.id, DATE_2, false);
+        rows += c.conceptRow();
+        populate(g, rows, null, GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\n");
+
+        assertFalse(LoaderTestUtils.vertices(g).contains(PREFIX + conceptId(2)));
+        assertFalse(LoaderTestUtils.edges(g).contains(edge));
+        assertEquals(1, g.getNumberEdges());
+
+        // reactivated with a new relationship defining the same edge
+        c = new Component(c.id, DATE_2 + 1, true);
+        populate(g, CONCEPT_HEADER + c.conceptRow(),
+                RELATIONSHIP_HEADER + relationship("R3", DATE_2 + 1, conceptId(2), conceptId(1), ISA, 0).relationshipRow(),
+                GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\n");
+        assertTrue(LoaderTestUtils.vertices(g).contains(PREFIX + conceptId(2)));
+        assertTrue(LoaderTestUtils.edges(g).contains(edge));
+
+        // the inactivation of the forgotten relationship keeps the edge
+        Component inactive = relationship("R2", DATE_2 + 2, conceptId(2), conceptId(1), ISA, 0);
+        inactive.active = false;
+        populate(g, null, RELATIONSHIP_HEADER + inactive.relationshipRow(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\n");
+        assertTrue(LoaderTestUtils.edges(g).contains(edge));
+
+        // a relationship towards an unknown concept is ignored
+        populate(g, null, RELATIONSHIP_HEADER + relationship("R4", DATE_2 + 2, conceptId(2), conceptId(9), ISA, 0).relationshipRow(),
+                GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\n");
+        assertEquals(2, g.getNumberEdges());
+    }
+
+    /**
+     * Delta applied to a graph which has not been loaded by the loader: only
+     * the relationships of the delta are known.
+     */
+    @Test
+    public void testUnknownPreviousRelease() throws Exception {
+
+        Release r = new Release();
+        for (int i = 0; i < 2; i++) {
+            r.updateConcept(new Component(String.valueOf(conceptId(i)), DATE_1, true));
+        }
+        r.updateRelationship(relationship("R1", DATE_1, conceptId(1), conceptId(0), ISA, 0));
+        r.updateRelationship(relationship("R2", DATE_1, conceptId(1), conceptId(0), ISA, 1));
+
+        G loaded = snapshot(r, "\n");
+        G g = new GraphMemory(factory.createURI("http://graph/copy/"));
+        g.addV(loaded.getV());
+        g.addEdges(loaded.getE());
+
+        Component inactive = relationship("R1", DATE_2, conceptId(1), conceptId(0), ISA, 0);
+        inactive.active = false;
+        String delta = RELATIONSHIP_HEADER + inactive.relationshipRow();
+
+        populate(loaded, null, delta, GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\n");
+        assertEquals(1, loaded.getNumberEdges());
+
+        populate(g, null, delta, GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\n");
+        assertEquals(0, g.getNumberEdges());
+        assertEquals(2, g.getNumberVertices());
+    }
+
+    /**
+     * The relationships are only tracked when requested by the loading of
+     * the snapshot, the following deltas keep on tracking them.
+     */
+    @Test
+    public void testTracking() throws Exception {
+
+        Release r = new Release();
+        for (int i = 0; i < 2; i++) {
+            r.updateConcept(new Component(String.valueOf(conceptId(i)), DATE_1, true));
+        }
+        r.updateRelationship(relationship("R1", DATE_1, conceptId(1), conceptId(0), ISA, 0));
+        r.updateRelationship(relationship("R2", DATE_1, conceptId(1), conceptId(0), ISA, 1));
+
+        Component inactive = relationship("R1", DATE_2, conceptId(1), conceptId(0), ISA, 0);
+        inactive.active = false;
+        String delta = RELATIONSHIP_HEADER + inactive.relationshipRow();
+
+        for (boolean track : new boolean[]{false, true}) {
+
+            G g = new GraphMemory(factory.createURI("http://graph/"));
+            populate(g, r.conceptSnapshot(), r.relationshipSnapshot(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_SNAPSHOT, "\n", track);
+            assertEquals(1, g.getNumberEdges());
+
+            // the delta does not request the tracking
+            populate(g, null, delta, GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\n", false);
+            assertEquals(track ? 1 : 0, g.getNumberEdges());
+        }
+
+        // a graph reloaded without tracking forgets the tracked relationships
+        G g = new GraphMemory(factory.createURI("http://graph/"));
+        populate(g, r.conceptSnapshot(), r.relationshipSnapshot(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_SNAPSHOT, "\n", true);
+        populate(g, r.conceptSnapshot(), r.relationshipSnapshot(), GraphLoaderSnomedCT_RF2_Streaming.RELEASE_SNAPSHOT, "\n", false);
+        populate(g, null, delta, GraphLoaderSnomedCT_RF2_Streaming.RELEASE_DELTA, "\n", false);
+        assertEquals(0, g.getNumberEdges());
+    }
+
+    @Test(expected = SLIB_Exception.class)
+    public void testInvalidRelease() throws Exception {
+        populate(new GraphMemory(factory.createURI("http://graph/")), CONCEPT_HEADER, RELATIONSHIP_HEADER, "full", "\n");
+    }
+}
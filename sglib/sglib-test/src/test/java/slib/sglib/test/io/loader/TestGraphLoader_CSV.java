@@ -0,0 +1,274 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io.loader;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDF;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.csv.CSV_Mapping;
+import slib.sglib.io.loader.csv.CSV_StatementTemplate;
+import slib.sglib.io.loader.csv.CSV_StatementTemplate_Constraint;
+import slib.sglib.io.loader.csv.GraphLoader_CSV;
+import slib.sglib.io.loader.csv.StatementTemplateElement;
+import slib.sglib.io.loader.csv.StatementTemplate_Constraint_Type;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+
+/**
+ * Compare the graphs loaded by the sequential and the parallel processing of
+ * {@link GraphLoader_CSV} to the graph expected from a line by line
+ * evaluation of the statement templates.
+ *
+ * @author seb
+ */
+public class TestGraphLoader_CSV {
+
+    static final String GO_NS = "http://purl.obolibrary.org/obo/GO_";
+    static final String EX = "http://example.org/";
+    // enough lines to be split into several chunks by the parallel parsing
+    static final int NB_LINES = 150000;
+    static final int NB_TERMS = 100;
+    URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+    URI interacts = factory.createURI(EX + "interacts");
+    URI taxon = factory.createURI(EX + "taxon");
+    Set<URI> terms = new HashSet<URI>();
+    String[][] rows = new String[NB_LINES][];
+
+    public TestGraphLoader_CSV() {
+
+        for (int i = 0; i < NB_TERMS; i++) {
+            terms.add(factory.createURI(GO_NS + id(i)));
+        }
+        Random random = new Random(42);
+
+        for (int i = 0; i < NB_LINES; i++) {
+            rows[i] = new String[]{
+                "E" + random.nextInt(NB_LINES / 2),
+                // some terms are not defined in the graph
+                id(random.nextInt(NB_TERMS + NB_TERMS / 5)),
+                "E" + random.nextInt(NB_LINES / 2),
+                "label " + i,
+                String.valueOf(9600 + random.nextInt(10))
+            };
+        }
+    }
+
+    private static String id(int i) {
+        return String.format("%07d", i);
+    }
+
+    /**
+     * The templates, in the order of their source column:
+     * <ul>
+     * <li>0 -&gt; 1 rdf:type, the term must exist</li>
+     * <li>2 -&gt; 0 interacts, the interactor must exist, i.e. it must have
+     * been annotated by a previous statement</li>
+     * <li>4 -&gt; 2 taxon, without constraint</li>
+     * </ul>
+     */
+    private Map<Integer, CSV_StatementTemplate> templates() {
+
+        Map<Integer, CSV_StatementTemplate> templates = new HashMap<Integer, CSV_StatementTemplate>();
+
+        CSV_StatementTemplate type = new CSV_StatementTemplate(0, 1, RDF.TYPE);
+        type.addConstraint(new CSV_StatementTemplate_Constraint(StatementTemplateElement.OBJECT, StatementTemplate_Constraint_Type.EXISTS));
+        templates.put(0, type);
+
+        CSV_StatementTemplate interaction = new CSV_StatementTemplate(2, 0, interacts);
+        interaction.addConstraint(new CSV_StatementTemplate_Constraint(StatementTemplateElement.SUBJECT, StatementTemplate_Constraint_Type.EXISTS));
+        templates.put(2, interaction);
+
+        templates.put(4, new CSV_StatementTemplate(4, 2, taxon));
+        return templates;
+    }
+
+    private static Map<Integer, CSV_Mapping> mappings() {
+
+        Map<Integer, CSV_Mapping> mappings = new HashMap<Integer, CSV_Mapping>();
+        mappings.put(0, new CSV_Mapping(0, EX + "e/"));
+        mappings.put(1, new CSV_Mapping(1, GO_NS));
+        mappings.put(2, new CSV_Mapping(2, EX + "e/"));
+        mappings.put(4, new CSV_Mapping(4, EX + "taxon/"));
+        return mappings;
+    }
+
+    private String content(String separator, String lineEnd, boolean header) {
+
+        StringBuilder s = new StringBuilder();
+        if (header) {
+            s.append("entity").append(separator).append("term").append(separator).append("interactor").append(separator).append("label").append(separator).append("taxon").append(lineEnd);
+        }
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i != 0) {
+                    s.append(separator);
+                }
+                s.append(row[i]);
+            }
+            s.append(lineEnd);
+        }
+        return s.toString();
+    }
+
+    /**
+     * Line by line evaluation of the templates, in the order of their source
+     * column, the constraints are checked against the graph populated by the
+     * previous statements.
+     */
+    private Set<String> expected() {
+
+        G g = new GraphMemory(factory.createURI("http://graph/"));
+        g.addV(terms);
+        int[][] templates = {{0, 1}, {2, 0}, {4, 2}};
+        URI[] predicates = {RDF.TYPE, interacts, taxon};
+        String[] prefixes = {EX + "e/", GO_NS, EX + "e/", null, EX + "taxon/"};
+
+        for (String[] row : rows) {
+            for (int t = 0; t < templates.length; t++) {
+                URI s = factory.createURI(prefixes[templates[t][0]] + row[templates[t][0]]);
+                URI o = factory.createURI(prefixes[templates[t][1]] + row[templates[t][1]]);
+                if ((t == 0 && !g.containsVertex(o)) || (t == 1 && !g.containsVertex(s))) {
+                    continue;
+                }
+                g.addE(s, predicates[t], o);
+            }
+        }
+        return LoaderTestUtils.edges(g);
+    }
+
+    private G load(String file, String separator, boolean header, Integer threads) throws Exception {
+
+        GDataConf conf = new GDataConf(GFormat.CSV, file);
+        conf.addParameter("mappings", mappings());
+        conf.addParameter("statementTemplates", templates());
+        conf.addParameter("header", String.valueOf(header));
+        if (separator != null) {
+            conf.addParameter("separator", separator);
+        }
+        if (threads != null) {
+            conf.addParameter("threads", threads.toString());
+        }
+        return LoaderTestUtils.load(new GraphLoader_CSV(), conf, terms);
+    }
+
+    @Test
+    public void testSequentialParallel() throws Exception {
+
+        Set<String> expected = expected();
+        String content = content("\t", "\n", true);
+        // the constraints reject statements
+        assertTrue(expected.size() < 3 * NB_LINES);
+
+        String[] files = {LoaderTestUtils.write(content, ".csv"), LoaderTestUtils.write(content, ".csv.gz")};
+
+        for (String file : files) {
+            assertEquals(file, expected, LoaderTestUtils.edges(load(file, null, true, null)));
+            for (int threads = 2; threads <= 8; threads *= 2) {
+                assertEquals(file + " " + threads, expected, LoaderTestUtils.edges(load(file, null, true, threads)));
+            }
+        }
+    }
+
+    /**
+     * Single byte and regular expression separators, with and without
+     * header.
+     */
+    @Test
+    public void testSeparators() throws Exception {
+
+        Set<String> expected = expected();
+        String[][] separators = {{",", ","}, {" ; ", "\\s*;\\s*"}, {"\t", "\\t"}};
+
+        for (String[] separator : separators) {
+            for (boolean header : new boolean[]{true, false}) {
+                String file = LoaderTestUtils.write(content(separator[0], "\n", header), ".csv");
+                for (int threads = 1; threads <= 4; threads += 3) {
+                    assertEquals(separator[1] + " " + threads, expected, LoaderTestUtils.edges(load(file, separator[1], header, threads)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLineTerminators() throws Exception {
+
+        Set<String> expected = expected();
+
+        for (String lineEnd : new String[]{"\r\n", "\r"}) {
+            for (String separator : new String[]{null, Pattern.quote("|")}) {
+                String content = content(separator == null ? "\t" : "|", lineEnd, true);
+                String file = LoaderTestUtils.write(content, ".csv");
+                for (int threads = 1; threads <= 4; threads += 3) {
+                    assertEquals(expected, LoaderTestUtils.edges(load(file, separator, true, threads)));
+                }
+            }
+        }
+    }
+
+    /**
+     * The line of the first invalid row is reported whatever the processing.
+     */
+    @Test
+    public void testInvalidRow() throws Exception {
+
+        int invalid = NB_LINES - 100;
+        rows[invalid] = new String[]{"E0", id(0)};
+        String content = content("\t", "\n", true);
+        String[] files = {LoaderTestUtils.write(content, ".csv"), LoaderTestUtils.write(content, ".csv.gz")};
+
+        for (String file : files) {
+            for (int threads = 1; threads <= 4; threads += 3) {
+                try {
+                    load(file, null, true, threads);
+                    assertTrue("the row must be rejected", false);
+                } catch (Exception e) {
+                    // the header is the first line
+                    assertTrue(e.getMessage(), e.getMessage().contains("(line " + (invalid + 2) + ")"));
+                }
+            }
+        }
+    }
+}
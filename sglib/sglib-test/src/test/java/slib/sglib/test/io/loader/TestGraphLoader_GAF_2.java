@@ -0,0 +1,171 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io.loader;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDF;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.bio.gaf2.GraphLoader_GAF_2;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the annotations loaded by the sequential and the parallel parsing
+ * of {@link GraphLoader_GAF_2} to the annotations expected from a line by
+ * line reading of the file.
+ *
+ * @author seb
+ */
+public class TestGraphLoader_GAF_2 {
+
+    static final String GO_NS = "http://purl.obolibrary.org/obo/GO_";
+    static final String PREFIX = "http://graph/";
+    // enough lines to be split into several chunks by the parallel parsing
+    static final int NB_LINES = 60000;
+    static final int NB_TERMS = 50;
+    URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+    Set<URI> terms = new HashSet<URI>();
+    Set<String> expected = new HashSet<String>();
+    String content;
+
+    public TestGraphLoader_GAF_2() throws SLIB_Exception {
+
+        // other tests may have bound the GO prefix to another namespace
+        factory.clear();
+        factory.loadNamespacePrefix("GO", GO_NS);
+
+        for (int i = 0; i < NB_TERMS; i++) {
+            terms.add(factory.createURI(GO_NS + id(i)));
+        }
+
+        Random random = new Random(42);
+        StringBuilder file = new StringBuilder();
+
+        // lines preceding the header are ignored
+        file.append("P0\tP0\tS\t\tGO:").append(id(0)).append("\tR\tIDA\t\tF\tN\t\tprotein\ttaxon:9606\t20120101\tDB\t\t\n");
+        file.append("!gaf-version: 2.0\n");
+        file.append("! comment\n");
+
+        for (int i = 0; i < NB_LINES; i++) {
+
+            String object = "P" + random.nextInt(NB_LINES / 4);
+            // some terms are not defined in the graph
+            int term = random.nextInt(NB_TERMS + 5);
+            String qualifier = random.nextInt(10) == 0 ? "NOT" : "";
+            String ec = random.nextBoolean() ? "IDA" : "IEA";
+
+            file.append("UniProtKB\t").append(object).append("\tSYMBOL\t").append(qualifier).append("\tGO:").append(id(term));
+            file.append("\tPMID:1\t").append(ec).append("\t\tP\tname\t\tprotein\ttaxon:9606\t20120101\tUniProt\t\t\n");
+
+            if (qualifier.isEmpty() && term < NB_TERMS) {
+                expected.add(PREFIX + object + " " + RDF.TYPE + " " + GO_NS + id(term));
+            }
+        }
+        content = file.toString();
+    }
+
+    private static String id(int i) {
+        return String.format("%07d", i);
+    }
+
+    private G load(String file, Integer threads) throws Exception {
+
+        GDataConf conf = new GDataConf(GFormat.GAF2, file);
+        conf.addParameter("prefix", PREFIX);
+        if (threads != null) {
+            conf.addParameter("threads", threads.toString());
+        }
+        return LoaderTestUtils.load(new GraphLoader_GAF_2(), conf, terms);
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+
+        G g = load(LoaderTestUtils.write(content, ".gaf"), null);
+        assertEquals(expected, LoaderTestUtils.edges(g));
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+
+        String file = LoaderTestUtils.write(content, ".gaf");
+        G sequential = load(file, null);
+
+        for (int threads = 1; threads <= 4; threads += 3) {
+            G g = load(file, threads);
+            assertEquals(expected, LoaderTestUtils.edges(g));
+            assertEquals(LoaderTestUtils.vertices(sequential), LoaderTestUtils.vertices(g));
+        }
+    }
+
+    @Test
+    public void testLineTerminators() throws Exception {
+
+        String[] terminators = {"\r\n", "\r"};
+
+        for (String terminator : terminators) {
+
+            String file = LoaderTestUtils.write(content.replace("\n", terminator), ".gaf");
+
+            for (int threads = 1; threads <= 4; threads += 3) {
+                G g = load(file, threads);
+                assertEquals(expected, LoaderTestUtils.edges(g));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidHeader() throws Exception {
+
+        String file = LoaderTestUtils.write(content.replace("!gaf-version: 2.0", "!gaf-version: 1.0"), ".gaf");
+
+        for (int threads = 1; threads <= 4; threads += 3) {
+            try {
+                load(file, threads);
+                assertTrue("the header must be checked", false);
+            } catch (SLIB_Exception e) {
+                assertTrue(e.getMessage().contains("Invalid header"));
+            }
+        }
+    }
+}
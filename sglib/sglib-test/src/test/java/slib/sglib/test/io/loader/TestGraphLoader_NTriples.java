@@ -0,0 +1,164 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io.loader;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.rdf.GraphLoader_NTriples;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the statements loaded by {@link GraphLoader_NTriples} to the
+ * statements expected from the files, i.e. the statements of which the
+ * subject and the object are URIs, whatever the number of threads, the line
+ * terminators and the compression of the files.
+ *
+ * @author seb
+ */
+public class TestGraphLoader_NTriples {
+
+    static final String NS = "http://example.org/";
+    static final String TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+    static final String SUBCLASSOF = "http://www.w3.org/2000/01/rdf-schema#subClassOf";
+    // enough statements to be split into several chunks
+    static final int NB_STATEMENTS = 80000;
+    static final String SAMPLE = ""
+            + "# comment\n"
+            + "\n"
+            + "<http://example.org/a> <" + SUBCLASSOF + "> <http://example.org/b> .\n"
+            + "  <http://example.org/b>\t<" + SUBCLASSOF + ">   <http://example.org/c>.  # trailing comment\n"
+            + "<http://example.org/c> <http://www.w3.org/2000/01/rdf-schema#label> \"c \\\"label\\\" .\" .\n"
+            + "<http://example.org/c> <http://www.w3.org/2000/01/rdf-schema#label> \"c\"@en-GB .\n"
+            + "<http://example.org/c> <http://example.org/count> \"3\"^^<http://www.w3.org/2001/XMLSchema#int> .\n"
+            + "_:b0 <" + TYPE + "> <http://example.org/a> .\n"
+            + "<http://example.org/a> <" + TYPE + "> _:b1.\n"
+            + "<http://example.org/caf\\u00E9> <" + TYPE + "> <http://example.org/\\U0001D11E> .\n"
+            + "<http://example.org/d> <" + TYPE + "> <http://example.org/a> .";
+    static final String[] SAMPLE_EXPECTED = {
+        NS + "a " + SUBCLASSOF + " " + NS + "b",
+        NS + "b " + SUBCLASSOF + " " + NS + "c",
+        NS + "caf\u00E9 " + TYPE + " " + NS + "\uD834\uDD1E",
+        NS + "d " + TYPE + " " + NS + "a"
+    };
+
+    private G load(String file, int threads) throws SLIB_Exception {
+
+        GDataConf conf = new GDataConf(GFormat.NTRIPLES_FAST, file);
+        conf.addParameter("threads", Integer.toString(threads));
+        return LoaderTestUtils.load(new GraphLoader_NTriples(), conf, null);
+    }
+
+    private void check(String content, Set<String> expected) throws Exception {
+
+        String[] terminators = {"\n", "\r\n", "\r"};
+        String[] suffixes = {".nt", ".nt.gz"};
+
+        for (String terminator : terminators) {
+            for (String suffix : suffixes) {
+
+                String file = LoaderTestUtils.write(content.replace("\n", terminator), suffix);
+
+                for (int threads = 1; threads <= 4; threads += 3) {
+                    assertEquals(terminator + " " + suffix + " " + threads, expected, LoaderTestUtils.edges(load(file, threads)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSample() throws Exception {
+
+        Set<String> expected = new HashSet<String>();
+        for (String s : SAMPLE_EXPECTED) {
+            expected.add(s);
+        }
+        check(SAMPLE, expected);
+    }
+
+    @Test
+    public void testLargeFile() throws Exception {
+
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder();
+        Set<String> expected = new HashSet<String>();
+
+        for (int i = 0; i < NB_STATEMENTS; i++) {
+
+            String s = NS + "c" + random.nextInt(NB_STATEMENTS / 2);
+            String o = NS + "c" + random.nextInt(NB_STATEMENTS / 2);
+
+            switch (random.nextInt(4)) {
+                case 0:
+                    content.append("<").append(s).append("> <").append(NS).append("label> \"").append(o).append("\" .\n");
+                    break;
+                case 1:
+                    content.append("_:b").append(i).append(" <").append(TYPE).append("> <").append(o).append("> .\n");
+                    break;
+                default:
+                    content.append("<").append(s).append("> <").append(SUBCLASSOF).append("> <").append(o).append("> .\n");
+                    expected.add(s + " " + SUBCLASSOF + " " + o);
+            }
+        }
+        check(content.toString(), expected);
+    }
+
+    @Test
+    public void testMalformedStatement() throws Exception {
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < NB_STATEMENTS; i++) {
+            content.append("<").append(NS).append("c").append(i).append("> <").append(SUBCLASSOF).append("> <").append(NS).append("c0> .\n");
+        }
+        content.append("<").append(NS).append("c0> <").append(SUBCLASSOF).append("> <").append(NS).append("c1>\n");
+
+        String file = LoaderTestUtils.write(content.toString(), ".nt");
+
+        for (int threads = 1; threads <= 4; threads += 3) {
+            try {
+                load(file, threads);
+                assertTrue("the statement is malformed", false);
+            } catch (SLIB_Exception e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("line " + (NB_STATEMENTS + 1)));
+            }
+        }
+    }
+}
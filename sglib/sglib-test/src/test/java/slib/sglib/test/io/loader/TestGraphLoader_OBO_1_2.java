@@ -0,0 +1,217 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.io.loader;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.bio.obo.GraphLoader_OBO_1_2;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the graphs loaded by the sequential and the parallel parsing of
+ * {@link GraphLoader_OBO_1_2} to the graph expected from the stanzas of the
+ * file.
+ *
+ * @author seb
+ */
+public class TestGraphLoader_OBO_1_2 {
+
+    static final String GO_NS = "http://purl.obolibrary.org/obo/GO_";
+    // namespace of the graph, used for the relationships without prefix
+    static final String DEFAULT_NS = "http://graph/";
+    // enough terms to be split into several chunks by the parallel parsing
+    static final int NB_TERMS = 45000;
+    static final String[] RELS = {"part_of", "regulates", "obsolete_rel"};
+    URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+    Set<String> expectedEdges = new HashSet<String>();
+    Set<String> expectedVertices = new HashSet<String>();
+    String content;
+
+    public TestGraphLoader_OBO_1_2() throws SLIB_Exception {
+
+        // other tests may have bound the GO prefix to another namespace
+        factory.clear();
+        factory.loadNamespacePrefix("GO", GO_NS);
+
+        Random random = new Random(42);
+        StringBuilder file = new StringBuilder();
+
+        file.append("format-version: 1.2\n");
+        file.append("date: 01:01:2012 12:00\n");
+        file.append("default-namespace: gene_ontology\n");
+        file.append("remark: header tags are not loaded\n\n");
+
+        file.append("[Typedef]\nid: part_of\nname: part of\nis_transitive: true\n\n");
+        file.append("[Typedef]\nid: has_part\nname: has part\ninverse_of: part_of ! part of\n\n");
+        file.append("[Typedef]\nid: regulates\nname: regulates\n\n");
+        file.append("[Typedef]\nid: obsolete_rel\nis_obsolete: true\n\n");
+
+        for (int i = 0; i < NB_TERMS; i++) {
+
+            boolean obsolete = i > 0 && random.nextInt(20) == 0;
+            String term = GO_NS + id(i);
+
+            file.append("[Term]\n");
+            file.append("id: GO:").append(id(i)).append("\n");
+            file.append("name: term ").append(i).append("\n");
+            file.append("namespace: biological_process\n");
+            file.append("def: \"Definition [of] term ").append(i).append(": see GO:").append(id(i)).append("\" [GOC:ai]\n");
+            if (!obsolete) {
+                expectedVertices.add(term);
+            }
+
+            int nbParents = i == 0 ? 0 : 1 + random.nextInt(3);
+            for (int p = 0; p < nbParents; p++) {
+                String parent = id(random.nextInt(i));
+                file.append("is_a: GO:").append(parent).append(" ! term ").append(parent).append("\n");
+                addExpected(obsolete, term, RDFS.SUBCLASSOF.stringValue(), GO_NS + parent);
+            }
+            if (i > 0 && random.nextInt(3) == 0) {
+                String rel = RELS[random.nextInt(RELS.length)];
+                String target = id(random.nextInt(i));
+                file.append("relationship: ").append(rel).append("  GO:").append(target).append(" ! term ").append(target).append("\n");
+                addExpected(obsolete || rel.equals("obsolete_rel"), term, DEFAULT_NS + rel, GO_NS + target);
+            }
+            if (obsolete) {
+                file.append("is_obsolete: true\n");
+            }
+            file.append("\n");
+
+            // other stanzas are ignored, including their tags
+            if (random.nextInt(500) == 0) {
+                file.append("[Instance]\nid: GO:").append(id(i)).append("\nis_a: GO:").append(id(0)).append("\n\n");
+            }
+        }
+        content = file.toString();
+    }
+
+    private void addExpected(boolean ignored, String source, String predicate, String target) {
+        if (!ignored) {
+            expectedEdges.add(source + " " + predicate + " " + target);
+            // the targets are added to the graph even if they are obsolete
+            expectedVertices.add(target);
+        }
+    }
+
+    private static String id(int i) {
+        return String.format("%07d", i);
+    }
+
+    private G load(GraphLoader_OBO_1_2 loader, String file, Integer threads) throws Exception {
+
+        GDataConf conf = new GDataConf(GFormat.OBO, file);
+        if (threads != null) {
+            conf.addParameter("threads", threads.toString());
+        }
+        return LoaderTestUtils.load(loader, conf, null);
+    }
+
+    private void check(G g) {
+        assertEquals(expectedEdges, LoaderTestUtils.edges(g));
+        assertEquals(expectedVertices, LoaderTestUtils.vertices(g));
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+
+        check(load(new GraphLoader_OBO_1_2(), LoaderTestUtils.write(content, ".obo"), null));
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+
+        String file = LoaderTestUtils.write(content, ".obo");
+
+        check(load(new GraphLoader_OBO_1_2(4), file, null));
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            check(load(new GraphLoader_OBO_1_2(), file, threads));
+        }
+    }
+
+    @Test
+    public void testLineTerminators() throws Exception {
+
+        String[] terminators = {"\r\n", "\r"};
+
+        for (String terminator : terminators) {
+
+            String file = LoaderTestUtils.write(content.replace("\n", terminator), ".obo");
+
+            for (int threads = 1; threads <= 4; threads += 3) {
+                check(load(new GraphLoader_OBO_1_2(), file, threads));
+            }
+        }
+    }
+
+    /**
+     * The error raised is the first one of the file, whatever the number of
+     * threads.
+     */
+    @Test
+    public void testErrors() throws Exception {
+
+        String last = "id: GO:" + id(NB_TERMS - 1) + "\n";
+        String middle = "id: GO:" + id(NB_TERMS / 2) + "\n";
+
+        String duplicate = content + "[Term]\n" + last + "\n";
+        String invalid = duplicate.replace(middle, middle + "relationship: part_of\n");
+        String version = content.replace("format-version: 1.2", "format-version: 1.0");
+
+        for (int threads = 1; threads <= 4; threads += 3) {
+            assertError(duplicate, threads, "Duplicate entry for [Term] " + GO_NS + id(NB_TERMS - 1));
+            assertError(invalid, threads, "Invalid relationship 'part_of' for [Term] " + GO_NS + id(NB_TERMS / 2));
+            assertError(version, threads, "format-version '1.2' used to load OBO version '1.0'");
+        }
+    }
+
+    private void assertError(String content, int threads, String message) throws Exception {
+
+        try {
+            load(new GraphLoader_OBO_1_2(), LoaderTestUtils.write(content, ".obo"), threads);
+            assertTrue("an error must be raised: " + message, false);
+        } catch (SLIB_Exception e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}
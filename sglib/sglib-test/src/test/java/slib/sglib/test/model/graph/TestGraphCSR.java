@@ -0,0 +1,123 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.model.graph;
+
+import java.util.Map;
+import java.util.Set;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.algo.graph.extraction.rvf.RVF_DAG;
+import slib.sglib.algo.graph.metric.DepthAnalyserAG;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.elements.E;
+import slib.sglib.model.graph.utils.Direction;
+import slib.sglib.model.graph.utils.WalkConstraint;
+import slib.sglib.model.impl.graph.memory.GraphCSR;
+import slib.sglib.test.algo.graph.SLIB_UnitTestValues;
+import slib.sglib.test.algo.graph.TestUtils;
+import slib.sglib.utils.WalkConstraintGeneric;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Check that the immutable CSR graph behaves as the graph it has been built
+ * from.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestGraphCSR {
+
+    G g;
+    GraphCSR gcsr;
+    SLIB_UnitTestValues testValues;
+
+    /**
+     *
+     * @throws SLIB_Exception
+     */
+    public TestGraphCSR() throws SLIB_Exception {
+
+        testValues = new SLIB_UnitTestValues();
+        g = TestUtils.loadTestGraph(GFormat.NTRIPLES, SLIB_UnitTestValues.G_DAG_BASIC);
+        gcsr = new GraphCSR(g);
+    }
+
+    @Test
+    public void test_vertices_edges() {
+
+        assertTrue(g.getNumberVertices() == gcsr.getNumberVertices());
+        assertTrue(g.getNumberEdges() == gcsr.getNumberEdges());
+        assertTrue(g.getV().equals(gcsr.getV()));
+        assertTrue(g.getE().equals(gcsr.getE()));
+
+        for (URI v : g.getV()) {
+            assertTrue(g.getE(v, Direction.BOTH).equals(gcsr.getE(v, Direction.BOTH)));
+            assertTrue(g.getV(v, RDFS.SUBCLASSOF, Direction.OUT).equals(gcsr.getV(v, RDFS.SUBCLASSOF, Direction.OUT)));
+        }
+    }
+
+    @Test
+    public void test_reachable_vertices() throws SLIB_Exception {
+
+        WalkConstraint wc = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.OUT);
+
+        Map<URI, Set<URI>> expected = new RVF_DAG(g, wc).getAllRV();
+        Map<URI, Set<URI>> computed = new RVF_DAG(gcsr, wc).getAllRV();
+
+        assertTrue(expected.equals(computed));
+    }
+
+    @Test
+    public void test_depths() throws SLIB_Exception {
+
+        WalkConstraint wc = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.IN);
+
+        Map<URI, Integer> maxDepths = new DepthAnalyserAG(gcsr, wc).getVMaxDepths();
+        Map<URI, Integer> minDepths = new DepthAnalyserAG(gcsr, wc).getVMinDepths();
+
+        assertTrue(maxDepths.equals(new DepthAnalyserAG(g, wc).getVMaxDepths()));
+        assertTrue(minDepths.equals(new DepthAnalyserAG(g, wc).getVMinDepths()));
+        assertTrue(8 == maxDepths.get(testValues.G_BASIC_SPIDERMAN));
+        assertTrue(3 == minDepths.get(testValues.G_BASIC_SPIDERMAN));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test_immutable() {
+        E e = gcsr.getE().iterator().next();
+        gcsr.removeE(e);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.model.repo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.impl.repo.URIInterner;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Check the interning of the URIs and the ids associated to them.
+ *
+ * @author seb
+ */
+public class TestURIInterner {
+
+    static final String NS = "http://graph/";
+
+    @Test
+    public void testIntern() {
+
+        URIInterner interner = new URIInterner(3);
+
+        URI a = interner.intern(NS + "a");
+        URI b = interner.intern(NS + "b");
+
+        assertSame(a, interner.intern(NS + "a"));
+        assertSame(a, interner.get(NS + "a"));
+        assertNull(interner.get(NS + "c"));
+        assertEquals(new URIImpl(NS + "a"), a);
+        assertEquals(a, new URIImpl(NS + "a"));
+        assertEquals(new URIImpl(NS + "a").hashCode(), a.hashCode());
+        assertFalse(a.equals(b));
+
+        assertEquals(2, interner.size());
+        assertEquals(0, interner.idOf(a));
+        assertEquals(1, interner.idOf(b));
+        assertEquals(1, interner.idOf(new URIImpl(NS + "b")));
+        assertEquals(-1, interner.idOf(new URIImpl(NS + "c")));
+        assertSame(a, interner.uriOf(0));
+        assertSame(b, interner.uriOf(1));
+
+        // instances of another interner are resolved by their string
+        URIInterner other = new URIInterner();
+        URI b2 = other.intern(NS + "b");
+        assertEquals(b, b2);
+        assertEquals(1, interner.idOf(b2));
+        assertEquals(0, other.idOf(b));
+
+        for (int id : new int[]{-1, 2}) {
+            try {
+                interner.uriOf(id);
+                fail("no URI is associated to id " + id);
+            } catch (IllegalArgumentException e) {
+            }
+        }
+        try {
+            interner.intern("not a URI");
+            fail("invalid URI");
+        } catch (IllegalArgumentException e) {
+        }
+        // a rejected URI does not consume an id
+        assertEquals(2, interner.size());
+        assertSame(a, interner.uriOf(0));
+    }
+
+    @Test
+    public void testNamespaceLocalName() {
+
+        URIInterner interner = new URIInterner();
+
+        URI u = interner.intern("http://snomed.info/id/", "123/456");
+        assertEquals("http://snomed.info/id/123/456", u.stringValue());
+        assertEquals("http://snomed.info/id/", u.getNamespace());
+        assertEquals("123/456", u.getLocalName());
+        assertSame(u, interner.intern("http://snomed.info/id/123/456"));
+
+        URI v = interner.intern("http://graph/ns#v");
+        assertEquals("http://graph/ns#", v.getNamespace());
+        assertEquals("v", v.getLocalName());
+
+        URI w = URIFactoryMemory.getSingleton().createURI("http://graph/ns#", "x/w");
+        assertEquals("http://graph/ns#", w.getNamespace());
+        assertEquals("x/w", w.getLocalName());
+    }
+
+    /**
+     * Concurrent threads intern overlapping sets of URIs while others
+     * resolve the ids as soon as they are issued.
+     */
+    @Test
+    public void testConcurrentIntern() throws Exception {
+
+        final URIInterner interner = new URIInterner(4);
+        final int nbThreads = 8;
+        final int nbURIs = 150000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(nbThreads + 2);
+
+        try {
+            List<Future<URI[]>> writers = new ArrayList<Future<URI[]>>();
+            for (int t = 0; t < nbThreads; t++) {
+                final int offset = t * nbURIs / (2 * nbThreads);
+                writers.add(pool.submit(new Callable<URI[]>() {
+                    @Override
+                    public URI[] call() throws Exception {
+                        start.await();
+                        URI[] uris = new URI[nbURIs];
+                        for (int i = 0; i < nbURIs; i++) {
+                            int k = (i + offset) % nbURIs;
+                            URI u = interner.intern(NS + k);
+                            // the id must be resolvable as soon as it is known
+                            if (interner.uriOf(interner.idOf(u)) != u) {
+                                throw new IllegalStateException("id of " + u + " not resolved");
+                            }
+                            uris[k] = u;
+                        }
+                        return uris;
+                    }
+                }));
+            }
+            List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 2; t++) {
+                readers.add(pool.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        int checked = 0;
+                        while (!done.get()) {
+                            int size = interner.size();
+                            for (int id = Math.max(0, size - 1000); id < size; id++) {
+                                URI u = interner.uriOf(id);
+                                if (u == null || interner.idOf(u) != id) {
+                                    throw new IllegalStateException("id " + id + " not published");
+                                }
+                                checked++;
+                            }
+                        }
+                        return checked;
+                    }
+                }));
+            }
+            start.countDown();
+
+            URI[] first = null;
+            for (Future<URI[]> f : writers) {
+                URI[] uris = f.get();
+                if (first == null) {
+                    first = uris;
+                }
+                for (int i = 0; i < nbURIs; i++) {
+                    assertSame(first[i], uris[i]);
+                }
+            }
+            done.set(true);
+            for (Future<Integer> f : readers) {
+                f.get();
+            }
+
+            // ids are unique and dense
+            assertEquals(nbURIs, interner.size());
+            Set<Integer> ids = new HashSet<Integer>();
+            for (URI u : first) {
+                int id = interner.idOf(u);
+                assertTrue(id >= 0 && id < nbURIs);
+                assertTrue(ids.add(id));
+                assertSame(u, interner.uriOf(id));
+            }
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClear() throws SLIB_Ex_Critic {
+
+        URIFactoryMemory factory = URIFactoryMemory.getSingleton();
+
+        factory.loadNamespacePrefix("TESTCLEAR", "http://graph/clear/");
+        URI a = factory.createURI("TESTCLEAR:a", true);
+        assertEquals(NS + "clear/a", a.stringValue());
+        assertTrue(factory.idOf(a) >= 0);
+        assertTrue(factory.size() > 0);
+
+        factory.clear();
+
+        assertEquals(0, factory.size());
+        assertEquals(-1, factory.idOf(a));
+        assertNull(factory.getNamespace("TESTCLEAR"));
+        assertEquals("TESTCLEAR:a", factory.getURI("TESTCLEAR:a", true).stringValue());
+        assertEquals(NS + "clear/a", factory.shortURIasString(a));
+
+        // the URIs created before remain equal to the new ones
+        URI a2 = factory.createURI(NS + "clear/a");
+        assertEquals(a, a2);
+        assertEquals(a2, a);
+        assertEquals(a.hashCode(), a2.hashCode());
+        assertEquals(1, factory.size());
+        assertEquals(0, factory.idOf(a));
+        assertSame(a2, factory.uriOf(0));
+
+        // the prefix can be bound to another namespace
+        factory.loadNamespacePrefix("TESTCLEAR", "http://graph/clear2/");
+        assertEquals(NS + "clear2/a", factory.createURI("TESTCLEAR:a", true).stringValue());
+    }
+}
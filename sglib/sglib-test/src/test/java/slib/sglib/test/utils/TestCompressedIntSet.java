@@ -0,0 +1,380 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.utils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import slib.utils.impl.CompressedIntSet;
+
+/**
+ * Compare {@link CompressedIntSet} to {@link TreeSet} for the three
+ * representations of the sets (sorted array, runs and bitmap), the sets
+ * being built from sorted values and from bitmaps.
+ *
+ * @author seb
+ */
+public class TestCompressedIntSet {
+
+    static final int ARRAY = 0;
+    static final int RUNS = 1;
+    static final int BITMAP = 2;
+
+    /**
+     * @return the representation selected for the set
+     */
+    private static int kind(CompressedIntSet set) throws Exception {
+        Field type = CompressedIntSet.class.getDeclaredField("type");
+        type.setAccessible(true);
+        return ((Number) type.get(set)).intValue();
+    }
+
+    private static CompressedIntSet fromSorted(TreeSet<Integer> values) {
+        int[] sorted = new int[values.size() + 3];
+        int n = 0;
+        for (int v : values) {
+            sorted[n++] = v;
+        }
+        // the values after the given length are ignored
+        sorted[n] = -5;
+        return CompressedIntSet.fromSorted(sorted, values.size());
+    }
+
+    private static CompressedIntSet fromBitmap(TreeSet<Integer> values) {
+        int max = values.isEmpty() ? 0 : values.last();
+        // empty words before and after the values
+        long[] bitmap = new long[(max >>> 6) + 4];
+        for (int v : values) {
+            bitmap[v >>> 6] |= 1L << v;
+        }
+        return CompressedIntSet.fromBitmap(bitmap, 0, bitmap.length);
+    }
+
+    /**
+     * Values around the word boundaries.
+     */
+    private static TreeSet<Integer> boundaries(Random random) {
+        TreeSet<Integer> values = new TreeSet<Integer>();
+        for (int w = random.nextInt(3); w < 12; w += 1 + random.nextInt(3)) {
+            for (int d = -2; d <= 1; d++) {
+                if (w * 64 + d >= 0 && random.nextBoolean()) {
+                    values.add(w * 64 + d);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Few values spread over a wide range: sorted array.
+     */
+    private static TreeSet<Integer> sparse(Random random) {
+        TreeSet<Integer> values = new TreeSet<Integer>();
+        int n = 1 + random.nextInt(20);
+        for (int i = 0; i < n; i++) {
+            values.add(random.nextInt(100000));
+        }
+        return values;
+    }
+
+    /**
+     * Few long intervals: runs.
+     */
+    private static TreeSet<Integer> intervals(Random random) {
+        TreeSet<Integer> values = new TreeSet<Integer>();
+        int start = random.nextInt(200);
+        int n = 1 + random.nextInt(4);
+        for (int r = 0; r < n; r++) {
+            int length = 100 + random.nextInt(300);
+            for (int v = start; v < start + length; v++) {
+                values.add(v);
+            }
+            start += length + 1 + random.nextInt(500);
+        }
+        return values;
+    }
+
+    /**
+     * Random values in a range starting after a few empty words: bitmap.
+     */
+    private static TreeSet<Integer> dense(Random random) {
+        TreeSet<Integer> values = new TreeSet<Integer>();
+        int offset = 64 * random.nextInt(5) + random.nextInt(64);
+        int range = 64 + random.nextInt(1000);
+        for (int v = offset; v < offset + range; v++) {
+            if (random.nextBoolean()) {
+                values.add(v);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the values around the values of the set, around the
+     * boundaries of their words and of the neighbouring words
+     */
+    private static TreeSet<Integer> probes(TreeSet<Integer> values) {
+        TreeSet<Integer> probes = new TreeSet<Integer>();
+        probes.add(-1);
+        probes.add(0);
+        int max = values.isEmpty() ? 0 : values.last();
+        probes.add(max + 65);
+        for (int v : values) {
+            for (int d = -1; d <= 1; d++) {
+                probes.add(v + d);
+                int word = ((v >>> 6) + d) << 6;
+                probes.add(word - 1);
+                probes.add(word);
+                probes.add(word + 1);
+            }
+        }
+        return probes;
+    }
+
+    private static void checkSet(TreeSet<Integer> expected, CompressedIntSet set) {
+
+        String msg = expected.toString();
+        int max = expected.isEmpty() ? 0 : expected.last();
+
+        assertEquals(msg, expected.size(), set.cardinality());
+        assertEquals(msg, expected.isEmpty(), set.isEmpty());
+
+        if (expected.isEmpty()) {
+            try {
+                set.first();
+                fail("empty set");
+            } catch (NoSuchElementException e) {
+            }
+        } else {
+            assertEquals(msg, (int) expected.first(), set.first());
+            assertEquals(msg, (int) expected.last(), set.last());
+        }
+
+        for (int v : probes(expected)) {
+            assertEquals(msg + " contains " + v, expected.contains(v), set.contains(v));
+        }
+
+        // cardinality of intervals starting and ending around the values
+        // and the word boundaries
+        List<Integer> bounds = new ArrayList<Integer>(probes(expected));
+        for (int i = 0; i < bounds.size(); i += 1 + bounds.size() / 40) {
+            for (int j = i; j < bounds.size(); j += 1 + bounds.size() / 40) {
+                int from = bounds.get(i);
+                int to = bounds.get(j);
+                int count = expected.subSet(from, to).size();
+                assertEquals(msg + " [" + from + ", " + to + "[", count, set.cardinality(from, to));
+            }
+        }
+
+        List<Integer> iterated = new ArrayList<Integer>();
+        CompressedIntSet.IntIterator it = set.iterator();
+        while (it.hasNext()) {
+            iterated.add(it.next());
+        }
+        assertEquals(msg, new ArrayList<Integer>(expected), iterated);
+        try {
+            it.next();
+            fail("end of the iteration");
+        } catch (NoSuchElementException e) {
+        }
+
+        int[] array = set.toArray();
+        int[] copy = new int[array.length + 2];
+        assertEquals(array.length + 1, set.copyTo(copy, 1));
+        assertTrue(Arrays.equals(array, Arrays.copyOfRange(copy, 1, array.length + 1)));
+
+        // or keeps the bits already set
+        long[] bitmap = new long[(max >>> 6) + 2];
+        bitmap[bitmap.length - 1] = 1L << 5;
+        set.or(bitmap);
+        TreeSet<Integer> withExtra = new TreeSet<Integer>(expected);
+        withExtra.add(((bitmap.length - 1) << 6) + 5);
+        long[] expectedBitmap = new long[bitmap.length];
+        for (int v : withExtra) {
+            expectedBitmap[v >>> 6] |= 1L << v;
+        }
+        assertTrue(msg, Arrays.equals(expectedBitmap, bitmap));
+    }
+
+    private static void checkPair(TreeSet<Integer> a, CompressedIntSet setA, TreeSet<Integer> b, CompressedIntSet setB) {
+
+        Set<Integer> inter = new HashSet<Integer>(a);
+        inter.retainAll(b);
+        Set<Integer> union = new HashSet<Integer>(a);
+        union.addAll(b);
+        String msg = a + " " + b;
+
+        assertEquals(msg, inter.size(), setA.intersectionCardinality(setB));
+        assertEquals(msg, inter.size(), setB.intersectionCardinality(setA));
+        assertEquals(msg, union.size(), setA.unionCardinality(setB));
+        assertEquals(msg, a.equals(b), setA.equals(setB));
+        if (a.equals(b)) {
+            assertEquals(msg, setA.hashCode(), setB.hashCode());
+        }
+    }
+
+    /**
+     * Random sets of each representation, built from sorted values and from
+     * bitmaps, and all their pairs.
+     */
+    @Test
+    public void testRepresentations() throws Exception {
+
+        Random random = new Random(3);
+        List<TreeSet<Integer>> expected = new ArrayList<TreeSet<Integer>>();
+        List<CompressedIntSet> sets = new ArrayList<CompressedIntSet>();
+        int[] nbKinds = new int[3];
+
+        for (int i = 0; i < 40; i++) {
+
+            TreeSet<Integer> values;
+            switch (i % 5) {
+                case 0:
+                    values = sparse(random);
+                    break;
+                case 1:
+                    values = intervals(random);
+                    break;
+                case 2:
+                    values = dense(random);
+                    break;
+                case 3:
+                    values = boundaries(random);
+                    break;
+                default:
+                    values = new TreeSet<Integer>();
+            }
+
+            for (CompressedIntSet set : new CompressedIntSet[]{fromSorted(values), fromBitmap(values)}) {
+                checkSet(values, set);
+                nbKinds[kind(set)]++;
+                expected.add(values);
+                sets.add(set);
+            }
+        }
+        assertTrue(Arrays.toString(nbKinds), nbKinds[ARRAY] > 0 && nbKinds[RUNS] > 0 && nbKinds[BITMAP] > 0);
+
+        for (int i = 0; i < sets.size(); i++) {
+            for (int j = 0; j < sets.size(); j++) {
+                checkPair(expected.get(i), sets.get(i), expected.get(j), sets.get(j));
+            }
+        }
+    }
+
+    /**
+     * Values added one by one so that the representation changes: a run is
+     * filled, then holes are added until it becomes a bitmap and values are
+     * spread until it becomes an array.
+     */
+    @Test
+    public void testTransitions() throws Exception {
+
+        Random random = new Random(5);
+        TreeSet<Integer> values = new TreeSet<Integer>();
+        List<Integer> kinds = new ArrayList<Integer>();
+        CompressedIntSet previous = CompressedIntSet.EMPTY;
+        TreeSet<Integer> previousValues = new TreeSet<Integer>();
+
+        for (int step = 0; step < 600; step++) {
+
+            if (step < 200) {
+                values.add(60 + step);
+            } else if (step < 400) {
+                values.remove(60 + random.nextInt(200));
+            } else {
+                values.add(1000 + 5000 * (step - 400));
+            }
+
+            CompressedIntSet set = fromSorted(values);
+            CompressedIntSet fromBitmap = fromBitmap(values);
+            int k = kind(set);
+            assertEquals(k, kind(fromBitmap));
+            if (kinds.isEmpty() || kinds.get(kinds.size() - 1) != k) {
+                kinds.add(k);
+                checkSet(values, set);
+                checkSet(values, fromBitmap);
+            } else if (step % 25 == 0) {
+                checkSet(values, set);
+            }
+            checkPair(values, set, previousValues, previous);
+            checkPair(values, fromBitmap, values, set);
+
+            previous = set;
+            previousValues = new TreeSet<Integer>(values);
+        }
+        assertTrue("transitions " + kinds, kinds.contains(ARRAY) && kinds.contains(RUNS) && kinds.contains(BITMAP) && kinds.size() >= 3);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+
+        TreeSet<Integer> empty = new TreeSet<Integer>();
+        checkSet(empty, CompressedIntSet.EMPTY);
+        checkSet(empty, CompressedIntSet.fromSorted(new int[0], 0));
+        checkSet(empty, CompressedIntSet.fromBitmap(new long[4], 0, 4));
+        checkPair(empty, CompressedIntSet.EMPTY, dense(new Random(7)), fromBitmap(dense(new Random(7))));
+        assertEquals(0, CompressedIntSet.EMPTY.cardinality(5, 2));
+    }
+
+    @Test
+    public void testInvalidValues() {
+
+        try {
+            CompressedIntSet.fromSorted(new int[]{-1, 3}, 2);
+            fail("negative value");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            CompressedIntSet.fromSorted(new int[]{1, 3, 3}, 3);
+            fail("duplicate value");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            CompressedIntSet.fromSorted(new int[]{4, 3}, 2);
+            fail("unsorted values");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sglib.test.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.threads.OrderedPipeline;
+
+/**
+ * Check the order of the results written by an {@link OrderedPipeline}, the
+ * bound of the number of items in flight and the report of the failures of
+ * each stage.
+ *
+ * @author seb
+ */
+public class TestOrderedPipeline {
+
+    /**
+     * Reader of the integers in [0, nbItems[.
+     */
+    static class RangeReader implements OrderedPipeline.Reader<Integer> {
+
+        final int nbItems;
+        final AtomicInteger read = new AtomicInteger();
+
+        RangeReader(int nbItems) {
+            this.nbItems = nbItems;
+        }
+
+        @Override
+        public Integer next() throws Exception {
+            int i = read.get();
+            if (i == nbItems) {
+                return null;
+            }
+            read.incrementAndGet();
+            return i;
+        }
+    }
+
+    /**
+     * Worker squaring the items after a random pause.
+     */
+    static class RandomSpeedWorker implements OrderedPipeline.Worker<Integer, Long> {
+
+        final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+            @Override
+            protected Random initialValue() {
+                return new Random(Thread.currentThread().getId());
+            }
+        };
+
+        @Override
+        public Long process(Integer item) throws Exception {
+            int pause = random.get().nextInt(10);
+            if (pause < 3) {
+                Thread.sleep(pause);
+            }
+            return (long) item * item;
+        }
+    }
+
+    static class ListWriter implements OrderedPipeline.Writer<Long> {
+
+        final List<Long> results = new ArrayList<Long>();
+
+        @Override
+        public void write(Long result) throws Exception {
+            results.add(result);
+        }
+    }
+
+    private static Set<Thread> liveThreads() {
+        Set<Thread> threads = new HashSet<Thread>();
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.isAlive()) {
+                threads.add(t);
+            }
+        }
+        return threads;
+    }
+
+    /**
+     * The threads of the pipeline are terminated when it returns. The pool
+     * is terminated before its threads exit, they are therefore given a few
+     * seconds to do so.
+     */
+    private static void assertNoThreadLeak(Set<Thread> before) throws InterruptedException {
+        Set<Thread> after = liveThreads();
+        after.removeAll(before);
+        for (Thread t : after) {
+            t.join(10000);
+            assertTrue("thread still alive " + t, !t.isAlive());
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testOrder() throws Exception {
+
+        for (int nbWorkers : new int[]{1, 2, 4, 8}) {
+            for (int maxPending : new int[]{1, 3, 64}) {
+
+                Set<Thread> before = liveThreads();
+                OrderedPipeline<Integer, Long> pipeline = new OrderedPipeline<Integer, Long>(nbWorkers, maxPending);
+                ListWriter writer = new ListWriter();
+                int n = 1500;
+
+                pipeline.run(new RangeReader(n), new RandomSpeedWorker(), writer);
+
+                assertEquals(n, writer.results.size());
+                for (int i = 0; i < n; i++) {
+                    assertEquals((long) i * i, (long) writer.results.get(i));
+                }
+                assertEquals(n, pipeline.getReadItems());
+                assertEquals(n, pipeline.getProcessedItems());
+                assertEquals(n, pipeline.getWrittenItems());
+                assertNoThreadLeak(before);
+            }
+        }
+    }
+
+    /**
+     * No item, and a pipeline run twice accumulates its counters.
+     */
+    @Test(timeout = 60000)
+    public void testEmptyAndReuse() throws Exception {
+
+        OrderedPipeline<Integer, Long> pipeline = new OrderedPipeline<Integer, Long>(3);
+        ListWriter writer = new ListWriter();
+
+        pipeline.run(new RangeReader(0), new RandomSpeedWorker(), writer);
+        assertEquals(0, writer.results.size());
+
+        pipeline.run(new RangeReader(10), new RandomSpeedWorker(), writer);
+        pipeline.run(new RangeReader(5), new RandomSpeedWorker(), writer);
+        assertEquals(15, writer.results.size());
+        assertEquals(15, pipeline.getWrittenItems());
+        assertEquals(16L, (long) writer.results.get(14));
+    }
+
+    /**
+     * The number of items read but not yet written never exceeds the bound,
+     * and at most one item per worker is processed at a time. The writer is
+     * slow so that the bound is reached.
+     */
+    @Test(timeout = 60000)
+    public void testPendingBound() throws Exception {
+
+        final int nbWorkers = 4;
+        final int maxPending = 6;
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger processing = new AtomicInteger();
+        final AtomicInteger maxProcessing = new AtomicInteger();
+
+        final RangeReader range = new RangeReader(300);
+        OrderedPipeline.Reader<Integer> reader = new OrderedPipeline.Reader<Integer>() {
+            @Override
+            public Integer next() throws Exception {
+                Integer item = range.next();
+                if (item != null) {
+                    int inFlight = item + 1 - written.get();
+                    if (inFlight > maxInFlight.get()) {
+                        maxInFlight.set(inFlight);
+                    }
+                }
+                return item;
+            }
+        };
+        OrderedPipeline.Worker<Integer, Long> worker = new OrderedPipeline.Worker<Integer, Long>() {
+            @Override
+            public Long process(Integer item) throws Exception {
+                int p = processing.incrementAndGet();
+                synchronized (maxProcessing) {
+                    maxProcessing.set(Math.max(maxProcessing.get(), p));
+                }
+                Thread.sleep(1);
+                processing.decrementAndGet();
+                return (long) item;
+            }
+        };
+        OrderedPipeline.Writer<Long> writer = new OrderedPipeline.Writer<Long>() {
+            @Override
+            public void write(Long result) throws Exception {
+                Thread.sleep(2);
+                written.incrementAndGet();
+            }
+        };
+
+        new OrderedPipeline<Integer, Long>(nbWorkers, maxPending).run(reader, worker, writer);
+
+        assertEquals(300, written.get());
+        assertEquals(maxPending, maxInFlight.get());
+        assertTrue(maxProcessing.get() <= nbWorkers);
+    }
+
+    /**
+     * Run a pipeline which fails and check that the exception of the failing
+     * stage is reported and that the threads are terminated. The stages
+     * block on the bounded queues when the failure occurs.
+     */
+    private void checkFailure(final int failingStage, int nbWorkers, int maxPending) throws Exception {
+
+        final Exception failure = new IllegalStateException("failure of stage " + failingStage);
+        final int failingItem = 50;
+        final RangeReader range = new RangeReader(100000);
+
+        OrderedPipeline.Reader<Integer> reader = new OrderedPipeline.Reader<Integer>() {
+            @Override
+            public Integer next() throws Exception {
+                Integer item = range.next();
+                if (failingStage == 0 && item == failingItem) {
+                    throw failure;
+                }
+                return item;
+            }
+        };
+        OrderedPipeline.Worker<Integer, Long> worker = new OrderedPipeline.Worker<Integer, Long>() {
+            @Override
+            public Long process(Integer item) throws Exception {
+                if (failingStage == 1 && item == failingItem) {
+                    throw failure;
+                }
+                return (long) item;
+            }
+        };
+        final List<Long> results = new ArrayList<Long>();
+        OrderedPipeline.Writer<Long> writer = new OrderedPipeline.Writer<Long>() {
+            @Override
+            public void write(Long result) throws Exception {
+                if (failingStage == 2 && result == failingItem) {
+                    throw failure;
+                }
+                results.add(result);
+            }
+        };
+
+        Set<Thread> before = liveThreads();
+        try {
+            new OrderedPipeline<Integer, Long>(nbWorkers, maxPending).run(reader, worker, writer);
+            fail("the failure of stage " + failingStage + " must be reported");
+        } catch (SLIB_Ex_Critic e) {
+            assertSame(failure, e.getCause());
+        }
+        assertNoThreadLeak(before);
+
+        // the results written before the failure are in order
+        assertTrue(results.size() <= failingItem);
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, (long) results.get(i));
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testFailures() throws Exception {
+
+        for (int stage = 0; stage < 3; stage++) {
+            for (int nbWorkers : new int[]{1, 4}) {
+                for (int maxPending : new int[]{1, 8}) {
+                    checkFailure(stage, nbWorkers, maxPending);
+                }
+            }
+        }
+    }
+
+    /**
+     * A pipeline keeps running after a failure of another pipeline.
+     */
+    @Test(timeout = 60000)
+    public void testRunAfterFailure() throws Exception {
+
+        checkFailure(1, 2, 2);
+
+        ListWriter writer = new ListWriter();
+        new OrderedPipeline<Integer, Long>(2, 2).run(new RangeReader(100), new RandomSpeedWorker(), writer);
+        assertEquals(100, writer.results.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWorkers() {
+        new OrderedPipeline<Integer, Long>(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPending() {
+        new OrderedPipeline<Integer, Long>(1, 0);
+    }
+}
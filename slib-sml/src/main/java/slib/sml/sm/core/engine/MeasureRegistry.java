@@ -0,0 +1,120 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sml.sm.core.engine;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Registry associating a measure instance to each measure configuration.
+ *
+ * The instance associated to a configuration is resolved once, either when
+ * it is registered or the first time it is requested, and is then shared by
+ * all the computations relying on this configuration. Requesting an instance
+ * which has already been resolved does not require any lock. When two
+ * threads concurrently resolve the same configuration, both instances are
+ * created but a single one is kept.
+ *
+ * @param <M> the type of measures stored into the registry
+ * @author Harispe Sébastien
+ */
+class MeasureRegistry<M> {
+
+    final Class<M> type;
+    final ConcurrentMap<SMconf, M> measures;
+
+    /**
+     * Build an empty registry.
+     *
+     * @param type the type of measures stored into the registry
+     */
+    MeasureRegistry(Class<M> type) {
+        this.type = type;
+        this.measures = new ConcurrentHashMap<SMconf, M>();
+    }
+
+    /**
+     * Access to the measure associated to the given configuration. The
+     * measure is created if the configuration has not been resolved yet.
+     *
+     * @param conf the configuration
+     * @return the measure associated to the configuration
+     * @throws SLIB_Ex_Critic if the measure cannot be created
+     */
+    M get(SMconf conf) throws SLIB_Ex_Critic {
+
+        M measure = measures.get(conf);
+        if (measure == null) {
+            M created = create(conf);
+            M previous = measures.putIfAbsent(conf, created);
+            measure = previous != null ? previous : created;
+        }
+        return measure;
+    }
+
+    /**
+     * Associate a measure to a configuration, the measure previously
+     * associated to the configuration is replaced.
+     *
+     * @param conf the configuration
+     * @param measure the measure
+     */
+    void register(SMconf conf, M measure) {
+        if (measure == null) {
+            throw new IllegalArgumentException("Cannot register a null measure for configuration " + conf.id);
+        }
+        measures.put(conf, measure);
+    }
+
+    private M create(SMconf conf) throws SLIB_Ex_Critic {
+
+        Object measure;
+        try {
+            Class<?> cl = Class.forName(conf.className);
+            Constructor<?> co = cl.getConstructor();
+            measure = co.newInstance();
+        } catch (Exception e) {
+            throw new SLIB_Ex_Critic("Cannot create the measure " + conf.className + " associated to configuration " + conf.id + ": " + e);
+        }
+
+        if (!type.isInstance(measure)) {
+            throw new SLIB_Ex_Critic("The measure " + conf.className + " associated to configuration " + conf.id + " is not a " + type.getSimpleName());
+        }
+        return type.cast(measure);
+    }
+}
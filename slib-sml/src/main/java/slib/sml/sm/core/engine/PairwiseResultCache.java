@@ -0,0 +1,444 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sml.sm.core.engine;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of pairwise semantic measure scores.
+ *
+ * Scores are indexed by the pair of class ids (see
+ * {@link SM_Engine#getClassId(org.openrdf.model.URI)}) packed into a single
+ * long. For symmetric measures the pair is stored in canonical order, i.e.
+ * (a,b) and (b,a) share the same entry.
+ *
+ * The cache is split into independent segments, each one guarded by its own
+ * lock, in order to limit contention when several threads query it. Each
+ * segment stores its entries into primitive arrays (open addressing with
+ * linear probing) and implements a segmented LRU eviction policy: new
+ * entries are inserted in a probation list and promoted to a protected list
+ * when they are requested again. When the segment is full, the least
+ * recently used entry of the probation list is evicted. Pairs which are only
+ * computed once therefore never evict the pairs which are frequently
+ * requested.
+ *
+ * The memory used by the cache is bounded by its capacity, an entry requires
+ * about {@value #BYTES_PER_ENTRY} bytes.
+ *
+ * {@link Double#NaN} is returned for the pairs which are not cached, a NaN
+ * score can therefore never be cached.
+ *
+ * @author Harispe Sébastien
+ */
+public class PairwiseResultCache {
+
+    /**
+     * Approximate number of bytes required to store an entry.
+     */
+    public static final int BYTES_PER_ENTRY = 40;
+    /**
+     * Default number of entries of a cache.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    static final int DEFAULT_NB_SEGMENTS = 16;
+    /**
+     * Proportion of the entries of a segment which can be protected.
+     */
+    static final double PROTECTED_RATIO = 0.8;
+    final boolean symmetric;
+    final int capacity;
+    final Segment[] segments;
+    final int segmentShift;
+
+    /**
+     * Build a cache with the default number of segments.
+     *
+     * @param capacity the maximal number of entries of the cache
+     * @param symmetric true if the scores are symmetric, i.e. sim(a,b) =
+     * sim(b,a).
+     */
+    public PairwiseResultCache(int capacity, boolean symmetric) {
+        this(capacity, symmetric, DEFAULT_NB_SEGMENTS);
+    }
+
+    /**
+     * Build a cache.
+     *
+     * @param capacity the maximal number of entries of the cache
+     * @param symmetric true if the scores are symmetric, i.e. sim(a,b) =
+     * sim(b,a).
+     * @param nbSegments the number of segments, rounded to a power of two.
+     * Small caches use less segments.
+     */
+    public PairwiseResultCache(int capacity, boolean symmetric, int nbSegments) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the cache must be greater than 0, given " + capacity);
+        }
+        if (nbSegments < 1) {
+            throw new IllegalArgumentException("The number of segments must be greater than 0, given " + nbSegments);
+        }
+
+        int segBits = 0;
+        while ((1 << segBits) < nbSegments && segBits < 16 && (capacity >> (segBits + 1)) >= 64) {
+            segBits++;
+        }
+
+        this.capacity = capacity;
+        this.symmetric = symmetric;
+        this.segmentShift = 64 - segBits;
+        this.segments = new Segment[1 << segBits];
+
+        int segCapacity = capacity / segments.length;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(segCapacity);
+        }
+    }
+
+    /**
+     * Compute the capacity of a cache which fits into the given amount of
+     * memory.
+     *
+     * @param bytes the memory budget in bytes
+     * @return the corresponding number of entries (at least 1)
+     */
+    public static int capacityForBudget(long bytes) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, bytes / BYTES_PER_ENTRY));
+    }
+
+    /**
+     * Access to the score associated to a pair of classes.
+     *
+     * @param a the id of the first class
+     * @param b the id of the second class
+     * @return the score or {@link Double#NaN} if the pair is not cached
+     */
+    public double get(int a, int b) {
+        long key = key(a, b);
+        long h = mix(key);
+        return segmentFor(h).get(key, (int) (h ^ (h >>> 32)));
+    }
+
+    /**
+     * Associate a score to a pair of classes. The least recently used pair
+     * can be evicted. NaN scores are ignored since they cannot be told apart
+     * from a missing pair.
+     *
+     * @param a the id of the first class
+     * @param b the id of the second class
+     * @param score the score
+     */
+    public void put(int a, int b, double score) {
+        if (Double.isNaN(score)) {
+            return;
+        }
+        long key = key(a, b);
+        long h = mix(key);
+        segmentFor(h).put(key, (int) (h ^ (h >>> 32)), score);
+    }
+
+    /**
+     * Remove all the entries, the counters are not reset.
+     */
+    public void clear() {
+        for (Segment s : segments) {
+            synchronized (s) {
+                s.clear();
+            }
+        }
+    }
+
+    /**
+     * @return true if (a,b) and (b,a) share the same entry.
+     */
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * @return the maximal number of entries
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of entries currently stored
+     */
+    public int size() {
+        int size = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                size += s.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of requests answered by the cache
+     */
+    public long getHits() {
+        long n = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                n += s.hits;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return the number of requests which were not answered by the cache
+     */
+    public long getMisses() {
+        long n = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                n += s.misses;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return the number of entries evicted to respect the capacity
+     */
+    public long getEvictions() {
+        long n = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                n += s.evictions;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return the proportion of requests answered by the cache, 0 if no
+     * request has been made.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + capacity + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions();
+    }
+
+    private long key(int a, int b) {
+        if (symmetric && a > b) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        return ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private Segment segmentFor(long h) {
+        return segmentShift == 64 ? segments[0] : segments[(int) (h >>> segmentShift)];
+    }
+
+    /**
+     * Segment of the cache. Entries are stored in parallel arrays and chained
+     * into two doubly linked lists (probation and protected) whose sentinels
+     * are stored at indexes capacity and capacity + 1.
+     */
+    static final class Segment {
+
+        static final int FREE = -1;
+        final int capacity;
+        final int maxProtected;
+        final int probation;
+        final int protectedHead;
+        final long[] keys;
+        final int[] hashes;
+        final double[] values;
+        final boolean[] isProtected;
+        final int[] prev;
+        final int[] next;
+        final int[] table;
+        final int mask;
+        int size;
+        int nbProtected;
+        long hits;
+        long misses;
+        long evictions;
+
+        Segment(int capacity) {
+
+            this.capacity = capacity;
+            this.maxProtected = Math.max(1, (int) (capacity * PROTECTED_RATIO));
+            this.probation = capacity;
+            this.protectedHead = capacity + 1;
+
+            keys = new long[capacity];
+            hashes = new int[capacity];
+            values = new double[capacity];
+            isProtected = new boolean[capacity];
+            prev = new int[capacity + 2];
+            next = new int[capacity + 2];
+
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            table = new int[tableSize];
+            mask = tableSize - 1;
+            clear();
+        }
+
+        final void clear() {
+            Arrays.fill(table, FREE);
+            prev[probation] = next[probation] = probation;
+            prev[protectedHead] = next[protectedHead] = protectedHead;
+            size = 0;
+            nbProtected = 0;
+        }
+
+        synchronized double get(long key, int hash) {
+
+            int slot = find(key, hash);
+            if (slot == -1) {
+                misses++;
+                return Double.NaN;
+            }
+            hits++;
+            int e = table[slot];
+
+            unlink(e);
+            if (!isProtected[e]) {
+                isProtected[e] = true;
+                nbProtected++;
+                if (nbProtected > maxProtected) {
+                    // demote the least recently used protected entry
+                    int d = prev[protectedHead];
+                    unlink(d);
+                    isProtected[d] = false;
+                    nbProtected--;
+                    linkFirst(probation, d);
+                }
+            }
+            linkFirst(protectedHead, e);
+            return values[e];
+        }
+
+        synchronized void put(long key, int hash, double value) {
+
+            int slot = find(key, hash);
+            if (slot != -1) {
+                values[table[slot]] = value;
+                return;
+            }
+
+            int e;
+            if (size < capacity) {
+                e = size++;
+            } else {
+                int victim = prev[probation] != probation ? prev[probation] : prev[protectedHead];
+                unlink(victim);
+                if (isProtected[victim]) {
+                    nbProtected--;
+                }
+                removeFromTable(find(keys[victim], hashes[victim]));
+                evictions++;
+                e = victim;
+            }
+
+            keys[e] = key;
+            hashes[e] = hash;
+            values[e] = value;
+            isProtected[e] = false;
+            linkFirst(probation, e);
+
+            int i = hash & mask;
+            while (table[i] != FREE) {
+                i = (i + 1) & mask;
+            }
+            table[i] = e;
+        }
+
+        private int find(long key, int hash) {
+            int i = hash & mask;
+            int e;
+            while ((e = table[i]) != FREE) {
+                if (keys[e] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Backward shift deletion, no tombstone is required.
+         */
+        private void removeFromTable(int i) {
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                int e = table[j];
+                if (e == FREE) {
+                    break;
+                }
+                int k = hashes[e] & mask;
+                // move the entry if its home slot is not in ]i, j]
+                if (i <= j ? (k <= i || k > j) : (k <= i && k > j)) {
+                    table[i] = e;
+                    i = j;
+                }
+            }
+            table[i] = FREE;
+        }
+
+        private void unlink(int e) {
+            next[prev[e]] = next[e];
+            prev[next[e]] = prev[e];
+        }
+
+        private void linkFirst(int head, int e) {
+            int first = next[head];
+            next[head] = e;
+            prev[e] = head;
+            next[e] = first;
+            prev[first] = e;
+        }
+    }
+}
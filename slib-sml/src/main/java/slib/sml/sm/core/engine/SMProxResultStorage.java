@@ -38,8 +38,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.openrdf.model.URI;
+import slib.sglib.algo.graph.extraction.rvf.CompressedClosure;
 import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.metrics.ic.utils.MICAEngine;
 import slib.sml.sm.core.utils.SMconf;
 
 /**
@@ -49,10 +52,15 @@ import slib.sml.sm.core.utils.SMconf;
 public class SMProxResultStorage {
 
     Map<ICconf, Map<URI, Double>> metrics_results;
-    Map<SMconf, ConcurrentHashMap<URI, Map<URI, Double>>> pairwise_results;
+    Map<ICconf, double[]> metrics_tables;
+    Map<ICconf, MICAEngine> mica_engines;
+    Map<ICconf, double[]> min_descendants_ic_tables;
+    ConcurrentMap<SMconf, PairwiseResultCache> pairwise_results;
     Map<URI, ConcurrentHashMap<URI, Double>> shortestPath;
-    Map<URI, Set<URI>> ancestorsInc;
-    Map<URI, Set<URI>> descendantsInc;
+    CompressedClosure ancestorsInc;
+    CompressedClosure descendantsInc;
+    int[][] ancestorsIncIds;
+    volatile int[][] childrenIds;
     Map<URI, Set<URI>> reachableLeaves;
     Map<URI, Integer> nbPathLeadingToAllVertices;
     Map<URI, Integer> allNbReachableLeaves;
@@ -78,15 +86,20 @@ public class SMProxResultStorage {
     public void clearCache() {
 
         metrics_results = new ConcurrentHashMap<ICconf, Map<URI, Double>>();
-        ancestorsInc = new ConcurrentHashMap<URI, Set<URI>>();
-        descendantsInc = new ConcurrentHashMap<URI, Set<URI>>();
+        metrics_tables = new ConcurrentHashMap<ICconf, double[]>();
+        mica_engines = new ConcurrentHashMap<ICconf, MICAEngine>();
+        min_descendants_ic_tables = new ConcurrentHashMap<ICconf, double[]>();
         reachableLeaves = new ConcurrentHashMap<URI, Set<URI>>();
         shortestPath = new ConcurrentHashMap<URI, ConcurrentHashMap<URI, Double>>();
-        pairwise_results = new ConcurrentHashMap<SMconf, ConcurrentHashMap<URI, Map<URI, Double>>>();
+        pairwise_results = new ConcurrentHashMap<SMconf, PairwiseResultCache>();
         nbOccurrencePropagatted = new HashMap<URI, Integer>();
 
         // do not inialize
         nbPathLeadingToAllVertices = null;
+        ancestorsInc = null;
+        descendantsInc = null;
+        ancestorsIncIds = null;
+        childrenIds = null;
         maxDepths = null;
         minDepths = null;
         maxDepth = null;
@@ -35,9 +35,11 @@
 package slib.sml.sm.core.engine;
 
 import java.lang.reflect.Constructor;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -49,6 +51,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import slib.sglib.algo.graph.accessor.GraphAccessor;
 import slib.sglib.algo.graph.extraction.rvf.AncestorEngine;
+import slib.sglib.algo.graph.extraction.rvf.CompressedClosure;
 import slib.sglib.algo.graph.extraction.rvf.DescendantEngine;
 import slib.sglib.algo.graph.extraction.rvf.RVF_TAX;
 import slib.sglib.algo.graph.metric.DepthAnalyserAG;
@@ -64,8 +67,12 @@ import slib.sglib.model.graph.utils.WalkConstraint;
 import slib.sglib.model.graph.weight.GWS;
 import slib.sglib.utils.WalkConstraintUtils;
 import slib.sml.sm.core.measures.Sim_Groupwise_Direct;
+import slib.sml.sm.core.measures.Sim_Groupwise_Direct_Indexed;
 import slib.sml.sm.core.measures.Sim_Groupwise_Indirect;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect_Indexed;
 import slib.sml.sm.core.measures.Sim_Pairwise;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_Bounded;
+import slib.sml.sm.core.measures.Sim_Pairwise_Indexed;
 import slib.sml.sm.core.measures.graph.pairwise.dag.edge_based.utils.SimDagEdgeUtils;
 import slib.sml.sm.core.metrics.ic.annot.ICcorpus;
 import slib.sml.sm.core.metrics.ic.topo.ICtopo;
@@ -73,6 +80,7 @@ import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Corpus;
 import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
 import slib.sml.sm.core.metrics.ic.utils.ICconf;
 import slib.sml.sm.core.metrics.ic.utils.IcUtils;
+import slib.sml.sm.core.metrics.ic.utils.MICAEngine;
 import slib.sml.sm.core.metrics.vector.VectorWeight_Chabalier_2007;
 import slib.sml.sm.core.utils.LCAFinder;
 import slib.sml.sm.core.utils.LCAFinderImpl;
@@ -81,6 +89,8 @@ import slib.sml.sm.core.utils.SMutils;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
 import slib.utils.impl.MatrixDouble;
+import slib.utils.impl.CompressedIntSet;
+import slib.utils.impl.ObjectIdIndex;
 import slib.utils.impl.SetUtils;
 
 /**
@@ -131,6 +141,12 @@ import slib.utils.impl.SetUtils;
  * The engine stores commonly accessed results (e.g. ancestors of a class) which
  * can lead to high memory consumption dealing with large graphs.
  *
+ * Each class is also associated to a dense integer identifier (see
+ * {@link #getClassId(URI)}). Most methods have a counterpart taking those
+ * identifiers as parameters, e.g. {@link #computePairwiseSim(SMconf, int, int)},
+ * which relies on arrays instead of maps and should be preferred when a large
+ * number of pairs have to be compared.
+ *
  * @author Harispe Sébastien
  */
 public class SM_Engine {
@@ -143,16 +159,21 @@ public class SM_Engine {
     Set<URI> classes;
     Set<URI> classesLeaves;
     Set<URI> instances;
+    ObjectIdIndex<URI> classIndex;
+    final int nbThreads;
     URI root = null;
     SMProxResultStorage cache;
     boolean cachePairwiseResults = false;
+    int pairwiseResultCacheCapacity = PairwiseResultCache.DEFAULT_CAPACITY;
     /**
      * TODO Replace by {@link GWS}
      */
     Map<URI, Double> vectorWeights = null;
-    Map<SMconf, Sim_Pairwise> pairwiseMeasures;
-    Map<SMconf, Sim_Groupwise_Indirect> groupwiseAddOnMeasures;
-    Map<SMconf, Sim_Groupwise_Direct> groupwiseStandaloneMeasures;
+    MeasureRegistry<Sim_Pairwise> pairwiseMeasures;
+    MeasureRegistry<Sim_Groupwise_Indirect> groupwiseAddOnMeasures;
+    MeasureRegistry<Sim_Groupwise_Direct> groupwiseStandaloneMeasures;
+    Map<GWS, Dijkstra> shortestPathFinders;
+    Map<GWS, Dijkstra> ancestorsPathFinders;
 
     /**
      * Constructor of an engine associated to the given graph.
@@ -171,8 +192,46 @@ public class SM_Engine {
      * @throws SLIB_Ex_Critic
      */
     public SM_Engine(G g) throws SLIB_Ex_Critic {
+        this(g, 1);
+    }
+
+    /**
+     * Constructor of an engine associated to the given graph, using several
+     * threads to perform the inferences required at engine creation (e.g.
+     * ancestors and descendants of the classes) and the topological
+     * propagations performed afterwards, e.g.
+     * {@link #getNbOccurrenceProp()}. Results do not depend on the number of
+     * threads.
+     *
+     * @param g the graph associated to the engine.
+     * @param nbThreads the number of threads to use (at least 1)
+     * @throws SLIB_Ex_Critic
+     * @see #SM_Engine(G)
+     */
+    public SM_Engine(G g, int nbThreads) throws SLIB_Ex_Critic {
+        this(g, nbThreads, null, null);
+    }
+
+    /**
+     * Constructor of an engine relying on the inclusive ancestors and
+     * descendants of the classes computed beforehand, e.g. restored from a
+     * snapshot (see {@link SM_EngineSnapshot}). The closures must be defined
+     * on the same index of classes, which must contain all the classes of
+     * the graph in a topological order. The closures are computed if they
+     * are not provided.
+     *
+     * @param g the graph associated to the engine.
+     * @param nbThreads the number of threads to use (at least 1)
+     * @param ancestorsInc the inclusive ancestors of the classes, can be null
+     * @param descendantsInc the inclusive descendants of the classes, can be
+     * null
+     * @throws SLIB_Ex_Critic if the closures do not correspond to the
+     * classes of the graph
+     */
+    SM_Engine(G g, int nbThreads, CompressedClosure ancestorsInc, CompressedClosure descendantsInc) throws SLIB_Ex_Critic {
 
         this.graph = g;
+        this.nbThreads = nbThreads;
 
         logger.info("---------------------------------------------------------------");
         logger.info("Loading Semantic Measures Engine for graph " + graph.getURI());
@@ -180,7 +239,9 @@ public class SM_Engine {
         logger.info(g.toString());
 
         ancGetter = new AncestorEngine(graph);
+        ancGetter.setNbThreads(nbThreads);
         descGetter = new DescendantEngine(graph);
+        descGetter.setNbThreads(nbThreads);
 
         logger.info("Computing classes");
         classes = GraphAccessor.getClasses(graph);
@@ -191,22 +252,29 @@ public class SM_Engine {
         logger.info("Instances: " + instances.size());
 
         cache = new SMProxResultStorage();
-        pairwiseMeasures = new ConcurrentHashMap<SMconf, Sim_Pairwise>();
-
-        groupwiseAddOnMeasures = new ConcurrentHashMap<SMconf, Sim_Groupwise_Indirect>();
-        groupwiseStandaloneMeasures = new ConcurrentHashMap<SMconf, Sim_Groupwise_Direct>();
-
-        lcaFinder = new LCAFinderImpl();
+        pairwiseMeasures = new MeasureRegistry<Sim_Pairwise>(Sim_Pairwise.class);
+        groupwiseAddOnMeasures = new MeasureRegistry<Sim_Groupwise_Indirect>(Sim_Groupwise_Indirect.class);
+        groupwiseStandaloneMeasures = new MeasureRegistry<Sim_Groupwise_Direct>(Sim_Groupwise_Direct.class);
+        shortestPathFinders = new HashMap<GWS, Dijkstra>();
+        ancestorsPathFinders = new HashMap<GWS, Dijkstra>();
 
         logger.info("Inferences ");
         logger.info("---------------------------------------------------------------");
 
-        logger.info("Inferring ancestors");
-        computeAllclassesAncestors();
-        logger.info("Inferring descendants");
-        computeAllclassesDescendants();
+        if (ancestorsInc != null && descendantsInc != null) {
+            logger.info("Restoring ancestors and descendants");
+            restoreClosures(ancestorsInc, descendantsInc);
+        } else {
+            logger.info("Indexing classes");
+            computeClassIndex();
+            logger.info("Inferring ancestors");
+            computeAllclassesAncestors();
+            logger.info("Inferring descendants");
+            computeAllclassesDescendants();
+        }
         logger.info("Inferring Conceptual Leaves");
         computeLeaves();
+        lcaFinder = new LCAFinderImpl(this);
         logger.info("Semantic measures Engine initialized");
         logger.info("---------------------------------------------------------------");
     }
@@ -217,7 +285,16 @@ public class SM_Engine {
      * @throws SLIB_Ex_Critic
      */
     private void computeAllclassesAncestors() throws SLIB_Ex_Critic {
-        cache.ancestorsInc = ancGetter.getAllAncestorsInc();
+        cache.ancestorsInc = ancGetter.getAllAncestorsIncCompressed(classIndex);
+        computeAncestorsIds();
+    }
+
+    private void computeAncestorsIds() {
+        int[][] ancestorsIds = new int[classIndex.size()][];
+        for (int i = 0; i < ancestorsIds.length; i++) {
+            ancestorsIds[i] = cache.ancestorsInc.getClosure(i).toArray();
+        }
+        cache.ancestorsIncIds = ancestorsIds;
     }
 
     /**
@@ -226,7 +303,31 @@ public class SM_Engine {
      * @throws SLIB_Ex_Critic
      */
     private void computeAllclassesDescendants() throws SLIB_Ex_Critic {
-        cache.descendantsInc = descGetter.getAllDescendantsInc();
+        cache.descendantsInc = descGetter.getAllDescendantsIncCompressed(classIndex);
+    }
+
+    /**
+     * Use closures computed beforehand.
+     */
+    private void restoreClosures(CompressedClosure ancestorsInc, CompressedClosure descendantsInc) throws SLIB_Ex_Critic {
+
+        ObjectIdIndex<URI> index = ancestorsInc.getIndex();
+
+        if (descendantsInc.getIndex() != index) {
+            throw new SLIB_Ex_Critic("The ancestors and the descendants must be defined on the same index of classes");
+        }
+        if (index.size() != classes.size()) {
+            throw new SLIB_Ex_Critic("The closures are defined for " + index.size() + " classes, the graph contains " + classes.size() + " classes");
+        }
+        for (URI c : classes) {
+            if (!index.contains(c)) {
+                throw new SLIB_Ex_Critic("No closure is defined for the class " + c);
+            }
+        }
+        classIndex = index;
+        cache.ancestorsInc = ancestorsInc;
+        cache.descendantsInc = descendantsInc;
+        computeAncestorsIds();
     }
 
     /**
@@ -267,7 +368,7 @@ public class SM_Engine {
     public Set<URI> getAncestorsInc(URI v) {
 
         throwErrorIfNotClass(v);
-        return Collections.unmodifiableSet(cache.ancestorsInc.get(v));
+        return cache.ancestorsInc.getClosure(v);
     }
 
     /**
@@ -281,9 +382,9 @@ public class SM_Engine {
      * @throws IllegalAccessException if the given URI cannot be associated to a
      * class
      */
-    public synchronized Set<URI> getDescendantsInc(URI v) {
+    public Set<URI> getDescendantsInc(URI v) {
         throwErrorIfNotClass(v);
-        return Collections.unmodifiableSet(cache.descendantsInc.get(v));
+        return cache.descendantsInc.getClosure(v);
     }
 
     /**
@@ -372,6 +473,64 @@ public class SM_Engine {
         return cache.metrics_results.get(icConf).get(v);
     }
 
+    /**
+     * Get the Information Content of a class. The information content to
+     * considered is defined by the given configuration.
+     *
+     * @param icConf The configuration of the information content
+     * @param c the id of the class
+     * @return the information content of the specified class according to the
+     * specified configuration.
+     * @throws SLIB_Exception
+     * @see #getClassId(URI)
+     */
+    public double getIC(ICconf icConf, int c) throws SLIB_Exception {
+        return getIC_table(icConf)[c];
+    }
+
+    /**
+     * Access to the information content of all classes as an array indexed by
+     * class ids. The array is built from {@link #getIC_results(ICconf)} the
+     * first time it is requested and is then stored by the engine. The
+     * returned array must not be modified.
+     *
+     * @param icConf the information content considered.
+     * @return the information content of all classes indexed by class id
+     * @throws SLIB_Ex_Critic
+     * @see #getClassId(URI)
+     */
+    public double[] getIC_table(ICconf icConf) throws SLIB_Ex_Critic {
+
+        if (icConf == null) {
+            throw new SLIB_Ex_Critic("Specified IC cannot be null");
+        }
+
+        double[] table = cache.metrics_tables.get(icConf);
+
+        if (table == null) {
+            table = computeIC_table(icConf);
+        }
+        return table;
+    }
+
+    private synchronized double[] computeIC_table(ICconf icConf) throws SLIB_Ex_Critic {
+
+        double[] table = cache.metrics_tables.get(icConf);
+
+        if (table == null) {
+
+            Map<URI, Double> ics = getIC_results(icConf);
+            table = new double[classIndex.size()];
+
+            for (int i = 0; i < table.length; i++) {
+                Double ic = ics.get(classIndex.get(i));
+                table[i] = ic == null ? Double.NaN : ic;
+            }
+            cache.metrics_tables.put(icConf, table);
+        }
+        return table;
+    }
+
     /**
      * Access to the maximal depth of a class in the underlying taxonomic graph.
      *
@@ -417,20 +576,14 @@ public class SM_Engine {
      * a class
      */
     public double getIC_MICA(ICconf icConf, URI a, URI b) throws SLIB_Exception {
-
-        throwErrorIfNotClass(a);
-        throwErrorIfNotClass(b);
-
-        if (cache.metrics_results.get(icConf) == null) {
-            computeIC(icConf);
-        }
-        return IcUtils.searchMax_IC_MICA(a, b, getAncestorsInc(a), getAncestorsInc(b), getIC_results(icConf));
+        return getIC_MICA(icConf, getClassId(a), getClassId(b));
     }
 
     /**
      * Get the most informative common ancestor (MICA) of two classes. The MICA
      * is the class with the maximal IC found among the sets of ancestors of the
-     * two given classes.
+     * two given classes. If several common ancestors share the maximal IC, the
+     * one with the lowest id is returned (see {@link #getClassId(URI)}).
      *
      * @param icConf the configuration of the information content
      * @param a the first class
@@ -442,14 +595,73 @@ public class SM_Engine {
      * a class
      */
     public URI getMICA(ICconf icConf, URI a, URI b) throws SLIB_Exception {
+        return classIndex.get(getMICA(icConf, getClassId(a), getClassId(b)));
+    }
 
-        throwErrorIfNotClass(a);
-        throwErrorIfNotClass(b);
+    /**
+     * Get the information content of the most informative common ancestor
+     * (MICA) of two classes. See {@link #getIC_MICA(ICconf, URI, URI)}.
+     *
+     * @param icConf the configuration of the information content
+     * @param a the id of the first class
+     * @param b the id of the second class
+     * @return the IC of the most informative common ancestor of the two
+     * classes.
+     * @throws SLIB_Exception if no common ancestor is found between the two
+     * classes
+     */
+    public double getIC_MICA(ICconf icConf, int a, int b) throws SLIB_Exception {
+        return getMICAEngine(icConf).getIC_MICA(a, b);
+    }
 
-        if (cache.metrics_results.get(icConf) == null) {
-            computeIC(icConf);
+    /**
+     * Get the most informative common ancestor (MICA) of two classes. See
+     * {@link #getMICA(ICconf, URI, URI)}.
+     *
+     * @param icConf the configuration of the information content
+     * @param a the id of the first class
+     * @param b the id of the second class
+     * @return the id of the most informative common ancestor of the two
+     * classes.
+     * @throws SLIB_Exception if no common ancestor is found between the two
+     * classes
+     */
+    public int getMICA(ICconf icConf, int a, int b) throws SLIB_Exception {
+        return getMICAEngine(icConf).searchMICA(a, b);
+    }
+
+    /**
+     * Access to the index used to search the most informative common
+     * ancestors considering the given information content. The index is built
+     * the first time it is requested and is then stored by the engine.
+     *
+     * @param icConf the configuration of the information content
+     * @return the MICA index associated to the given configuration
+     * @throws SLIB_Ex_Critic
+     */
+    public MICAEngine getMICAEngine(ICconf icConf) throws SLIB_Ex_Critic {
+
+        if (icConf == null) {
+            throw new SLIB_Ex_Critic("Specified IC cannot be null");
+        }
+
+        MICAEngine micaEngine = cache.mica_engines.get(icConf);
+
+        if (micaEngine == null) {
+            micaEngine = computeMICAEngine(icConf);
         }
-        return IcUtils.searchMICA(a, b, getAncestorsInc(a), getAncestorsInc(b), getIC_results(icConf));
+        return micaEngine;
+    }
+
+    private synchronized MICAEngine computeMICAEngine(ICconf icConf) throws SLIB_Ex_Critic {
+
+        MICAEngine micaEngine = cache.mica_engines.get(icConf);
+
+        if (micaEngine == null) {
+            micaEngine = new MICAEngine(cache.ancestorsIncIds, getIC_table(icConf));
+            cache.mica_engines.put(icConf, micaEngine);
+        }
+        return micaEngine;
     }
 
     /**
@@ -475,7 +687,7 @@ public class SM_Engine {
      * @throws SLIB_Ex_Critic
      */
     public Map<URI, Set<URI>> getAllDescendantsInc() throws SLIB_Ex_Critic {
-        return Collections.unmodifiableMap(cache.descendantsInc);
+        return cache.descendantsInc.asMap();
     }
 
     /**
@@ -485,7 +697,7 @@ public class SM_Engine {
      * @throws SLIB_Ex_Critic
      */
     public Map<URI, Set<URI>> getAllAncestorsInc() throws SLIB_Ex_Critic {
-        return Collections.unmodifiableMap(cache.ancestorsInc);
+        return cache.ancestorsInc.asMap();
     }
 
     /**
@@ -634,15 +846,193 @@ public class SM_Engine {
      */
     public Map<URI, Integer> getAllNbAncestorsInc() throws SLIB_Ex_Critic {
 
-        Map<URI, Set<URI>> allAncestors = cache.ancestorsInc;
         Map<URI, Integer> allNbancestors = new HashMap<URI, Integer>();
 
-        for (URI c : classes) {
-            allNbancestors.put(c, allAncestors.get(c).size());
+        for (int i = 0; i < classIndex.size(); i++) {
+            allNbancestors.put(classIndex.get(i), cache.ancestorsInc.getClosure(i).cardinality());
         }
         return allNbancestors;
     }
 
+    /**
+     * Access to the inclusive ancestors of a class as an array of class ids
+     * sorted by increasing id. The array is stored by the engine and must not
+     * be modified.
+     *
+     * @param c the id of the class
+     * @return the ids of the inclusive ancestors of the class (c included)
+     * @see #getClassId(URI)
+     */
+    public int[] getAncestorsIncIds(int c) {
+        return cache.ancestorsIncIds[c];
+    }
+
+    /**
+     * Access to the inclusive ancestors of a class as a compressed set of
+     * class ids. Such sets support fast intersection and union cardinality
+     * computations.
+     *
+     * @param c the id of the class
+     * @return the ids of the inclusive ancestors of the class (c included)
+     * @see #getClassId(URI)
+     */
+    public CompressedIntSet getAncestorsIncSet(int c) {
+        return cache.ancestorsInc.getClosure(c);
+    }
+
+    /**
+     * Access to the inclusive descendants of a class as a compressed set of
+     * class ids.
+     *
+     * @param c the id of the class
+     * @return the ids of the inclusive descendants of the class (c included)
+     * @see #getClassId(URI)
+     */
+    public CompressedIntSet getDescendantsIncSet(int c) {
+        return cache.descendantsInc.getClosure(c);
+    }
+
+    /**
+     * Access to the direct descendants (children) of all classes as arrays of
+     * class ids indexed by class id. The arrays are built the first time they
+     * are requested and are then stored by the engine.
+     *
+     * @return the ids of the children of each class
+     */
+    int[][] getChildrenIds() {
+
+        int[][] children = cache.childrenIds;
+
+        if (children == null) {
+            children = computeChildrenIds();
+        }
+        return children;
+    }
+
+    private synchronized int[][] computeChildrenIds() {
+
+        if (cache.childrenIds == null) {
+
+            WalkConstraint wc = descGetter.getWalkConstraint();
+            int[][] children = new int[classIndex.size()][];
+
+            for (int i = 0; i < children.length; i++) {
+
+                Set<URI> next = graph.getV(classIndex.get(i), wc);
+                int[] ids = new int[next.size()];
+                int n = 0;
+
+                for (URI v : next) {
+                    int id = classIndex.getId(v);
+                    if (id != -1 && id != i) {
+                        ids[n++] = id;
+                    }
+                }
+                children[i] = n == ids.length ? ids : Arrays.copyOf(ids, n);
+            }
+            cache.childrenIds = children;
+        }
+        return cache.childrenIds;
+    }
+
+    /**
+     * Access to the minimal information content of the inclusive descendants
+     * of all classes as an array indexed by class ids. The array is built the
+     * first time it is requested and is then stored by the engine. For an
+     * information content which decreases from the leaves to the root, the
+     * minimal IC of the descendants of a class is its own IC.
+     *
+     * @param icConf the information content considered.
+     * @return the minimal IC of the inclusive descendants of all classes
+     * @throws SLIB_Ex_Critic
+     */
+    double[] getMinDescendantsIC_table(ICconf icConf) throws SLIB_Ex_Critic {
+
+        double[] table = cache.min_descendants_ic_tables.get(icConf);
+
+        if (table == null) {
+
+            double[] ic = getIC_table(icConf);
+            int[][] children = getChildrenIds();
+            table = Arrays.copyOf(ic, ic.length);
+
+            // the ids of the children of a class are greater than its id
+            for (int i = table.length - 1; i >= 0; i--) {
+                for (int c : children[i]) {
+                    if (table[c] < table[i]) {
+                        table[i] = table[c];
+                    }
+                }
+            }
+            cache.min_descendants_ic_tables.put(icConf, table);
+        }
+        return table;
+    }
+
+    /**
+     * Search the k classes the most similar to the given class considering a
+     * pairwise measure, e.g. to expand a query. The measure must implement
+     * {@link Sim_Pairwise_IC_Bounded} (e.g. Resnik, Lin, normalized
+     * Jiang-Conrath, SimRel). The classes are explored from the ancestors of
+     * the given class, by decreasing IC of their MICA with the class, and the
+     * sub-hierarchies which cannot contain a class with a better score than
+     * the k-th best score found so far are pruned: only a small part of the
+     * taxonomy is generally compared to the class.
+     *
+     * The class itself is considered. Classes sharing the same score are
+     * ranked by increasing id, the result is therefore the one obtained by
+     * comparing the class to all the classes of the taxonomy with
+     * {@link #computePairwiseSim(SMconf, int, int)}. Classes which do not
+     * share any ancestor with the given class are not considered.
+     *
+     * @param pairwiseConf the pairwise semantic measure configuration
+     * @param c the class
+     * @param k the number of classes to search
+     * @return the (at most) k classes the most similar to the given class
+     * associated to their scores, the iteration order of the map follows the
+     * decreasing order of the scores
+     * @throws SLIB_Ex_Critic if the measure does not implement
+     * {@link Sim_Pairwise_IC_Bounded}
+     * @throws IllegalAccessException if the given URI cannot be associated to
+     * a class
+     */
+    public Map<URI, Double> getTopKSimilarClasses(SMconf pairwiseConf, URI c, int k) throws SLIB_Ex_Critic {
+
+        throwErrorIfNotClass(c);
+
+        int size = Math.max(0, Math.min(k, classIndex.size()));
+        int[] ids = new int[size];
+        double[] scores = new double[size];
+
+        int n = getTopKSimilarClasses(pairwiseConf, classIndex.getId(c), size, ids, scores);
+
+        Map<URI, Double> topK = new LinkedHashMap<URI, Double>();
+        for (int i = 0; i < n; i++) {
+            topK.put(classIndex.get(ids[i]), scores[i]);
+        }
+        return topK;
+    }
+
+    /**
+     * Search the k classes the most similar to the class identified by the
+     * given id. See {@link #getTopKSimilarClasses(SMconf, URI, int)}.
+     *
+     * @param pairwiseConf the pairwise semantic measure configuration
+     * @param c the id of the class
+     * @param k the number of classes to search
+     * @param ids the array in which the ids of the classes are stored by
+     * decreasing score, of length k at least
+     * @param scores the array in which the scores of the classes are stored,
+     * of length k at least
+     * @return the number of classes found, at most k
+     * @throws SLIB_Ex_Critic if the measure does not implement
+     * {@link Sim_Pairwise_IC_Bounded}
+     * @see #getClassId(URI)
+     */
+    public int getTopKSimilarClasses(SMconf pairwiseConf, int c, int k, int[] ids, double[] scores) throws SLIB_Ex_Critic {
+        return TopKClassesSearch.search(this, pairwiseConf, c, Math.min(k, classIndex.size()), ids, scores);
+    }
+
     /**
      * Compute the pairwise semantic measures score considering the two vertices
      * and the semantic measure configuration.
@@ -666,67 +1056,213 @@ public class SM_Engine {
 
         try {
 
-            if (cachePairwiseResults
-                    && cache.pairwise_results.containsKey(pairwiseConf)
-                    && cache.pairwise_results.get(pairwiseConf).containsKey(a)
-                    && cache.pairwise_results.get(pairwiseConf).get(a).containsKey(b)) {
+            Sim_Pairwise pMeasure = getPairwiseMeasure(pairwiseConf);
 
-                sim = cache.pairwise_results.get(pairwiseConf).get(a).get(b);
-            } else {
+            PairwiseResultCache resultCache = null;
+            int idA = -1, idB = -1;
 
+            if (cachePairwiseResults) {
+                resultCache = cache.pairwise_results.get(pairwiseConf);
+                idA = classIndex.getId(a);
+                idB = classIndex.getId(b);
+                if (resultCache != null) {
+                    sim = resultCache.get(idA, idB);
+                    if (!Double.isNaN(sim)) {
+                        return sim;
+                    }
+                }
+            }
 
+            sim = pMeasure.sim(a, b, this, pairwiseConf);
 
+            if (Double.isNaN(sim) || Double.isInfinite(sim)) {
+                SMutils.throwArithmeticCriticalException(pairwiseConf, a, b, sim);
+            }
 
-                Sim_Pairwise pMeasure;
+            if (cachePairwiseResults) {
+                if (resultCache == null) {
+                    resultCache = getPairwiseResultCache(pairwiseConf, pMeasure);
+                }
+                resultCache.put(idA, idB, sim);
+            }
+        } catch (Exception e) {
+            if (logger.isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            throw new SLIB_Ex_Critic(e);
+        }
+        return sim;
+    }
 
-                synchronized (pairwiseMeasures) {
+    /**
+     * Compute the pairwise semantic measures score considering the two classes
+     * identified by the given ids and the semantic measure configuration.
+     *
+     * Measures implementing {@link Sim_Pairwise_Indexed} are directly computed
+     * from the ids, without any allocation. The computation of other measures
+     * is delegated to {@link #computePairwiseSim(SMconf, URI, URI)}. As for
+     * the URIs, the scores are cached if the engine caches the pairwise
+     * results, see {@link #setCachePairwiseResults(boolean)}.
+     *
+     * @param pairwiseConf the pairwise semantic measure configuration
+     * @param a the id of the first class
+     * @param b the id of the second class
+     * @return the pairwise semantic measure score
+     * @throws SLIB_Ex_Critic
+     * @see #getClassId(URI)
+     */
+    public double computePairwiseSim(SMconf pairwiseConf, int a, int b) throws SLIB_Ex_Critic {
+
+        double sim;
 
-                    if (pairwiseMeasures.containsKey(pairwiseConf)) {
-                        pMeasure = pairwiseMeasures.get(pairwiseConf);
-                    } else {
+        try {
+            Sim_Pairwise pMeasure = getPairwiseMeasure(pairwiseConf);
 
-                        Class<?> cl;
-                        cl = Class.forName(pairwiseConf.className);
-                        Constructor<?> co = cl.getConstructor();
+            if (!(pMeasure instanceof Sim_Pairwise_Indexed)) {
+                return computePairwiseSim(pairwiseConf, classIndex.get(a), classIndex.get(b));
+            }
 
+            PairwiseResultCache resultCache = null;
 
-                        pMeasure = (Sim_Pairwise) co.newInstance();
-                        pairwiseMeasures.put(pairwiseConf, pMeasure);
+            if (cachePairwiseResults) {
+                resultCache = cache.pairwise_results.get(pairwiseConf);
+                if (resultCache != null) {
+                    sim = resultCache.get(a, b);
+                    if (!Double.isNaN(sim)) {
+                        return sim;
                     }
                 }
-                sim = pMeasure.sim(a, b, this, pairwiseConf);
+            }
+
+            sim = ((Sim_Pairwise_Indexed) pMeasure).sim(a, b, this, pairwiseConf);
+
+            if (Double.isNaN(sim) || Double.isInfinite(sim)) {
+                SMutils.throwArithmeticCriticalException(pairwiseConf, classIndex.get(a), classIndex.get(b), sim);
+            }
+
+            if (cachePairwiseResults) {
+                if (resultCache == null) {
+                    resultCache = getPairwiseResultCache(pairwiseConf, pMeasure);
+                }
+                resultCache.put(a, b, sim);
+            }
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
+        } catch (Exception e) {
+            if (logger.isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            throw new SLIB_Ex_Critic(e);
+        }
+        return sim;
+    }
 
+    /**
+     * Compute the pairwise semantic measure scores of a class with each class
+     * of a set, e.g. to fill a row of the matrix compared by a groupwise
+     * measure. The measure is resolved once for the whole row, see
+     * {@link #computePairwiseSim(SMconf, int, int)} for the details of the
+     * computation.
+     *
+     * @param pairwiseConf the pairwise semantic measure configuration
+     * @param a the id of the class
+     * @param setB the ids of the classes compared to the class
+     * @param results the array in which the score of a and setB[j] is stored,
+     * at index offset + j
+     * @param offset the index of the first score in the array
+     * @throws SLIB_Ex_Critic
+     * @see #getClassId(URI)
+     */
+    public void computePairwiseSim(SMconf pairwiseConf, int a, int[] setB, double[] results, int offset) throws SLIB_Ex_Critic {
 
+        try {
+            Sim_Pairwise pMeasure = getPairwiseMeasure(pairwiseConf);
 
-                if (Double.isNaN(sim) || Double.isInfinite(sim)) {
-                    SMutils.throwArithmeticCriticalException(pairwiseConf, a, b, sim);
+            if (!(pMeasure instanceof Sim_Pairwise_Indexed)) {
+                for (int j = 0; j < setB.length; j++) {
+                    results[offset + j] = computePairwiseSim(pairwiseConf, classIndex.get(a), classIndex.get(setB[j]));
                 }
+                return;
+            }
 
-                // Caching 
+            Sim_Pairwise_Indexed measure = (Sim_Pairwise_Indexed) pMeasure;
+            PairwiseResultCache resultCache = cachePairwiseResults ? cache.pairwise_results.get(pairwiseConf) : null;
 
-                if (cachePairwiseResults) {
+            for (int j = 0; j < setB.length; j++) {
 
-                    if (cache.pairwise_results.get(pairwiseConf) == null) {
+                double sim = Double.NaN;
+                if (resultCache != null) {
+                    sim = resultCache.get(a, setB[j]);
+                }
+                if (Double.isNaN(sim)) {
 
-                        ConcurrentHashMap<URI, Map<URI, Double>> pairwise_result = new ConcurrentHashMap<URI, Map<URI, Double>>();
+                    sim = measure.sim(a, setB[j], this, pairwiseConf);
 
-                        cache.pairwise_results.put(pairwiseConf, pairwise_result);
+                    if (Double.isNaN(sim) || Double.isInfinite(sim)) {
+                        SMutils.throwArithmeticCriticalException(pairwiseConf, classIndex.get(a), classIndex.get(setB[j]), sim);
                     }
-
-                    if (cache.pairwise_results.get(pairwiseConf).get(a) == null) {
-                        cache.pairwise_results.get(pairwiseConf).put(a, new HashMap<URI, Double>());
+                    if (cachePairwiseResults) {
+                        if (resultCache == null) {
+                            resultCache = getPairwiseResultCache(pairwiseConf, pMeasure);
+                        }
+                        resultCache.put(a, setB[j], sim);
                     }
-
-                    cache.pairwise_results.get(pairwiseConf).get(a).put(b, sim);
                 }
+                results[offset + j] = sim;
             }
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
         } catch (Exception e) {
             if (logger.isDebugEnabled()) {
                 e.printStackTrace();
             }
             throw new SLIB_Ex_Critic(e);
         }
-        return sim;
+    }
+
+    /**
+     * Measures only read their parameters from the configuration when a score
+     * is computed and their symmetry may depend on them, e.g. the alpha and
+     * beta parameters of Tversky. The cache must therefore only be created
+     * once the measure has computed a score with the given configuration.
+     */
+    private PairwiseResultCache getPairwiseResultCache(SMconf pairwiseConf, Sim_Pairwise pMeasure) {
+
+        PairwiseResultCache resultCache = cache.pairwise_results.get(pairwiseConf);
+        if (resultCache == null) {
+            resultCache = new PairwiseResultCache(pairwiseResultCacheCapacity, pMeasure.isSymmetric());
+            PairwiseResultCache previous = cache.pairwise_results.putIfAbsent(pairwiseConf, resultCache);
+            if (previous != null) {
+                resultCache = previous;
+            }
+        }
+        return resultCache;
+    }
+
+    /**
+     * Access to the pairwise measure associated to the given configuration.
+     * The measure is created the first time the configuration is used and is
+     * then shared by all the computations relying on it.
+     *
+     * @param pairwiseConf the pairwise semantic measure configuration
+     * @return the pairwise measure
+     * @throws SLIB_Ex_Critic if the measure cannot be created
+     */
+    public Sim_Pairwise getPairwiseMeasure(SMconf pairwiseConf) throws SLIB_Ex_Critic {
+        return pairwiseMeasures.get(pairwiseConf);
+    }
+
+    /**
+     * Associate a pairwise measure instance to a configuration, e.g. to
+     * resolve the measures when the configurations are loaded instead of
+     * during the first computation, or to use a measure which cannot be
+     * created from the class name defined by the configuration.
+     *
+     * @param pairwiseConf the pairwise semantic measure configuration
+     * @param measure the measure to use for this configuration
+     */
+    public void registerMeasure(SMconf pairwiseConf, Sim_Pairwise measure) {
+        pairwiseMeasures.register(pairwiseConf, measure);
     }
 
     /**
@@ -756,27 +1292,53 @@ public class SM_Engine {
 
         try {
 
-            Sim_Groupwise_Direct gMeasure;
+            Sim_Groupwise_Direct gMeasure = getGroupwiseStandaloneMeasure(confGroupwise);
+            sim = gMeasure.sim(setA, setB, this, confGroupwise);
 
-            synchronized (groupwiseStandaloneMeasures) {
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new SLIB_Ex_Critic(e.getMessage());
+        }
+        return sim;
+    }
 
-                if (groupwiseStandaloneMeasures.containsKey(confGroupwise)) {
-                    gMeasure = groupwiseStandaloneMeasures.get(confGroupwise);
-                } else {
-                    Class<?> cl;
-                    String groupwiseClassName = confGroupwise.className;
-                    cl = Class.forName(groupwiseClassName);
-                    Constructor<?> co = cl.getConstructor();
+    /**
+     * Compute the direct group wise semantic measure score considering the two
+     * sets of class ids and the semantic measure configuration.
+     *
+     * Measures implementing {@link Sim_Groupwise_Direct_Indexed} are directly
+     * computed from the ids. The computation of other measures is delegated
+     * to {@link #computeGroupwiseStandaloneSim(SMconf, Set, Set)}.
+     *
+     * @param confGroupwise the direct groupwise semantic measure configuration
+     * @param setA the ids of the first set of classes
+     * @param setB the ids of the second set of classes
+     * @return the group wise semantic measure score
+     * @throws SLIB_Ex_Critic
+     * @see #getClassIds(Set)
+     */
+    public double computeGroupwiseStandaloneSim(
+            SMconf confGroupwise,
+            int[] setA,
+            int[] setB) throws SLIB_Ex_Critic {
 
-                    gMeasure = (Sim_Groupwise_Direct) co.newInstance();
-                    groupwiseStandaloneMeasures.put(confGroupwise, gMeasure);
-                }
+        double sim;
+
+        try {
+            Sim_Groupwise_Direct gMeasure = getGroupwiseStandaloneMeasure(confGroupwise);
+
+            if (!(gMeasure instanceof Sim_Groupwise_Direct_Indexed)) {
+                return computeGroupwiseStandaloneSim(confGroupwise, getClassURIs(setA), getClassURIs(setB));
             }
-            sim = gMeasure.sim(setA, setB, this, confGroupwise);
+            sim = ((Sim_Groupwise_Direct_Indexed) gMeasure).sim(setA, setB, this, confGroupwise);
 
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace();
-            throw new SLIB_Ex_Critic(e.getMessage());
+            if (logger.isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            throw new SLIB_Ex_Critic(e);
         }
         return sim;
     }
@@ -808,26 +1370,53 @@ public class SM_Engine {
         double sim = -Double.MAX_VALUE;
 
         try {
-            Sim_Groupwise_Indirect gMeasure;
+            Sim_Groupwise_Indirect gMeasure = getGroupwiseAddOnMeasure(confGroupwise);
+            sim = gMeasure.sim(setA, setB, this, confGroupwise, confPairwise);
 
-            synchronized (groupwiseAddOnMeasures) {
+        } catch (Exception e) {
+            if (logger.isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            throw new SLIB_Ex_Critic(e);
+        }
 
-                if (groupwiseAddOnMeasures.containsKey(confGroupwise)) {
-                    gMeasure = groupwiseAddOnMeasures.get(confGroupwise);
-                } else {
-                    Class<?> cl;
-                    String groupwiseClassName = confGroupwise.className;
-                    cl = Class.forName(groupwiseClassName);
-                    Constructor<?> co = cl.getConstructor();
+        return sim;
+    }
 
-                    gMeasure = (Sim_Groupwise_Indirect) co.newInstance();
-                    groupwiseAddOnMeasures.put(confGroupwise, gMeasure);
-                }
-            }
+    /**
+     * Compute the indirect group wise semantic measure score considering the
+     * two sets of class ids and the semantic measure configuration.
+     *
+     * Measures implementing {@link Sim_Groupwise_Indirect_Indexed} are
+     * directly computed from the ids. The computation of other measures is
+     * delegated to {@link #computeGroupwiseAddOnSim(SMconf, SMconf, Set, Set)}.
+     *
+     * @param confGroupwise the indirect aggregation strategy configuration
+     * @param confPairwise the pairwise semantic measure configuration
+     * @param setA the ids of the first set of classes
+     * @param setB the ids of the second set of classes
+     * @return the group wise semantic measure score
+     * @throws SLIB_Ex_Critic
+     * @see #getClassIds(Set)
+     */
+    public double computeGroupwiseAddOnSim(
+            SMconf confGroupwise,
+            SMconf confPairwise,
+            int[] setA,
+            int[] setB) throws SLIB_Ex_Critic {
 
+        double sim;
 
-            sim = gMeasure.sim(setA, setB, this, confGroupwise, confPairwise);
+        try {
+            Sim_Groupwise_Indirect gMeasure = getGroupwiseAddOnMeasure(confGroupwise);
 
+            if (!(gMeasure instanceof Sim_Groupwise_Indirect_Indexed)) {
+                return computeGroupwiseAddOnSim(confGroupwise, confPairwise, getClassURIs(setA), getClassURIs(setB));
+            }
+            sim = ((Sim_Groupwise_Indirect_Indexed) gMeasure).sim(setA, setB, this, confGroupwise, confPairwise);
+
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
         } catch (Exception e) {
             if (logger.isDebugEnabled()) {
                 e.printStackTrace();
@@ -838,6 +1427,52 @@ public class SM_Engine {
         return sim;
     }
 
+    /**
+     * Access to the direct groupwise measure associated to the given
+     * configuration, see {@link #getPairwiseMeasure(SMconf)}.
+     *
+     * @param confGroupwise the direct groupwise semantic measure configuration
+     * @return the direct groupwise measure
+     * @throws SLIB_Ex_Critic if the measure cannot be created
+     */
+    public Sim_Groupwise_Direct getGroupwiseStandaloneMeasure(SMconf confGroupwise) throws SLIB_Ex_Critic {
+        return groupwiseStandaloneMeasures.get(confGroupwise);
+    }
+
+    /**
+     * Associate a direct groupwise measure instance to a configuration, see
+     * {@link #registerMeasure(SMconf, Sim_Pairwise)}.
+     *
+     * @param confGroupwise the direct groupwise semantic measure configuration
+     * @param measure the measure to use for this configuration
+     */
+    public void registerMeasure(SMconf confGroupwise, Sim_Groupwise_Direct measure) {
+        groupwiseStandaloneMeasures.register(confGroupwise, measure);
+    }
+
+    /**
+     * Access to the indirect groupwise measure associated to the given
+     * configuration, see {@link #getPairwiseMeasure(SMconf)}.
+     *
+     * @param confGroupwise the indirect aggregation strategy configuration
+     * @return the indirect groupwise measure
+     * @throws SLIB_Ex_Critic if the measure cannot be created
+     */
+    public Sim_Groupwise_Indirect getGroupwiseAddOnMeasure(SMconf confGroupwise) throws SLIB_Ex_Critic {
+        return groupwiseAddOnMeasures.get(confGroupwise);
+    }
+
+    /**
+     * Associate an indirect groupwise measure instance to a configuration,
+     * see {@link #registerMeasure(SMconf, Sim_Pairwise)}.
+     *
+     * @param confGroupwise the indirect aggregation strategy configuration
+     * @param measure the measure to use for this configuration
+     */
+    public void registerMeasure(SMconf confGroupwise, Sim_Groupwise_Indirect measure) {
+        groupwiseAddOnMeasures.register(confGroupwise, measure);
+    }
+
     /**
      *
      * @return @throws SLIB_Ex_Critic
@@ -920,6 +1555,7 @@ public class SM_Engine {
         if (cache.nbOccurrencePropagatted == null) {
 
             RVF_TAX RVF = new RVF_TAX(graph, Direction.IN);
+            RVF.setNbThreads(nbThreads);
             Map<URI, Integer> nbOccurrences = new HashMap<URI, Integer>();
 
             for (URI o : classes) {
@@ -981,11 +1617,10 @@ public class SM_Engine {
      * Set the configuration of the engine regarding pairwise semantic measure
      * score caching.
      *
-     * <br/><b>Important</b>:<br/>
-     *
-     * Storing the results can be very useful in specific cases. However,
-     * storing the results can also lead to high memory consumption and
-     * therefore slow the process or crash the process.
+     * The results are stored into a bounded cache per measure configuration
+     * (see {@link PairwiseResultCache}), the least recently used results are
+     * evicted when the cache is full. The capacity of the caches can be
+     * modified using {@link #setPairwiseResultCacheCapacity(int)}.
      *
      * @param cachePairwiseResults set to true if the engine must stores the
      * results.
@@ -995,6 +1630,57 @@ public class SM_Engine {
         this.cachePairwiseResults = cachePairwiseResults;
     }
 
+    /**
+     * @return the maximal number of results stored per pairwise measure
+     * configuration.
+     */
+    public int getPairwiseResultCacheCapacity() {
+        return pairwiseResultCacheCapacity;
+    }
+
+    /**
+     * Set the maximal number of results stored per pairwise measure
+     * configuration when pairwise results caching is enabled. A memory
+     * budget can be converted into a capacity using
+     * {@link PairwiseResultCache#capacityForBudget(long)}. The results
+     * already cached are discarded.
+     *
+     * @param capacity the maximal number of results (greater than 0)
+     */
+    public void setPairwiseResultCacheCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the pairwise result cache must be greater than 0, given " + capacity);
+        }
+        logger.info("Pairwise results cache capacity set to " + capacity);
+        this.pairwiseResultCacheCapacity = capacity;
+        cache.pairwise_results.clear();
+    }
+
+    /**
+     * Access to the cache storing the results of a pairwise measure
+     * configuration, e.g. to access its hit/miss/eviction counters.
+     *
+     * @param pairwiseConf the pairwise measure configuration
+     * @return the cache or null if no result has been cached for this
+     * configuration.
+     */
+    public PairwiseResultCache getPairwiseResultCache(SMconf pairwiseConf) {
+        return cache.pairwise_results.get(pairwiseConf);
+    }
+
+    /**
+     * Register the cache to use to store the results of a pairwise measure
+     * configuration, e.g. to specify a capacity or a number of segments
+     * specific to this configuration. The cache must be symmetric only if
+     * the measure is symmetric.
+     *
+     * @param pairwiseConf the pairwise measure configuration
+     * @param resultCache the cache to use
+     */
+    public void setPairwiseResultCache(SMconf pairwiseConf, PairwiseResultCache resultCache) {
+        cache.pairwise_results.put(pairwiseConf, resultCache);
+    }
+
     /**
      *
      * @param set
@@ -1045,12 +1731,35 @@ public class SM_Engine {
      */
     public void setICSvalues(ICconf icConf, Map<URI, Double> ics) {
         cache.metrics_results.put(icConf, ics);
+        cache.metrics_tables.remove(icConf);
+        cache.mica_engines.remove(icConf);
     }
 
+    /**
+     * Compute the Lowest Common Ancestors of two classes. The search is
+     * delegated to the {@link LCAFinder} of the engine, by default a
+     * {@link LCAFinderImpl} relying on the ancestors stored by the engine.
+     *
+     * @param a the first class
+     * @param b the second class
+     * @return the lowest common ancestors of the two classes
+     * @throws SLIB_Exception
+     */
     public Set<URI> getLCAs(URI a, URI b) throws SLIB_Exception {
         return lcaFinder.getLCAs(graph, a, b);
     }
 
+    /**
+     * Set the {@link LCAFinder} used by the engine, e.g. a
+     * {@link LCAFinderImpl} storing the results of the most recently queried
+     * pairs.
+     *
+     * @param lcaFinder the finder to use
+     */
+    public void setLCAFinder(LCAFinder lcaFinder) {
+        this.lcaFinder = lcaFinder;
+    }
+
     /**
      * TODO store the weighting scheme in a Map<String,GWS> Provide a way to
      * load edge weight from file or to compute them using specific methods
@@ -1082,6 +1791,77 @@ public class SM_Engine {
         }
     }
 
+    /**
+     * Associate a dense identifier in [0, number of classes[ to each class.
+     * Classes are numbered according to a depth-first traversal of the
+     * taxonomy from its roots (reverse postorder): a proper ancestor of a
+     * class always has a lower id than the class and the descendants of a
+     * class mostly have consecutive ids.
+     */
+    private void computeClassIndex() {
+        classIndex = CompressedClosure.buildTopologicalIndex(graph, descGetter.getWalkConstraint(), classes);
+    }
+
+    /**
+     * Access to the identifier associated to a class. Identifiers are dense,
+     * i.e. they range from 0 to the number of classes (excluded), and can be
+     * used with the methods of the engine which take class ids as parameters.
+     * Identifiers follow a topological order of the taxonomy: the id of a class
+     * is always greater than the ids of its proper ancestors.
+     *
+     * @param c the class
+     * @return the identifier of the class
+     * @throws IllegalArgumentException if the given URI cannot be associated to
+     * a class
+     */
+    public int getClassId(URI c) {
+
+        int id = classIndex.getId(c);
+        if (id == -1) {
+            throw new IllegalArgumentException("The given URI " + c + " cannot be associated to a class");
+        }
+        return id;
+    }
+
+    /**
+     * Access to the identifiers associated to a set of classes.
+     *
+     * @param setClasses the classes
+     * @return the identifiers of the classes
+     * @throws IllegalArgumentException if the given set contains an URI which
+     * cannot be associated to a class
+     */
+    public int[] getClassIds(Set<URI> setClasses) {
+
+        int[] ids = new int[setClasses.size()];
+        int i = 0;
+        for (URI c : setClasses) {
+            ids[i++] = getClassId(c);
+        }
+        return ids;
+    }
+
+    /**
+     * Access to the class associated to an identifier.
+     *
+     * @param id the identifier
+     * @return the class associated to the identifier
+     * @throws ArrayIndexOutOfBoundsException if the identifier is not
+     * associated to a class
+     */
+    public URI getClassURI(int id) {
+        return classIndex.get(id);
+    }
+
+    private Set<URI> getClassURIs(int[] ids) {
+
+        Set<URI> uris = new HashSet<URI>(ids.length);
+        for (int id : ids) {
+            uris.add(classIndex.get(id));
+        }
+        return uris;
+    }
+
     /**
      * Access to the set of URI of the graph considered as classes.
      *
@@ -1121,25 +1901,26 @@ public class SM_Engine {
     }
 
     /**
-     * CACHED ! Be careful modification of RelTypes requires cache clearing
+     * Compute the weight of the shortest path linking two vertices considering
+     * the taxonomic relationships in both directions. If the shortest paths
+     * from a have already been computed (see
+     * {@link #getAllShortestPath(URI, GWS)}) the cached result is used,
+     * otherwise a bidirectional search is performed and its result is not
+     * cached.
      *
      * @param a
      * @param b
-     * @return
+     * @param weightingScheme the weighting scheme, null for unit weights
+     * @return the weight of the shortest path, {@link Double#POSITIVE_INFINITY}
+     * if b cannot be reached from a
      * @throws SLIB_Ex_Critic
      */
     public double getShortestPath(URI a, URI b, GWS weightingScheme) throws SLIB_Ex_Critic {
 
-        if (cache.shortestPath.get(a) == null) {
-
-            WalkConstraint wc = WalkConstraintUtils.copy(ancGetter.getWalkConstraint());
-            wc.addWalkconstraints(descGetter.getWalkConstraint());
+        Map<URI, Double> minDists_cA = cache.shortestPath.get(a);
+        Double sp = minDists_cA != null ? minDists_cA.get(b) : getShortestPathFinder(weightingScheme, false).shortestPathBidirectional(a, b);
 
-            Dijkstra dijkstra = new Dijkstra(graph, wc, weightingScheme);
-            ConcurrentHashMap<URI, Double> minDists_cA = dijkstra.shortestPath(a);
-            cache.shortestPath.put(a, minDists_cA);
-        }
-        return cache.shortestPath.get(a).get(b);
+        return sp == null ? Double.POSITIVE_INFINITY : sp;
     }
 
     /**
@@ -1154,7 +1935,7 @@ public class SM_Engine {
      */
     public URI getMSA(URI a, URI b, GWS weightingScheme) throws SLIB_Ex_Critic {
 
-        Dijkstra dijkstra = new Dijkstra(graph, ancGetter.getWalkConstraint(), weightingScheme);
+        Dijkstra dijkstra = getShortestPathFinder(weightingScheme, true);
 
         URI msa_pk = SimDagEdgeUtils.getMSA_pekar_staab(getRoot(), getAllShortestPath(a, weightingScheme), getAllShortestPath(b, weightingScheme), getAncestorsInc(a), getAncestorsInc(b), dijkstra);
 
@@ -1174,17 +1955,42 @@ public class SM_Engine {
 
         if (cache.shortestPath.get(a) == null) {
 
-            WalkConstraint wc = WalkConstraintUtils.copy(ancGetter.getWalkConstraint());
-            wc.addWalkconstraints(descGetter.getWalkConstraint());
-
-            Dijkstra dijkstra = new Dijkstra(graph, wc, weightingScheme);
-            ConcurrentHashMap<URI, Double> minDists_cA = dijkstra.shortestPath(a);
+            ConcurrentHashMap<URI, Double> minDists_cA = getShortestPathFinder(weightingScheme, false).shortestPath(a);
             cache.shortestPath.put(a, minDists_cA);
         }
 
         return cache.shortestPath.get(a);
     }
 
+    /**
+     * Access to the shortest path finder associated to a weighting scheme.
+     * Finders are built once per weighting scheme and reused as they index the
+     * graph at their first use.
+     *
+     * @param weightingScheme the weighting scheme, null for unit weights
+     * @param ancestorsOnly true to only follow the edges leading to the
+     * ancestors of a class, false to follow the taxonomic relationships in
+     * both directions
+     * @return the shortest path finder
+     * @throws SLIB_Ex_Critic
+     */
+    private synchronized Dijkstra getShortestPathFinder(GWS weightingScheme, boolean ancestorsOnly) throws SLIB_Ex_Critic {
+
+        Map<GWS, Dijkstra> finders = ancestorsOnly ? ancestorsPathFinders : shortestPathFinders;
+        Dijkstra dijkstra = finders.get(weightingScheme);
+
+        if (dijkstra == null) {
+
+            WalkConstraint wc = WalkConstraintUtils.copy(ancGetter.getWalkConstraint());
+            if (!ancestorsOnly) {
+                wc.addWalkconstraints(descGetter.getWalkConstraint());
+            }
+            dijkstra = new Dijkstra(graph, wc, weightingScheme);
+            finders.put(weightingScheme, dijkstra);
+        }
+        return dijkstra;
+    }
+
     /**
      *
      * @param conf
@@ -1201,6 +2007,21 @@ public class SM_Engine {
         return prob_mica;
     }
 
+    /**
+     * See {@link #getP_MICA(ICconf, URI, URI)}.
+     *
+     * @param conf
+     * @param a the id of the first class
+     * @param b the id of the second class
+     * @return
+     * @throws SLIB_Exception
+     */
+    public double getP_MICA(ICconf conf, int a, int b) throws SLIB_Exception {
+
+        double prob_mica = IcUtils.searchMin_pOc_MICA(cache.ancestorsIncIds[a], cache.ancestorsIncIds[b], getIC_table(conf));
+        return prob_mica;
+    }
+
     /**
      * NOT_CACHED
      *
@@ -0,0 +1,346 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sml.sm.core.engine;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import org.openrdf.model.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sglib.algo.graph.extraction.rvf.CompressedClosure;
+import slib.sglib.io.loader.snapshot.GraphSnapshot;
+import slib.sglib.io.loader.snapshot.GraphSnapshotWriter;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.CompressedIntSet;
+import slib.utils.impl.ObjectIdIndex;
+
+/**
+ * Store the state of a {@link SM_Engine} into a graph snapshot (see
+ * {@link GraphSnapshot}) in order to avoid the costly inferences performed
+ * at engine creation: in addition to the graph, the snapshot contains the
+ * index of the classes, their inclusive ancestors and descendants, their
+ * depths and, optionally, information content values.
+ *
+ * Usage:
+ * <pre>
+ * SM_EngineSnapshot.write(engine, "go.snapshot", icConfs, "go.obo", "goa.gaf");
+ * ...
+ * GraphSnapshot snapshot = GraphSnapshot.open("go.snapshot");
+ * SM_Engine engine = SM_EngineSnapshot.load(snapshot, 4);
+ * SM_EngineSnapshot.restoreIC(engine, snapshot, icConf);
+ * </pre>
+ *
+ * Snapshots are validated when they are used: a snapshot built from files
+ * which have been modified since it has been written is rejected (see
+ * {@link GraphSnapshot#isStale()}), the inferences are checked against a
+ * fingerprint of the classes and of their ancestors, and the information
+ * content values are only restored for the configuration (flag and
+ * parameters) they have been computed with.
+ *
+ * @author Harispe Sébastien
+ */
+public class SM_EngineSnapshot {
+
+    static final String CLASSES = "sm.classes";
+    static final String ANCESTORS = "sm.ancestorsInc";
+    static final String DESCENDANTS = "sm.descendantsInc";
+    static final String MAX_DEPTHS = "sm.maxDepths";
+    static final String MIN_DEPTHS = "sm.minDepths";
+    static final String IC_PREFIX = "sm.ic.";
+    static final String IC_CONF_PREFIX = "sm.icConf.";
+    static final String FINGERPRINT = "sm.fingerprint";
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static Logger logger = LoggerFactory.getLogger(SM_EngineSnapshot.class);
+
+    private SM_EngineSnapshot() {
+    }
+
+    /**
+     * Write a snapshot of the graph of an engine and of the results of the
+     * inferences performed by the engine.
+     *
+     * @param engine the engine
+     * @param file the location of the snapshot
+     * @param icConfs the information contents to store, can be null
+     * @param sources the files from which the graph has been built, used to
+     * detect stale snapshots (see {@link GraphSnapshot#isStale()})
+     * @throws SLIB_Exception if the snapshot cannot be written or if an
+     * information content cannot be computed
+     */
+    public static void write(SM_Engine engine, String file, Collection<ICconf> icConfs, String... sources) throws SLIB_Exception {
+
+        GraphSnapshotWriter writer = new GraphSnapshotWriter(engine.getGraph());
+
+        for (String source : sources) {
+            writer.addSource(source);
+        }
+
+        ObjectIdIndex<URI> index = engine.classIndex;
+        Map<URI, Integer> classIds = new HashMap<URI, Integer>(index.size() * 2);
+        for (int i = 0; i < index.size(); i++) {
+            classIds.put(index.get(i), i);
+        }
+        writer.addInts(CLASSES, classIds);
+        writer.addSets(ANCESTORS, engine.getAllAncestorsInc());
+        writer.addSets(DESCENDANTS, engine.getAllDescendantsInc());
+        writer.addInts(MAX_DEPTHS, engine.getMaxDepths());
+        writer.addInts(MIN_DEPTHS, engine.getMinDepths());
+
+        if (index.size() > 0) {
+            // the tables of a single entry are associated to the first class
+            URI key = index.get(0);
+            writer.addInts(FINGERPRINT, singleton(key, fingerprint(engine)));
+
+            if (icConfs != null) {
+                for (ICconf icConf : icConfs) {
+                    writer.addDoubles(IC_PREFIX + icConf.getId(), engine.getIC_results(icConf));
+                    writer.addInts(IC_CONF_PREFIX + icConf.getId(), singleton(key, fingerprint(icConf)));
+                }
+            }
+        }
+        writer.write(file);
+    }
+
+    /**
+     * Build an engine from a snapshot. The inferences stored into the
+     * snapshot are restored, they are computed if the snapshot only contains
+     * a graph.
+     *
+     * @param snapshot the snapshot
+     * @param nbThreads the number of threads used by the engine
+     * @return the engine
+     * @throws SLIB_Ex_Critic if the snapshot is stale, i.e. if one of the
+     * files from which it has been built has been modified, or if the
+     * inferences it contains are not coherent with its graph
+     */
+    public static SM_Engine load(GraphSnapshot snapshot, int nbThreads) throws SLIB_Ex_Critic {
+
+        if (snapshot.isStale()) {
+            throw new SLIB_Ex_Critic("Snapshot " + snapshot.getLocation() + " is stale, the following files have been modified since it has been written: " + snapshot.getStaleSources() + ", please rebuild the snapshot");
+        }
+
+        if (!snapshot.hasTable(CLASSES) || !snapshot.hasTable(ANCESTORS) || !snapshot.hasTable(DESCENDANTS)) {
+            return new SM_Engine(snapshot.getGraph(), nbThreads);
+        }
+
+        // class ids indexed by dictionary id
+        int[] dictIds = snapshot.getTableKeys(CLASSES);
+        int[] classIds = new int[dictIds.length];
+        Map<URI, Integer> ids = snapshot.getInts(CLASSES);
+        URI[] classes = new URI[dictIds.length];
+        int maxDictId = -1;
+
+        for (int i = 0; i < dictIds.length; i++) {
+            URI c = snapshot.getDictionaryURI(dictIds[i]);
+            classIds[i] = ids.get(c);
+            classes[classIds[i]] = c;
+            maxDictId = Math.max(maxDictId, dictIds[i]);
+        }
+        int[] dictToClass = new int[maxDictId + 1];
+        Arrays.fill(dictToClass, -1);
+        for (int i = 0; i < dictIds.length; i++) {
+            dictToClass[dictIds[i]] = classIds[i];
+        }
+
+        ObjectIdIndex<URI> index = new ObjectIdIndex<URI>(classes.length);
+        for (URI c : classes) {
+            if (c == null) {
+                throw new SLIB_Ex_Critic("Invalid index of classes in snapshot " + snapshot.getLocation());
+            }
+            index.add(c);
+        }
+
+        CompressedClosure ancestors = new CompressedClosure(index, closures(snapshot, ANCESTORS, dictToClass));
+        CompressedClosure descendants = new CompressedClosure(index, closures(snapshot, DESCENDANTS, dictToClass));
+
+        SM_Engine engine = new SM_Engine(snapshot.getGraph(), nbThreads, ancestors, descendants);
+
+        if (snapshot.hasTable(MAX_DEPTHS)) {
+            engine.cache.maxDepths = snapshot.getInts(MAX_DEPTHS);
+        }
+        if (snapshot.hasTable(MIN_DEPTHS)) {
+            engine.cache.minDepths = snapshot.getInts(MIN_DEPTHS);
+        }
+        checkFingerprint(engine, snapshot);
+        return engine;
+    }
+
+    /**
+     * Check that the engine relies on the classes and on the ancestors from
+     * which the inferences of the snapshot have been computed.
+     */
+    private static void checkFingerprint(SM_Engine engine, GraphSnapshot snapshot) throws SLIB_Ex_Critic {
+
+        if (!snapshot.hasTable(FINGERPRINT)) {
+            throw new SLIB_Ex_Critic("Snapshot " + snapshot.getLocation() + " does not define the fingerprint of its classes, please rebuild the snapshot");
+        }
+        int expected = singleValue(snapshot, FINGERPRINT);
+        if (fingerprint(engine) != expected) {
+            throw new SLIB_Ex_Critic("The classes of the engine differ from the classes of snapshot " + snapshot.getLocation() + ", please rebuild the snapshot");
+        }
+    }
+
+    private static int singleValue(GraphSnapshot snapshot, String table) throws SLIB_Ex_Critic {
+        Map<URI, Integer> values = snapshot.getInts(table);
+        if (values.size() != 1) {
+            throw new SLIB_Ex_Critic("Table " + table + " of snapshot " + snapshot.getLocation() + " must contain a single value");
+        }
+        return values.values().iterator().next();
+    }
+
+    private static Map<URI, Integer> singleton(URI key, int value) {
+        Map<URI, Integer> map = new HashMap<URI, Integer>();
+        map.put(key, value);
+        return map;
+    }
+
+    /**
+     * Fingerprint of the classes of an engine: the size of the graph, the
+     * classes in the order of their ids and their ancestors.
+     */
+    static int fingerprint(SM_Engine engine) {
+
+        CRC32 crc = new CRC32();
+        update(crc, engine.getGraph().getNumberVertices());
+        update(crc, engine.getGraph().getNumberEdges());
+
+        ObjectIdIndex<URI> index = engine.classIndex;
+        for (int c = 0; c < index.size(); c++) {
+            crc.update(index.get(c).stringValue().getBytes(UTF8));
+            int[] ancestors = engine.getAncestorsIncIds(c);
+            update(crc, ancestors.length);
+            for (int a : ancestors) {
+                update(crc, a);
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Fingerprint of the flag and of the parameters of an information
+     * content configuration.
+     */
+    static int fingerprint(ICconf icConf) {
+        Map<String, Object> params = new TreeMap<String, Object>();
+        if (icConf.getParams() != null) {
+            params.putAll(icConf.getParams());
+        }
+        CRC32 crc = new CRC32();
+        crc.update((icConf.getFlag() + params).getBytes(UTF8));
+        return (int) crc.getValue();
+    }
+
+    private static void update(CRC32 crc, int value) {
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+
+    private static CompressedIntSet[] closures(GraphSnapshot snapshot, String table, int[] dictToClass) throws SLIB_Ex_Critic {
+
+        int[] keys = snapshot.getTableKeys(table);
+        CompressedIntSet[] closures = new CompressedIntSet[dictToClass.length];
+        int n = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+
+            int[] members = snapshot.getTableSet(table, i);
+            for (int m = 0; m < members.length; m++) {
+                members[m] = classId(snapshot, dictToClass, members[m]);
+            }
+            Arrays.sort(members);
+            int c = classId(snapshot, dictToClass, keys[i]);
+            if (closures[c] == null) {
+                n++;
+            }
+            closures[c] = CompressedIntSet.fromSorted(members, members.length);
+        }
+        int nbClasses = 0;
+        for (int id : dictToClass) {
+            if (id != -1) {
+                nbClasses++;
+            }
+        }
+        if (n != nbClasses) {
+            throw new SLIB_Ex_Critic("Table " + table + " of snapshot " + snapshot.getLocation() + " does not define the closures of all the classes");
+        }
+        return Arrays.copyOf(closures, nbClasses);
+    }
+
+    private static int classId(GraphSnapshot snapshot, int[] dictToClass, int dictId) throws SLIB_Ex_Critic {
+        int c = dictId < dictToClass.length ? dictToClass[dictId] : -1;
+        if (c == -1) {
+            throw new SLIB_Ex_Critic("Invalid class " + snapshot.getDictionaryURI(dictId) + " in snapshot " + snapshot.getLocation());
+        }
+        return c;
+    }
+
+    /**
+     * Restore the values of an information content stored in a snapshot.
+     *
+     * @param engine the engine
+     * @param snapshot the snapshot
+     * @param icConf the information content
+     * @return true if the values have been restored, false if the snapshot
+     * does not contain the values of the given information content or if
+     * they have been computed using another flag or other parameters
+     * @throws SLIB_Ex_Critic if the classes of the engine differ from the
+     * classes of the snapshot
+     */
+    public static boolean restoreIC(SM_Engine engine, GraphSnapshot snapshot, ICconf icConf) throws SLIB_Ex_Critic {
+
+        String table = IC_PREFIX + icConf.getId();
+        if (!snapshot.hasTable(table)) {
+            return false;
+        }
+        checkFingerprint(engine, snapshot);
+
+        String confTable = IC_CONF_PREFIX + icConf.getId();
+        if (!snapshot.hasTable(confTable) || singleValue(snapshot, confTable) != fingerprint(icConf)) {
+            logger.warn("The values of " + icConf.getId() + " stored in snapshot " + snapshot.getLocation() + " have been computed using another configuration, they are not restored");
+            return false;
+        }
+        engine.setICSvalues(icConf, snapshot.getDoubles(table));
+        return true;
+    }
+}
@@ -0,0 +1,692 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+ */
+package slib.sml.sm.core.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openrdf.model.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sglib.algo.graph.extraction.rvf.instances.InstancesAccessor;
+import slib.sglib.algo.graph.extraction.rvf.instances.impl.InstanceAccessor_RDF_TYPE;
+import slib.sml.sm.core.measures.Sim_Groupwise_Direct;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect;
+import slib.sml.sm.core.measures.Sim_Pairwise;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_Bounded;
+import slib.sml.sm.core.measures.graph.groupwise.dag.Sim_groupwise_DAG_GIC;
+import slib.sml.sm.core.measures.graph.groupwise.dag.Sim_groupwise_DAG_UI;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_Average;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_BestMatchAverage;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_BestMatchMax;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_Max;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_Min;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.impl.CompressedIntSet;
+import slib.utils.impl.ObjectIdIndex;
+
+/**
+ * Search of the entities (e.g. gene products) the most similar to a given
+ * entity or to a given set of classes, considering a groupwise measure.
+ *
+ * The engine stores an inverted index associating each class to the entities
+ * it directly annotates. The candidates of a query are the entities sharing an
+ * ancestor with the classes of the query: the inclusive ancestors of the query
+ * are processed one after the other and the entities annotated by their
+ * descendants are scored exactly the first time they are found. Following the
+ * threshold algorithm, an upper bound of the scores of the entities not found
+ * yet is maintained and the search stops as soon as it cannot beat the k-th
+ * best score. The ancestors are ordered so that this bound decreases quickly,
+ * e.g. by decreasing IC for SimGIC, and the general classes which annotate
+ * most entities are therefore rarely processed.
+ *
+ * Supported measures:
+ * <ul>
+ * <li>the direct measures SimGIC ({@link Sim_groupwise_DAG_GIC}) and UI
+ * (Jaccard index of the ancestors, {@link Sim_groupwise_DAG_UI});</li>
+ * <li>the indirect measures Best Match Average, Best Match Max, Average, Max
+ * and Min, the pairwise measure implementing
+ * {@link Sim_Pairwise_IC_Bounded}.</li>
+ * </ul>
+ *
+ * Scores are computed by the engine, see
+ * {@link SM_Engine#computeGroupwiseStandaloneSim(SMconf, int[], int[])} and
+ * {@link SM_Engine#computeGroupwiseAddOnSim(SMconf, SMconf, int[], int[])},
+ * the results are therefore those obtained comparing the query to all the
+ * entities. Entities sharing the same score are ranked according to the order
+ * in which they have been indexed. Entities which do not share any ancestor
+ * with the query are not considered. The index is immutable, searches can be
+ * performed concurrently.
+ *
+ * @author Harispe Sébastien
+ */
+public class SM_EntitySearchEngine {
+
+    /**
+     * Relative margin added to the bounds computed from sums of IC in order
+     * to absorb rounding errors.
+     */
+    private static final double ROUNDING_MARGIN = 1e-9;
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+    final SM_Engine engine;
+    final ObjectIdIndex<URI> entityIndex;
+    final int[][] annotations;
+    final int[][] directEntities;
+    final int[] nbAncestors;
+    final Map<ICconf, double[]> ancestorsIC = new ConcurrentHashMap<ICconf, double[]>();
+
+    /**
+     * Build the index of the instances of the engine, the classes annotating
+     * an instance being those it is typed with (rdf:type).
+     *
+     * @param engine the engine
+     * @see InstanceAccessor_RDF_TYPE
+     */
+    public SM_EntitySearchEngine(SM_Engine engine) {
+        this(engine, new InstanceAccessor_RDF_TYPE(engine.getGraph()));
+    }
+
+    /**
+     * Build the index of the instances of the engine considering the given
+     * accessor to retrieve the classes annotating an instance. Instances which
+     * are not annotated by a class of the engine are not indexed.
+     *
+     * @param engine the engine
+     * @param accessor the accessor used to retrieve the classes annotating
+     * the instances
+     */
+    public SM_EntitySearchEngine(SM_Engine engine, InstancesAccessor accessor) {
+
+        this.engine = engine;
+
+        Set<URI> instances = engine.getInstances();
+        int nbClasses = engine.getClasses().size();
+
+        entityIndex = new ObjectIdIndex<URI>(instances.size());
+        int[][] annots = new int[instances.size()][];
+        int[] nbDirectEntities = new int[nbClasses];
+
+        for (URI i : instances) {
+
+            Set<URI> classes = accessor.getDirectClass(i);
+            int[] ids = new int[classes.size()];
+            int n = 0;
+
+            for (URI c : classes) {
+                int id = engine.classIndex.getId(c);
+                if (id != -1) {
+                    ids[n++] = id;
+                }
+            }
+            if (n == 0) {
+                continue;
+            }
+            ids = Arrays.copyOf(ids, n);
+            Arrays.sort(ids);
+            annots[entityIndex.add(i)] = ids;
+
+            for (int c : ids) {
+                nbDirectEntities[c]++;
+            }
+        }
+
+        annotations = Arrays.copyOf(annots, entityIndex.size());
+        directEntities = new int[nbClasses][];
+
+        for (int c = 0; c < nbClasses; c++) {
+            directEntities[c] = new int[nbDirectEntities[c]];
+            nbDirectEntities[c] = 0;
+        }
+        for (int e = 0; e < annotations.length; e++) {
+            for (int c : annotations[e]) {
+                directEntities[c][nbDirectEntities[c]++] = e;
+            }
+        }
+        nbAncestors = new int[annotations.length];
+        int[] marks = new int[nbClasses];
+
+        for (int e = 0; e < annotations.length; e++) {
+            for (int c : annotations[e]) {
+                for (int a : engine.getAncestorsIncIds(c)) {
+                    if (marks[a] != e + 1) {
+                        marks[a] = e + 1;
+                        nbAncestors[e]++;
+                    }
+                }
+            }
+        }
+        logger.info("Entity index built: " + annotations.length + " annotated entities");
+    }
+
+    /**
+     * @return the number of entities of the index
+     */
+    public int getNbEntities() {
+        return annotations.length;
+    }
+
+    /**
+     * Search the k entities the most similar to the given entity considering
+     * a direct groupwise measure (SimGIC or UI). The given entity is not part
+     * of the results.
+     *
+     * @param groupwiseConf the direct groupwise measure configuration
+     * @param entity the entity
+     * @param k the number of entities to search
+     * @return the (at most) k entities the most similar to the given entity
+     * associated to their scores, the iteration order of the map follows the
+     * decreasing order of the scores
+     * @throws SLIB_Ex_Critic if the measure is not supported
+     * @throws IllegalArgumentException if the given entity is not indexed
+     */
+    public Map<URI, Double> getTopKSimilarEntities(SMconf groupwiseConf, URI entity, int k) throws SLIB_Ex_Critic {
+        return getTopKSimilarEntities(groupwiseConf, null, entity, k);
+    }
+
+    /**
+     * Search the k entities the most similar to the given entity considering
+     * an indirect groupwise measure and a pairwise measure. The given entity
+     * is not part of the results.
+     *
+     * @param groupwiseConf the indirect groupwise measure configuration
+     * @param pairwiseConf the pairwise measure configuration, null if the
+     * groupwise measure is a direct one
+     * @param entity the entity
+     * @param k the number of entities to search
+     * @return the (at most) k entities the most similar to the given entity
+     * associated to their scores, the iteration order of the map follows the
+     * decreasing order of the scores
+     * @throws SLIB_Ex_Critic if the measures are not supported
+     * @throws IllegalArgumentException if the given entity is not indexed
+     */
+    public Map<URI, Double> getTopKSimilarEntities(SMconf groupwiseConf, SMconf pairwiseConf, URI entity, int k) throws SLIB_Ex_Critic {
+
+        int id = entityIndex.getId(entity);
+        if (id == -1) {
+            throw new IllegalArgumentException("The given URI " + entity + " cannot be associated to an annotated entity");
+        }
+        return search(groupwiseConf, pairwiseConf, annotations[id], id, k);
+    }
+
+    /**
+     * Search the k entities the most similar to the given set of classes
+     * considering a direct groupwise measure (SimGIC or UI).
+     *
+     * @param groupwiseConf the direct groupwise measure configuration
+     * @param classes the classes of the query
+     * @param k the number of entities to search
+     * @return the (at most) k entities the most similar to the given classes
+     * associated to their scores, the iteration order of the map follows the
+     * decreasing order of the scores
+     * @throws SLIB_Ex_Critic if the measure is not supported
+     * @throws IllegalArgumentException if the given set contains an URI which
+     * cannot be associated to a class
+     */
+    public Map<URI, Double> getTopKSimilarEntities(SMconf groupwiseConf, Set<URI> classes, int k) throws SLIB_Ex_Critic {
+        return getTopKSimilarEntities(groupwiseConf, null, classes, k);
+    }
+
+    /**
+     * Search the k entities the most similar to the given set of classes
+     * considering an indirect groupwise measure and a pairwise measure.
+     *
+     * @param groupwiseConf the indirect groupwise measure configuration
+     * @param pairwiseConf the pairwise measure configuration, null if the
+     * groupwise measure is a direct one
+     * @param classes the classes of the query
+     * @param k the number of entities to search
+     * @return the (at most) k entities the most similar to the given classes
+     * associated to their scores, the iteration order of the map follows the
+     * decreasing order of the scores
+     * @throws SLIB_Ex_Critic if the measures are not supported
+     * @throws IllegalArgumentException if the given set contains an URI which
+     * cannot be associated to a class
+     */
+    public Map<URI, Double> getTopKSimilarEntities(SMconf groupwiseConf, SMconf pairwiseConf, Set<URI> classes, int k) throws SLIB_Ex_Critic {
+
+        int[] ids = engine.getClassIds(classes);
+        Arrays.sort(ids);
+        return search(groupwiseConf, pairwiseConf, ids, -1, k);
+    }
+
+    private Map<URI, Double> search(SMconf groupwiseConf, SMconf pairwiseConf, int[] query, int excluded, int k) throws SLIB_Ex_Critic {
+
+        Map<URI, Double> topK = new LinkedHashMap<URI, Double>();
+
+        k = Math.min(k, annotations.length);
+        if (k <= 0 || query.length == 0) {
+            return topK;
+        }
+
+        BitSet queryAncestors = new BitSet();
+        for (int c : query) {
+            for (int a : engine.getAncestorsIncIds(c)) {
+                queryAncestors.set(a);
+            }
+        }
+        int[] concepts = new int[queryAncestors.cardinality()];
+        for (int c = queryAncestors.nextSetBit(0), i = 0; c >= 0; c = queryAncestors.nextSetBit(c + 1)) {
+            concepts[i++] = c;
+        }
+
+        Bound bound;
+
+        if (pairwiseConf == null) {
+
+            Sim_Groupwise_Direct measure = engine.getGroupwiseStandaloneMeasure(groupwiseConf);
+
+            if (measure instanceof Sim_groupwise_DAG_GIC) {
+                ICconf icConf = groupwiseConf.getICconf();
+                bound = new GIC_Bound(engine.getIC_table(icConf), getAncestorsIC(icConf), concepts);
+            } else if (measure instanceof Sim_groupwise_DAG_UI) {
+                bound = new UI_Bound(engine, nbAncestors, concepts);
+            } else {
+                throw new SLIB_Ex_Critic("Measure " + groupwiseConf.flag + " is not supported by the entity search, supported direct measures: SimGIC, UI");
+            }
+
+        } else {
+
+            Sim_Groupwise_Indirect measure = engine.getGroupwiseAddOnMeasure(groupwiseConf);
+            Sim_Pairwise pMeasure = engine.getPairwiseMeasure(pairwiseConf);
+
+            if (!(measure instanceof Sim_groupwise_BestMatchAverage
+                    || measure instanceof Sim_groupwise_BestMatchMax
+                    || measure instanceof Sim_groupwise_Average
+                    || measure instanceof Sim_groupwise_Max
+                    || measure instanceof Sim_groupwise_Min)) {
+                throw new SLIB_Ex_Critic("Measure " + groupwiseConf.flag + " is not supported by the entity search, supported indirect measures: BMA, BMM, Average, Max, Min");
+            }
+            if (!(pMeasure instanceof Sim_Pairwise_IC_Bounded)) {
+                throw new SLIB_Ex_Critic("Measure " + pairwiseConf.flag + " is not supported by the entity search, "
+                        + "the measure must implement " + Sim_Pairwise_IC_Bounded.class.getSimpleName());
+            }
+            bound = new BestMatch_Bound(engine, (Sim_Pairwise_IC_Bounded) pMeasure, pairwiseConf, query, concepts);
+        }
+
+        TopKHeap heap = new TopKHeap(k);
+        BitSet seen = new BitSet(annotations.length);
+        if (excluded != -1) {
+            seen.set(excluded);
+        }
+        int nbScored = 0;
+
+        try {
+            for (int c : bound.getOrder()) {
+
+                if (heap.isFull() && bound.getUnseenBound() < heap.worstScore()) {
+                    break;
+                }
+
+                CompressedIntSet.IntIterator it = engine.getDescendantsIncSet(c).iterator();
+
+                while (it.hasNext()) {
+
+                    for (int e : directEntities[it.next()]) {
+
+                        if (seen.get(e)) {
+                            continue;
+                        }
+                        seen.set(e);
+
+                        if (heap.isFull() && bound.getBound(e) < heap.worstScore()) {
+                            continue;
+                        }
+
+                        double sim;
+                        if (pairwiseConf == null) {
+                            sim = engine.computeGroupwiseStandaloneSim(groupwiseConf, query, annotations[e]);
+                        } else {
+                            sim = engine.computeGroupwiseAddOnSim(groupwiseConf, pairwiseConf, query, annotations[e]);
+                        }
+                        heap.offer(e, sim);
+                        nbScored++;
+                    }
+                }
+                bound.processed(c);
+            }
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SLIB_Ex_Critic(e);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Entity search: " + nbScored + "/" + annotations.length + " entities scored");
+        }
+
+        int[] ids = new int[k];
+        double[] scores = new double[k];
+        int n = heap.drain(ids, scores);
+
+        for (int i = 0; i < n; i++) {
+            topK.put(entityIndex.get(ids[i]), scores[i]);
+        }
+        return topK;
+    }
+
+    /**
+     * Access to the sum of the IC of the inclusive ancestors of each entity.
+     * The array is built the first time it is requested.
+     */
+    private double[] getAncestorsIC(ICconf icConf) throws SLIB_Ex_Critic {
+
+        double[] sums = ancestorsIC.get(icConf);
+
+        if (sums == null) {
+
+            double[] ic = engine.getIC_table(icConf);
+            int[] marks = new int[ic.length];
+            sums = new double[annotations.length];
+
+            for (int e = 0; e < annotations.length; e++) {
+                for (int c : annotations[e]) {
+                    for (int a : engine.getAncestorsIncIds(c)) {
+                        if (marks[a] != e + 1) {
+                            marks[a] = e + 1;
+                            sums[e] += ic[a];
+                        }
+                    }
+                }
+            }
+            ancestorsIC.put(icConf, sums);
+        }
+        return sums;
+    }
+
+    /**
+     * Order in which the ancestors of a query are processed and upper bound of
+     * the scores of the entities which are not annotated by a descendant of the
+     * processed ancestors.
+     */
+    private interface Bound {
+
+        int[] getOrder();
+
+        void processed(int c);
+
+        double getUnseenBound();
+
+        /**
+         * @return an upper bound of the score of an entity found while
+         * processing the current ancestor, the bound can only decrease when
+         * the next ancestors are processed
+         */
+        double getBound(int e);
+    }
+
+    /**
+     * The IC of the ancestors shared by the query and an entity not found yet
+     * is at most the IC of the remaining ancestors of the query, and the IC of
+     * the union is at least the IC of the ancestors of the query. Ancestors are
+     * processed by decreasing IC. The bound of an entity also considers the IC
+     * of its ancestors: with I the bound of the IC of the shared ancestors,
+     * the score is at most I / (IC(query) + IC(entity) - I).
+     */
+    private static class GIC_Bound implements Bound {
+
+        final double[] ic;
+        final double[] entitiesIC;
+        final int[] order;
+        final double total;
+        double remaining;
+
+        GIC_Bound(double[] ic, double[] entitiesIC, int[] concepts) {
+
+            this.ic = ic;
+            this.entitiesIC = entitiesIC;
+            order = sortByDecreasingIC(concepts, ic);
+
+            double sum = 0;
+            for (int c : order) {
+                sum += ic[c];
+            }
+            total = sum;
+            remaining = sum;
+        }
+
+        @Override
+        public int[] getOrder() {
+            return order;
+        }
+
+        @Override
+        public void processed(int c) {
+            remaining -= ic[c];
+        }
+
+        @Override
+        public double getUnseenBound() {
+            if (total == 0) {
+                return 0;
+            }
+            return (remaining + total * ROUNDING_MARGIN) / total;
+        }
+
+        @Override
+        public double getBound(int e) {
+
+            double inter = Math.min(remaining, entitiesIC[e]);
+            double union = total + entitiesIC[e] - inter;
+
+            if (union <= 0) {
+                return 0;
+            }
+            return (inter + (total + entitiesIC[e]) * ROUNDING_MARGIN) / union;
+        }
+    }
+
+    /**
+     * Unweighted counterpart of {@link GIC_Bound}. Ancestors are processed by
+     * increasing number of descendants, i.e. approximately by increasing
+     * number of annotated entities.
+     */
+    private static class UI_Bound implements Bound {
+
+        final int[] entitiesNbAncestors;
+        final int[] order;
+        int remaining;
+
+        UI_Bound(final SM_Engine engine, int[] entitiesNbAncestors, int[] concepts) {
+
+            this.entitiesNbAncestors = entitiesNbAncestors;
+
+            Integer[] sorted = new Integer[concepts.length];
+            for (int i = 0; i < concepts.length; i++) {
+                sorted[i] = concepts[i];
+            }
+            Arrays.sort(sorted, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer x, Integer y) {
+                    int nbX = engine.getDescendantsIncSet(x).cardinality();
+                    int nbY = engine.getDescendantsIncSet(y).cardinality();
+                    return nbX != nbY ? (nbX < nbY ? -1 : 1) : x.compareTo(y);
+                }
+            });
+            order = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                order[i] = sorted[i];
+            }
+            remaining = order.length;
+        }
+
+        @Override
+        public int[] getOrder() {
+            return order;
+        }
+
+        @Override
+        public void processed(int c) {
+            remaining--;
+        }
+
+        @Override
+        public double getUnseenBound() {
+            return (double) remaining / order.length;
+        }
+
+        @Override
+        public double getBound(int e) {
+
+            int inter = Math.min(remaining, entitiesNbAncestors[e]);
+            return (double) inter / (order.length + entitiesNbAncestors[e] - inter);
+        }
+    }
+
+    /**
+     * The supported indirect measures never exceed the best pairwise score
+     * between a class of the query and a class of the entity. For an entity
+     * not found yet, the MICA of a class A of the query and of a class of the
+     * entity is one of the remaining ancestors of A: the pairwise score is
+     * bounded by the best bound of the pairwise measure over those ancestors
+     * (see {@link Sim_Pairwise_IC_Bounded}). Ancestors are processed by
+     * decreasing IC. The bounds of the pairwise measure are relaxed by
+     * {@link #ROUNDING_MARGIN}: the scores are averaged by most groupwise
+     * measures and the average of equal scores may exceed them.
+     */
+    private static class BestMatch_Bound implements Bound {
+
+        final int[] order;
+        final BitSet processed = new BitSet();
+        // for each class of the query, its ancestors by decreasing IC and
+        // the best bound of the ancestors from a given position
+        final int[][] ancestors;
+        final double[][] remaining;
+        final int[] positions;
+
+        BestMatch_Bound(SM_Engine engine, Sim_Pairwise_IC_Bounded measure, SMconf conf, int[] query, int[] concepts) throws SLIB_Ex_Critic {
+
+            ICconf icConf = conf.getICconf();
+            double[] ic = engine.getIC_table(icConf);
+            double[] minDescendantsIC = engine.getMinDescendantsIC_table(icConf);
+
+            order = sortByDecreasingIC(concepts, ic);
+            ancestors = new int[query.length][];
+            remaining = new double[query.length][];
+            positions = new int[query.length];
+
+            try {
+                for (int q = 0; q < query.length; q++) {
+
+                    int[] anc = engine.getMICAEngine(icConf).getAncestorsByDecreasingIC(query[q]);
+                    double[] rem = new double[anc.length];
+
+                    for (int i = anc.length - 1; i >= 0; i--) {
+                        double b = measure.simUpperBound(query[q], ic[anc[i]], minDescendantsIC[anc[i]], engine, conf);
+                        b = Double.isNaN(b) ? Double.POSITIVE_INFINITY : b + Math.abs(b) * ROUNDING_MARGIN;
+                        rem[i] = i == anc.length - 1 ? b : Math.max(b, rem[i + 1]);
+                    }
+                    ancestors[q] = anc;
+                    remaining[q] = rem;
+                }
+            } catch (SLIB_Ex_Critic e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SLIB_Ex_Critic(e);
+            }
+        }
+
+        @Override
+        public int[] getOrder() {
+            return order;
+        }
+
+        @Override
+        public void processed(int c) {
+            processed.set(c);
+        }
+
+        @Override
+        public double getUnseenBound() {
+
+            double bound = Double.NEGATIVE_INFINITY;
+
+            for (int q = 0; q < ancestors.length; q++) {
+
+                int p = positions[q];
+                while (p < ancestors[q].length && processed.get(ancestors[q][p])) {
+                    p++;
+                }
+                positions[q] = p;
+
+                if (p < ancestors[q].length && remaining[q][p] > bound) {
+                    bound = remaining[q][p];
+                }
+            }
+            return bound;
+        }
+
+        @Override
+        public double getBound(int e) {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Sort concepts by decreasing IC, concepts with the same IC being sorted by
+     * increasing id (see {@link slib.sml.sm.core.metrics.ic.utils.MICAEngine}).
+     */
+    private static int[] sortByDecreasingIC(int[] concepts, final double[] ic) {
+
+        Integer[] sorted = new Integer[concepts.length];
+        for (int i = 0; i < concepts.length; i++) {
+            sorted[i] = concepts[i];
+        }
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                double icX = Double.isNaN(ic[x]) ? Double.NEGATIVE_INFINITY : ic[x];
+                double icY = Double.isNaN(ic[y]) ? Double.NEGATIVE_INFINITY : ic[y];
+
+                if (icX > icY) {
+                    return -1;
+                } else if (icX < icY) {
+                    return 1;
+                }
+                return x.compareTo(y);
+            }
+        });
+
+        int[] order = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            order[i] = sorted[i];
+        }
+        return order;
+    }
+}
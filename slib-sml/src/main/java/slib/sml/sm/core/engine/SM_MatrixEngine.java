@@ -0,0 +1,484 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+ */
+package slib.sml.sm.core.engine;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import slib.sml.sm.core.measures.Sim_Pairwise;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_MICA;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.metrics.ic.utils.MICAEngine;
+import slib.sml.sm.core.utils.SMconf;
+import slib.sml.sm.core.utils.SMutils;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Engine computing the pairwise similarities of all the pairs of a list of
+ * classes, i.e. the similarity matrix of the classes.
+ *
+ * The matrix is divided into square tiles of {@link #getTileSize()} rows and
+ * columns which are distributed among the threads of the engine, a thread
+ * processing the next available tile once it is done with the previous one.
+ * The measures implementing {@link Sim_Pairwise_IC_MICA} are computed from
+ * MICA searches performed by blocks (see
+ * {@link MICAEngine#getIC_MICA(int, int[], int, int, double[], int, boolean[])}):
+ * the ancestors of the class of a row are marked once for all the columns of
+ * a tile, and the ancestors of the classes of the columns of a tile stay in
+ * cache while the rows of the tile are processed. The other measures are
+ * computed pair by pair using
+ * {@link SM_Engine#computePairwiseSim(SMconf, int, int)}.
+ *
+ * The matrix can either be processed row by row, see
+ * {@link #computeRows(SMconf, int[], RowHandler)}, or be written to a binary
+ * file, see {@link #writeMatrix(SMconf, int[], String, boolean)}. Only the
+ * upper triangle of the matrix of a symmetric measure is computed when the
+ * matrix is written to a file.
+ *
+ * @author Harispe Sébastien
+ */
+public class SM_MatrixEngine {
+
+    /**
+     * Default number of rows and columns of the tiles.
+     */
+    public static final int DEFAULT_TILE_SIZE = 128;
+    Logger logger = LoggerFactory.getLogger(this.getClass());
+    final SM_Engine engine;
+    final int nbThreads;
+    int tileSize = DEFAULT_TILE_SIZE;
+
+    /**
+     * Handler of the rows of a similarity matrix.
+     */
+    public interface RowHandler {
+
+        /**
+         * Process a row of the matrix, the rows are processed in order.
+         *
+         * @param row the index of the row, i.e. the index of the class in the
+         * list of classes of the matrix
+         * @param scores the similarities of the class and of all the classes
+         * of the list. The array is reused by the engine and must not be
+         * modified or stored.
+         * @throws Exception
+         */
+        void handle(int row, double[] scores) throws Exception;
+    }
+
+    /**
+     * Build a matrix engine.
+     *
+     * @param engine the engine used to access the classes and the measures
+     * @param nbThreads the number of threads to use (at least 1)
+     */
+    public SM_MatrixEngine(SM_Engine engine, int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0: " + nbThreads);
+        }
+        this.engine = engine;
+        this.nbThreads = nbThreads;
+    }
+
+    /**
+     * @return the number of rows and columns of the tiles
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Define the number of rows and columns of the tiles. The rows computed
+     * by {@link #computeRows(SMconf, int[], RowHandler)} are buffered by
+     * blocks of this size.
+     *
+     * @param tileSize the number of rows and columns of the tiles (at least
+     * 1)
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("The size of the tiles must be greater than 0: " + tileSize);
+        }
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Compute the similarity matrix of the given classes, row by row. The
+     * rows are computed by blocks of {@link #getTileSize()} rows, the rows of
+     * a block are given to the handler once the block is computed, in the
+     * order of the classes.
+     *
+     * @param conf the pairwise semantic measure configuration
+     * @param classes the ids of the classes (see
+     * {@link SM_Engine#getClassId(org.openrdf.model.URI)})
+     * @param handler the handler of the rows
+     * @throws SLIB_Ex_Critic if a score cannot be computed or if the handler
+     * fails
+     */
+    public void computeRows(final SMconf conf, final int[] classes, RowHandler handler) throws SLIB_Ex_Critic {
+
+        final int n = classes.length;
+        final int nbTiles = (n + tileSize - 1) / tileSize;
+        final double[][] rows = new double[Math.min(tileSize, n)][n];
+
+        long start = System.currentTimeMillis();
+
+        for (int t = 0; t < nbTiles; t++) {
+
+            final int i0 = t * tileSize;
+            final int i1 = Math.min(n, i0 + tileSize);
+
+            run(conf, classes, nbTiles, new TileTask() {
+                @Override
+                public void process(int tile, Kernel kernel) throws Exception {
+
+                    int j0 = tile * tileSize;
+                    int j1 = Math.min(n, j0 + tileSize);
+
+                    for (int i = i0; i < i1; i++) {
+                        kernel.computeRow(i, j0, j1, rows[i - i0], j0);
+                    }
+                }
+            });
+
+            try {
+                for (int i = i0; i < i1; i++) {
+                    handler.handle(i, rows[i - i0]);
+                }
+            } catch (SLIB_Ex_Critic e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SLIB_Ex_Critic("Error processing row " + i0 + " to " + i1 + " of the matrix: " + e.getMessage(), e);
+            }
+        }
+        logger.info((long) n * n + " scores computed in " + (System.currentTimeMillis() - start) / 1000.0 + "s");
+    }
+
+    /**
+     * Compute the similarity matrix of the given classes and write it to a
+     * binary file. The file contains the n x n scores of the matrix in row
+     * major order, i.e. the score of the pair (classes[i], classes[j]) is the
+     * (i * n + j)th value of the file. The values are encoded in big-endian
+     * order, as done by {@link java.io.DataOutputStream}, without any header.
+     *
+     * @param conf the pairwise semantic measure configuration
+     * @param classes the ids of the classes (see
+     * {@link SM_Engine#getClassId(org.openrdf.model.URI)})
+     * @param file the location of the file, it is replaced if it exists
+     * @param singlePrecision true to store the scores as floats, false to
+     * store them as doubles
+     * @throws SLIB_Ex_Critic if a score cannot be computed or if the file
+     * cannot be written
+     */
+    public void writeMatrix(final SMconf conf, final int[] classes, String file, final boolean singlePrecision) throws SLIB_Ex_Critic {
+
+        final int n = classes.length;
+        final int nbTiles = (n + tileSize - 1) / tileSize;
+        final int valueSize = singlePrecision ? 4 : 8;
+
+        if (n > 0) {
+            // the measure reads its parameters from the configuration when a
+            // score is computed, its symmetry may depend on them, e.g. the
+            // alpha and beta parameters of Tversky
+            engine.computePairwiseSim(conf, classes[0], classes[0]);
+        }
+        final boolean symmetric = engine.getPairwiseMeasure(conf).isSymmetric();
+
+        // tiles to compute, only the tiles of the upper triangle are computed
+        // for symmetric measures
+        int nbTasks = symmetric ? nbTiles * (nbTiles + 1) / 2 : nbTiles * nbTiles;
+        final int[] tileRows = new int[nbTasks];
+        final int[] tileCols = new int[nbTasks];
+        int k = 0;
+
+        for (int ti = 0; ti < nbTiles; ti++) {
+            for (int tj = symmetric ? ti : 0; tj < nbTiles; tj++) {
+                tileRows[k] = ti;
+                tileCols[k] = tj;
+                k++;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        RandomAccessFile raf = null;
+
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(0);
+            raf.setLength((long) n * n * valueSize);
+            final FileChannel channel = raf.getChannel();
+
+            logger.info("Computing the " + n + " x " + n + " matrix of " + conf.id + " using " + nbThreads + " thread(s), " + nbTasks + " tiles, symmetric: " + symmetric);
+
+            run(conf, classes, nbTasks, new TileTask() {
+                @Override
+                public void process(int task, Kernel kernel) throws Exception {
+
+                    int i0 = tileRows[task] * tileSize;
+                    int i1 = Math.min(n, i0 + tileSize);
+                    int j0 = tileCols[task] * tileSize;
+                    int j1 = Math.min(n, j0 + tileSize);
+                    boolean diagonal = i0 == j0;
+
+                    double[][] tile = kernel.getTile();
+
+                    for (int i = i0; i < i1; i++) {
+                        if (symmetric && diagonal) {
+                            // upper part of the row only, the lower part is mirrored
+                            kernel.computeRow(i, i, j1, tile[i - i0], i - j0);
+                            for (int j = j0; j < i; j++) {
+                                tile[i - i0][j - j0] = tile[j - i0][i - j0];
+                            }
+                        } else {
+                            kernel.computeRow(i, j0, j1, tile[i - i0], 0);
+                        }
+                    }
+
+                    for (int i = i0; i < i1; i++) {
+                        write(channel, kernel.buffer, ((long) i * n + j0) * valueSize, tile[i - i0], j1 - j0, singlePrecision);
+                    }
+                    if (symmetric && !diagonal) {
+                        // scores of the tile (tj, ti)
+                        double[] column = kernel.column;
+                        for (int j = j0; j < j1; j++) {
+                            for (int i = i0; i < i1; i++) {
+                                column[i - i0] = tile[i - i0][j - j0];
+                            }
+                            write(channel, kernel.buffer, ((long) j * n + i0) * valueSize, column, i1 - i0, singlePrecision);
+                        }
+                    }
+                }
+            });
+            raf.close();
+            raf = null;
+
+        } catch (IOException e) {
+            throw new SLIB_Ex_Critic("Error writing the matrix to " + file + ": " + e.getMessage(), e);
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    logger.error("Cannot close " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        logger.info((long) n * n + " scores written to " + file + " in " + (System.currentTimeMillis() - start) / 1000.0 + "s");
+    }
+
+    /**
+     * Write the first scores of the given array at the given position of the
+     * file.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer, long position, double[] values, int length, boolean singlePrecision) throws IOException {
+
+        buffer.clear();
+
+        for (int x = 0; x < length; x++) {
+            if (singlePrecision) {
+                buffer.putFloat((float) values[x]);
+            } else {
+                buffer.putDouble(values[x]);
+            }
+        }
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Process the tasks [0, nbTasks[ using the threads of the engine. Each
+     * thread relies on its own kernel and processes the next available task
+     * once it is done with the previous one.
+     */
+    private void run(final SMconf conf, final int[] classes, final int nbTasks, final TileTask task) throws SLIB_Ex_Critic {
+
+        final Sim_Pairwise measure = engine.getPairwiseMeasure(conf);
+        int threads = Math.min(nbThreads, nbTasks);
+
+        if (threads <= 1) {
+            Kernel kernel = new Kernel(conf, measure, classes);
+            try {
+                for (int t = 0; t < nbTasks; t++) {
+                    task.process(t, kernel);
+                }
+            } catch (SLIB_Ex_Critic e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SLIB_Ex_Critic("Error computing the matrix: " + e.getMessage(), e);
+            }
+            return;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+
+        for (int w = 0; w < threads; w++) {
+            workers.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Kernel kernel = new Kernel(conf, measure, classes);
+                    int t;
+                    while ((t = next.getAndIncrement()) < nbTasks) {
+                        try {
+                            task.process(t, kernel);
+                        } catch (Exception e) {
+                            next.set(nbTasks); // stop the other workers
+                            throw e;
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> f : pool.invokeAll(workers)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SLIB_Ex_Critic("Interrupted while computing the matrix");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SLIB_Ex_Critic) {
+                throw (SLIB_Ex_Critic) e.getCause();
+            }
+            throw new SLIB_Ex_Critic("Error computing the matrix: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private interface TileTask {
+
+        void process(int task, Kernel kernel) throws Exception;
+    }
+
+    /**
+     * Computation of the scores of a row of a tile, a kernel is only used by
+     * a single thread.
+     */
+    private class Kernel {
+
+        final SMconf conf;
+        final Sim_Pairwise measure;
+        final int[] classes;
+        // buffers used to write the tiles, see getTile()
+        double[][] tile;
+        double[] column;
+        ByteBuffer buffer;
+        // only defined for measures implementing Sim_Pairwise_IC_MICA
+        final MICAEngine micaEngine;
+        final double[] ics;
+        final boolean[] marks;
+
+        Kernel(SMconf conf, Sim_Pairwise measure, int[] classes) throws SLIB_Ex_Critic {
+
+            this.conf = conf;
+            this.measure = measure;
+            this.classes = classes;
+
+            ICconf icConf = conf.getICconf();
+
+            if (measure instanceof Sim_Pairwise_IC_MICA && icConf != null) {
+                micaEngine = engine.getMICAEngine(icConf);
+                ics = engine.getIC_table(icConf);
+                marks = new boolean[micaEngine.getNbConcepts()];
+            } else {
+                micaEngine = null;
+                ics = null;
+                marks = null;
+            }
+        }
+
+        /**
+         * @return the buffer storing the scores of a tile
+         */
+        double[][] getTile() {
+            if (tile == null) {
+                tile = new double[tileSize][tileSize];
+                column = new double[tileSize];
+                buffer = ByteBuffer.allocate(8 * tileSize);
+            }
+            return tile;
+        }
+
+        /**
+         * Compute the scores of classes[i] and of classes[j0, j1[, the score
+         * of the pair (classes[i], classes[j]) is stored into
+         * scores[offset + j - j0].
+         */
+        void computeRow(int i, int j0, int j1, double[] scores, int offset) throws Exception {
+
+            int a = classes[i];
+
+            if (micaEngine != null) {
+
+                micaEngine.getIC_MICA(a, classes, j0, j1, scores, offset, marks);
+
+                Sim_Pairwise_IC_MICA m = (Sim_Pairwise_IC_MICA) measure;
+                double ic_a = ics[a];
+
+                for (int j = j0; j < j1; j++) {
+
+                    int x = offset + j - j0;
+                    double sim = m.sim(ic_a, ics[classes[j]], scores[x], conf);
+
+                    if (Double.isNaN(sim) || Double.isInfinite(sim)) {
+                        SMutils.throwArithmeticCriticalException(conf, engine.getClassURI(a), engine.getClassURI(classes[j]), sim);
+                    }
+                    scores[x] = sim;
+                }
+            } else {
+                for (int j = j0; j < j1; j++) {
+                    scores[offset + j - j0] = engine.computePairwiseSim(conf, a, classes[j]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+ */
+package slib.sml.sm.core.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import slib.sml.sm.core.measures.Sim_Pairwise;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_Bounded;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMconf;
+import slib.sml.sm.core.utils.SMutils;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Search of the classes the most similar to a given class considering a
+ * pairwise measure implementing {@link Sim_Pairwise_IC_Bounded}.
+ *
+ * The inclusive ancestors of the queried class A are processed by decreasing
+ * IC: the MICA of A and a class B is the first of those ancestors which
+ * subsumes B. The descendants of each ancestor M are walked from M, a
+ * sub-hierarchy being pruned as soon as the upper bound of the scores of its
+ * classes, computed from the IC of M and from the minimal IC of the classes of
+ * the sub-hierarchy, cannot beat the k-th best score found so far. The search
+ * stops when none of the remaining ancestors can lead to a better score. The
+ * scores of the candidates are computed exactly by the measure, a class is
+ * therefore only compared once, with its actual MICA.
+ *
+ * @author Harispe Sébastien
+ */
+final class TopKClassesSearch {
+
+    private TopKClassesSearch() {
+    }
+
+    /**
+     * Search the k classes the most similar to a class, see
+     * {@link SM_Engine#getTopKSimilarClasses(SMconf, int, int, int[], double[])}.
+     */
+    static int search(SM_Engine engine, SMconf conf, int a, int k, int[] ids, double[] scores) throws SLIB_Ex_Critic {
+
+        Sim_Pairwise pMeasure = engine.getPairwiseMeasure(conf);
+
+        if (!(pMeasure instanceof Sim_Pairwise_IC_Bounded)) {
+            throw new SLIB_Ex_Critic("Measure " + conf.flag + " cannot be used to search the most similar classes, "
+                    + "the measure must implement " + Sim_Pairwise_IC_Bounded.class.getSimpleName());
+        }
+        if (k <= 0) {
+            return 0;
+        }
+
+        Sim_Pairwise_IC_Bounded measure = (Sim_Pairwise_IC_Bounded) pMeasure;
+
+        try {
+            ICconf icConf = conf.getICconf();
+            double[] ic = engine.getIC_table(icConf);
+            double[] minDescendantsIC = engine.getMinDescendantsIC_table(icConf);
+            int[][] children = engine.getChildrenIds();
+            int[] ancestors = engine.getMICAEngine(icConf).getAncestorsByDecreasingIC(a);
+
+            // bounds[i]: bound of the classes having ancestors[i] as MICA
+            // remaining[i]: bound of the classes having ancestors[j >= i] as MICA
+            double[] bounds = new double[ancestors.length];
+            double[] remaining = new double[ancestors.length];
+
+            for (int i = ancestors.length - 1; i >= 0; i--) {
+
+                int m = ancestors[i];
+                double bound = measure.simUpperBound(a, ic[m], minDescendantsIC[m], engine, conf);
+                bounds[i] = Double.isNaN(bound) ? Double.POSITIVE_INFINITY : bound;
+                remaining[i] = i == ancestors.length - 1 ? bounds[i] : Math.max(bounds[i], remaining[i + 1]);
+            }
+
+            TopKHeap heap = new TopKHeap(k);
+            BitSet visited = new BitSet();
+            int[] stack = new int[64];
+
+            for (int i = 0; i < ancestors.length; i++) {
+
+                if (heap.isFull() && remaining[i] < heap.worstScore()) {
+                    break;
+                }
+                if (heap.isFull() && bounds[i] < heap.worstScore()) {
+                    continue;
+                }
+
+                double icMICA = ic[ancestors[i]];
+                int size = 0;
+                stack[size++] = ancestors[i];
+
+                while (size > 0) {
+
+                    int b = stack[--size];
+
+                    if (visited.get(b)) {
+                        continue;
+                    }
+                    visited.set(b);
+
+                    if (heap.isFull() && measure.simUpperBound(a, icMICA, minDescendantsIC[b], engine, conf) < heap.worstScore()) {
+                        continue;
+                    }
+
+                    double sim = measure.sim(a, b, engine, conf);
+
+                    if (Double.isNaN(sim) || Double.isInfinite(sim)) {
+                        SMutils.throwArithmeticCriticalException(conf, engine.getClassURI(a), engine.getClassURI(b), sim);
+                    }
+                    heap.offer(b, sim);
+
+                    int[] next = children[b];
+                    if (size + next.length > stack.length) {
+                        stack = Arrays.copyOf(stack, Math.max(2 * stack.length, size + next.length));
+                    }
+                    for (int c : next) {
+                        if (!visited.get(c)) {
+                            stack[size++] = c;
+                        }
+                    }
+                }
+            }
+            return heap.drain(ids, scores);
+
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SLIB_Ex_Critic(e);
+        }
+    }
+}
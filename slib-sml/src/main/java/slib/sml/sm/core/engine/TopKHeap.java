@@ -0,0 +1,126 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+ */
+package slib.sml.sm.core.engine;
+
+/**
+ * Bounded binary heap storing the best scored elements of a search, the root
+ * being the worst one. Elements with the same score are ranked by increasing
+ * id.
+ *
+ * @author Harispe Sébastien
+ */
+final class TopKHeap {
+
+    final int[] ids;
+    final double[] scores;
+    int size = 0;
+
+    TopKHeap(int capacity) {
+        ids = new int[capacity];
+        scores = new double[capacity];
+    }
+
+    boolean isFull() {
+        return size == ids.length;
+    }
+
+    double worstScore() {
+        return scores[0];
+    }
+
+    /**
+     * @return true if the element i is worse than the element j
+     */
+    private boolean worse(int i, int j) {
+        return scores[i] < scores[j] || (scores[i] == scores[j] && ids[i] > ids[j]);
+    }
+
+    void offer(int id, double score) {
+
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            int i = size++;
+            while (i > 0 && worse(i, (i - 1) / 2)) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        } else if (score > scores[0] || (score == scores[0] && id < ids[0])) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    private void siftDown(int i, int n) {
+
+        while (2 * i + 1 < n) {
+            int c = 2 * i + 1;
+            if (c + 1 < n && worse(c + 1, c)) {
+                c++;
+            }
+            if (!worse(c, i)) {
+                break;
+            }
+            swap(i, c);
+            i = c;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+
+    /**
+     * Copy the elements by decreasing score, the heap is emptied.
+     *
+     * @return the number of elements copied
+     */
+    int drain(int[] destIds, double[] destScores) {
+
+        int n = size;
+        for (int last = n - 1; last >= 0; last--) {
+            destIds[last] = ids[0];
+            destScores[last] = scores[0];
+            swap(0, last);
+            siftDown(0, last);
+        }
+        return n;
+    }
+}
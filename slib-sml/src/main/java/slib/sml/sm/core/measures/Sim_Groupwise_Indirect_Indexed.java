@@ -0,0 +1,66 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sml.sm.core.measures;
+
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Interface of an indirect groupwise measure which can also be computed from
+ * the identifiers the engine associates to the classes (see
+ * {@link SM_Engine#getClassId(org.openrdf.model.URI)}). The pairwise scores
+ * are expected to be obtained through
+ * {@link SM_Engine#computePairwiseSim(SMconf, int, int)}.
+ *
+ * @author Harispe Sébastien
+ */
+public interface Sim_Groupwise_Indirect_Indexed extends Sim_Groupwise_Indirect {
+
+    /**
+     * Compute the similarity between the given sets of concepts considering a
+     * particular configuration.
+     *
+     * @param setA the ids of the first set of classes
+     * @param setB the ids of the second set of classes
+     * @param rc the engine used to access specific information used by the
+     * measures
+     * @param groupwiseconf the groupwise configuration.
+     * @param pairwiseConf the pairwise configuration.
+     * @return the semantic similarity of the pair of groups of concepts
+     * @throws SLIB_Exception
+     */
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf groupwiseconf, SMconf pairwiseConf) throws SLIB_Exception;
+}
@@ -0,0 +1,69 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sml.sm.core.measures;
+
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Interface of a pairwise measure for which an upper bound of the scores can be
+ * computed from the information content of the MICA of the compared
+ * concepts/classes, the information content being the one defined by
+ * {@link SMconf#getICconf()}. The bound is used to search the concepts/classes
+ * the most similar to a given one without comparing it to all the
+ * concepts/classes, see {@link SM_Engine#getTopKSimilarClasses(SMconf, int, int, int[], double[])}
+ * and {@link slib.sml.sm.core.engine.SM_EntitySearchEngine}.
+ *
+ * @author Harispe Sébastien
+ */
+public interface Sim_Pairwise_IC_Bounded extends Sim_Pairwise_Indexed {
+
+    /**
+     * Compute an upper bound of the similarity of a concept/class A with all
+     * the concepts/classes B such that the IC of the MICA of A and B is equal
+     * to the given one and the IC of B is greater than or equal to the given
+     * minimal IC. The bound must not decrease when the minimal IC decreases.
+     *
+     * @param a the id of the concept/class A
+     * @param ic_mica the IC of the MICA of A and B
+     * @param ic_b_min the minimal IC of B
+     * @param engine the engine used to access the information content
+     * @param conf the configuration to consider
+     * @return an upper bound of the similarity of A and B
+     * @throws SLIB_Exception
+     */
+    public double simUpperBound(int a, double ic_mica, double ic_b_min, SM_Engine engine, SMconf conf) throws SLIB_Exception;
+}
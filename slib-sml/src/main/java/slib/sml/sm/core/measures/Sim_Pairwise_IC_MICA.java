@@ -0,0 +1,64 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sml.sm.core.measures;
+
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Interface of a pairwise measure which only depends on the information
+ * content of the compared concepts/classes and on the information content of
+ * their Most Informative Common Ancestor (MICA), the information content being
+ * the one defined by {@link SMconf#getICconf()}. Such measures can be computed
+ * for a large number of pairs from MICA searches performed in bulk, e.g. by
+ * {@link slib.sml.sm.core.engine.SM_MatrixEngine}.
+ *
+ * @author Harispe Sébastien
+ */
+public interface Sim_Pairwise_IC_MICA extends Sim_Pairwise_Indexed {
+
+    /**
+     * Compute the semantic similarity of a pair of concepts/classes from
+     * their information content.
+     *
+     * @param ic_a the IC of the first concept/class
+     * @param ic_b the IC of the second concept/class
+     * @param ic_mica the IC of the MICA of the two concepts/classes
+     * @param conf the configuration to consider
+     * @return the similarity between the pair of concept/class.
+     * @throws SLIB_Exception
+     */
+    public double sim(double ic_a, double ic_b, double ic_mica, SMconf conf) throws SLIB_Exception;
+}
@@ -34,12 +34,7 @@
  */
 package slib.sml.sm.core.measures.graph.framework.dag;
 
-import java.util.Set;
-import org.openrdf.model.URI;
-
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.ex.SLIB_Exception;
-import slib.utils.impl.SetUtils;
 
 /**
  * Bader G, Hogue C: An automated method for finding molecular complexes in
@@ -55,15 +50,9 @@ import slib.utils.impl.SetUtils;
 public class Sim_Framework_DAG_Set_Bader_2003 extends Sim_Framework_DAG_Set_abstract {
 
     @Override
-    public double sim(Set<URI> setA, Set<URI> setB, SMconf conf) throws SLIB_Exception {
-
-        Set<URI> interSecAncestors = SetUtils.intersection(setA, setB);
-
-        int nbAncest_a = setA.size();
-        int nbAncest_b = setB.size();
-
-        double mb = (double) Math.pow(interSecAncestors.size(), 2) / (nbAncest_a * nbAncest_b);
+    public double sim(int nbAncest_a, int nbAncest_b, int nbInter, SMconf conf) {
 
+        double mb = (double) Math.pow(nbInter, 2) / (nbAncest_a * nbAncest_b);
         return mb;
     }
 
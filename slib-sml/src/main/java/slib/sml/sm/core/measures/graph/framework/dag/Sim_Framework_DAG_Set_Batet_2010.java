@@ -39,7 +39,7 @@ import org.openrdf.model.URI;
 
 import slib.sml.sm.core.engine.SM_Engine;
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
+import slib.utils.impl.CompressedIntSet;
 
 /**
  * Batet M, Sanchez D, Valls A: An ontology-based measure to compute semantic
@@ -55,13 +55,13 @@ import slib.utils.impl.SetUtils;
 public class Sim_Framework_DAG_Set_Batet_2010 extends Sim_Framework_DAG_Set_abstract {
 
     @Override
-    public double sim(URI a, URI b, SM_Engine c, SMconf conf) {
+    public double sim(int a, int b, SM_Engine c, SMconf conf) {
 
         int nbV = c.getClasses().size();
-        Set<URI> ancA = c.getAncestorsInc(a);
-        Set<URI> ancB = c.getAncestorsInc(b);
+        CompressedIntSet ancA = c.getAncestorsIncSet(a);
+        CompressedIntSet ancB = c.getAncestorsIncSet(b);
 
-        return sim(nbV, ancA, ancB);
+        return sim(nbV, ancA.cardinality(), ancB.cardinality(), ancA.intersectionCardinality(ancB));
     }
 
     @Override
@@ -75,23 +75,18 @@ public class Sim_Framework_DAG_Set_Batet_2010 extends Sim_Framework_DAG_Set_abst
     }
 
     @Override
-    public double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) {
-
-
-        Set<URI> interSecAncestors = SetUtils.intersection(ancA, ancB);
-        Set<URI> unionAncestors = SetUtils.union(ancA, ancB);
-
-        double num = unionAncestors.size() - interSecAncestors.size();
-
+    public double sim(int nbAncA, int nbAncB, int nbInter, SMconf conf) {
 
+        int nbUnion = nbAncA + nbAncB - nbInter;
+        double num = nbUnion - nbInter;
 
         double batet;
 
         if (num == 0) {
             batet = 1;
         } else {
-            batet = -Math.log((double) num / unionAncestors.size());
-            batet = batet / Math.log(unionAncestors.size());
+            batet = -Math.log((double) num / nbUnion);
+            batet = batet / Math.log(nbUnion);
         }
         return batet;
     }
@@ -106,17 +101,30 @@ public class Sim_Framework_DAG_Set_Batet_2010 extends Sim_Framework_DAG_Set_abst
      */
     public double sim(int nbVertices, Set<URI> a, Set<URI> b) {
 
-        Set<URI> interSecAncestors = SetUtils.intersection(a, b);
-        Set<URI> unionAncestors = SetUtils.union(a, b);
+        return sim(nbVertices, a.size(), b.size(), intersectionSize(a, b));
+    }
+
+    /**
+     * Normalized version computed from the sizes of the compared sets and of
+     * their intersection.
+     *
+     * @param nbVertices the number of classes
+     * @param nbAncA the size of the first set
+     * @param nbAncB the size of the second set
+     * @param nbInter the size of the intersection of the two sets
+     * @return the similarity of the two sets
+     */
+    public double sim(int nbVertices, int nbAncA, int nbAncB, int nbInter) {
 
-        double num = unionAncestors.size() - interSecAncestors.size();
+        int nbUnion = nbAncA + nbAncB - nbInter;
+        double num = nbUnion - nbInter;
         double batet;
 
         if (num == 0) {
             batet = 1;
         } else {
 
-            batet = -Math.log((double) num / unionAncestors.size());
+            batet = -Math.log((double) num / nbUnion);
             batet = batet / Math.log(nbVertices);
         }
         return batet;
@@ -34,11 +34,7 @@
  */
 package slib.sml.sm.core.measures.graph.framework.dag;
 
-import java.util.Set;
-import org.openrdf.model.URI;
-
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
 
 /**
  * Braun-Blanquet J: Plant sociology: the study of plant communities.
@@ -49,17 +45,9 @@ import slib.utils.impl.SetUtils;
 public class Sim_Framework_DAG_Set_Braun_Blanquet_1932 extends Sim_Framework_DAG_Set_abstract {
 
     @Override
-    public double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) {
-
-
-        Set<URI> interSecAncestors = SetUtils.intersection(ancA, ancB);
-
-        int nbAncest_a = ancA.size();
-        int nbAncest_b = ancB.size();
-
-
-        double braun_blanquet = (double) interSecAncestors.size() / Math.max(nbAncest_a, nbAncest_b);
+    public double sim(int nbAncest_a, int nbAncest_b, int nbInter, SMconf conf) {
 
+        double braun_blanquet = (double) nbInter / Math.max(nbAncest_a, nbAncest_b);
         return braun_blanquet;
     }
 
@@ -34,11 +34,7 @@
  */
 package slib.sml.sm.core.measures.graph.framework.dag;
 
-import java.util.Set;
-import org.openrdf.model.URI;
-
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
 
 /**
  * Jaccard P: Distribution de la flore alpine dans le bassin des Dranses et dans
@@ -51,16 +47,9 @@ import slib.utils.impl.SetUtils;
 public class Sim_Framework_DAG_Set_Jaccard_1901 extends Sim_Framework_DAG_Set_abstract {
 
     @Override
-    public double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) {
-
-        Set<URI> interSecAncestors = SetUtils.intersection(ancA, ancB);
-
-
-        int nbAncest_a = ancA.size();
-        int nbAncest_b = ancB.size();
-
-        double jaccard = (double) interSecAncestors.size() / (nbAncest_a + nbAncest_b - interSecAncestors.size());
+    public double sim(int nbAncest_a, int nbAncest_b, int nbInter, SMconf conf) {
 
+        double jaccard = (double) nbInter / (nbAncest_a + nbAncest_b - nbInter);
         return jaccard;
     }
 
@@ -34,11 +34,7 @@
  */
 package slib.sml.sm.core.measures.graph.framework.dag;
 
-import java.util.Set;
-import org.openrdf.model.URI;
-
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
 
 /**
  * Knappe R, Bulskov H, Andreasen T: Perspectives on ontology-based
@@ -62,15 +58,12 @@ public class Sim_Framework_DAG_Set_Knappe_2004 extends Sim_Framework_DAG_Set_abs
     }
 
     @Override
-    public double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) {
-
-        Set<URI> interSecAncestors = SetUtils.intersection(ancA, ancB);
-
-        double nbAncest_a = ancA.size();
-        double nbAncest_b = ancB.size();
+    public double sim(int nbAncA, int nbAncB, int nbInter, SMconf conf) {
 
-        double knappe = (double) k * (interSecAncestors.size() / nbAncest_a) + (1 - k) * (interSecAncestors.size() / nbAncest_b);
+        double nbAncest_a = nbAncA;
+        double nbAncest_b = nbAncB;
 
+        double knappe = (double) k * (nbInter / nbAncest_a) + (1 - k) * (nbInter / nbAncest_b);
         return knappe;
     }
 
@@ -34,11 +34,7 @@
  */
 package slib.sml.sm.core.measures.graph.framework.dag;
 
-import java.util.Set;
-import org.openrdf.model.URI;
-
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
 
 /**
  * Korbel JO, Snel B, Huynen M a, Bork P: SHOT: a web server for the
@@ -53,18 +49,15 @@ import slib.utils.impl.SetUtils;
 public class Sim_Framework_DAG_Set_Korbel_2002 extends Sim_Framework_DAG_Set_abstract {
 
     @Override
-    public double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) {
-
-        Set<URI> interSecAncestors = SetUtils.intersection(ancA, ancB);
-
-        double nbAncest_a = ancA.size();
-        double nbAncest_b = ancB.size();
+    public double sim(int nbAncA, int nbAncB, int nbInter, SMconf conf) {
 
-        double pow_a = Math.pow(ancA.size(), 2);
-        double pow_b = Math.pow(ancB.size(), 2);
+        double nbAncest_a = nbAncA;
+        double nbAncest_b = nbAncB;
 
-        double mb = ((Math.sqrt(pow_a + pow_b) / (Math.sqrt(2) * nbAncest_a * nbAncest_b)) * interSecAncestors.size());
+        double pow_a = Math.pow(nbAncA, 2);
+        double pow_b = Math.pow(nbAncB, 2);
 
+        double mb = ((Math.sqrt(pow_a + pow_b) / (Math.sqrt(2) * nbAncest_a * nbAncest_b)) * nbInter);
         return mb;
     }
 
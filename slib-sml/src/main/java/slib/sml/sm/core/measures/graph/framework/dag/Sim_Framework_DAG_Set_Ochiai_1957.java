@@ -34,11 +34,7 @@
  */
 package slib.sml.sm.core.measures.graph.framework.dag;
 
-import java.util.Set;
-import org.openrdf.model.URI;
-
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
 
 /**
  * Ochiai A: Zoogeographic studies on the soleoid fishes found in Japan and
@@ -50,15 +46,9 @@ import slib.utils.impl.SetUtils;
 public class Sim_Framework_DAG_Set_Ochiai_1957 extends Sim_Framework_DAG_Set_abstract {
 
     @Override
-    public double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) {
-
-        Set<URI> interSecAncestors = SetUtils.intersection(ancA, ancB);
-
-        int nbAncest_a = ancA.size();
-        int nbAncest_b = ancB.size();
-
-        double ochiai = (double) interSecAncestors.size() / Math.sqrt(nbAncest_a * nbAncest_b);
+    public double sim(int nbAncest_a, int nbAncest_b, int nbInter, SMconf conf) {
 
+        double ochiai = (double) nbInter / Math.sqrt(nbAncest_a * nbAncest_b);
         return ochiai;
     }
 
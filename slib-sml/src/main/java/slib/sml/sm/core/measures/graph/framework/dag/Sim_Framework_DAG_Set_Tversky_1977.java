@@ -34,13 +34,8 @@
  */
 package slib.sml.sm.core.measures.graph.framework.dag;
 
-import java.util.HashSet;
-import java.util.Set;
-import org.openrdf.model.URI;
-
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Exception;
-import slib.utils.impl.SetUtils;
 
 /**
  * Tversky A: Features of similarity. Psychological Review 1977, 84:327-352.
@@ -73,27 +68,17 @@ public class Sim_Framework_DAG_Set_Tversky_1977 extends Sim_Framework_DAG_Set_ab
     }
 
     @Override
-    public double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) throws SLIB_Exception {
+    public double sim(int nbAncA, int nbAncB, int nbInter, SMconf conf) throws SLIB_Exception {
 
         if (conf != null && conf.containsParam(k_param_name)) {
             k = conf.getParamAsDouble(k_param_name);
         }
 
-        Set<URI> interSecAncestors = SetUtils.intersection(ancA, ancB);
-
-        HashSet<URI> diff_a_b = new HashSet<URI>(ancA);
-        diff_a_b.removeAll(ancB);
-
-        HashSet<URI> diff_b_a = new HashSet<URI>(ancB);
-        diff_b_a.removeAll(ancA);
-
-        int c1_c2_diff_size = diff_a_b.size();
-        int c2_c1_diff_size = diff_b_a.size();
-
-        double den = (double) interSecAncestors.size() + k * c1_c2_diff_size + (1 - k) * c2_c1_diff_size;
-
-        double tversky = (double) interSecAncestors.size() / den;
+        int c1_c2_diff_size = nbAncA - nbInter;
+        int c2_c1_diff_size = nbAncB - nbInter;
 
+        double den = (double) nbInter + k * c1_c2_diff_size + (1 - k) * c2_c1_diff_size;
+        double tversky = (double) nbInter / den;
 
         return tversky;
     }
@@ -38,25 +38,38 @@ import java.util.Set;
 import org.openrdf.model.URI;
 
 import slib.sml.sm.core.measures.Sim_Groupwise_Direct;
+import slib.sml.sm.core.measures.Sim_Pairwise_Indexed;
 import slib.sml.sm.core.measures.graph.pairwise.dag.Sim_Pairwise_DAG;
 import slib.sml.sm.core.engine.SM_Engine;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.CompressedIntSet;
 
 /**
  * Abstract class used to facilitate implementation of set based measures.
  *
+ * Set based measures only depend on the sizes of the compared sets and on
+ * the size of their intersection. Pairwise comparisons therefore rely on the
+ * compressed ancestor sets stored by the engine, which give the size of the
+ * intersection without building it.
+ *
  * @author Sébastien Harispe
  */
-public abstract class Sim_Framework_DAG_Set_abstract implements Sim_Pairwise_DAG, Sim_Groupwise_Direct {
+public abstract class Sim_Framework_DAG_Set_abstract implements Sim_Pairwise_DAG, Sim_Pairwise_Indexed, Sim_Groupwise_Direct {
 
     @Override
     public double sim(URI a, URI b, SM_Engine c, SMconf conf) throws SLIB_Exception {
 
-        Set<URI> ancA = c.getAncestorsInc(a);
-        Set<URI> ancB = c.getAncestorsInc(b);
+        return sim(c.getClassId(a), c.getClassId(b), c, conf);
+    }
 
-        return sim(ancA, ancB, conf);
+    @Override
+    public double sim(int a, int b, SM_Engine c, SMconf conf) throws SLIB_Exception {
+
+        CompressedIntSet ancA = c.getAncestorsIncSet(a);
+        CompressedIntSet ancB = c.getAncestorsIncSet(b);
+
+        return sim(ancA.cardinality(), ancB.cardinality(), ancA.intersectionCardinality(ancB), conf);
     }
 
     @Override
@@ -79,5 +92,44 @@ public abstract class Sim_Framework_DAG_Set_abstract implements Sim_Pairwise_DAG
      * @return the similarity of the two sets.
      * @throws SLIB_Exception
      */
-    public abstract double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) throws SLIB_Exception;
+    public double sim(Set<URI> ancA, Set<URI> ancB, SMconf conf) throws SLIB_Exception {
+
+        return sim(ancA.size(), ancB.size(), intersectionSize(ancA, ancB), conf);
+    }
+
+    /**
+     * Compute the similarity of two sets of concepts extended considering
+     * inference based on the taxonomic hierarchy, from the sizes of the sets
+     * and of their intersection.
+     *
+     * @param nbAncA the size of the first set
+     * @param nbAncB the size of the second set
+     * @param nbInter the size of the intersection of the two sets
+     * @param conf the configuration to apply to compute the semantic similarity
+     * @return the similarity of the two sets.
+     * @throws SLIB_Exception
+     */
+    public abstract double sim(int nbAncA, int nbAncB, int nbInter, SMconf conf) throws SLIB_Exception;
+
+    /**
+     * Compute the size of the intersection of two sets without building it.
+     *
+     * @param a the first set
+     * @param b the second set
+     * @return the number of elements shared by the two sets
+     */
+    protected static int intersectionSize(Set<URI> a, Set<URI> b) {
+        if (a.size() > b.size()) {
+            Set<URI> tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int nb = 0;
+        for (URI v : a) {
+            if (b.contains(v)) {
+                nb++;
+            }
+        }
+        return nb;
+    }
 }
@@ -36,11 +36,10 @@ package slib.sml.sm.core.measures.graph.groupwise.dag;
 
 import java.util.Set;
 import org.openrdf.model.URI;
-
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Direct_Indexed;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Exception;
-import slib.utils.impl.SetUtils;
 
 /**
  * Pesquita C, Faria D, Bastos H: Evaluating gobased semantic similarity
@@ -49,32 +48,24 @@ import slib.utils.impl.SetUtils;
  * @author Sebastien Harispe
  *
  */
-public class Sim_groupwise_DAG_GIC extends Sim_groupwise_DAG_abstract {
+public class Sim_groupwise_DAG_GIC extends Sim_groupwise_DAG_abstract implements Sim_Groupwise_Direct_Indexed {
 
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf conf) throws SLIB_Exception {
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, conf);
+    }
 
-        Set<URI> anc_setA = rc.getAncestorsInc(setA);
-        Set<URI> anc_setB = rc.getAncestorsInc(setB);
-
-        Set<URI> intersection = SetUtils.intersection(anc_setA, anc_setB);
-        Set<URI> union = SetUtils.union(anc_setA, anc_setB);
-
-        double ic_inter = 0.;
-
-        for (URI r : intersection) {
-            ic_inter += rc.getIC(conf.getICconf(), r);
-        }
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf conf) throws SLIB_Exception {
 
-        double ic_union = 0.;
+        double[] overlap = computeAncestorsOverlap(setA, setB, rc, rc.getIC_table(conf.getICconf()));
 
-        for (URI r : union) {
-            ic_union += rc.getIC(conf.getICconf(), r);
-        }
+        double ic_inter = overlap[W_INTERSECTION];
+        double ic_union = overlap[W_UNION];
 
         if (ic_union == 0) {
             return 0;
         }
-        return (double) ic_inter / ic_union;
+        return ic_inter / ic_union;
     }
 }
@@ -37,8 +37,8 @@ package slib.sml.sm.core.measures.graph.groupwise.dag;
 import java.util.Set;
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Direct_Indexed;
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
 
 /**
  * Adaptation of Mistry M, Pavlidis P: Gene Ontology term overlap as a measure
@@ -49,22 +49,24 @@ import slib.utils.impl.SetUtils;
  * @author Sébastien Harispe
  *
  */
-public class Sim_groupwise_DAG_NTO_MAX extends Sim_groupwise_DAG_abstract {
+public class Sim_groupwise_DAG_NTO_MAX extends Sim_groupwise_DAG_abstract implements Sim_Groupwise_Direct_Indexed {
 
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf conf) {
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, conf);
+    }
 
-        Set<URI> ancA = rc.getAncestorsInc(setA);
-        Set<URI> ancB = rc.getAncestorsInc(setB);
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf conf) {
 
-        Set<URI> intersection = SetUtils.intersection(ancA, ancB);
+        double[] overlap = computeAncestorsOverlap(setA, setB, rc, null);
 
-        double max = Math.max(ancA.size(), ancB.size());
+        double max = Math.max(overlap[NB_ANC_A], overlap[NB_ANC_B]);
 
         if (max == 0) {
             return 0.;
         }
 
-        return (double) intersection.size() / max;
+        return overlap[NB_INTERSECTION] / max;
     }
 }
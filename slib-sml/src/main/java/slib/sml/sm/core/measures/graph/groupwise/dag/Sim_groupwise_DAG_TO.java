@@ -37,8 +37,8 @@ package slib.sml.sm.core.measures.graph.groupwise.dag;
 import java.util.Set;
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Direct_Indexed;
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
 
 /**
  * Mistry M, Pavlidis P: Gene Ontology term overlap as a measure of gene
@@ -50,16 +50,18 @@ import slib.utils.impl.SetUtils;
  *
  * @author Harispe Sébastien
  */
-public class Sim_groupwise_DAG_TO extends Sim_groupwise_DAG_abstract {
+public class Sim_groupwise_DAG_TO extends Sim_groupwise_DAG_abstract implements Sim_Groupwise_Direct_Indexed {
 
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine c, SMconf conf) {
+        return sim(c.getClassIds(setA), c.getClassIds(setB), c, conf);
+    }
 
-        Set<URI> ancA = c.getAncestorsInc(setA);
-        Set<URI> ancB = c.getAncestorsInc(setB);
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine c, SMconf conf) {
 
-        Set<URI> intersection = SetUtils.intersection(ancA, ancB);
+        double[] overlap = computeAncestorsOverlap(setA, setB, c, null);
 
-        return intersection.size();
+        return overlap[NB_INTERSECTION];
     }
 }
@@ -36,10 +36,9 @@ package slib.sml.sm.core.measures.graph.groupwise.dag;
 
 import java.util.Set;
 import org.openrdf.model.URI;
-
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Direct_Indexed;
 import slib.sml.sm.core.utils.SMconf;
-import slib.utils.impl.SetUtils;
 
 /**
  * Gentleman R: Visualizing and distances using GO. Retrieved Jan. 10th 2007.
@@ -48,18 +47,18 @@ import slib.utils.impl.SetUtils;
  * @author Sébastien Harispe
  *
  */
-public class Sim_groupwise_DAG_UI extends Sim_groupwise_DAG_abstract {
+public class Sim_groupwise_DAG_UI extends Sim_groupwise_DAG_abstract implements Sim_Groupwise_Direct_Indexed {
 
-    
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf conf) {
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, conf);
+    }
 
-        Set<URI> anc_setA = rc.getAncestorsInc(setA);
-        Set<URI> anc_setB = rc.getAncestorsInc(setB);
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf conf) {
 
-        Set<URI> intersection = SetUtils.intersection(anc_setA, anc_setB);
-        Set<URI> union = SetUtils.union(anc_setA, anc_setB);
+        double[] overlap = computeAncestorsOverlap(setA, setB, rc, null);
 
-        return (double) intersection.size() / union.size();
+        return overlap[NB_INTERSECTION] / overlap[NB_UNION];
     }
-}
\ No newline at end of file
+}
@@ -34,13 +34,156 @@
  */
 package slib.sml.sm.core.measures.graph.groupwise.dag;
 
+import java.util.Arrays;
+import slib.sml.sm.core.engine.SM_Engine;
 import slib.sml.sm.core.measures.Sim_Groupwise_Direct;
 
 /**
  * Abstract class used to represent a semantic measure which can be applied
  * between two sets of concepts expressed in a Directed Acyclic Graph (DAG).
  *
+ * The measures comparing the inclusive ancestors of the two sets can rely on
+ * {@link #computeAncestorsOverlap(int[], int[], SM_Engine, double[])}: the
+ * ancestors of each set are stored in a bitmap indexed by class ids, built by
+ * OR-ing the compressed ancestor sets of the classes, and the cardinalities
+ * and IC sums of the intersection and of the union are computed word by word
+ * without materializing any set.
+ *
  * @author Sébastien Harispe
  */
 public abstract class Sim_groupwise_DAG_abstract implements Sim_Groupwise_Direct {
+
+    /**
+     * Index of the number of ancestors of the first set in the array returned
+     * by {@link #computeAncestorsOverlap(int[], int[], SM_Engine, double[])}.
+     */
+    protected static final int NB_ANC_A = 0;
+    /**
+     * Index of the number of ancestors of the second set.
+     */
+    protected static final int NB_ANC_B = 1;
+    /**
+     * Index of the number of ancestors shared by the two sets.
+     */
+    protected static final int NB_INTERSECTION = 2;
+    /**
+     * Index of the number of ancestors of the union of the two sets.
+     */
+    protected static final int NB_UNION = 3;
+    /**
+     * Index of the sum of the weights of the ancestors shared by the two sets.
+     */
+    protected static final int W_INTERSECTION = 4;
+    /**
+     * Index of the sum of the weights of the ancestors of the union of the two
+     * sets.
+     */
+    protected static final int W_UNION = 5;
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * Buffers owned by a thread. The bitmaps are cleared after each use.
+     */
+    private static final class Scratch {
+
+        long[] ancA = new long[16];
+        long[] ancB = new long[16];
+        final double[] results = new double[6];
+    }
+
+    /**
+     * Compare the inclusive ancestors of two sets of classes.
+     *
+     * Since the ids of the classes are ordered according to a topological
+     * sort, the greatest id of the inclusive ancestors of a set is the
+     * greatest id of the set: the bitmaps only cover the ids lower than it.
+     *
+     * @param setA the ids of the first set of classes
+     * @param setB the ids of the second set of classes
+     * @param rc the engine
+     * @param weights the weights of the classes indexed by id, e.g. an IC
+     * table (see {@link SM_Engine#getIC_table(slib.sml.sm.core.metrics.ic.utils.ICconf)}),
+     * or null if the weighted sums are not required
+     * @return an array owned by the current thread containing the
+     * cardinalities and weighted sums at indexes {@link #NB_ANC_A},
+     * {@link #NB_ANC_B}, {@link #NB_INTERSECTION}, {@link #NB_UNION},
+     * {@link #W_INTERSECTION} and {@link #W_UNION} (0 if no weights are
+     * given)
+     */
+    protected static double[] computeAncestorsOverlap(int[] setA, int[] setB, SM_Engine rc, double[] weights) {
+
+        Scratch s = scratch.get();
+
+        int max = -1;
+        for (int c : setA) {
+            max = Math.max(max, c);
+        }
+        for (int c : setB) {
+            max = Math.max(max, c);
+        }
+        int nbWords = (max >>> 6) + 1;
+
+        if (s.ancA.length < nbWords) {
+            s.ancA = new long[Math.max(nbWords, 2 * s.ancA.length)];
+            s.ancB = new long[s.ancA.length];
+        }
+        long[] ancA = s.ancA;
+        long[] ancB = s.ancB;
+
+        int nbA = 0, nbB = 0, nbInter = 0;
+        double wInter = 0, wUnion = 0;
+
+        try {
+
+            for (int c : setA) {
+                rc.getAncestorsIncSet(c).or(ancA);
+            }
+            for (int c : setB) {
+                rc.getAncestorsIncSet(c).or(ancB);
+            }
+
+            for (int w = 0; w < nbWords; w++) {
+
+                long a = ancA[w];
+                long b = ancB[w];
+                long inter = a & b;
+
+                nbA += Long.bitCount(a);
+                nbB += Long.bitCount(b);
+                nbInter += Long.bitCount(inter);
+
+                if (weights != null) {
+                    long union = a | b;
+                    while (union != 0) {
+                        long bit = union & -union;
+                        double weight = weights[(w << 6) + Long.numberOfTrailingZeros(bit)];
+                        wUnion += weight;
+                        if ((inter & bit) != 0) {
+                            wInter += weight;
+                        }
+                        union ^= bit;
+                    }
+                }
+            }
+        } finally {
+            // also cleared if an id is invalid, the bitmaps are reused by the
+            // next computations of the thread
+            Arrays.fill(ancA, 0, nbWords, 0L);
+            Arrays.fill(ancB, 0, nbWords, 0L);
+        }
+
+        double[] r = s.results;
+        r[NB_ANC_A] = nbA;
+        r[NB_ANC_B] = nbB;
+        r[NB_INTERSECTION] = nbInter;
+        r[NB_UNION] = nbA + nbB - nbInter;
+        r[W_INTERSECTION] = wInter;
+        r[W_UNION] = wUnion;
+        return r;
+    }
 }
@@ -66,7 +66,9 @@ public class SimDagEdgeUtils {
      * @param allSpB	shortest path from B to all concepts
      * @param ancestors_A	inclusive ancestors of A
      * @param ancestors_B	inclusive ancestors of B
-     * @param dijkstra
+     * @param dijkstra shortest path finder following the edges from a class to
+     * its ancestors, used to compute the shortest path from each common
+     * ancestor to the root
      * @return the vertex corresponding to the Most Specific Ancestors
      */
     public static URI getMSA_pekar_staab(
@@ -83,7 +85,7 @@ public class SimDagEdgeUtils {
 
         Map<URI, Double> msaSet = new HashMap<URI, Double>(); // eligible MSA + dist to root
 
-        if (interSecAncestors.isEmpty()) {
+        if (!interSecAncestors.isEmpty()) {
 
             // Search MSA considering PK function 
 
@@ -91,7 +93,11 @@ public class SimDagEdgeUtils {
 
             for (URI r : interSecAncestors) {
 
-                double sp_root = dijkstra.shortestPath(root, r);
+                Double sp_root = dijkstra.shortestPath(r, root);
+
+                if (sp_root == null) { // the root cannot be reached from r
+                    continue;
+                }
 
                 double score = allSpA.get(r) + allSpB.get(r) + sp_root;
 
@@ -118,7 +124,7 @@ public class SimDagEdgeUtils {
 
         for (Entry<URI, Double> e : msaSet.entrySet()) {
 
-            if (e.getValue() > msalpr) {
+            if (msa == null || e.getValue() > msalpr) {
                 msalpr = e.getValue();
                 msa = e.getKey();
             }
@@ -36,6 +36,7 @@ package slib.sml.sm.core.measures.graph.pairwise.dag.node_based;
 
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_MICA;
 import slib.sml.sm.core.metrics.ic.utils.ICconf;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
@@ -49,7 +50,7 @@ import slib.utils.ex.SLIB_Exception;
  *
  * @author Sébastien Harispe
  */
-public class Sim_pairwise_DAG_node_GL implements Sim_DAG_node_abstract {
+public class Sim_pairwise_DAG_node_GL implements Sim_DAG_node_abstract, Sim_Pairwise_IC_MICA {
 
     public static final String beta_param_name = "beta";
     private double beta = 0.;
@@ -72,6 +73,30 @@ public class Sim_pairwise_DAG_node_GL implements Sim_DAG_node_abstract {
         return sim(ic_a, ic_b, ic_MICA, beta);
     }
 
+    @Override
+    public double sim(int a, int b, SM_Engine c, SMconf conf) throws SLIB_Exception {
+
+        ICconf icConf = conf.getICconf();
+
+        double ic_a = c.getIC(icConf, a);
+        double ic_b = c.getIC(icConf, b);
+        double ic_MICA = c.getIC_MICA(icConf, a, b);
+
+        if (conf.containsParam(beta_param_name)) {
+            beta = conf.getParamAsDouble(beta_param_name);
+        }
+
+        return sim(ic_a, ic_b, ic_MICA, beta);
+    }
+
+    @Override
+    public double sim(double ic_a, double ic_b, double ic_mica, SMconf conf) throws SLIB_Exception {
+        if (conf.containsParam(beta_param_name)) {
+            beta = conf.getParamAsDouble(beta_param_name);
+        }
+        return sim(ic_a, ic_b, ic_mica, beta);
+    }
+
     public double sim(double ic_a, double ic_b, double ic_mica, double beta) throws SLIB_Ex_Critic {
 
         double den = ((ic_a) + (ic_b) + (beta - 2.) * ic_mica);
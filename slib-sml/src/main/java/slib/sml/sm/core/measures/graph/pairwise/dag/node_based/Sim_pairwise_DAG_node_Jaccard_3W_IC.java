@@ -36,6 +36,7 @@ package slib.sml.sm.core.measures.graph.pairwise.dag.node_based;
 
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_MICA;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Exception;
 
@@ -48,7 +49,7 @@ import slib.utils.ex.SLIB_Exception;
  * @author Sebastien Harispe
  *
  */
-public class Sim_pairwise_DAG_node_Jaccard_3W_IC implements Sim_DAG_node_abstract {
+public class Sim_pairwise_DAG_node_Jaccard_3W_IC implements Sim_DAG_node_abstract, Sim_Pairwise_IC_MICA {
 
     @Override
     public double sim(URI a, URI b, SM_Engine c, SMconf conf) throws SLIB_Exception {
@@ -60,6 +61,21 @@ public class Sim_pairwise_DAG_node_Jaccard_3W_IC implements Sim_DAG_node_abstrac
         return sim(ic_a, ic_b, ic_MICA);
     }
 
+    @Override
+    public double sim(int a, int b, SM_Engine c, SMconf conf) throws SLIB_Exception {
+
+        double ic_a = c.getIC(conf.getICconf(), a);
+        double ic_b = c.getIC(conf.getICconf(), b);
+        double ic_MICA = c.getIC_MICA(conf.getICconf(), a, b);
+
+        return sim(ic_a, ic_b, ic_MICA);
+    }
+
+    @Override
+    public double sim(double ic_a, double ic_b, double ic_mica, SMconf conf) throws SLIB_Exception {
+        return sim(ic_a, ic_b, ic_mica);
+    }
+
     /**
      * Compute the semantic similarity considering the given parameters.
      *
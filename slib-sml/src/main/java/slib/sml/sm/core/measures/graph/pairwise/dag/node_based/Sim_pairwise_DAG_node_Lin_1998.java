@@ -36,6 +36,8 @@ package slib.sml.sm.core.measures.graph.pairwise.dag.node_based;
 
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_MICA;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_Bounded;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
@@ -49,7 +51,7 @@ import slib.utils.ex.SLIB_Exception;
  *
  *
  */
-public class Sim_pairwise_DAG_node_Lin_1998 implements Sim_DAG_node_abstract {
+public class Sim_pairwise_DAG_node_Lin_1998 implements Sim_DAG_node_abstract, Sim_Pairwise_IC_MICA, Sim_Pairwise_IC_Bounded {
 
     static boolean preventIncoherency = true;
 
@@ -63,6 +65,48 @@ public class Sim_pairwise_DAG_node_Lin_1998 implements Sim_DAG_node_abstract {
         return sim(ic_a, ic_b, ic_MICA);
     }
 
+    @Override
+    public double sim(int a, int b, SM_Engine c, SMconf conf) throws SLIB_Exception {
+
+        double ic_a = c.getIC(conf.getICconf(), a);
+        double ic_b = c.getIC(conf.getICconf(), b);
+        double ic_MICA = c.getIC_MICA(conf.getICconf(), a, b);
+
+        return sim(ic_a, ic_b, ic_MICA);
+    }
+
+    @Override
+    public double sim(double ic_a, double ic_b, double ic_mica, SMconf conf) throws SLIB_Exception {
+        return sim(ic_a, ic_b, ic_mica);
+    }
+
+    @Override
+    public double simUpperBound(int a, double ic_mica, double ic_b_min, SM_Engine engine, SMconf conf) throws SLIB_Exception {
+        return simUpperBound(engine.getIC(conf.getICconf(), a), ic_mica, ic_b_min);
+    }
+
+    /**
+     * Compute an upper bound of the similarity of the concept A with the
+     * concepts B sharing a MICA with the given IC and with an IC greater than
+     * or equal to the given minimal IC. Contrary to
+     * {@link #sim(double, double, double)} the coherency of the values is not
+     * checked since the minimal IC can be lower than the IC of the MICA.
+     *
+     * @param ic_a the IC of the concept A
+     * @param ic_mica the IC of the Most Informative Common Ancestors of A and B
+     * @param ic_b_min the minimal IC of B
+     * @return an upper bound of the semantic similarity
+     */
+    public static double simUpperBound(double ic_a, double ic_mica, double ic_b_min) {
+
+        double den = ic_a + ic_b_min;
+
+        if (den != 0) {
+            return (2. * ic_mica) / den;
+        }
+        return 0.;
+    }
+
     /**
      * Compute the similarity considering the given Information Content.
      *
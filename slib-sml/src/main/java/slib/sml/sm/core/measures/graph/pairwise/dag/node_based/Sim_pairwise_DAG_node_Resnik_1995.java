@@ -36,6 +36,8 @@ package slib.sml.sm.core.measures.graph.pairwise.dag.node_based;
 
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_MICA;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_Bounded;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Exception;
 
@@ -48,7 +50,7 @@ import slib.utils.ex.SLIB_Exception;
  * @author Sebastien Harispe
  *
  */
-public class Sim_pairwise_DAG_node_Resnik_1995 implements Sim_DAG_node_abstract {
+public class Sim_pairwise_DAG_node_Resnik_1995 implements Sim_DAG_node_abstract, Sim_Pairwise_IC_MICA, Sim_Pairwise_IC_Bounded {
 
 
     @Override
@@ -56,6 +58,21 @@ public class Sim_pairwise_DAG_node_Resnik_1995 implements Sim_DAG_node_abstract
         return c.getIC_MICA(conf.getICconf(), a, b);
     }
 
+    @Override
+    public double sim(int a, int b, SM_Engine c, SMconf conf) throws SLIB_Exception {
+        return c.getIC_MICA(conf.getICconf(), a, b);
+    }
+
+    @Override
+    public double sim(double ic_a, double ic_b, double ic_mica, SMconf conf) throws SLIB_Exception {
+        return ic_mica;
+    }
+
+    @Override
+    public double simUpperBound(int a, double ic_mica, double ic_b_min, SM_Engine engine, SMconf conf) throws SLIB_Exception {
+        return ic_mica;
+    }
+
     @Override
     public boolean isSymmetric() {
         return true;
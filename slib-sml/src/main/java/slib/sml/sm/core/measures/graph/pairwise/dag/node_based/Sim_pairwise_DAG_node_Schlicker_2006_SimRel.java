@@ -37,6 +37,7 @@ package slib.sml.sm.core.measures.graph.pairwise.dag.node_based;
 import org.openrdf.model.URI;
 import slib.sml.sm.core.metrics.ic.utils.ICconf;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_Bounded;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
@@ -47,7 +48,7 @@ import slib.utils.ex.SLIB_Exception;
  *
  * @author Harispe Sébastien
  */
-public class Sim_pairwise_DAG_node_Schlicker_2006_SimRel implements Sim_DAG_node_abstract {
+public class Sim_pairwise_DAG_node_Schlicker_2006_SimRel implements Sim_DAG_node_abstract, Sim_Pairwise_IC_Bounded {
 
     @Override
     public double sim(URI a, URI b, SM_Engine c, SMconf conf) throws SLIB_Exception {
@@ -67,6 +68,24 @@ public class Sim_pairwise_DAG_node_Schlicker_2006_SimRel implements Sim_DAG_node
         return sim(ic_a, ic_b, ic_MICA, p_MICA);
     }
 
+    @Override
+    public double sim(int a, int b, SM_Engine c, SMconf conf) throws SLIB_Exception {
+
+        double ic_a = c.getIC(conf.getICconf(), a);
+        double ic_b = c.getIC(conf.getICconf(), b);
+        double ic_MICA = c.getIC_MICA(conf.getICconf(), a, b);
+
+        ICconf confic = (ICconf) conf.getParam(Sim_pairwise_DAG_node_Constants.IC_PROB);
+
+        if (confic == null) {
+            throw new SLIB_Ex_Critic("Measure " + this.getClass().getSimpleName() + " requires a parameter: " + Sim_pairwise_DAG_node_Constants.IC_PROB);
+        }
+
+        double p_MICA = c.getP_MICA(confic, a, b);
+
+        return sim(ic_a, ic_b, ic_MICA, p_MICA);
+    }
+
     /**
      * Compute the semantic similarity considering the given parameters
      *
@@ -85,6 +104,26 @@ public class Sim_pairwise_DAG_node_Schlicker_2006_SimRel implements Sim_DAG_node
         return simLinVal * (1. - p_mica);
     }
 
+    /**
+     * The probability of occurrence of the MICA of A and B is greater than or
+     * equal to the minimal probability of occurrence of the ancestors of A.
+     */
+    @Override
+    public double simUpperBound(int a, double ic_mica, double ic_b_min, SM_Engine c, SMconf conf) throws SLIB_Exception {
+
+        double ic_a = c.getIC(conf.getICconf(), a);
+
+        ICconf confic = (ICconf) conf.getParam(Sim_pairwise_DAG_node_Constants.IC_PROB);
+
+        if (confic == null) {
+            throw new SLIB_Ex_Critic("Measure " + this.getClass().getSimpleName() + " requires a parameter: " + Sim_pairwise_DAG_node_Constants.IC_PROB);
+        }
+
+        double p_min = c.getP_MICA(confic, a, a);
+
+        return Sim_pairwise_DAG_node_Lin_1998.simUpperBound(ic_a, ic_mica, ic_b_min) * (1. - p_min);
+    }
+
     @Override
     public boolean isSymmetric() {
         return true;
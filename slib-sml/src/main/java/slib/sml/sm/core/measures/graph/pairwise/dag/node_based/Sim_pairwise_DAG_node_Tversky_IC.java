@@ -36,6 +36,7 @@ package slib.sml.sm.core.measures.graph.pairwise.dag.node_based;
 
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Pairwise_IC_MICA;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
@@ -46,7 +47,7 @@ import slib.utils.ex.SLIB_Exception;
  * @author Sebastien Harispe
  *
  */
-public class Sim_pairwise_DAG_node_Tversky_IC implements Sim_DAG_node_abstract {
+public class Sim_pairwise_DAG_node_Tversky_IC implements Sim_DAG_node_abstract, Sim_Pairwise_IC_MICA {
 
     public static final String alpha_param_name = "alpha";
     public static final String beta_param_name = "beta";
@@ -70,6 +71,35 @@ public class Sim_pairwise_DAG_node_Tversky_IC implements Sim_DAG_node_abstract {
     @Override
     public double sim(URI a, URI b, SM_Engine c, SMconf conf) throws SLIB_Exception {
 
+        loadParameters(conf);
+
+        double ic_a = c.getIC(conf.getICconf(), a);
+        double ic_b = c.getIC(conf.getICconf(), b);
+        double ic_MICA = c.getIC_MICA(conf.getICconf(), a, b);
+
+        return sim(ic_a, ic_b, ic_MICA);
+    }
+
+    @Override
+    public double sim(int a, int b, SM_Engine c, SMconf conf) throws SLIB_Exception {
+
+        loadParameters(conf);
+
+        double ic_a = c.getIC(conf.getICconf(), a);
+        double ic_b = c.getIC(conf.getICconf(), b);
+        double ic_MICA = c.getIC_MICA(conf.getICconf(), a, b);
+
+        return sim(ic_a, ic_b, ic_MICA);
+    }
+
+    @Override
+    public double sim(double ic_a, double ic_b, double ic_mica, SMconf conf) throws SLIB_Exception {
+        loadParameters(conf);
+        return sim(ic_a, ic_b, ic_mica);
+    }
+
+    private void loadParameters(SMconf conf) throws SLIB_Ex_Critic {
+
         if (conf != null && conf.containsParam(alpha_param_name)) {
             alpha = conf.getParamAsDouble(alpha_param_name);
         }
@@ -81,12 +111,6 @@ public class Sim_pairwise_DAG_node_Tversky_IC implements Sim_DAG_node_abstract {
         if (conf == null || conf.getICconf() == null) {
             throw new IllegalArgumentException("Measure " + this.getClass().getSimpleName() + " requires a configuration to be specified an IC to be specified");
         }
-
-        double ic_a = c.getIC(conf.getICconf(), a);
-        double ic_b = c.getIC(conf.getICconf(), b);
-        double ic_MICA = c.getIC_MICA(conf.getICconf(), a, b);
-
-        return sim(ic_a, ic_b, ic_MICA);
     }
 
     public double sim(double ic_a, double ic_b, double ic_mica) throws SLIB_Ex_Critic {
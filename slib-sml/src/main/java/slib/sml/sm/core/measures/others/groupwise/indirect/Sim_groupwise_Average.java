@@ -38,6 +38,7 @@ import slib.sml.sm.core.measures.others.groupwise.indirect.experimental.Sim_grou
 import java.util.Set;
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect_Indexed;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.impl.MatrixDouble;
@@ -48,7 +49,7 @@ import slib.utils.impl.MatrixDouble;
  * @author Sebastien Harispe
  *
  */
-public class Sim_groupwise_Average extends Sim_groupwise_general_abstract {
+public class Sim_groupwise_Average extends Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect_Indexed {
 
     /**
      * Compute the average of the values stored in the given matrix.
@@ -63,6 +64,12 @@ public class Sim_groupwise_Average extends Sim_groupwise_general_abstract {
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf groupwiseconf, SMconf conf) throws SLIB_Ex_Critic {
 
-        return rc.getMatrixScore(setA, setB, conf).getAverage();
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, groupwiseconf, conf);
+    }
+
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf groupwiseconf, SMconf conf) throws SLIB_Ex_Critic {
+
+        return computeSum(setA, setB, rc, conf) / (setA.length * setB.length);
     }
 }
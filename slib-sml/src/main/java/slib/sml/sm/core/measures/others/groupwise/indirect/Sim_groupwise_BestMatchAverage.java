@@ -38,6 +38,7 @@ import slib.sml.sm.core.measures.others.groupwise.indirect.experimental.Sim_grou
 import java.util.Set;
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect_Indexed;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.impl.MatrixDouble;
@@ -52,14 +53,13 @@ import slib.utils.impl.MatrixDouble;
  * 
  * @author Sébastien Harispe
  */
-public class Sim_groupwise_BestMatchAverage extends Sim_groupwise_general_abstract {
+public class Sim_groupwise_BestMatchAverage extends Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect_Indexed {
 
     
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf groupwiseconf, SMconf conf) throws SLIB_Ex_Critic {
 
-        MatrixDouble<URI, URI> results_setA = rc.getMatrixScore(setA, setB, conf);
-        return sim(results_setA);
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, groupwiseconf, conf);
     }
 
     public static double sim(MatrixDouble<URI, URI> matrix) {
@@ -76,4 +76,21 @@ public class Sim_groupwise_BestMatchAverage extends Sim_groupwise_general_abstra
         }
         return (1./matrix.getNbColumns() * sumMaxColumns + 1./matrix.getNbRows() * sumMaxRows)/2.0;
     }
+
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf groupwiseconf, SMconf conf) throws SLIB_Ex_Critic {
+
+        double[] bestMatches = computeBestMatches(setA, setB, rc, conf);
+
+        double sumMaxColumns = 0;
+        for (int i = 0; i < setA.length; i++) {
+            sumMaxColumns += bestMatches[i];
+        }
+
+        double sumMaxRows = 0;
+        for (int j = 0; j < setB.length; j++) {
+            sumMaxRows += bestMatches[setA.length + j];
+        }
+        return (1./setA.length * sumMaxColumns + 1./setB.length * sumMaxRows)/2.0;
+    }
 }
\ No newline at end of file
@@ -39,6 +39,7 @@ import java.util.Set;
 import org.openrdf.model.URI;
 
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect_Indexed;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.impl.MatrixDouble;
@@ -52,13 +53,12 @@ import slib.utils.impl.MatrixDouble;
  * Also called funSim in the literature.
  * @author Sébastien Harispe
  */
-public class Sim_groupwise_BestMatchMax extends Sim_groupwise_general_abstract {
+public class Sim_groupwise_BestMatchMax extends Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect_Indexed {
 
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf groupwiseconf, SMconf conf) throws SLIB_Ex_Critic {
 
-        MatrixDouble<URI, URI> results_setA = rc.getMatrixScore(setA, setB, conf);
-        return sim(results_setA);
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, groupwiseconf, conf);
     }
 
     public static double sim(MatrixDouble<URI, URI> matrix) {
@@ -87,4 +87,28 @@ public class Sim_groupwise_BestMatchMax extends Sim_groupwise_general_abstract {
         }
         return rowScore;
     }
+
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf groupwiseconf, SMconf conf) throws SLIB_Ex_Critic {
+
+        double[] bestMatches = computeBestMatches(setA, setB, rc, conf);
+
+        double sumMaxColumn = 0;
+        for (int i = 0; i < setA.length; i++) {
+            sumMaxColumn += bestMatches[i];
+        }
+
+        double sumMaxRow = 0;
+        for (int j = 0; j < setB.length; j++) {
+            sumMaxRow += bestMatches[setA.length + j];
+        }
+
+        double columnScore = 1. / setA.length * sumMaxColumn;
+        double rowScore = 1. / setB.length * sumMaxRow;
+
+        if (columnScore > rowScore) {
+            return columnScore;
+        }
+        return rowScore;
+    }
 }
\ No newline at end of file
@@ -39,6 +39,7 @@ import java.util.Set;
 import org.openrdf.model.URI;
 
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect_Indexed;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.impl.MatrixDouble;
@@ -58,13 +59,12 @@ import slib.utils.impl.MatrixDouble;
  *
  * @author Sébastien Harispe
  */
-public class Sim_groupwise_Lord_2003 extends Sim_groupwise_general_abstract {
+public class Sim_groupwise_Lord_2003 extends Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect_Indexed {
 
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf groupwiseconf, SMconf conf) throws SLIB_Ex_Critic {
 
-        MatrixDouble<URI, URI> results_setA = rc.getMatrixScore(setA, setB, conf);
-        return sim(results_setA);
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, groupwiseconf, conf);
     }
 
     public static double sim(MatrixDouble<URI, URI> matrix) {
@@ -72,4 +72,11 @@ public class Sim_groupwise_Lord_2003 extends Sim_groupwise_general_abstract {
 
         return 1. / (matrix.getNbColumns() * matrix.getNbRows()) * sum;
     }
+
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf groupwiseconf, SMconf conf) throws SLIB_Ex_Critic {
+
+        double sum = computeSum(setA, setB, rc, conf);
+        return 1. / (setA.length * setB.length) * sum;
+    }
 }
\ No newline at end of file
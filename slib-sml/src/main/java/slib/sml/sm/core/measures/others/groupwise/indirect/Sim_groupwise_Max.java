@@ -39,6 +39,7 @@ import java.util.Set;
 
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect_Indexed;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.impl.MatrixDouble;
@@ -47,7 +48,7 @@ import slib.utils.impl.MatrixDouble;
  *
  * @author Sébastien Harispe
  */
-public class Sim_groupwise_Max extends Sim_groupwise_general_abstract {
+public class Sim_groupwise_Max extends Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect_Indexed {
 
     public static double sim(MatrixDouble<URI, URI> mat) {
         return mat.getMax();
@@ -56,6 +57,12 @@ public class Sim_groupwise_Max extends Sim_groupwise_general_abstract {
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf groupwiseconf, SMconf pairwiseConf) throws SLIB_Ex_Critic {
 
-        return rc.getMatrixScore(setA, setB, pairwiseConf).getMax();
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, groupwiseconf, pairwiseConf);
+    }
+
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf groupwiseconf, SMconf pairwiseConf) throws SLIB_Ex_Critic {
+
+        return computeMax(setA, setB, rc, pairwiseConf);
     }
 }
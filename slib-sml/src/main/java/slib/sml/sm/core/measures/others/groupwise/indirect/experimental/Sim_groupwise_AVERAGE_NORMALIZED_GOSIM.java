@@ -37,9 +37,9 @@ package slib.sml.sm.core.measures.others.groupwise.indirect.experimental;
 import java.util.Set;
 import org.openrdf.model.URI;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect_Indexed;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
-import slib.utils.impl.MatrixDouble;
 
 /**
  * ﻿
@@ -51,7 +51,7 @@ import slib.utils.impl.MatrixDouble;
  * @author Sebastien Harispe
  *
  */
-public class Sim_groupwise_AVERAGE_NORMALIZED_GOSIM extends Sim_groupwise_general_abstract {
+public class Sim_groupwise_AVERAGE_NORMALIZED_GOSIM extends Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect_Indexed {
 
    
     public double sim(double avgScore_sA_vs_sB, double avgScore_sA_vs_sA, double avgScore_sB_vs_sB) {
@@ -68,15 +68,16 @@ public class Sim_groupwise_AVERAGE_NORMALIZED_GOSIM extends Sim_groupwise_genera
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf groupwiseconf, SMconf paiwiseconf) throws SLIB_Ex_Critic {
 
-        MatrixDouble<URI, URI> results_setA_B = rc.getMatrixScore(setA, setB, paiwiseconf);
-        MatrixDouble<URI, URI> results_setA_A = rc.getMatrixScore(setA, setA, paiwiseconf);
-        MatrixDouble<URI, URI> results_setB_B = rc.getMatrixScore(setB, setB, paiwiseconf);
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, groupwiseconf, paiwiseconf);
+    }
+
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf groupwiseconf, SMconf paiwiseconf) throws SLIB_Ex_Critic {
 
-        double avgScore_sA_vs_sB = results_setA_B.getAverage();
-        double avgScore_sA_vs_sA = results_setA_A.getAverage();
-        double avgScore_sB_vs_sB = results_setB_B.getAverage();
+        double avgScore_sA_vs_sB = computeSum(setA, setB, rc, paiwiseconf) / (setA.length * setB.length);
+        double avgScore_sA_vs_sA = computeSum(setA, setA, rc, paiwiseconf) / (setA.length * setA.length);
+        double avgScore_sB_vs_sB = computeSum(setB, setB, rc, paiwiseconf) / (setB.length * setB.length);
 
         return sim(avgScore_sA_vs_sB, avgScore_sA_vs_sA, avgScore_sB_vs_sB);
-
     }
 }
\ No newline at end of file
@@ -38,9 +38,9 @@ import java.util.Set;
 import org.openrdf.model.URI;
 
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect_Indexed;
 import slib.sml.sm.core.utils.SMconf;
 import slib.utils.ex.SLIB_Ex_Critic;
-import slib.utils.impl.MatrixDouble;
 
 /**
  * ﻿
@@ -52,7 +52,7 @@ import slib.utils.impl.MatrixDouble;
  * @author Sebastien Harispe
  *
  */
-public class Sim_groupwise_MAX_NORMALIZED_GOSIM extends Sim_groupwise_general_abstract {
+public class Sim_groupwise_MAX_NORMALIZED_GOSIM extends Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect_Indexed {
 
     /**
      * @see Sim_groupwise_Max to compute max values
@@ -75,16 +75,16 @@ public class Sim_groupwise_MAX_NORMALIZED_GOSIM extends Sim_groupwise_general_ab
     @Override
     public double sim(Set<URI> setA, Set<URI> setB, SM_Engine rc, SMconf groupwiseconf, SMconf paiwiseconf) throws SLIB_Ex_Critic {
 
-        MatrixDouble<URI, URI> results_setA_B = rc.getMatrixScore(setA, setB, paiwiseconf);
-        MatrixDouble<URI, URI> results_setA_A = rc.getMatrixScore(setA, setA, paiwiseconf);
-        MatrixDouble<URI, URI> results_setB_B = rc.getMatrixScore(setB, setB, paiwiseconf);
+        return sim(rc.getClassIds(setA), rc.getClassIds(setB), rc, groupwiseconf, paiwiseconf);
+    }
 
-        double maxScore_sA_vs_sB = results_setA_B.getMax();
-        double maxScore_sA_vs_sA = results_setA_A.getMax();
-        double maxScore_sB_vs_sB = results_setB_B.getMax();
+    @Override
+    public double sim(int[] setA, int[] setB, SM_Engine rc, SMconf groupwiseconf, SMconf paiwiseconf) throws SLIB_Ex_Critic {
 
+        double maxScore_sA_vs_sB = computeMax(setA, setB, rc, paiwiseconf);
+        double maxScore_sA_vs_sA = computeMax(setA, setA, rc, paiwiseconf);
+        double maxScore_sB_vs_sB = computeMax(setB, setB, rc, paiwiseconf);
 
         return sim(maxScore_sA_vs_sB, maxScore_sA_vs_sA, maxScore_sB_vs_sB);
-
     }
 }
\ No newline at end of file
@@ -35,14 +35,163 @@ knowledge of the CeCILL license and that you accept its terms.
  
  
 package slib.sml.sm.core.measures.others.groupwise.indirect.experimental;
+import java.util.Arrays;
+import slib.sml.sm.core.engine.SM_Engine;
 import slib.sml.sm.core.measures.Sim_Groupwise_Indirect;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Ex_Critic;
 
 
 /**
  *
  * @author seb
  */
-public abstract class Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect{
-	
+public abstract class Sim_groupwise_general_abstract implements Sim_Groupwise_Indirect {
 
+    private static final ThreadLocal<double[]> scratch = new ThreadLocal<double[]>() {
+        @Override
+        protected double[] initialValue() {
+            return new double[64];
+        }
+    };
+
+    /**
+     * Access to an array owned by the current thread which can be used to
+     * store intermediate results, e.g. the best scores of the columns of a
+     * matrix. The content of the array is not specified.
+     *
+     * @param size the minimal size of the array
+     * @return an array of at least the given size
+     */
+    protected static double[] getScratch(int size) {
+
+        double[] s = scratch.get();
+        if (s.length < size) {
+            s = new double[Math.max(size, s.length * 2)];
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    /**
+     * Compute the best match of each class of two sets, i.e. the best
+     * pairwise score of the class with a class of the other set. The scores
+     * are computed row by row (see
+     * {@link SM_Engine#computePairwiseSim(SMconf, int, int[], double[], int)})
+     * and the maxima of the rows and of the columns are updated on the fly:
+     * the matrix of the scores is never stored.
+     *
+     * @param setA the ids of the first set of classes
+     * @param setB the ids of the second set of classes
+     * @param rc the engine
+     * @param pairwiseConf the pairwise configuration
+     * @return an array owned by the current thread in which the best match
+     * of setA[i] is stored at index i and the best match of setB[j] at index
+     * setA.length + j
+     * @throws SLIB_Ex_Critic
+     */
+    protected static double[] computeBestMatches(int[] setA, int[] setB, SM_Engine rc, SMconf pairwiseConf) throws SLIB_Ex_Critic {
+
+        int nbA = setA.length;
+        int nbB = setB.length;
+        int row = nbA + nbB;
+
+        double[] s = getScratch(nbA + 2 * nbB);
+        Arrays.fill(s, nbA, nbA + nbB, Double.NEGATIVE_INFINITY);
+
+        for (int i = 0; i < nbA; i++) {
+
+            rc.computePairwiseSim(pairwiseConf, setA[i], setB, s, row);
+
+            double max = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < nbB; j++) {
+                double sim = s[row + j];
+                if (sim > max) {
+                    max = sim;
+                }
+                if (sim > s[nbA + j]) {
+                    s[nbA + j] = sim;
+                }
+            }
+            s[i] = max;
+        }
+        return s;
+    }
+
+    /**
+     * Compute the sum of the pairwise scores of the classes of two sets, the
+     * scores are added row by row.
+     *
+     * @param setA the ids of the first set of classes
+     * @param setB the ids of the second set of classes
+     * @param rc the engine
+     * @param pairwiseConf the pairwise configuration
+     * @return the sum of the pairwise scores
+     * @throws SLIB_Ex_Critic
+     */
+    protected static double computeSum(int[] setA, int[] setB, SM_Engine rc, SMconf pairwiseConf) throws SLIB_Ex_Critic {
+
+        double[] s = getScratch(setB.length);
+        double sum = 0;
+
+        for (int a : setA) {
+            rc.computePairwiseSim(pairwiseConf, a, setB, s, 0);
+            for (int j = 0; j < setB.length; j++) {
+                sum += s[j];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Compute the maximal pairwise score of the classes of two sets.
+     *
+     * @param setA the ids of the first set of classes
+     * @param setB the ids of the second set of classes
+     * @param rc the engine
+     * @param pairwiseConf the pairwise configuration
+     * @return the maximal pairwise score, -infinity if a set is empty
+     * @throws SLIB_Ex_Critic
+     */
+    protected static double computeMax(int[] setA, int[] setB, SM_Engine rc, SMconf pairwiseConf) throws SLIB_Ex_Critic {
+
+        double[] s = getScratch(setB.length);
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int a : setA) {
+            rc.computePairwiseSim(pairwiseConf, a, setB, s, 0);
+            for (int j = 0; j < setB.length; j++) {
+                if (s[j] > max) {
+                    max = s[j];
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Compute the minimal pairwise score of the classes of two sets.
+     *
+     * @param setA the ids of the first set of classes
+     * @param setB the ids of the second set of classes
+     * @param rc the engine
+     * @param pairwiseConf the pairwise configuration
+     * @return the minimal pairwise score, +infinity if a set is empty
+     * @throws SLIB_Ex_Critic
+     */
+    protected static double computeMin(int[] setA, int[] setB, SM_Engine rc, SMconf pairwiseConf) throws SLIB_Ex_Critic {
+
+        double[] s = getScratch(setB.length);
+        double min = Double.POSITIVE_INFINITY;
+
+        for (int a : setA) {
+            rc.computePairwiseSim(pairwiseConf, a, setB, s, 0);
+            for (int j = 0; j < setB.length; j++) {
+                if (s[j] < min) {
+                    min = s[j];
+                }
+            }
+        }
+        return min;
+    }
 }
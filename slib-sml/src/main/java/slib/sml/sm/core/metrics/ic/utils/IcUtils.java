@@ -170,4 +170,44 @@ public class IcUtils {
         }
         return min;
     }
+
+    /**
+     * Search the IC of Less Informative Concept Shared between two sorted
+     * arrays of concept ids, regarding the given metric.
+     *
+     * @param ancA the first array, sorted by increasing id
+     * @param ancB the second array, sorted by increasing id
+     * @param icScores the metric results indexed by concept id
+     * @return the minimal value shared by the two arrays, NaN if none is
+     * found
+     */
+    public static double searchMin_pOc_MICA(
+            int[] ancA,
+            int[] ancB,
+            double[] icScores) {
+
+        boolean found = false;
+        double min = Double.NaN;
+
+        int i = 0, j = 0;
+        while (i < ancA.length && j < ancB.length) {
+
+            int x = ancA[i];
+            int y = ancB[j];
+
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                if (!found || min > icScores[x]) {
+                    min = icScores[x];
+                    found = true;
+                }
+                i++;
+                j++;
+            }
+        }
+        return min;
+    }
 }
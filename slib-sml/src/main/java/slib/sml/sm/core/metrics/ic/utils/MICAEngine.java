@@ -0,0 +1,273 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.sml.sm.core.metrics.ic.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Index used to search the Most Informative Common Ancestor (MICA) of two
+ * concepts considering a specific information content.
+ *
+ * Concepts are identified by dense ids. All the concepts are ranked by
+ * decreasing IC (ties are broken by increasing id): the MICA of two concepts
+ * is their common inclusive ancestor of lowest rank. The ancestors of a
+ * concept are also stored as the sorted array of their ranks, the MICA is
+ * therefore the first rank shared by the arrays of the two concepts: it is
+ * found by a merge of the two arrays which stops at the first common value.
+ * The search is O(|anc(a)| + |anc(b)|) in the worst case and does not
+ * allocate any object once the arrays of the two concepts are built.
+ *
+ * The arrays of ancestors sorted by id only depend on the topology of the
+ * graph, they are shared by the indexes built for the different information
+ * contents and are not copied. The arrays of ranks are specific to an index,
+ * they are built the first time a concept is searched: only the concepts
+ * actually compared cost one int per ancestor.
+ *
+ * @author Harispe Sébastien
+ */
+public class MICAEngine {
+
+    final double[] icScores;
+    final int[] rankToId;
+    final int[] idToRank;
+    final int[][] ancestors;
+    final AtomicReferenceArray<int[]> ancestorsRanks;
+
+    /**
+     * Build the index.
+     *
+     * @param ancestors the inclusive ancestors of each concept sorted by
+     * increasing id, indexed by concept id. The arrays are referenced by the
+     * index and must not be modified.
+     * @param icScores the IC of each concept, indexed by concept id. Concepts
+     * with a NaN IC are ranked last.
+     */
+    public MICAEngine(int[][] ancestors, final double[] icScores) {
+
+        if (ancestors.length != icScores.length) {
+            throw new IllegalArgumentException("The number of ancestor sets (" + ancestors.length + ") does not match the number of IC scores (" + icScores.length + ")");
+        }
+
+        this.icScores = icScores;
+        this.ancestors = ancestors;
+
+        int n = icScores.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                double icX = Double.isNaN(icScores[x]) ? Double.NEGATIVE_INFINITY : icScores[x];
+                double icY = Double.isNaN(icScores[y]) ? Double.NEGATIVE_INFINITY : icScores[y];
+
+                if (icX > icY) {
+                    return -1;
+                } else if (icX < icY) {
+                    return 1;
+                }
+                return x.compareTo(y);
+            }
+        });
+
+        rankToId = new int[n];
+        idToRank = new int[n];
+
+        for (int r = 0; r < n; r++) {
+            rankToId[r] = order[r];
+            idToRank[order[r]] = r;
+        }
+        ancestorsRanks = new AtomicReferenceArray<int[]>(n);
+    }
+
+    /**
+     * Access to the ranks of the inclusive ancestors of a concept, sorted by
+     * increasing rank, i.e. by decreasing IC. The array is built the first
+     * time it is requested, concurrent requests may build it twice but the
+     * same array is then returned.
+     */
+    private int[] getAncestorsRanks(int c) {
+
+        int[] ranks = ancestorsRanks.get(c);
+
+        if (ranks == null) {
+            int[] anc = ancestors[c];
+            ranks = new int[anc.length];
+            for (int i = 0; i < anc.length; i++) {
+                ranks[i] = idToRank[anc[i]];
+            }
+            Arrays.sort(ranks);
+            if (!ancestorsRanks.compareAndSet(c, null, ranks)) {
+                ranks = ancestorsRanks.get(c);
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Search the MICA of two concepts. If the two ids are equal, the given id
+     * is returned.
+     *
+     * @param a the id of the first concept
+     * @param b the id of the second concept
+     * @return the id of the MICA
+     * @throws SLIB_Ex_Critic if the concepts do not share any ancestor
+     */
+    public int searchMICA(int a, int b) throws SLIB_Ex_Critic {
+
+        if (a == b) {
+            return a;
+        }
+
+        int[] ranksA = getAncestorsRanks(a);
+        int[] ranksB = getAncestorsRanks(b);
+
+        int i = 0, j = 0;
+        while (i < ranksA.length && j < ranksB.length) {
+
+            int x = ranksA[i];
+            int y = ranksB[j];
+
+            if (x == y) {
+                return rankToId[x];
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        throw new SLIB_Ex_Critic("Error detecting the common ancestors with the maximal IC\nSearching a max from an empty collection, be sure the compare concepts are locate under the specified root...");
+    }
+
+    /**
+     * Search the IC of the MICA of two concepts.
+     *
+     * @param a the id of the first concept
+     * @param b the id of the second concept
+     * @return the IC of the MICA
+     * @throws SLIB_Ex_Critic if the concepts do not share any ancestor
+     */
+    public double getIC_MICA(int a, int b) throws SLIB_Ex_Critic {
+        return icScores[searchMICA(a, b)];
+    }
+
+    /**
+     * Search the IC of the MICAs of a concept and of the concepts of a block.
+     * The ancestors of the concept are marked once, the MICA of the concept
+     * and of a concept of the block is then the first ancestor of the latter,
+     * by decreasing IC, which is marked. Only the ancestors of the concepts
+     * of the block which are more informative than their MICA are read. As
+     * for {@link #searchMICA(int, int)}, the MICA of the concept and of
+     * itself is the concept.
+     *
+     * @param a the id of the concept
+     * @param block the ids of the concepts of the block
+     * @param from the index of the first concept of the block to consider
+     * @param to the index following the last concept of the block to
+     * consider
+     * @param results the array in which the IC of the MICA of a and
+     * block[i] is stored, at index offset + i - from
+     * @param offset the index of the first result in the array
+     * @param marks an array of {@link #getNbConcepts()} values set to false,
+     * the values are set to false again when the method returns
+     * @throws SLIB_Ex_Critic if the concept does not share any ancestor with
+     * a concept of the block
+     */
+    public void getIC_MICA(int a, int[] block, int from, int to, double[] results, int offset, boolean[] marks) throws SLIB_Ex_Critic {
+
+        int[] ancA = ancestors[a];
+
+        for (int c : ancA) {
+            marks[c] = true;
+        }
+        try {
+            for (int i = from; i < to; i++) {
+
+                if (block[i] == a) {
+                    results[offset + i - from] = icScores[a];
+                    continue;
+                }
+
+                int[] ranksB = getAncestorsRanks(block[i]);
+                int k = 0;
+
+                while (k < ranksB.length && !marks[rankToId[ranksB[k]]]) {
+                    k++;
+                }
+                if (k == ranksB.length) {
+                    throw new SLIB_Ex_Critic("Error detecting the common ancestors with the maximal IC\nSearching a max from an empty collection, be sure the compare concepts are locate under the specified root...");
+                }
+                results[offset + i - from] = icScores[rankToId[ranksB[k]]];
+            }
+        } finally {
+            for (int c : ancA) {
+                marks[c] = false;
+            }
+        }
+    }
+
+    /**
+     * Access to the inclusive ancestors of a concept sorted by decreasing IC,
+     * concepts with the same IC being sorted by increasing id. For any concept
+     * b, the MICA of the concept and b is the first concept of the array which
+     * is an ancestor of b.
+     *
+     * @param a the id of the concept
+     * @return the ids of the inclusive ancestors of the concept sorted by
+     * decreasing IC
+     */
+    public int[] getAncestorsByDecreasingIC(int a) {
+
+        int[] ranksA = getAncestorsRanks(a);
+        int[] ids = new int[ranksA.length];
+
+        for (int i = 0; i < ranksA.length; i++) {
+            ids[i] = rankToId[ranksA[i]];
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of concepts of the index
+     */
+    public int getNbConcepts() {
+        return rankToId.length;
+    }
+}
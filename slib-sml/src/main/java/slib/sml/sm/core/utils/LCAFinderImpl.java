@@ -31,63 +31,105 @@
  */
 package slib.sml.sm.core.utils;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import org.openrdf.model.URI;
-import org.openrdf.model.vocabulary.RDFS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import slib.sglib.algo.graph.extraction.rvf.RVF;
-import slib.sglib.algo.graph.extraction.rvf.RVF_TAX;
-import slib.sglib.algo.graph.traversal.classical.DFS;
 import slib.sglib.model.graph.G;
-import slib.sglib.model.graph.utils.Direction;
-import slib.sglib.model.graph.utils.WalkConstraint;
-import slib.sglib.utils.WalkConstraintGeneric;
 import slib.sml.sm.core.engine.SM_Engine;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.ex.SLIB_Exception;
-import slib.utils.impl.SetUtils;
 
 /**
- * Dummy implementation of the LCAFinder interface (high algorithmic
- * complexity).
+ * Implementation of the LCAFinder interface relying on the inclusive
+ * ancestors stored by a {@link SM_Engine}.
+ *
+ * The search relies on the class ids of the engine, which follow a
+ * topological order of the taxonomy (see {@link SM_Engine#getClassId(URI)}).
+ * The common ancestors of the two queried classes are obtained by merging
+ * their sorted ancestor arrays from the most specific class to the most
+ * general one. A common ancestor is retained if it is not an ancestor of a
+ * common ancestor already retained; the ancestors of a retained class are
+ * marked in an array owned by the current thread. A query is therefore
+ * computed in a time proportional to the size of the sets of ancestors
+ * involved, without traversing the graph.
+ *
+ * A bounded memo of the most recently queried pairs can be enabled.
  *
  * @author Harispe Sébastien <harispe.sebastien@gmail.com>
  */
 public class LCAFinderImpl implements LCAFinder {
 
     Logger logger = LoggerFactory.getLogger(this.getClass());
+    private volatile SM_Engine engine;
+    private final Map<Long, int[]> memo;
+    private final ThreadLocal<Marks> marks = new ThreadLocal<Marks>() {
+        @Override
+        protected Marks initialValue() {
+            return new Marks();
+        }
+    };
 
-    private URI getNextUnvisited(List<URI> ancestorsOrdered, Map<URI, Boolean> visited) {
-        for (int i = ancestorsOrdered.size() - 1; i >= 0; i--) {
+    /**
+     * Per-thread data structures used during a query.
+     */
+    private static class Marks {
 
-            if (visited.get(ancestorsOrdered.get(i)).equals(Boolean.FALSE)) {
-                return ancestorsOrdered.get(i);
-            }
+        int[] marked = new int[0];
+        int[] buffer = new int[0];
+        int stamp = 0;
+    }
 
-        }
-        return null;
+    /**
+     * Create a finder which will build an engine for the graph given to
+     * {@link #getLCAs(G, URI, URI)}. The engine is reused as long as the same
+     * graph is queried. Prefer {@link #LCAFinderImpl(SM_Engine)} if an engine
+     * already exists for the graph.
+     */
+    public LCAFinderImpl() {
+        this(null, 0);
     }
 
-    private boolean containsUnvisitedVertices(Map<URI, Boolean> visited) {
-        for (URI v : visited.keySet()) {
-            if (visited.get(v).equals(Boolean.FALSE)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Create a finder relying on the given engine.
+     *
+     * @param engine the engine from which the ancestors are retrieved.
+     */
+    public LCAFinderImpl(SM_Engine engine) {
+        this(engine, 0);
     }
 
-    private void printStackStatus(List<URI> ancestorsOrdered, Map<URI, Boolean> visited) {
-        for (int i = ancestorsOrdered.size() - 1; i >= 0; i--) {
+    /**
+     * Create a finder relying on the given engine which stores the results of
+     * the most recently queried pairs.
+     *
+     * @param engine the engine from which the ancestors are retrieved.
+     * @param memoSize the maximal number of pairs for which the results are
+     * stored, 0 to disable the memo.
+     */
+    public LCAFinderImpl(SM_Engine engine, final int memoSize) {
+
+        if (memoSize < 0) {
+            throw new IllegalArgumentException("The size of the memo cannot be negative: " + memoSize);
+        }
+
+        this.engine = engine;
 
-            System.out.println(ancestorsOrdered.get(i) + "\t" + visited.get(ancestorsOrdered.get(i)));
+        if (memoSize > 0) {
+            memo = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
 
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                    return size() > memoSize;
+                }
+            };
+        } else {
+            memo = null;
         }
     }
 
@@ -100,80 +142,136 @@ public class LCAFinderImpl implements LCAFinder {
             throw new SLIB_Ex_Critic("Graph " + graph.getURI() + " doesn't contain vertice " + b);
         }
 
+        SM_Engine e = getEngine(graph);
 
-        Set<URI> lca = new HashSet<URI>();
-
-        SM_Engine engine = new SM_Engine(graph);
-
-        Set<URI> ancA = engine.getAncestorsInc(a);
-        Set<URI> ancB = engine.getAncestorsInc(b);
-
-        // Test if a (resp. b) subsumes b (resp. a)
+        int[] lcas = getLCAs(e, e.getClassId(a), e.getClassId(b));
 
-        if (ancA.contains(b)) {
-            lca = SetUtils.buildSet(b);
-        } else if (ancB.contains(a)) {
-            lca = SetUtils.buildSet(a);
-        } else { // search the intersetion of the ancestors of the compared concepts
+        Set<URI> lca = new HashSet<URI>(lcas.length);
+        for (int c : lcas) {
+            lca.add(e.getClassURI(c));
+        }
+        return lca;
+    }
 
+    /**
+     * Compute the Lowest Common Ancestors of two classes.
+     *
+     * @param a the id of the first class
+     * @param b the id of the second class
+     * @return the ids of the lowest common ancestors of the two classes, an
+     * empty array if they do not share any ancestor.
+     * @throws SLIB_Ex_Critic if the finder is not associated to an engine
+     */
+    public int[] getLCAs(int a, int b) throws SLIB_Ex_Critic {
+
+        SM_Engine e = engine;
+
+        if (e == null) {
+            throw new SLIB_Ex_Critic("No engine is associated to the LCA finder");
+        }
+        return getLCAs(e, a, b);
+    }
 
-            Set<URI> intersection = SetUtils.intersection(engine.getAncestorsInc(a), engine.getAncestorsInc(b));
-//        logger.info(union.toString());
+    private int[] getLCAs(SM_Engine e, int a, int b) {
 
-            // topological sort of the union
-            Set<URI> queries = SetUtils.buildSet(a);
+        if (memo == null) {
+            return searchLCAs(e, a, b);
+        }
 
-            queries.add(b);
-            WalkConstraint wc = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.OUT);
-            DFS dfs = new DFS(graph, queries, wc);
-            List<URI> to = dfs.getTraversalOrder();
+        Long key = a < b ? (((long) a) << 32) | b : (((long) b) << 32) | a;
+        int[] lcas;
 
-            // We remove the queried vertices from the topological order
-            to.remove(a);
-            to.remove(b);
+        synchronized (memo) {
+            lcas = memo.get(key);
+        }
 
-//        logger.debug("Traversal Order : " + to);
+        if (lcas == null) {
+            lcas = searchLCAs(e, a, b);
+            synchronized (memo) {
+                memo.put(key, lcas);
+            }
+        }
+        return lcas;
+    }
 
-            List<URI> ancestorsOrdered = new ArrayList<URI>(to.size());
+    private int[] searchLCAs(SM_Engine e, int a, int b) {
 
-            for (URI v : to) {
-                if (intersection.contains(v)) {
-                    ancestorsOrdered.add(v);
-                }
-            }
+        int[] ancA = e.getAncestorsIncIds(a);
+        int[] ancB = e.getAncestorsIncIds(b);
 
-//        logger.debug("Union size : " + union.size());
-//        logger.debug("Ancestors ordered : " + ancestorsOrdered.size());
+        // Test if a (resp. b) subsumes b (resp. a)
+        if (Arrays.binarySearch(ancA, b) >= 0) {
+            return new int[]{b};
+        } else if (Arrays.binarySearch(ancB, a) >= 0) {
+            return new int[]{a};
+        }
 
-            // Create dataStructure which will help us to manage 
-            // the visited vertices
+        Marks m = marks.get();
+        int nbClasses = e.getClasses().size();
 
-            Map<URI, Boolean> isVisited = new HashMap<URI, Boolean>(ancestorsOrdered.size());
-            for (URI v : ancestorsOrdered) {
-                isVisited.put(v, Boolean.FALSE);
-            }
+        if (m.marked.length < nbClasses || m.stamp == Integer.MAX_VALUE) {
+            m.marked = new int[nbClasses];
+            m.stamp = 0;
+        }
+        if (m.buffer.length < Math.min(ancA.length, ancB.length)) {
+            m.buffer = new int[Math.min(ancA.length, ancB.length)];
+        }
 
-            RVF rvf = new RVF_TAX(graph, Direction.OUT);
+        int stamp = ++m.stamp;
+        int size = 0;
 
-            // Bottom Up with removing
-            while (containsUnvisitedVertices(isVisited)) {
-                URI v = getNextUnvisited(ancestorsOrdered, isVisited);
+        // Bottom-up merge of the ancestors, i.e. by decreasing ids
+        int i = ancA.length - 1;
+        int j = ancB.length - 1;
 
-//            logger.debug("Processing " + v);
-                lca.add(v);
-                isVisited.put(v, Boolean.TRUE);
+        while (i >= 0 && j >= 0) {
 
-                Set<URI> ancestorsV = rvf.getRV(v);
+            int x = ancA[i];
+            int y = ancB[j];
 
-                for (URI anc : ancestorsV) {
-                    isVisited.put(anc, Boolean.TRUE);
+            if (x > y) {
+                i--;
+            } else if (x < y) {
+                j--;
+            } else {
+                if (m.marked[x] != stamp) {
+                    m.buffer[size++] = x;
+                    for (int anc : e.getAncestorsIncIds(x)) {
+                        m.marked[anc] = stamp;
+                    }
                 }
-//            printStackStatus(ancestorsOrdered, isVisited);
+                i--;
+                j--;
             }
+        }
+        return Arrays.copyOf(m.buffer, size);
+    }
 
+    /**
+     * Access to the engine associated to the given graph. The engine is read
+     * without lock once it has been built, a lock is only taken to build a
+     * new engine.
+     */
+    private SM_Engine getEngine(G graph) throws SLIB_Ex_Critic {
+
+        SM_Engine e = engine;
+
+        if (e == null || e.getGraph() != graph) {
+            synchronized (this) {
+                e = engine;
+                if (e == null || e.getGraph() != graph) {
+                    logger.info("Building an engine to search the LCAs in graph " + graph.getURI());
+                    e = new SM_Engine(graph);
+                    if (memo != null) {
+                        // the ids of the memo refer to the previous engine
+                        synchronized (memo) {
+                            memo.clear();
+                        }
+                    }
+                    engine = e;
+                }
+            }
         }
-//        logger.info("Searching DCA: end");
-//        logger.info("DCA ("+dca.size()+"): "+dca);
-        return lca;
+        return e;
     }
 }
@@ -0,0 +1,215 @@
+package slib.sml.sm.core.engine;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect;
+import slib.sml.sm.core.measures.Sim_Pairwise;
+import slib.sml.sm.core.measures.graph.pairwise.dag.node_based.Sim_pairwise_DAG_node_Resnik_1995;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Test the resolution of the measures associated to the configurations by a
+ * {@link MeasureRegistry}.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestMeasureRegistry {
+
+    private static SMconf conf(String id, String flag) throws SLIB_Ex_Critic {
+        return new SMconf(id, flag, new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004));
+    }
+
+    /**
+     * Threads resolving the same configurations at the same time all obtain
+     * the instance kept by the registry, a single instance per configuration.
+     */
+    @Test
+    public void testConcurrentResolution() throws Exception {
+
+        final int nbThreads = 8;
+        final MeasureRegistry<Sim_Pairwise> registry = new MeasureRegistry<Sim_Pairwise>(Sim_Pairwise.class);
+        ExecutorService pool = Executors.newFixedThreadPool(nbThreads);
+
+        try {
+            for (int round = 0; round < 50; round++) {
+
+                final SMconf[] confs = {
+                    conf("resnik", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995),
+                    conf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998),
+                    // same flag, distinct configuration
+                    conf("resnik_2", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995)
+                };
+                final CyclicBarrier barrier = new CyclicBarrier(nbThreads);
+                List<Future<Sim_Pairwise[]>> futures = new ArrayList<Future<Sim_Pairwise[]>>();
+
+                for (int t = 0; t < nbThreads; t++) {
+                    final int offset = t;
+                    futures.add(pool.submit(new Callable<Sim_Pairwise[]>() {
+                        @Override
+                        public Sim_Pairwise[] call() throws Exception {
+                            barrier.await(10, TimeUnit.SECONDS);
+                            Sim_Pairwise[] measures = new Sim_Pairwise[confs.length];
+                            for (int i = 0; i < confs.length; i++) {
+                                int c = (i + offset) % confs.length;
+                                measures[c] = registry.get(confs[c]);
+                            }
+                            return measures;
+                        }
+                    }));
+                }
+
+                Sim_Pairwise[] first = futures.get(0).get(10, TimeUnit.SECONDS);
+                for (Future<Sim_Pairwise[]> f : futures) {
+                    Sim_Pairwise[] measures = f.get(10, TimeUnit.SECONDS);
+                    for (int i = 0; i < confs.length; i++) {
+                        assertSame(first[i], measures[i]);
+                        assertSame(first[i], registry.get(confs[i]));
+                    }
+                }
+                assertTrue(first[0] instanceof Sim_pairwise_DAG_node_Resnik_1995);
+                assertNotSame(first[0], first[2]);
+                assertEquals(3 * (round + 1), registry.measures.size());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+
+        MeasureRegistry<Sim_Pairwise> registry = new MeasureRegistry<Sim_Pairwise>(Sim_Pairwise.class);
+        SMconf conf = conf("resnik", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995);
+
+        Sim_Pairwise resolved = registry.get(conf);
+        Sim_Pairwise registered = new Sim_pairwise_DAG_node_Resnik_1995();
+        registry.register(conf, registered);
+        assertSame(registered, registry.get(conf));
+        assertNotSame(resolved, registry.get(conf));
+
+        try {
+            registry.register(conf, null);
+            fail("null measure");
+        } catch (IllegalArgumentException e) {
+        }
+        assertSame(registered, registry.get(conf));
+    }
+
+    /**
+     * The reflection errors are reported as {@link SLIB_Ex_Critic}, the
+     * configurations which cannot be resolved are not associated to any
+     * measure.
+     */
+    @Test
+    public void testInvalidClasses() throws Exception {
+
+        MeasureRegistry<Sim_Pairwise> registry = new MeasureRegistry<Sim_Pairwise>(Sim_Pairwise.class);
+
+        String[] classNames = {
+            // unknown class
+            "slib.sml.sm.core.measures.UnknownMeasure",
+            // no public constructor without parameter
+            Integer.class.getName(),
+            // abstract class
+            Number.class.getName(),
+            // not a pairwise measure
+            Object.class.getName(),
+            null
+        };
+
+        for (String className : classNames) {
+            SMconf conf = conf("invalid", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995);
+            conf.className = className;
+            try {
+                registry.get(conf);
+                fail(className);
+            } catch (SLIB_Ex_Critic e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("invalid"));
+            }
+        }
+        assertEquals(0, registry.measures.size());
+    }
+
+    /**
+     * Configurations whose measure cannot be created are reported by the
+     * engine as {@link SLIB_Ex_Critic}.
+     */
+    @Test
+    public void testEngine() throws Exception {
+
+        URIFactory factory = URIFactoryMemory.getSingleton();
+        G graph = new GraphMemory(factory.createURI("http://registry/"));
+        graph.addE(factory.createURI("http://registry/b"), RDFS.SUBCLASSOF, factory.createURI("http://registry/a"));
+        SM_Engine engine = new SM_Engine(graph);
+
+        SMconf pairwise = conf("resnik", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995);
+        assertSame(engine.getPairwiseMeasure(pairwise), engine.getPairwiseMeasure(pairwise));
+
+        SMconf unknown = conf("unknown", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995);
+        unknown.className = "slib.sml.sm.core.measures.UnknownMeasure";
+        try {
+            engine.getPairwiseMeasure(unknown);
+            fail("unknown pairwise measure");
+        } catch (SLIB_Ex_Critic e) {
+        }
+
+        // a pairwise measure is not a groupwise measure
+        try {
+            engine.getGroupwiseAddOnMeasure(pairwise);
+            fail("not a groupwise measure");
+        } catch (SLIB_Ex_Critic e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(Sim_Groupwise_Indirect.class.getSimpleName()));
+        }
+    }
+}
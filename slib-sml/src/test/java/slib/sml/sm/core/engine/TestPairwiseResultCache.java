@@ -0,0 +1,296 @@
+package slib.sml.sm.core.engine;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Test the bound, the segmented LRU eviction policy and the hash table of
+ * {@link PairwiseResultCache}, the segments being compared to a simple model
+ * of the policy built on linked lists.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestPairwiseResultCache {
+
+    /**
+     * Segmented LRU policy: the first elements of the lists are the most
+     * recently used ones.
+     */
+    static class Model {
+
+        final int capacity;
+        final int maxProtected;
+        final LinkedList<Long> probation = new LinkedList<Long>();
+        final LinkedList<Long> protectedList = new LinkedList<Long>();
+        final Map<Long, Double> values = new HashMap<Long, Double>();
+
+        Model(int capacity) {
+            this.capacity = capacity;
+            this.maxProtected = Math.max(1, (int) (capacity * PairwiseResultCache.PROTECTED_RATIO));
+        }
+
+        double get(long key) {
+            if (!values.containsKey(key)) {
+                return Double.NaN;
+            }
+            if (!protectedList.remove(key)) {
+                probation.remove(key);
+                if (protectedList.size() + 1 > maxProtected) {
+                    probation.addFirst(protectedList.removeLast());
+                }
+            }
+            protectedList.addFirst(key);
+            return values.get(key);
+        }
+
+        void put(long key, double value) {
+            if (!values.containsKey(key) && values.size() == capacity) {
+                Long victim = probation.isEmpty() ? protectedList.removeLast() : probation.removeLast();
+                values.remove(victim);
+            }
+            if (!values.containsKey(key)) {
+                probation.addFirst(key);
+            }
+            values.put(key, value);
+        }
+    }
+
+    /**
+     * Random operations on a segment whose hashes are taken in a small range
+     * so that the keys collide, the clusters wrapping around the end of the
+     * table. The entries which remain after the evictions and their backward
+     * shift removal must stay reachable.
+     */
+    @Test
+    public void testSegmentAgainstModel() {
+
+        Random random = new Random(17);
+
+        for (int capacity : new int[]{1, 2, 5, 8, 13, 64}) {
+
+            PairwiseResultCache.Segment segment = new PairwiseResultCache.Segment(capacity);
+            Model model = new Model(capacity);
+            int nbKeys = capacity * 3 + 2;
+            int[] hashes = new int[nbKeys];
+            for (int k = 0; k < nbKeys; k++) {
+                // few home slots, including the last ones of the table
+                hashes[k] = random.nextBoolean() ? segment.mask - random.nextInt(2) : random.nextInt(3);
+            }
+
+            for (int op = 0; op < 20000; op++) {
+
+                int k = random.nextInt(nbKeys);
+                if (random.nextInt(3) == 0) {
+                    double v = random.nextDouble();
+                    segment.put(k, hashes[k], v);
+                    model.put(k, v);
+                } else {
+                    double expected = model.get(k);
+                    double actual = segment.get(k, hashes[k]);
+                    assertEquals("capacity " + capacity + ", key " + k + ", operation " + op, expected, actual, 0);
+                }
+                assertEquals(model.values.size(), segment.size);
+                assertEquals(model.protectedList.size(), segment.nbProtected);
+            }
+        }
+    }
+
+    /**
+     * Filling the caches beyond their capacity never exceeds their bound.
+     */
+    @Test
+    public void testBound() {
+
+        Random random = new Random(5);
+
+        for (int capacity : new int[]{1, 3, 100, 1000, 5000}) {
+            for (int nbSegments : new int[]{1, 4, 16, 100}) {
+
+                PairwiseResultCache cache = new PairwiseResultCache(capacity, random.nextBoolean(), nbSegments);
+                Map<Long, Double> inserted = new HashMap<Long, Double>();
+
+                for (int i = 0; i < capacity * 4; i++) {
+                    int a = random.nextInt(1000);
+                    int b = random.nextInt(1000);
+                    cache.put(a, b, a * 1000 + b);
+                    if (cache.isSymmetric() && a > b) {
+                        inserted.put(((long) b << 32) | a, (double) a * 1000 + b);
+                    } else {
+                        inserted.put(((long) a << 32) | b, (double) a * 1000 + b);
+                    }
+                    assertTrue(cache.size() <= capacity);
+                }
+                // evicted pairs can be inserted again
+                assertTrue(cache.getEvictions() >= inserted.size() - cache.size());
+
+                // the cached scores are the last ones given
+                int found = 0;
+                for (Map.Entry<Long, Double> e : inserted.entrySet()) {
+                    int a = (int) (e.getKey() >>> 32);
+                    int b = (int) (long) e.getKey();
+                    double score = cache.get(a, b);
+                    if (!Double.isNaN(score)) {
+                        assertEquals(e.getValue(), score, 0);
+                        found++;
+                    }
+                }
+                assertEquals(cache.size(), found);
+
+                cache.clear();
+                assertEquals(0, cache.size());
+                assertTrue(Double.isNaN(cache.get(1, 2)));
+            }
+        }
+    }
+
+    /**
+     * The entries requested again are protected from the entries computed
+     * once, the least recently used protected entry being demoted when the
+     * protected list is full.
+     */
+    @Test
+    public void testEvictionPolicy() {
+
+        // a single segment of 10 entries, 8 of which can be protected
+        PairwiseResultCache cache = new PairwiseResultCache(10, false);
+        assertEquals(1, cache.segments.length);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, 0, i);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, cache.get(i, 0), 0);
+        }
+        // scan of new pairs computed once
+        for (int i = 10; i < 20; i++) {
+            cache.put(i, 0, i);
+        }
+        assertEquals(10, cache.size());
+        assertEquals(10, cache.getEvictions());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("pair " + i, i < 5 || i >= 15, !Double.isNaN(cache.get(i, 0)));
+        }
+
+        // 0 is demoted when 8 is protected, 9 is the least recently used
+        // entry of the probation list
+        cache = new PairwiseResultCache(10, false);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, 0, i);
+        }
+        for (int i = 0; i < 9; i++) {
+            cache.get(i, 0);
+        }
+        cache.put(10, 0, 10);
+        assertFalse(contains(cache, 9));
+        assertTrue(contains(cache, 0));
+        cache.put(11, 0, 11);
+        assertFalse(contains(cache, 0));
+        for (int i = 1; i <= 8; i++) {
+            assertTrue(contains(cache, i));
+        }
+
+        // without probation entries the least recently used protected entry
+        // is evicted
+        cache = new PairwiseResultCache(1, false);
+        cache.put(1, 2, 3);
+        assertEquals(3, cache.get(1, 2), 0);
+        cache.put(2, 3, 4);
+        assertTrue(Double.isNaN(cache.get(1, 2)));
+        assertEquals(4, cache.get(2, 3), 0);
+    }
+
+    /**
+     * Check the presence of a pair without updating the lists.
+     */
+    private static boolean contains(PairwiseResultCache cache, int a) {
+        PairwiseResultCache.Segment s = cache.segments[0];
+        long key = (long) a << 32;
+        for (int e = 0; e < s.size; e++) {
+            if (s.keys[e] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testSymmetry() {
+
+        PairwiseResultCache symmetric = new PairwiseResultCache(100, true);
+        symmetric.put(3, 7, 0.5);
+        assertEquals(0.5, symmetric.get(7, 3), 0);
+        symmetric.put(7, 3, 0.25);
+        assertEquals(1, symmetric.size());
+        assertEquals(0.25, symmetric.get(3, 7), 0);
+
+        PairwiseResultCache asymmetric = new PairwiseResultCache(100, false);
+        asymmetric.put(3, 7, 0.5);
+        assertTrue(Double.isNaN(asymmetric.get(7, 3)));
+        asymmetric.put(7, 3, 0.25);
+        assertEquals(2, asymmetric.size());
+        assertEquals(0.5, asymmetric.get(3, 7), 0);
+        assertEquals(0.25, asymmetric.get(7, 3), 0);
+        assertEquals(2, asymmetric.getHits());
+        assertEquals(1, asymmetric.getMisses());
+    }
+
+    /**
+     * NaN is the value returned for the missing pairs, NaN scores are
+     * therefore not stored.
+     */
+    @Test
+    public void testNaN() {
+
+        PairwiseResultCache cache = new PairwiseResultCache(2, true);
+        cache.put(1, 2, 0.5);
+        cache.put(2, 3, 0.75);
+        cache.put(3, 4, Double.NaN);
+        cache.put(1, 2, Double.NaN);
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getEvictions());
+        assertEquals(0.5, cache.get(1, 2), 0);
+        assertEquals(0.75, cache.get(2, 3), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new PairwiseResultCache(0, true);
+    }
+}
@@ -0,0 +1,328 @@
+package slib.sml.sm.core.engine;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.measures.graph.pairwise.dag.node_based.Sim_pairwise_DAG_node_Constants;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the entities returned by {@link SM_EntitySearchEngine} to the
+ * ranking of all the entities sharing an ancestor with the query, i.e. by
+ * decreasing score and then by increasing id.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestSM_EntitySearchEngine {
+
+    public static final String uriGraphTest = "http://graph/entities/";
+    URIFactory factory = URIFactoryMemory.getSingleton();
+
+    /**
+     * Random rooted DAG annotating random entities, the entities have between
+     * one and four classes. A third of the entities are annotated as a
+     * previous entity in order to obtain tied scores.
+     */
+    private G randomGraph(String name, int nbClasses, int nbEntities, long seed) {
+
+        String ns = uriGraphTest + name + "/";
+        G graph = new GraphMemory(factory.createURI(ns));
+        Random random = new Random(seed);
+
+        graph.addV(factory.createURI(ns + "C_0"));
+        for (int i = 1; i < nbClasses; i++) {
+            URI c = factory.createURI(ns + "C_" + i);
+            int nbParents = 1 + random.nextInt(3);
+            for (int p = 0; p < nbParents; p++) {
+                int parent = Math.max(0, i - 1 - random.nextInt(Math.min(i, 30)));
+                graph.addE(c, RDFS.SUBCLASSOF, factory.createURI(ns + "C_" + parent));
+            }
+        }
+
+        List<Set<URI>> annotations = new ArrayList<Set<URI>>();
+        for (int i = 0; i < nbEntities; i++) {
+
+            Set<URI> classes;
+            if (i > 0 && random.nextInt(3) == 0) {
+                classes = annotations.get(random.nextInt(i));
+            } else {
+                classes = new HashSet<URI>();
+                int nbClassesEntity = 1 + random.nextInt(4);
+                for (int c = 0; c < nbClassesEntity; c++) {
+                    classes.add(factory.createURI(ns + "C_" + random.nextInt(nbClasses)));
+                }
+            }
+            annotations.add(classes);
+
+            URI entity = factory.createURI(ns + "E_" + i);
+            for (URI c : classes) {
+                graph.addE(entity, RDF.TYPE, c);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * The direct measures, or the indirect measures associated to the
+     * pairwise measures if pairwise is true.
+     */
+    private static List<SMconf[]> confs(boolean pairwise) throws SLIB_Exception {
+
+        List<SMconf[]> confs = new ArrayList<SMconf[]>();
+
+        for (String ic : new String[]{SMConstants.FLAG_ICI_SECO_2004, SMConstants.FLAG_ICI_SANCHEZ_2011}) {
+
+            ICconf icConf = new IC_Conf_Topo(ic);
+
+            if (!pairwise) {
+                confs.add(new SMconf[]{new SMconf("gic", SMConstants.FLAG_SIM_GROUPWISE_DAG_GIC, icConf), null});
+                continue;
+            }
+
+            List<SMconf> pairwiseConfs = new ArrayList<SMconf>();
+            pairwiseConfs.add(new SMconf("resnik", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995, icConf));
+            pairwiseConfs.add(new SMconf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998, icConf));
+            pairwiseConfs.add(new SMconf("jc_norm", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_JIANG_CONRATH_1997_NORM, icConf));
+            SMconf simRel = new SMconf("simrel", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_SCHLICKER_2006, icConf);
+            simRel.addParam(Sim_pairwise_DAG_node_Constants.IC_PROB, new IC_Conf_Topo(SMConstants.FLAG_ICI_PROB_OCCURENCE_PROPAGATED));
+            pairwiseConfs.add(simRel);
+
+            for (String flag : new String[]{
+                SMConstants.FLAG_SIM_GROUPWISE_BMA, SMConstants.FLAG_SIM_GROUPWISE_BMM,
+                SMConstants.FLAG_SIM_GROUPWISE_AVERAGE, SMConstants.FLAG_SIM_GROUPWISE_MAX,
+                SMConstants.FLAG_SIM_GROUPWISE_MIN}) {
+                for (SMconf pairwiseConf : pairwiseConfs) {
+                    confs.add(new SMconf[]{new SMconf(flag, flag), pairwiseConf});
+                }
+            }
+        }
+        if (!pairwise) {
+            confs.add(new SMconf[]{new SMconf("ui", SMConstants.FLAG_SIM_GROUPWISE_DAG_UI), null});
+        }
+        return confs;
+    }
+
+    /**
+     * @return the ids of the entities sharing an ancestor with the query
+     * ranked by decreasing score and then by increasing id, the excluded
+     * entity is not considered
+     */
+    private static List<Integer> ranking(SM_EntitySearchEngine search, SMconf groupwiseConf, SMconf pairwiseConf,
+            int[] query, int excluded, final double[] scores) throws SLIB_Ex_Critic {
+
+        SM_Engine engine = search.engine;
+        BitSet queryAncestors = new BitSet();
+        for (int c : query) {
+            for (int a : engine.getAncestorsIncIds(c)) {
+                queryAncestors.set(a);
+            }
+        }
+
+        List<Integer> ids = new ArrayList<Integer>();
+
+        for (int e = 0; e < search.getNbEntities(); e++) {
+
+            boolean shared = false;
+            for (int c : search.annotations[e]) {
+                for (int a : engine.getAncestorsIncIds(c)) {
+                    shared |= queryAncestors.get(a);
+                }
+            }
+            if (e == excluded || !shared) {
+                continue;
+            }
+            if (pairwiseConf == null) {
+                scores[e] = engine.computeGroupwiseStandaloneSim(groupwiseConf, query, search.annotations[e]);
+            } else {
+                scores[e] = engine.computeGroupwiseAddOnSim(groupwiseConf, pairwiseConf, query, search.annotations[e]);
+            }
+            ids.add(e);
+        }
+        Integer[] sorted = ids.toArray(new Integer[ids.size()]);
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                // numerical comparison, -0.0 and 0.0 are tied
+                if (scores[x] != scores[y]) {
+                    return scores[x] > scores[y] ? -1 : 1;
+                }
+                return x.compareTo(y);
+            }
+        });
+        return Arrays.asList(sorted);
+    }
+
+    /**
+     * Compare the searches of the entities the most similar to random
+     * entities and to random sets of classes to the ranking of all the
+     * entities.
+     *
+     * @return the number of searches in which the k-th entity is tied with
+     * the next one
+     */
+    private int check(G graph, boolean pairwise, int nbQueries, long seed) throws SLIB_Exception {
+
+        SM_Engine engine = new SM_Engine(graph);
+        SM_EntitySearchEngine search = new SM_EntitySearchEngine(engine);
+        int n = search.getNbEntities();
+        List<URI> classes = new ArrayList<URI>(engine.getClasses());
+        int ties = 0;
+
+        for (SMconf[] conf : confs(pairwise)) {
+
+            Random random = new Random(seed);
+
+            for (int q = 0; q < nbQueries; q++) {
+
+                int excluded = -1;
+                Set<URI> queryClasses = new HashSet<URI>();
+                int[] query;
+
+                if (q % 2 == 0) {
+                    excluded = random.nextInt(n);
+                    query = search.annotations[excluded];
+                } else {
+                    int nbClasses = 1 + random.nextInt(3);
+                    for (int i = 0; i < nbClasses; i++) {
+                        queryClasses.add(classes.get(random.nextInt(classes.size())));
+                    }
+                    query = engine.getClassIds(queryClasses);
+                    Arrays.sort(query);
+                }
+
+                double[] expectedScores = new double[n];
+                List<Integer> expected = ranking(search, conf[0], conf[1], query, excluded, expectedScores);
+
+                for (int k : new int[]{1, 2, 3, 5, 10, 25, n - 1, n, n + 5}) {
+
+                    Map<URI, Double> topK;
+                    if (excluded != -1) {
+                        topK = search.getTopKSimilarEntities(conf[0], conf[1], search.entityIndex.get(excluded), k);
+                    } else {
+                        topK = search.getTopKSimilarEntities(conf[0], conf[1], queryClasses, k);
+                    }
+                    String msg = conf[0].id + (conf[1] == null ? "" : " " + conf[1].id) + " query " + Arrays.toString(query) + " k=" + k;
+
+                    assertEquals(msg, Math.min(k, expected.size()), topK.size());
+
+                    int rank = 0;
+                    for (Map.Entry<URI, Double> entry : topK.entrySet()) {
+                        int e = expected.get(rank);
+                        assertEquals(msg + " rank " + rank, search.entityIndex.get(e), entry.getKey());
+                        assertEquals(msg + " rank " + rank, expectedScores[e], entry.getValue(), 0.);
+                        rank++;
+                    }
+                    if (k < expected.size() && expectedScores[expected.get(k - 1)] == expectedScores[expected.get(k)]) {
+                        ties++;
+                    }
+                }
+            }
+        }
+        return ties;
+    }
+
+    /**
+     * SimGIC and UI.
+     */
+    @Test
+    public void testDirectMeasures() throws Exception {
+
+        assertTrue(check(randomGraph("direct", 300, 500, 5), false, 40, 13) > 0);
+        assertTrue(check(randomGraph("direct_small", 20, 200, 17), false, 40, 19) > 0);
+    }
+
+    /**
+     * BMA, BMM, Average, Max and Min associated to pairwise measures bounded
+     * by the IC of the MICA.
+     */
+    @Test
+    public void testIndirectMeasures() throws Exception {
+
+        assertTrue(check(randomGraph("indirect", 200, 300, 23), true, 12, 29) > 0);
+        assertTrue(check(randomGraph("indirect_small", 20, 150, 31), true, 12, 37) > 0);
+    }
+
+    /**
+     * The measures which cannot be bounded are rejected.
+     */
+    @Test
+    public void testInvalidSearch() throws Exception {
+
+        SM_Engine engine = new SM_Engine(randomGraph("invalid", 20, 10, 41));
+        SM_EntitySearchEngine search = new SM_EntitySearchEngine(engine);
+        URI entity = search.entityIndex.get(0);
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+
+        try {
+            search.getTopKSimilarEntities(new SMconf("nto", SMConstants.FLAG_SIM_GROUPWISE_DAG_NTO), entity, 3);
+            assertTrue("the measure is not supported", false);
+        } catch (SLIB_Ex_Critic e) {
+            assertTrue(e.getMessage().contains("not supported"));
+        }
+        try {
+            SMconf tversky = new SMconf("tversky_ic", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_TVERSKY_IC, icConf);
+            search.getTopKSimilarEntities(new SMconf("bma", SMConstants.FLAG_SIM_GROUPWISE_BMA), tversky, entity, 3);
+            assertTrue("the pairwise measure is not supported", false);
+        } catch (SLIB_Ex_Critic e) {
+            assertTrue(e.getMessage().contains("not supported"));
+        }
+        try {
+            search.getTopKSimilarEntities(new SMconf("ui", SMConstants.FLAG_SIM_GROUPWISE_DAG_UI), factory.createURI(uriGraphTest + "unknown"), 3);
+            assertTrue("the entity is not indexed", false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("annotated entity"));
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package slib.sml.sm.core.engine;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Compare the content of a {@link TopKHeap} to the sort of all the offered
+ * elements, i.e. by decreasing score and then by increasing id.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestTopKHeap {
+
+    /**
+     * @return the ids ranked by decreasing score and then by increasing id
+     */
+    private static Integer[] ranking(int[] ids, final double[] scores) {
+
+        Integer[] positions = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            positions[i] = i;
+        }
+        final int[] fIds = ids;
+        Arrays.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                int c = Double.compare(scores[y], scores[x]);
+                return c != 0 ? c : (fIds[x] < fIds[y] ? -1 : (fIds[x] == fIds[y] ? 0 : 1));
+            }
+        });
+        Integer[] ranked = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ranked[i] = ids[positions[i]];
+        }
+        return ranked;
+    }
+
+    /**
+     * Offer the elements in the given order and check the drained content
+     * and the worst score once the heap is full.
+     */
+    private static void check(int capacity, int[] ids, double[] scores) {
+
+        TopKHeap heap = new TopKHeap(capacity);
+        Integer[] expected = ranking(ids, scores);
+        String msg = "capacity=" + capacity + " ids=" + Arrays.toString(ids) + " scores=" + Arrays.toString(scores);
+
+        for (int i = 0; i < ids.length; i++) {
+
+            heap.offer(ids[i], scores[i]);
+            assertEquals(msg, Math.min(i + 1, capacity) == capacity, heap.isFull());
+
+            if (heap.isFull()) {
+                // the k-th score among the elements offered so far
+                double[] offered = Arrays.copyOf(scores, i + 1);
+                Arrays.sort(offered);
+                assertEquals(msg, offered[i + 1 - capacity], heap.worstScore(), 0.);
+            }
+        }
+
+        int[] drainedIds = new int[capacity];
+        double[] drainedScores = new double[capacity];
+        int n = heap.drain(drainedIds, drainedScores);
+
+        assertEquals(msg, Math.min(capacity, ids.length), n);
+        for (int i = 0; i < n; i++) {
+            assertEquals(msg + " rank " + i, (int) expected[i], drainedIds[i]);
+            assertEquals(msg + " rank " + i, scores[indexOf(ids, expected[i])], drainedScores[i], 0.);
+        }
+    }
+
+    private static int indexOf(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Elements offered by increasing, decreasing and equal scores.
+     */
+    @Test
+    public void testOrders() {
+
+        int n = 20;
+        int[] ids = new int[n];
+        double[] increasing = new double[n];
+        double[] decreasing = new double[n];
+        double[] equal = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            increasing[i] = i;
+            decreasing[i] = n - i;
+            equal[i] = 0.5;
+        }
+        int[] reversedIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            reversedIds[i] = n - 1 - i;
+        }
+        for (int capacity = 1; capacity <= n + 2; capacity++) {
+            check(capacity, ids, increasing);
+            check(capacity, ids, decreasing);
+            check(capacity, ids, equal);
+            check(capacity, reversedIds, equal);
+        }
+    }
+
+    /**
+     * Random scores taken among a few values, most of the elements are tied.
+     */
+    @Test
+    public void testRandom() {
+
+        Random random = new Random(3);
+
+        for (int run = 0; run < 500; run++) {
+
+            int n = 1 + random.nextInt(60);
+            int[] ids = new int[n];
+            double[] scores = new double[n];
+
+            for (int i = 0; i < n; i++) {
+                ids[i] = i;
+            }
+            // random permutation of the ids
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int id = ids[i];
+                ids[i] = ids[j];
+                ids[j] = id;
+            }
+            int nbValues = 1 + random.nextInt(5);
+            for (int i = 0; i < n; i++) {
+                scores[i] = random.nextInt(nbValues) / (double) nbValues;
+            }
+            check(1 + random.nextInt(n + 2), ids, scores);
+        }
+    }
+
+    /**
+     * An element worse than the root of a full heap is ignored, an element
+     * tied with the root replaces it only if its id is lower.
+     */
+    @Test
+    public void testFullHeap() {
+
+        TopKHeap heap = new TopKHeap(2);
+        assertFalse(heap.isFull());
+
+        heap.offer(5, 0.5);
+        heap.offer(7, 0.8);
+        assertTrue(heap.isFull());
+        assertEquals(0.5, heap.worstScore(), 0.);
+
+        heap.offer(1, 0.2);
+        heap.offer(9, 0.5);
+        heap.offer(3, 0.5);
+
+        int[] ids = new int[2];
+        double[] scores = new double[2];
+        assertEquals(2, heap.drain(ids, scores));
+        assertEquals(7, ids[0]);
+        assertEquals(3, ids[1]);
+        assertEquals(0.8, scores[0], 0.);
+        assertEquals(0.5, scores[1], 0.);
+    }
+}
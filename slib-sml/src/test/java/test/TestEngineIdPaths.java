@@ -0,0 +1,232 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.graph.pairwise.dag.node_based.Sim_pairwise_DAG_node_Constants;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_Lord_2003;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the methods of the engine taking class ids to their counterparts
+ * taking URIs.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestEngineIdPaths {
+
+    public static final String graphFile = System.getProperty("user.dir") + "/src/test/resources/graph_test.slib";
+    public static final String uriGraphTest = "http://graph/";
+    URIFactory factory = URIFactoryMemory.getSingleton();
+
+    private G loadTestGraph() throws SLIB_Exception {
+
+        G graph = new GraphMemory(factory.createURI(uriGraphTest));
+        new GraphLoader_SLIB().populate(new GDataConf(GFormat.SLIB, graphFile), graph);
+        return graph;
+    }
+
+    /**
+     * Random rooted DAG, the classes have between one and three parents.
+     */
+    private G randomGraph(int nbClasses, long seed) {
+
+        String ns = uriGraphTest + "ids/";
+        G graph = new GraphMemory(factory.createURI(ns));
+        Random random = new Random(seed);
+
+        graph.addV(factory.createURI(ns + "C_0"));
+        for (int i = 1; i < nbClasses; i++) {
+            URI c = factory.createURI(ns + "C_" + i);
+            int nbParents = 1 + random.nextInt(3);
+            for (int p = 0; p < nbParents; p++) {
+                int parent = Math.max(0, i - 1 - random.nextInt(Math.min(i, 30)));
+                graph.addE(c, RDFS.SUBCLASSOF, factory.createURI(ns + "C_" + parent));
+            }
+        }
+        return graph;
+    }
+
+    private static Set<URI> randomSet(List<URI> classes, Random random) {
+
+        Set<URI> set = new HashSet<URI>();
+        int size = 1 + random.nextInt(5);
+        for (int i = 0; i < size; i++) {
+            set.add(classes.get(random.nextInt(classes.size())));
+        }
+        return set;
+    }
+
+    private static SMconf[] pairwiseConfs(ICconf icConf) throws SLIB_Exception {
+
+        String[] flags = {
+            SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995, SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998,
+            SMConstants.FLAG_DIST_PAIRWISE_DAG_NODE_JIANG_CONRATH_1997, SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_JIANG_CONRATH_1997_NORM,
+            SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_SCHLICKER_2006, SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_TVERSKY_IC,
+            SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_JACCARD_IC, SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_JACCARD_3W_IC,
+            SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_SIM_IC_2010, SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_GL
+        };
+        SMconf[] confs = new SMconf[flags.length];
+        for (int i = 0; i < flags.length; i++) {
+            confs[i] = new SMconf(flags[i], flags[i], icConf);
+            if (flags[i].equals(SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_SCHLICKER_2006)) {
+                confs[i].addParam(Sim_pairwise_DAG_node_Constants.IC_PROB, new IC_Conf_Topo(SMConstants.FLAG_ICI_PROB_OCCURENCE_PROPAGATED));
+            }
+        }
+        return confs;
+    }
+
+    /**
+     * The ids of the classes, their ancestors and their IC.
+     */
+    private void checkClasses(SM_Engine engine, ICconf icConf) throws SLIB_Exception {
+
+        for (URI c : engine.getClasses()) {
+
+            int id = engine.getClassId(c);
+            assertEquals(c, engine.getClassURI(id));
+
+            Set<URI> ancestors = new HashSet<URI>();
+            int[] ids = engine.getAncestorsIncIds(id);
+            for (int i = 0; i < ids.length; i++) {
+                assertTrue(i == 0 || ids[i - 1] < ids[i]);
+                ancestors.add(engine.getClassURI(ids[i]));
+            }
+            assertEquals(engine.getAncestorsInc(c), ancestors);
+            assertEquals(engine.getIC(icConf, c), engine.getIC(icConf, id), 0);
+        }
+    }
+
+    /**
+     * MICA, IC of the MICA and probability of the MICA of random pairs, and
+     * of the pairwise measures and of the indirect groupwise measures.
+     */
+    private void check(G graph, int nbPairs, long seed) throws SLIB_Exception {
+
+        SM_Engine engine = new SM_Engine(graph);
+        List<URI> classes = new ArrayList<URI>(engine.getClasses());
+        Random random = new Random(seed);
+        ICconf probConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_PROB_OCCURENCE_PROPAGATED);
+
+        String[] groupwiseFlags = {
+            SMConstants.FLAG_SIM_GROUPWISE_BMA, SMConstants.FLAG_SIM_GROUPWISE_BMM,
+            SMConstants.FLAG_SIM_GROUPWISE_AVERAGE, SMConstants.FLAG_SIM_GROUPWISE_MAX,
+            SMConstants.FLAG_SIM_GROUPWISE_MIN
+        };
+        List<SMconf> groupwiseConfs = new ArrayList<SMconf>();
+        for (String flag : groupwiseFlags) {
+            groupwiseConfs.add(new SMconf(flag, flag));
+        }
+        SMconf lord = new SMconf("lord", SMConstants.FLAG_SIM_GROUPWISE_AVERAGE);
+        engine.registerMeasure(lord, new Sim_groupwise_Lord_2003());
+        groupwiseConfs.add(lord);
+
+        for (String ic : new String[]{SMConstants.FLAG_ICI_SECO_2004, SMConstants.FLAG_ICI_SANCHEZ_2011}) {
+
+            ICconf icConf = new IC_Conf_Topo(ic);
+            checkClasses(engine, icConf);
+            SMconf[] pairwiseConfs = pairwiseConfs(icConf);
+
+            for (int p = 0; p < nbPairs; p++) {
+
+                URI a = classes.get(random.nextInt(classes.size()));
+                URI b = p % 10 == 0 ? a : classes.get(random.nextInt(classes.size()));
+                int idA = engine.getClassId(a);
+                int idB = engine.getClassId(b);
+                String msg = ic + " " + a + " " + b;
+
+                double icMICA = engine.getIC_MICA(icConf, a, b);
+                assertEquals(msg, icMICA, engine.getIC_MICA(icConf, idA, idB), 0);
+
+                // the MICA can differ among the ancestors sharing its IC
+                int mica = engine.getMICA(icConf, idA, idB);
+                assertEquals(msg, icMICA, engine.getIC(icConf, mica), 0);
+                assertEquals(msg, icMICA, engine.getIC(icConf, engine.getMICA(icConf, a, b)), 0);
+                assertTrue(msg, engine.getAncestorsInc(a).contains(engine.getClassURI(mica)));
+                assertTrue(msg, engine.getAncestorsInc(b).contains(engine.getClassURI(mica)));
+
+                assertEquals(msg, engine.getP_MICA(probConf, a, b), engine.getP_MICA(probConf, idA, idB), 0);
+
+                for (SMconf conf : pairwiseConfs) {
+                    double expected = engine.computePairwiseSim(conf, a, b);
+                    double[] row = new double[3];
+                    engine.computePairwiseSim(conf, idA, new int[]{idB, idA}, row, 1);
+                    assertEquals(msg + " " + conf.id, expected, engine.computePairwiseSim(conf, idA, idB), 0);
+                    assertEquals(msg + " " + conf.id, expected, row[1], 0);
+                    assertEquals(msg + " " + conf.id, engine.computePairwiseSim(conf, a, a), row[2], 0);
+                }
+
+                Set<URI> setA = randomSet(classes, random);
+                Set<URI> setB = p % 10 == 0 ? setA : randomSet(classes, random);
+                int[] idsA = engine.getClassIds(setA);
+                int[] idsB = engine.getClassIds(setB);
+
+                for (SMconf groupwiseConf : groupwiseConfs) {
+                    SMconf pairwiseConf = pairwiseConfs[p % pairwiseConfs.length];
+                    double expected = engine.computeGroupwiseAddOnSim(groupwiseConf, pairwiseConf, setA, setB);
+                    assertEquals(msg + " " + groupwiseConf.id + " " + pairwiseConf.id, expected, engine.computeGroupwiseAddOnSim(groupwiseConf, pairwiseConf, idsA, idsB), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGraph() throws SLIB_Exception {
+        check(loadTestGraph(), 200, 3);
+    }
+
+    @Test
+    public void testRandomGraph() throws SLIB_Exception {
+        check(randomGraph(300, 7), 300, 11);
+    }
+}
@@ -0,0 +1,247 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.loader.snapshot.GraphSnapshot;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.elements.Edge;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.engine.SM_EngineSnapshot;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Check the engines restored from snapshots and the rejection of stale,
+ * corrupted and incompatible snapshots.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestEngineSnapshot {
+
+    public static final String graphFile = System.getProperty("user.dir") + "/src/test/resources/graph_test.slib";
+    public static final String uriGraphTest = "http://graph/";
+    URIFactory factory;
+    ICconf icConf;
+    String source;
+    SM_Engine engine;
+    String snapshotFile;
+
+    public TestEngineSnapshot() throws Exception {
+
+        factory = URIFactoryMemory.getSingleton();
+        icConf = new IC_Conf_Topo("ic", SMConstants.FLAG_ICI_SECO_2004);
+
+        // the graph is loaded from a copy which can be modified
+        source = copy(graphFile, ".slib");
+        engine = new SM_Engine(loadGraph(source));
+
+        snapshotFile = tempFile(".snapshot");
+        SM_EngineSnapshot.write(engine, snapshotFile, Arrays.asList(icConf), source);
+    }
+
+    private G loadGraph(String file) throws SLIB_Exception {
+        G graph = new GraphMemory(factory.createURI(uriGraphTest));
+        new GraphLoader_SLIB().populate(new GDataConf(GFormat.SLIB, file), graph);
+        return graph;
+    }
+
+    private static String tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("slib_snapshot_test", suffix);
+        file.deleteOnExit();
+        return file.getAbsolutePath();
+    }
+
+    private static String copy(String file, String suffix) throws IOException {
+
+        String copy = tempFile(suffix);
+        InputStream in = new FileInputStream(file);
+        OutputStream out = new FileOutputStream(copy);
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+        return copy;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+
+        GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile);
+        SM_Engine restored = SM_EngineSnapshot.load(snapshot, 1);
+
+        assertEquals(engine.getClasses(), restored.getClasses());
+        assertEquals(engine.getAllAncestorsInc(), restored.getAllAncestorsInc());
+        assertEquals(engine.getAllDescendantsInc(), restored.getAllDescendantsInc());
+        assertEquals(engine.getMaxDepths(), restored.getMaxDepths());
+        assertEquals(engine.getMinDepths(), restored.getMinDepths());
+
+        assertTrue(SM_EngineSnapshot.restoreIC(restored, snapshot, icConf));
+        assertEquals(engine.getIC_results(icConf), restored.getIC_results(icConf));
+
+        SMconf lin = new SMconf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998, icConf);
+        for (URI a : engine.getClasses()) {
+            for (URI b : engine.getClasses()) {
+                if (engine.getIC(icConf, a) > 0 && engine.getIC(icConf, b) > 0) {
+                    assertEquals(engine.computePairwiseSim(lin, a, b), restored.computePairwiseSim(lin, a, b), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStaleSnapshot() throws Exception {
+
+        assertTrue(!GraphSnapshot.open(snapshotFile).isStale());
+
+        OutputStream out = new FileOutputStream(source, true);
+        try {
+            out.write("\n".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile);
+        assertTrue(snapshot.isStale());
+        try {
+            SM_EngineSnapshot.load(snapshot, 1);
+            assertTrue("stale snapshots must be rejected", false);
+        } catch (SLIB_Ex_Critic e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("stale"));
+        }
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+
+        String corrupted = copy(snapshotFile, ".snapshot");
+        RandomAccessFile raf = new RandomAccessFile(corrupted, "rw");
+        try {
+            long position = GraphSnapshot.HEADER_SIZE + (raf.length() - GraphSnapshot.HEADER_SIZE) / 2;
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        try {
+            GraphSnapshot.open(corrupted);
+            assertTrue("corrupted snapshots must be rejected", false);
+        } catch (SLIB_Ex_Critic e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test
+    public void testVersionMismatch() throws Exception {
+
+        String other = copy(snapshotFile, ".snapshot");
+        RandomAccessFile raf = new RandomAccessFile(other, "rw");
+        try {
+            raf.seek(GraphSnapshot.MAGIC.length);
+            raf.writeInt(GraphSnapshot.VERSION + 1);
+        } finally {
+            raf.close();
+        }
+
+        try {
+            GraphSnapshot.open(other);
+            assertTrue("snapshots written with another version must be rejected", false);
+        } catch (SLIB_Ex_Critic e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("version"));
+        }
+    }
+
+    @Test
+    public void testICconfMismatch() throws Exception {
+
+        GraphSnapshot snapshot = GraphSnapshot.open(snapshotFile);
+        SM_Engine restored = SM_EngineSnapshot.load(snapshot, 1);
+
+        // same id, another flag
+        ICconf other = new IC_Conf_Topo(icConf.getId(), SMConstants.FLAG_ICI_SANCHEZ_2011);
+        assertTrue(!SM_EngineSnapshot.restoreIC(restored, snapshot, other));
+        // same flag, other parameters
+        ICconf parametrized = new IC_Conf_Topo(icConf.getId(), icConf.getFlag());
+        parametrized.addParam("x", 1);
+        assertTrue(!SM_EngineSnapshot.restoreIC(restored, snapshot, parametrized));
+        // not stored
+        assertTrue(!SM_EngineSnapshot.restoreIC(restored, snapshot, new IC_Conf_Topo("unknown", icConf.getFlag())));
+
+        assertTrue(SM_EngineSnapshot.restoreIC(restored, snapshot, new IC_Conf_Topo(icConf.getId(), icConf.getFlag())));
+    }
+
+    @Test
+    public void testGraphMismatch() throws Exception {
+
+        G graph = loadGraph(graphFile);
+        graph.addE(new Edge(factory.createURI(uriGraphTest + "C_20"), RDFS.SUBCLASSOF, factory.createURI(uriGraphTest + "C_1")));
+        SM_Engine other = new SM_Engine(graph);
+
+        try {
+            SM_EngineSnapshot.restoreIC(other, GraphSnapshot.open(snapshotFile), icConf);
+            assertTrue("the values of another graph must not be restored", false);
+        } catch (SLIB_Ex_Critic e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("differ"));
+        }
+    }
+}
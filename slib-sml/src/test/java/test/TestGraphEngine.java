@@ -45,6 +45,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import slib.sglib.io.conf.GDataConf;
@@ -305,4 +306,39 @@ public class TestGraphEngine {
 
         }
     }
+
+    /**
+     * The bidirectional search of the shortest paths gives the weights
+     * cached from the search of all the shortest paths of a class, an
+     * unreachable class is infinitely far.
+     */
+    @Test
+    public void testShortestPath() throws Exception {
+
+        SM_Engine bidirectional = new SM_Engine(graph);
+        SM_Engine cached = new SM_Engine(graph);
+
+        for (URI a : bidirectional.getClasses()) {
+
+            cached.getAllShortestPath(a, null);
+
+            for (URI b : bidirectional.getClasses()) {
+                double sp = bidirectional.getShortestPath(a, b, null);
+                assertEquals(a + " " + b, cached.getShortestPath(a, b, null), sp, 0);
+                assertEquals(a + " " + b, bidirectional.getShortestPath(b, a, null), sp, 0);
+                assertTrue(a.equals(b) ? sp == 0 : sp >= 1);
+            }
+        }
+
+        G disconnected = new GraphMemory(factory.createURI(uriGraphTest + "disconnected/"));
+        URI a = factory.createURI(uriGraphTest + "disconnected/A");
+        URI b = factory.createURI(uriGraphTest + "disconnected/B");
+        disconnected.addE(a, RDFS.SUBCLASSOF, factory.createURI(uriGraphTest + "disconnected/R_A"));
+        disconnected.addE(b, RDFS.SUBCLASSOF, factory.createURI(uriGraphTest + "disconnected/R_B"));
+
+        SM_Engine disconnectedEngine = new SM_Engine(disconnected);
+        assertEquals(Double.POSITIVE_INFINITY, disconnectedEngine.getShortestPath(a, b, null), 0);
+        disconnectedEngine.getAllShortestPath(a, null);
+        assertEquals(Double.POSITIVE_INFINITY, disconnectedEngine.getShortestPath(a, b, null), 0);
+    }
 }
@@ -0,0 +1,234 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.SetUtils;
+
+/**
+ * Compare SimGIC, UI, NTO, NTO_MAX and TO, computed on the bitmaps of the
+ * ancestors, to their definitions computed on the sets of ancestors.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestGroupwiseDirectMeasures {
+
+    public static final String graphFile = System.getProperty("user.dir") + "/src/test/resources/graph_test.slib";
+    public static final String uriGraphTest = "http://graph/";
+    URIFactory factory = URIFactoryMemory.getSingleton();
+
+    private G loadTestGraph() throws SLIB_Exception {
+
+        G graph = new GraphMemory(factory.createURI(uriGraphTest));
+        new GraphLoader_SLIB().populate(new GDataConf(GFormat.SLIB, graphFile), graph);
+        return graph;
+    }
+
+    /**
+     * Random rooted DAG, the classes have between one and three parents.
+     */
+    private G randomGraph(int nbClasses, long seed) {
+
+        String ns = uriGraphTest + "groupwise/";
+        G graph = new GraphMemory(factory.createURI(ns));
+        Random random = new Random(seed);
+
+        graph.addV(factory.createURI(ns + "C_0"));
+        for (int i = 1; i < nbClasses; i++) {
+            URI c = factory.createURI(ns + "C_" + i);
+            int nbParents = 1 + random.nextInt(3);
+            for (int p = 0; p < nbParents; p++) {
+                int parent = Math.max(0, i - 1 - random.nextInt(Math.min(i, 30)));
+                graph.addE(c, RDFS.SUBCLASSOF, factory.createURI(ns + "C_" + parent));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Set-based computation of the measures, i.e. their implementation
+     * before the bitmaps.
+     */
+    private static double reference(String flag, Set<URI> setA, Set<URI> setB, SM_Engine engine, ICconf icConf) throws SLIB_Exception {
+
+        Set<URI> ancA = engine.getAncestorsInc(setA);
+        Set<URI> ancB = engine.getAncestorsInc(setB);
+        Set<URI> intersection = SetUtils.intersection(ancA, ancB);
+        Set<URI> union = SetUtils.union(ancA, ancB);
+
+        if (flag.equals(SMConstants.FLAG_SIM_GROUPWISE_DAG_GIC)) {
+
+            double icInter = 0;
+            for (URI c : intersection) {
+                icInter += engine.getIC(icConf, c);
+            }
+            double icUnion = 0;
+            for (URI c : union) {
+                icUnion += engine.getIC(icConf, c);
+            }
+            return icUnion == 0 ? 0 : icInter / icUnion;
+
+        } else if (flag.equals(SMConstants.FLAG_SIM_GROUPWISE_DAG_UI)) {
+            return (double) intersection.size() / union.size();
+        } else if (flag.equals(SMConstants.FLAG_SIM_GROUPWISE_DAG_NTO)) {
+            return (double) intersection.size() / Math.min(ancA.size(), ancB.size());
+        } else if (flag.equals(SMConstants.FLAG_SIM_GROUPWISE_DAG_NTO_MAX)) {
+            return (double) intersection.size() / Math.max(ancA.size(), ancB.size());
+        }
+        return intersection.size();
+    }
+
+    private static Set<URI> randomSet(List<URI> classes, Random random) {
+
+        Set<URI> set = new HashSet<URI>();
+        int size = 1 + random.nextInt(6);
+        for (int i = 0; i < size; i++) {
+            set.add(classes.get(random.nextInt(classes.size())));
+        }
+        return set;
+    }
+
+    /**
+     * Compare the measures for random pairs of sets, given as URIs and as
+     * ids, and for each set compared to itself.
+     */
+    private void check(G graph, int nbPairs, long seed) throws SLIB_Exception {
+
+        SM_Engine engine = new SM_Engine(graph);
+        List<URI> classes = new ArrayList<URI>(engine.getClasses());
+        String[] flags = {
+            SMConstants.FLAG_SIM_GROUPWISE_DAG_GIC, SMConstants.FLAG_SIM_GROUPWISE_DAG_UI,
+            SMConstants.FLAG_SIM_GROUPWISE_DAG_NTO, SMConstants.FLAG_SIM_GROUPWISE_DAG_NTO_MAX,
+            SMConstants.FLAG_SIM_GROUPWISE_DAG_TO
+        };
+
+        for (String ic : new String[]{SMConstants.FLAG_ICI_SECO_2004, SMConstants.FLAG_ICI_SANCHEZ_2011}) {
+
+            ICconf icConf = new IC_Conf_Topo(ic);
+            Random random = new Random(seed);
+
+            for (int p = 0; p < nbPairs; p++) {
+
+                Set<URI> setA = randomSet(classes, random);
+                Set<URI> setB = p % 10 == 0 ? setA : randomSet(classes, random);
+                int[] idsA = engine.getClassIds(setA);
+                int[] idsB = engine.getClassIds(setB);
+
+                for (String flag : flags) {
+
+                    SMconf conf = new SMconf(flag, flag, icConf);
+                    double expected = reference(flag, setA, setB, engine, icConf);
+                    String msg = flag + " " + ic + " " + setA + " " + setB;
+
+                    // the IC are summed in a different order by SimGIC
+                    double delta = flag.equals(SMConstants.FLAG_SIM_GROUPWISE_DAG_GIC) ? 1e-12 : 0;
+
+                    assertEquals(msg, expected, engine.computeGroupwiseStandaloneSim(conf, setA, setB), delta);
+                    assertEquals(msg, expected, engine.computeGroupwiseStandaloneSim(conf, idsA, idsB), delta);
+                    assertEquals(msg, expected, engine.computeGroupwiseStandaloneSim(conf, idsB, idsA), delta);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTestGraph() throws Exception {
+        check(loadTestGraph(), 300, 3);
+    }
+
+    /**
+     * The ancestors of the classes of the random graph span several words
+     * of the bitmaps.
+     */
+    @Test
+    public void testRandomGraph() throws Exception {
+        check(randomGraph(700, 5), 500, 7);
+    }
+
+    /**
+     * A computation failing on an invalid id does not leave the ancestors of
+     * the valid ids in the bitmaps reused by the next computations.
+     */
+    @Test
+    public void testInvalidId() throws Exception {
+
+        G graph = randomGraph(700, 9);
+        SM_Engine engine = new SM_Engine(graph);
+        List<URI> classes = new ArrayList<URI>(engine.getClasses());
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+        SMconf conf = new SMconf("gic", SMConstants.FLAG_SIM_GROUPWISE_DAG_GIC, icConf);
+
+        int last = classes.size() - 1;
+        int invalid = classes.size() + 10;
+        URI deepest = engine.getClassURI(last);
+
+        for (int[] ids : new int[][]{{last, invalid}, {last, -1}}) {
+            try {
+                engine.computeGroupwiseStandaloneSim(conf, ids, ids);
+                fail("invalid id " + ids[1]);
+            } catch (SLIB_Ex_Critic e) {
+            }
+
+            Random random = new Random(13);
+            for (int p = 0; p < 20; p++) {
+                Set<URI> setA = randomSet(classes, random);
+                Set<URI> setB = new HashSet<URI>();
+                setB.add(deepest);
+                double expected = reference(SMConstants.FLAG_SIM_GROUPWISE_DAG_GIC, setA, setB, engine, icConf);
+                assertEquals(expected, engine.computeGroupwiseStandaloneSim(conf, engine.getClassIds(setA), engine.getClassIds(setB)), 1e-12);
+            }
+        }
+    }
+}
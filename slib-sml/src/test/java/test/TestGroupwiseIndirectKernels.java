@@ -0,0 +1,223 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.Sim_Groupwise_Indirect;
+import slib.sml.sm.core.measures.graph.pairwise.dag.node_based.Sim_pairwise_DAG_node_Constants;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_Average;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_BestMatchAverage;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_BestMatchMax;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_Lord_2003;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_Max;
+import slib.sml.sm.core.measures.others.groupwise.indirect.Sim_groupwise_Min;
+import slib.sml.sm.core.measures.others.groupwise.indirect.experimental.Sim_groupwise_AVERAGE_NORMALIZED_GOSIM;
+import slib.sml.sm.core.measures.others.groupwise.indirect.experimental.Sim_groupwise_MAX_NORMALIZED_GOSIM;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Exception;
+import slib.utils.impl.MatrixDouble;
+
+/**
+ * Compare the indirect groupwise measures, computed by the row kernels, to
+ * the aggregation of the matrix of the pairwise scores.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestGroupwiseIndirectKernels {
+
+    public static final String graphFile = System.getProperty("user.dir") + "/src/test/resources/graph_test.slib";
+    public static final String uriGraphTest = "http://graph/";
+    static final String BMA = "bma";
+    static final String BMM = "bmm";
+    static final String AVERAGE = "average";
+    static final String MAX = "max";
+    static final String MIN = "min";
+    static final String LORD = "lord";
+    static final String MAX_GOSIM = "max_gosim";
+    static final String AVERAGE_GOSIM = "average_gosim";
+    URIFactory factory = URIFactoryMemory.getSingleton();
+
+    private G loadTestGraph() throws SLIB_Exception {
+
+        G graph = new GraphMemory(factory.createURI(uriGraphTest));
+        new GraphLoader_SLIB().populate(new GDataConf(GFormat.SLIB, graphFile), graph);
+        return graph;
+    }
+
+    /**
+     * Random rooted DAG, the classes have between one and three parents.
+     */
+    private G randomGraph(int nbClasses, long seed) {
+
+        String ns = uriGraphTest + "kernels/";
+        G graph = new GraphMemory(factory.createURI(ns));
+        Random random = new Random(seed);
+
+        graph.addV(factory.createURI(ns + "C_0"));
+        for (int i = 1; i < nbClasses; i++) {
+            URI c = factory.createURI(ns + "C_" + i);
+            int nbParents = 1 + random.nextInt(3);
+            for (int p = 0; p < nbParents; p++) {
+                int parent = Math.max(0, i - 1 - random.nextInt(Math.min(i, 30)));
+                graph.addE(c, RDFS.SUBCLASSOF, factory.createURI(ns + "C_" + parent));
+            }
+        }
+        return graph;
+    }
+
+    private static Set<URI> randomSet(List<URI> classes, Random random) {
+
+        Set<URI> set = new HashSet<URI>();
+        int size = 1 + random.nextInt(6);
+        for (int i = 0; i < size; i++) {
+            set.add(classes.get(random.nextInt(classes.size())));
+        }
+        return set;
+    }
+
+    /**
+     * Aggregation of the matrices of scores by the static helpers of the
+     * measures.
+     */
+    private static double reference(String measure, SM_Engine engine, Set<URI> setA, Set<URI> setB, SMconf pairwiseConf) throws SLIB_Exception {
+
+        MatrixDouble<URI, URI> m = engine.getMatrixScore(setA, setB, pairwiseConf);
+
+        if (measure.equals(BMA)) {
+            return Sim_groupwise_BestMatchAverage.sim(m);
+        } else if (measure.equals(BMM)) {
+            return Sim_groupwise_BestMatchMax.sim(m);
+        } else if (measure.equals(AVERAGE)) {
+            return Sim_groupwise_Average.sim(m);
+        } else if (measure.equals(MAX)) {
+            return Sim_groupwise_Max.sim(m);
+        } else if (measure.equals(MIN)) {
+            return Sim_groupwise_Min.sim(m);
+        } else if (measure.equals(LORD)) {
+            return Sim_groupwise_Lord_2003.sim(m);
+        }
+
+        MatrixDouble<URI, URI> mA = engine.getMatrixScore(setA, setA, pairwiseConf);
+        MatrixDouble<URI, URI> mB = engine.getMatrixScore(setB, setB, pairwiseConf);
+        if (measure.equals(MAX_GOSIM)) {
+            return new Sim_groupwise_MAX_NORMALIZED_GOSIM().sim(Sim_groupwise_Max.sim(m), Sim_groupwise_Max.sim(mA), Sim_groupwise_Max.sim(mB));
+        }
+        return new Sim_groupwise_AVERAGE_NORMALIZED_GOSIM().sim(Sim_groupwise_Average.sim(m), Sim_groupwise_Average.sim(mA), Sim_groupwise_Average.sim(mB));
+    }
+
+    /**
+     * Compare the measures for random pairs of sets, given as URIs and as
+     * ids, and for each set compared to itself.
+     */
+    private void check(G graph, int nbPairs, long seed) throws SLIB_Exception {
+
+        SM_Engine engine = new SM_Engine(graph);
+        List<URI> classes = new ArrayList<URI>(engine.getClasses());
+
+        // the measures are given explicitly, the flags of the two GOSim
+        // variants being associated to the same class
+        String[] measures = {BMA, BMM, AVERAGE, MAX, MIN, LORD, MAX_GOSIM, AVERAGE_GOSIM};
+        Sim_Groupwise_Indirect[] instances = {
+            new Sim_groupwise_BestMatchAverage(), new Sim_groupwise_BestMatchMax(),
+            new Sim_groupwise_Average(), new Sim_groupwise_Max(), new Sim_groupwise_Min(),
+            new Sim_groupwise_Lord_2003(), new Sim_groupwise_MAX_NORMALIZED_GOSIM(),
+            new Sim_groupwise_AVERAGE_NORMALIZED_GOSIM()
+        };
+        SMconf[] groupwiseConfs = new SMconf[measures.length];
+        for (int i = 0; i < measures.length; i++) {
+            groupwiseConfs[i] = new SMconf(measures[i], SMConstants.FLAG_SIM_GROUPWISE_AVERAGE);
+            engine.registerMeasure(groupwiseConfs[i], instances[i]);
+        }
+
+        for (String ic : new String[]{SMConstants.FLAG_ICI_SECO_2004, SMConstants.FLAG_ICI_SANCHEZ_2011}) {
+
+            ICconf icConf = new IC_Conf_Topo(ic);
+            SMconf simRel = new SMconf("simrel", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_SCHLICKER_2006, icConf);
+            simRel.addParam(Sim_pairwise_DAG_node_Constants.IC_PROB, new IC_Conf_Topo(SMConstants.FLAG_ICI_PROB_OCCURENCE_PROPAGATED));
+            SMconf[] pairwiseConfs = {
+                new SMconf("resnik", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995, icConf),
+                new SMconf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998, icConf),
+                new SMconf("jc", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_JIANG_CONRATH_1997_NORM, icConf),
+                new SMconf("tversky", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_TVERSKY_IC, icConf),
+                simRel
+            };
+            Random random = new Random(seed);
+
+            for (int p = 0; p < nbPairs; p++) {
+
+                Set<URI> setA = randomSet(classes, random);
+                Set<URI> setB = p % 10 == 0 ? setA : randomSet(classes, random);
+                int[] idsA = engine.getClassIds(setA);
+                int[] idsB = engine.getClassIds(setB);
+                SMconf pairwiseConf = pairwiseConfs[p % pairwiseConfs.length];
+
+                for (int i = 0; i < measures.length; i++) {
+
+                    double expected = reference(measures[i], engine, setA, setB, pairwiseConf);
+                    String msg = measures[i] + " " + pairwiseConf.id + " " + ic + " " + setA + " " + setB;
+
+                    assertEquals(msg, expected, engine.computeGroupwiseAddOnSim(groupwiseConfs[i], pairwiseConf, setA, setB), 1e-12);
+                    assertEquals(msg, expected, engine.computeGroupwiseAddOnSim(groupwiseConfs[i], pairwiseConf, idsA, idsB), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTestGraph() throws Exception {
+        check(loadTestGraph(), 200, 3);
+    }
+
+    @Test
+    public void testRandomGraph() throws Exception {
+        check(randomGraph(500, 5), 300, 7);
+    }
+}
@@ -0,0 +1,232 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.graph.utils.Direction;
+import slib.sglib.model.graph.utils.WalkConstraint;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sglib.utils.WalkConstraintGeneric;
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.utils.LCAFinderImpl;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the Lowest Common Ancestors found by {@link LCAFinderImpl} to
+ * their definition: the common ancestors which are not ancestors of another
+ * common ancestor.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestLCAFinder {
+
+    public static final String graphFile = System.getProperty("user.dir") + "/src/test/resources/graph_test.slib";
+    public static final String uriGraphTest = "http://graph/";
+    URIFactory factory = URIFactoryMemory.getSingleton();
+
+    private G loadTestGraph() throws SLIB_Exception {
+
+        G graph = new GraphMemory(factory.createURI(uriGraphTest));
+        new GraphLoader_SLIB().populate(new GDataConf(GFormat.SLIB, graphFile), graph);
+        return graph;
+    }
+
+    /**
+     * Random rooted DAG, the classes have between one and three parents.
+     */
+    private G randomGraph(int nbClasses, long seed) {
+
+        String ns = uriGraphTest + "lca/";
+        G graph = new GraphMemory(factory.createURI(ns));
+        Random random = new Random(seed);
+
+        graph.addV(factory.createURI(ns + "C_0"));
+        for (int i = 1; i < nbClasses; i++) {
+            URI c = factory.createURI(ns + "C_" + i);
+            int nbParents = 1 + random.nextInt(3);
+            for (int p = 0; p < nbParents; p++) {
+                int parent = Math.max(0, i - 1 - random.nextInt(Math.min(i, 30)));
+                graph.addE(c, RDFS.SUBCLASSOF, factory.createURI(ns + "C_" + parent));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Inclusive ancestors computed by a traversal of the graph.
+     */
+    private static Map<URI, Set<URI>> ancestors(G graph, Set<URI> classes) {
+
+        WalkConstraint wc = new WalkConstraintGeneric(RDFS.SUBCLASSOF, Direction.OUT);
+        Map<URI, Set<URI>> ancestors = new HashMap<URI, Set<URI>>();
+
+        for (URI c : classes) {
+            Set<URI> anc = new HashSet<URI>();
+            Deque<URI> queue = new ArrayDeque<URI>();
+            anc.add(c);
+            queue.add(c);
+            while (!queue.isEmpty()) {
+                for (URI p : graph.getV(queue.poll(), wc)) {
+                    if (anc.add(p)) {
+                        queue.add(p);
+                    }
+                }
+            }
+            ancestors.put(c, anc);
+        }
+        return ancestors;
+    }
+
+    private static Set<URI> lcas(Map<URI, Set<URI>> ancestors, URI a, URI b) {
+
+        Set<URI> common = new HashSet<URI>(ancestors.get(a));
+        common.retainAll(ancestors.get(b));
+
+        Set<URI> lcas = new HashSet<URI>();
+        for (URI c : common) {
+            boolean lowest = true;
+            for (URI d : common) {
+                if (!d.equals(c) && ancestors.get(d).contains(c)) {
+                    lowest = false;
+                    break;
+                }
+            }
+            if (lowest) {
+                lcas.add(c);
+            }
+        }
+        return lcas;
+    }
+
+    private static void check(G graph, int nbPairs, long seed) throws SLIB_Exception {
+
+        SM_Engine engine = new SM_Engine(graph);
+        List<URI> classes = new ArrayList<URI>(engine.getClasses());
+        Map<URI, Set<URI>> ancestors = ancestors(graph, engine.getClasses());
+        Random random = new Random(seed);
+
+        LCAFinderImpl finder = new LCAFinderImpl(engine);
+        LCAFinderImpl memo = new LCAFinderImpl(engine, 16);
+        LCAFinderImpl lazy = new LCAFinderImpl();
+
+        for (int p = 0; p < nbPairs; p++) {
+
+            URI a = classes.get(random.nextInt(classes.size()));
+            URI b = p % 10 == 0 ? a : classes.get(random.nextInt(classes.size()));
+            Set<URI> expected = lcas(ancestors, a, b);
+            String msg = a + " " + b;
+
+            assertEquals(msg, expected, finder.getLCAs(graph, a, b));
+            assertEquals(msg, expected, memo.getLCAs(graph, a, b));
+            // the reverse pair is answered by the memo
+            assertEquals(msg, expected, memo.getLCAs(graph, b, a));
+            assertEquals(msg, expected, lazy.getLCAs(graph, b, a));
+
+            int[] ids = finder.getLCAs(engine.getClassId(a), engine.getClassId(b));
+            Set<URI> uris = new HashSet<URI>();
+            for (int id : ids) {
+                uris.add(engine.getClassURI(id));
+            }
+            assertEquals(msg, expected.size(), ids.length);
+            assertEquals(msg, expected, uris);
+        }
+    }
+
+    @Test
+    public void testTestGraph() throws SLIB_Exception {
+        check(loadTestGraph(), 500, 3);
+    }
+
+    /**
+     * The classes of the random graph have several parents, the pairs
+     * therefore often have several LCAs.
+     */
+    @Test
+    public void testRandomGraph() throws SLIB_Exception {
+
+        G graph = randomGraph(400, 5);
+        check(graph, 2000, 7);
+
+        SM_Engine engine = new SM_Engine(graph);
+        Map<URI, Set<URI>> ancestors = ancestors(graph, engine.getClasses());
+        LCAFinderImpl finder = new LCAFinderImpl(engine);
+        int nbMultiple = 0;
+        for (URI a : engine.getClasses()) {
+            URI b = factory.createURI(uriGraphTest + "lca/C_" + (engine.getClasses().size() - 1));
+            if (finder.getLCAs(graph, a, b).size() > 1) {
+                nbMultiple++;
+            }
+            assertEquals(lcas(ancestors, a, b), finder.getLCAs(graph, a, b));
+        }
+        assertTrue(nbMultiple > 0);
+    }
+
+    @Test
+    public void testInvalidQueries() throws SLIB_Exception {
+
+        G graph = loadTestGraph();
+        URI c = factory.createURI(uriGraphTest + "C_1");
+        URI unknown = factory.createURI(uriGraphTest + "unknown");
+
+        try {
+            new LCAFinderImpl().getLCAs(graph, c, unknown);
+            fail("unknown class");
+        } catch (SLIB_Ex_Critic e) {
+        }
+        try {
+            new LCAFinderImpl().getLCAs(0, 1);
+            fail("no engine");
+        } catch (SLIB_Ex_Critic e) {
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.metrics.ic.utils.IcUtils;
+import slib.sml.sm.core.metrics.ic.utils.MICAEngine;
+import slib.utils.ex.SLIB_Ex_Critic;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the MICAs found by {@link MICAEngine} to those found on the sets of
+ * ancestors by {@link IcUtils#searchMICA(URI, URI, Set, Set, Map)}.
+ *
+ * The ICs are drawn among a few values independently of the topology: they
+ * are frequently tied and an ancestor can be more informative than its
+ * descendants.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestMICAEngine {
+
+    URIFactory factory = URIFactoryMemory.getSingleton();
+    int n;
+    int[][] ancestors;
+    double[] ic;
+    URI[] uris;
+    List<Set<URI>> ancestorsURIs;
+    Map<URI, Double> icScores;
+
+    /**
+     * Random DAG made of two components, the ids of the concepts are
+     * topologically ordered. The concepts of the second component do not
+     * share any ancestor with those of the first one.
+     */
+    private void buildDAG(int nbConcepts, long seed) {
+
+        Random random = new Random(seed);
+        n = nbConcepts;
+        int secondRoot = n - n / 10;
+
+        List<TreeSet<Integer>> anc = new ArrayList<TreeSet<Integer>>();
+        for (int c = 0; c < n; c++) {
+
+            TreeSet<Integer> set = new TreeSet<Integer>();
+            set.add(c);
+
+            if (c != 0 && c != secondRoot) {
+                int first = c < secondRoot ? 0 : secondRoot;
+                int nbParents = 1 + random.nextInt(3);
+                for (int p = 0; p < nbParents; p++) {
+                    int parent = Math.max(first, c - 1 - random.nextInt(Math.min(c - first, 20)));
+                    set.addAll(anc.get(parent));
+                }
+            }
+            anc.add(set);
+        }
+
+        ancestors = new int[n][];
+        ic = new double[n];
+        uris = new URI[n];
+        ancestorsURIs = new ArrayList<Set<URI>>();
+        icScores = new HashMap<URI, Double>();
+
+        for (int c = 0; c < n; c++) {
+            uris[c] = factory.createURI("http://graph/mica/" + seed + "/C_" + c);
+            ic[c] = random.nextInt(6) / 2.;
+            icScores.put(uris[c], ic[c]);
+        }
+        for (int c = 0; c < n; c++) {
+            ancestors[c] = new int[anc.get(c).size()];
+            Set<URI> set = new HashSet<URI>();
+            int i = 0;
+            for (int a : anc.get(c)) {
+                ancestors[c][i++] = a;
+                set.add(uris[a]);
+            }
+            ancestorsURIs.add(set);
+        }
+    }
+
+    /**
+     * @return the IC of the MICA of a and b searched on the sets of
+     * ancestors, NaN if a and b do not share any ancestor
+     */
+    private double reference(int a, int b) throws SLIB_Exception {
+
+        try {
+            return IcUtils.searchMax_IC_MICA(uris[a], uris[b], ancestorsURIs.get(a), ancestorsURIs.get(b), icScores);
+        } catch (SLIB_Ex_Critic e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * The MICA must be the common ancestor of maximal IC of lowest id.
+     */
+    private void checkMICA(MICAEngine engine, int a, int b, double expected) throws SLIB_Exception {
+
+        String msg = "MICA of " + a + " and " + b;
+
+        if (Double.isNaN(expected)) {
+            try {
+                engine.searchMICA(a, b);
+                assertTrue(msg + " must not be found", false);
+            } catch (SLIB_Ex_Critic e) {
+                return;
+            }
+        }
+        int mica = engine.searchMICA(a, b);
+
+        assertEquals(msg, expected, engine.getIC_MICA(a, b), 0);
+        assertEquals(msg, expected, ic[mica], 0);
+
+        if (a != b) {
+            assertTrue(msg, Arrays.binarySearch(ancestors[a], mica) >= 0);
+            assertTrue(msg, Arrays.binarySearch(ancestors[b], mica) >= 0);
+            for (int c : ancestors[a]) {
+                if (c < mica && ic[c] == expected) {
+                    assertTrue(msg + " tie broken by id", Arrays.binarySearch(ancestors[b], c) < 0);
+                }
+            }
+        }
+
+        // the MICA is the first ancestor of a, by decreasing IC, ancestor of b
+        int first = -1;
+        for (int c : engine.getAncestorsByDecreasingIC(a)) {
+            if (Arrays.binarySearch(ancestors[b], c) >= 0) {
+                first = c;
+                break;
+            }
+        }
+        if (a != b) {
+            assertEquals(msg, mica, first);
+        }
+    }
+
+    @Test
+    public void testPairwise() throws Exception {
+
+        for (long seed : new long[]{1, 2, 3}) {
+
+            buildDAG(250, seed);
+            MICAEngine engine = new MICAEngine(ancestors, ic);
+            assertEquals(n, engine.getNbConcepts());
+
+            for (int a = 0; a < n; a++) {
+                for (int b = 0; b < n; b++) {
+                    checkMICA(engine, a, b, reference(a, b));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+
+        buildDAG(300, 4);
+        MICAEngine engine = new MICAEngine(ancestors, ic);
+        Random random = new Random(5);
+        boolean[] marks = new boolean[n];
+
+        for (int run = 0; run < 300; run++) {
+
+            int a = random.nextInt(n);
+            int[] block = new int[1 + random.nextInt(40)];
+            for (int i = 0; i < block.length; i++) {
+                block[i] = random.nextInt(n);
+            }
+            int from = random.nextInt(block.length);
+            int to = from + random.nextInt(block.length - from + 1);
+            double[] results = new double[to - from + 3];
+
+            boolean shared = true;
+            for (int i = from; i < to; i++) {
+                shared &= !Double.isNaN(reference(a, block[i]));
+            }
+            try {
+                engine.getIC_MICA(a, block, from, to, results, 3, marks);
+                assertTrue("all the MICAs must be found", shared);
+                for (int i = from; i < to; i++) {
+                    assertEquals(reference(a, block[i]), results[3 + i - from], 0);
+                }
+            } catch (SLIB_Ex_Critic e) {
+                assertFalse("a MICA is missing", shared);
+            }
+            for (boolean m : marks) {
+                assertFalse("the marks must be reset", m);
+            }
+        }
+    }
+
+    /**
+     * The arrays of ranks are built concurrently.
+     */
+    @Test
+    public void testConcurrentSearch() throws Exception {
+
+        buildDAG(400, 6);
+        final MICAEngine engine = new MICAEngine(ancestors, ic);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 4; t++) {
+                final int seed = t;
+                futures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        Random random = new Random(seed);
+                        for (int i = 0; i < 20000; i++) {
+                            int a = random.nextInt(n);
+                            int b = random.nextInt(n);
+                            checkMICA(engine, a, b, reference(a, b));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIndex() {
+        new MICAEngine(new int[3][], new double[2]);
+    }
+}
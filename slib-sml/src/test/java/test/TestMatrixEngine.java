@@ -0,0 +1,163 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.engine.SM_MatrixEngine;
+import slib.sml.sm.core.measures.graph.framework.dag.Sim_Framework_DAG_Set_Tversky_1977;
+import slib.sml.sm.core.measures.graph.pairwise.dag.node_based.Sim_pairwise_DAG_node_Tversky_IC;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the matrices written by {@link SM_MatrixEngine} to the scores
+ * computed pair by pair by {@link SM_Engine}.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestMatrixEngine {
+
+    public static final String graphFile = System.getProperty("user.dir") + "/src/test/resources/graph_test.slib";
+    public static final String uriGraphTest = "http://graph/";
+    URIFactory factory;
+    G graph;
+    List<URI> classes;
+
+    public TestMatrixEngine() throws SLIB_Exception {
+
+        factory = URIFactoryMemory.getSingleton();
+        graph = new GraphMemory(factory.createURI(uriGraphTest));
+        new GraphLoader_SLIB().populate(new GDataConf(GFormat.SLIB, graphFile), graph);
+
+        // the root is excluded, the IC based scores of the root are undefined
+        URI root = factory.createURI(uriGraphTest + "C_0");
+        classes = new ArrayList<URI>();
+        for (URI c : new SM_Engine(graph).getClasses()) {
+            if (!c.equals(root)) {
+                classes.add(c);
+            }
+        }
+    }
+
+    private void checkMatrix(SMconf conf, boolean singlePrecision) throws Exception {
+
+        SM_Engine reference = new SM_Engine(graph);
+        SM_Engine engine = new SM_Engine(graph);
+        SM_MatrixEngine matrixEngine = new SM_MatrixEngine(engine, 2);
+        // several tiles, the last one being incomplete
+        matrixEngine.setTileSize(3);
+
+        int n = classes.size();
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = engine.getClassId(classes.get(i));
+        }
+
+        File file = File.createTempFile("matrix", ".bin");
+        file.deleteOnExit();
+        matrixEngine.writeMatrix(conf, ids, file.getAbsolutePath(), singlePrecision);
+
+        assertEquals((long) n * n * (singlePrecision ? 4 : 8), file.length());
+
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    double expected = reference.computePairwiseSim(conf, classes.get(i), classes.get(j));
+                    double value = singlePrecision ? in.readFloat() : in.readDouble();
+                    if (singlePrecision) {
+                        expected = (float) expected;
+                    }
+                    assertEquals(conf.id + " " + classes.get(i) + " " + classes.get(j), expected, value, 1e-12);
+                }
+            }
+        } finally {
+            in.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLin() throws Exception {
+
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+        SMconf conf = new SMconf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998, icConf);
+
+        checkMatrix(conf, false);
+        checkMatrix(conf, true);
+    }
+
+    @Test
+    public void testAsymmetricTverskyIC() throws Exception {
+
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+        SMconf conf = new SMconf("tversky_ic", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_TVERSKY_IC, icConf);
+        conf.addParam(Sim_pairwise_DAG_node_Tversky_IC.alpha_param_name, 0.9);
+        conf.addParam(Sim_pairwise_DAG_node_Tversky_IC.beta_param_name, 0.1);
+
+        checkMatrix(conf, false);
+    }
+
+    @Test
+    public void testAsymmetricTverskyContrastModel() throws Exception {
+
+        SMconf conf = new SMconf("tversky_1977", "SIM_FRAMEWORK_DAG_SET_TVERSKY_1977");
+        conf.addParam(Sim_Framework_DAG_Set_Tversky_1977.k_param_name, 0.2);
+
+        checkMatrix(conf, false);
+
+        // C_5 is an ancestor of C_12
+        URI a = factory.createURI(uriGraphTest + "C_12");
+        URI b = factory.createURI(uriGraphTest + "C_5");
+        SM_Engine engine = new SM_Engine(graph);
+        assertTrue(engine.computePairwiseSim(conf, a, b) != engine.computePairwiseSim(conf, b, a));
+    }
+}
@@ -0,0 +1,219 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.engine.PairwiseResultCache;
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.graph.framework.dag.Sim_Framework_DAG_Set_Tversky_1977;
+import slib.sml.sm.core.measures.graph.pairwise.dag.node_based.Sim_pairwise_DAG_node_Tversky_IC;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Check that the caching of the pairwise results does not alter the scores,
+ * in particular of the measures which are asymmetric according to their
+ * parameters, whether the classes are given by URIs or by ids.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestPairwiseResultCaching {
+
+    public static final String graphFile = System.getProperty("user.dir") + "/src/test/resources/graph_test.slib";
+    public static final String uriGraphTest = "http://graph/";
+    URIFactory factory;
+    G graph;
+    URI a, b;
+
+    public TestPairwiseResultCaching() throws SLIB_Exception {
+
+        factory = URIFactoryMemory.getSingleton();
+        graph = new GraphMemory(factory.createURI(uriGraphTest));
+        new GraphLoader_SLIB().populate(new GDataConf(GFormat.SLIB, graphFile), graph);
+
+        // C_5 is an ancestor of C_12
+        a = factory.createURI(uriGraphTest + "C_12");
+        b = factory.createURI(uriGraphTest + "C_5");
+    }
+
+    private void checkAsymmetric(SMconf conf) throws SLIB_Exception {
+
+        SM_Engine reference = new SM_Engine(graph);
+        double ab = reference.computePairwiseSim(conf, a, b);
+        double ba = reference.computePairwiseSim(conf, b, a);
+        assertTrue(conf.id + " must be asymmetric", ab != ba);
+
+        SM_Engine engine = new SM_Engine(graph);
+        engine.setCachePairwiseResults(true);
+
+        // twice, the second scores are read from the cache
+        for (int i = 0; i < 2; i++) {
+            assertEquals(conf.id + " sim(a,b)", ab, engine.computePairwiseSim(conf, a, b), 0);
+            assertEquals(conf.id + " sim(b,a)", ba, engine.computePairwiseSim(conf, b, a), 0);
+        }
+        assertTrue(engine.getPairwiseResultCache(conf) != null);
+        assertTrue(!engine.getPairwiseResultCache(conf).isSymmetric());
+    }
+
+    @Test
+    public void testTverskyIC() throws SLIB_Exception {
+
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+        SMconf conf = new SMconf("tversky_ic", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_TVERSKY_IC, icConf);
+        conf.addParam(Sim_pairwise_DAG_node_Tversky_IC.alpha_param_name, 0.9);
+        conf.addParam(Sim_pairwise_DAG_node_Tversky_IC.beta_param_name, 0.1);
+
+        checkAsymmetric(conf);
+    }
+
+    @Test
+    public void testTverskyContrastModel() throws SLIB_Exception {
+
+        SMconf conf = new SMconf("tversky_1977", "SIM_FRAMEWORK_DAG_SET_TVERSKY_1977");
+        conf.addParam(Sim_Framework_DAG_Set_Tversky_1977.k_param_name, 0.2);
+
+        checkAsymmetric(conf);
+    }
+
+    @Test
+    public void testSymmetricTverskyIC() throws SLIB_Exception {
+
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+        SMconf conf = new SMconf("tversky_ic_sym", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_TVERSKY_IC, icConf);
+
+        SM_Engine engine = new SM_Engine(graph);
+        engine.setCachePairwiseResults(true);
+
+        double ab = engine.computePairwiseSim(conf, a, b);
+        assertEquals(ab, engine.computePairwiseSim(conf, b, a), 0);
+        assertTrue(engine.getPairwiseResultCache(conf).isSymmetric());
+    }
+
+    /**
+     * The scores computed from the ids are cached and read from the cache.
+     */
+    @Test
+    public void testIdPath() throws SLIB_Exception {
+
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+        SMconf conf = new SMconf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998, icConf);
+
+        SM_Engine reference = new SM_Engine(graph);
+        SM_Engine engine = new SM_Engine(graph);
+        engine.setCachePairwiseResults(true);
+
+        int idA = engine.getClassId(a);
+        int idB = engine.getClassId(b);
+        double ab = reference.computePairwiseSim(conf, a, b);
+
+        assertEquals(ab, engine.computePairwiseSim(conf, idA, idB), 0);
+        PairwiseResultCache resultCache = engine.getPairwiseResultCache(conf);
+        assertTrue(resultCache != null);
+        assertEquals(ab, resultCache.get(idA, idB), 0);
+
+        long hits = resultCache.getHits();
+        assertEquals(ab, engine.computePairwiseSim(conf, idA, idB), 0);
+        assertEquals(ab, engine.computePairwiseSim(conf, a, b), 0);
+
+        double[] row = new double[2];
+        engine.computePairwiseSim(conf, idA, new int[]{idB, idA}, row, 0);
+        assertEquals(ab, row[0], 0);
+        assertEquals(reference.computePairwiseSim(conf, a, a), row[1], 0);
+        assertEquals(hits + 3, resultCache.getHits());
+    }
+
+    /**
+     * The indirect groupwise measures computed by an engine caching the
+     * pairwise results are those computed by an engine which does not.
+     */
+    @Test
+    public void testGroupwiseIndirect() throws SLIB_Exception {
+
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+        SMconf[] pairwiseConfs = {
+            new SMconf("resnik", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995, icConf),
+            new SMconf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998, icConf)
+        };
+        String[] groupwiseFlags = {
+            SMConstants.FLAG_SIM_GROUPWISE_BMA, SMConstants.FLAG_SIM_GROUPWISE_BMM,
+            SMConstants.FLAG_SIM_GROUPWISE_MAX, SMConstants.FLAG_SIM_GROUPWISE_MIN,
+            SMConstants.FLAG_SIM_GROUPWISE_AVERAGE
+        };
+
+        Set<URI> setA = new HashSet<URI>();
+        Set<URI> setB = new HashSet<URI>();
+        for (int i : new int[]{3, 7, 12, 16}) {
+            setA.add(factory.createURI(uriGraphTest + "C_" + i));
+        }
+        for (int i : new int[]{5, 12, 14}) {
+            setB.add(factory.createURI(uriGraphTest + "C_" + i));
+        }
+
+        SM_Engine reference = new SM_Engine(graph);
+        SM_Engine engine = new SM_Engine(graph);
+        engine.setCachePairwiseResults(true);
+
+        int[] idsA = engine.getClassIds(setA);
+        int[] idsB = engine.getClassIds(setB);
+
+        for (SMconf pairwiseConf : pairwiseConfs) {
+            for (String flag : groupwiseFlags) {
+
+                SMconf groupwiseConf = new SMconf(flag, flag);
+                double expected = reference.computeGroupwiseAddOnSim(groupwiseConf, pairwiseConf, setA, setB);
+                String msg = flag + " " + pairwiseConf.id;
+
+                // twice, the second scores are read from the cache
+                for (int i = 0; i < 2; i++) {
+                    assertEquals(msg, expected, engine.computeGroupwiseAddOnSim(groupwiseConf, pairwiseConf, setA, setB), 0);
+                    assertEquals(msg, expected, engine.computeGroupwiseAddOnSim(groupwiseConf, pairwiseConf, idsA, idsB), 0);
+                }
+            }
+            assertTrue(engine.getPairwiseResultCache(pairwiseConf).getHits() > 0);
+        }
+    }
+}
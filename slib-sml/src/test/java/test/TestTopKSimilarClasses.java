@@ -0,0 +1,249 @@
+package test;
+
+/*
+ * 
+ * Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+ * LGI2P research center
+ * This software is governed by the CeCILL  license under French law and
+ * abiding by the rules of distribution of free software.  You can  use, 
+ * modify and/ or redistribute the software under the terms of the CeCILL
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info". 
+ * 
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability. 
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or 
+ * data to be ensured and,  more generally, to use and operate it in the 
+ * same conditions as regards security. 
+ * 
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL license and that you accept its terms.
+ * 
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.RDFS;
+import slib.sglib.io.conf.GDataConf;
+import slib.sglib.io.loader.slibformat.GraphLoader_SLIB;
+import slib.sglib.io.util.GFormat;
+import slib.sglib.model.graph.G;
+import slib.sglib.model.impl.graph.memory.GraphMemory;
+import slib.sglib.model.impl.repo.URIFactoryMemory;
+import slib.sglib.model.repo.URIFactory;
+import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.measures.graph.pairwise.dag.node_based.Sim_pairwise_DAG_node_Constants;
+import slib.sml.sm.core.metrics.ic.utils.IC_Conf_Topo;
+import slib.sml.sm.core.metrics.ic.utils.ICconf;
+import slib.sml.sm.core.utils.SMConstants;
+import slib.sml.sm.core.utils.SMconf;
+import slib.utils.ex.SLIB_Exception;
+
+/**
+ * Compare the classes returned by
+ * {@link SM_Engine#getTopKSimilarClasses(SMconf, int, int, int[], double[])}
+ * to the ranking of all the classes, i.e. by decreasing score and then by
+ * increasing id.
+ *
+ * @author Harispe Sébastien
+ */
+public class TestTopKSimilarClasses {
+
+    public static final String graphFile = System.getProperty("user.dir") + "/src/test/resources/graph_test.slib";
+    public static final String uriGraphTest = "http://graph/";
+    URIFactory factory = URIFactoryMemory.getSingleton();
+
+    private G loadTestGraph() throws SLIB_Exception {
+
+        G graph = new GraphMemory(factory.createURI(uriGraphTest));
+        new GraphLoader_SLIB().populate(new GDataConf(GFormat.SLIB, graphFile), graph);
+        return graph;
+    }
+
+    /**
+     * Random rooted DAG, the classes have between one and three parents.
+     */
+    private G randomGraph(int nbClasses, long seed) {
+
+        String ns = uriGraphTest + "topk/";
+        G graph = new GraphMemory(factory.createURI(ns));
+        Random random = new Random(seed);
+
+        graph.addV(factory.createURI(ns + "C_0"));
+        for (int i = 1; i < nbClasses; i++) {
+            URI c = factory.createURI(ns + "C_" + i);
+            int nbParents = 1 + random.nextInt(3);
+            for (int p = 0; p < nbParents; p++) {
+                // the parents are mostly recent classes, i.e. the DAG is deep
+                int parent = Math.max(0, i - 1 - random.nextInt(Math.min(i, 30)));
+                graph.addE(c, RDFS.SUBCLASSOF, factory.createURI(ns + "C_" + parent));
+            }
+        }
+        return graph;
+    }
+
+    private static List<SMconf> confs() throws SLIB_Exception {
+
+        List<SMconf> confs = new ArrayList<SMconf>();
+
+        for (String ic : new String[]{SMConstants.FLAG_ICI_SECO_2004, SMConstants.FLAG_ICI_SANCHEZ_2011}) {
+
+            ICconf icConf = new IC_Conf_Topo(ic);
+            confs.add(new SMconf("resnik", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_RESNIK_1995, icConf));
+            confs.add(new SMconf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998, icConf));
+            confs.add(new SMconf("jc_norm", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_JIANG_CONRATH_1997_NORM, icConf));
+
+            SMconf simRel = new SMconf("simrel", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_SCHLICKER_2006, icConf);
+            simRel.addParam(Sim_pairwise_DAG_node_Constants.IC_PROB, new IC_Conf_Topo(SMConstants.FLAG_ICI_PROB_OCCURENCE_PROPAGATED));
+            confs.add(simRel);
+        }
+        return confs;
+    }
+
+    /**
+     * @return the ids of the classes ranked by decreasing score and then by
+     * increasing id
+     */
+    private static Integer[] ranking(SM_Engine engine, SMconf conf, int a, final double[] scores) throws SLIB_Exception {
+
+        int n = scores.length;
+        Integer[] ids = new Integer[n];
+        for (int b = 0; b < n; b++) {
+            ids[b] = b;
+            scores[b] = engine.computePairwiseSim(conf, a, b);
+        }
+        Arrays.sort(ids, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                int c = Double.compare(scores[y], scores[x]);
+                return c != 0 ? c : x.compareTo(y);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Compare the search to the ranking of all the classes for the given
+     * queries and numbers of classes searched.
+     *
+     * @return the number of searches in which the k-th class is tied with
+     * the next one
+     */
+    private int check(G graph, List<Integer> queries, int[] ks) throws SLIB_Exception {
+
+        SM_Engine engine = new SM_Engine(graph);
+        int n = engine.getClasses().size();
+        int ties = 0;
+
+        for (SMconf conf : confs()) {
+
+            for (int a : queries) {
+
+                double[] expectedScores = new double[n];
+                Integer[] expected = ranking(engine, conf, a, expectedScores);
+
+                for (int k : ks) {
+
+                    int[] ids = new int[k];
+                    double[] scores = new double[k];
+                    int found = engine.getTopKSimilarClasses(conf, a, k, ids, scores);
+                    String msg = conf.id + " " + conf.getICconf().getId() + " " + engine.getClassURI(a) + " k=" + k;
+
+                    assertEquals(msg, Math.min(k, n), found);
+
+                    for (int i = 0; i < found; i++) {
+                        assertEquals(msg + " rank " + i, (int) expected[i], ids[i]);
+                        assertEquals(msg + " rank " + i, expectedScores[expected[i]], scores[i], 0.);
+                    }
+                    if (k < n && expectedScores[expected[k - 1]] == expectedScores[expected[k]]) {
+                        ties++;
+                    }
+                }
+            }
+        }
+        return ties;
+    }
+
+    /**
+     * All the classes of the test graph and all the values of k, the scores
+     * of the test graph are frequently tied.
+     */
+    @Test
+    public void testTestGraph() throws Exception {
+
+        G graph = loadTestGraph();
+        SM_Engine engine = new SM_Engine(graph);
+        int n = engine.getClasses().size();
+
+        List<Integer> queries = new ArrayList<Integer>();
+        for (URI c : engine.getClasses()) {
+            queries.add(engine.getClassId(c));
+        }
+        Collections.sort(queries);
+
+        int[] ks = new int[n + 3];
+        for (int k = 1; k <= ks.length; k++) {
+            ks[k - 1] = k;
+        }
+        assertTrue(check(graph, queries, ks) > 0);
+    }
+
+    /**
+     * Larger graph in which the search prunes sub-hierarchies.
+     */
+    @Test
+    public void testRandomGraph() throws Exception {
+
+        G graph = randomGraph(400, 7);
+        SM_Engine engine = new SM_Engine(graph);
+        int n = engine.getClasses().size();
+
+        List<Integer> queries = new ArrayList<Integer>();
+        Random random = new Random(11);
+        for (int i = 0; i < 30; i++) {
+            queries.add(random.nextInt(n));
+        }
+        assertTrue(check(graph, queries, new int[]{1, 2, 5, 10, 37, n - 1, n, n + 10}) > 0);
+    }
+
+    /**
+     * The measures which cannot bound their scores are rejected, k must be
+     * positive.
+     */
+    @Test
+    public void testInvalidSearch() throws Exception {
+
+        SM_Engine engine = new SM_Engine(loadTestGraph());
+        ICconf icConf = new IC_Conf_Topo(SMConstants.FLAG_ICI_SECO_2004);
+        int a = engine.getClassId(factory.createURI(uriGraphTest + "C_12"));
+
+        SMconf lin = new SMconf("lin", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_LIN_1998, icConf);
+        assertEquals(0, engine.getTopKSimilarClasses(lin, a, 0, new int[0], new double[0]));
+
+        try {
+            SMconf tversky = new SMconf("tversky_ic", SMConstants.FLAG_SIM_PAIRWISE_DAG_NODE_TVERSKY_IC, icConf);
+            engine.getTopKSimilarClasses(tversky, a, 3, new int[3], new double[3]);
+            assertTrue("the measure cannot be used to search the classes", false);
+        } catch (SLIB_Exception e) {
+            assertTrue(e.getMessage().contains("cannot be used to search"));
+        }
+    }
+}
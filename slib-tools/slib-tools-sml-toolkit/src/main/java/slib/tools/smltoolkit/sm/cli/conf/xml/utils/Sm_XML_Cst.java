@@ -70,6 +70,16 @@ public class Sm_XML_Cst {
      *
      */
     public static final String QUERIES_TYPE_CTOC_FULL = "cTOc_full";
+    /**
+     * All concepts vs all concepts, the similarity matrix of each pairwise
+     * measure is written to a binary file
+     */
+    public static final String QUERIES_TYPE_CTOC_MATRIX = "cTOc_matrix";
+    /**
+     * Precision of the scores of the binary matrices, "float" or "double"
+     * (default)
+     */
+    public static final String MATRIX_PRECISION_ATTR = "precision";
     /**
      *
      */
@@ -36,10 +36,8 @@ package slib.tools.smltoolkit.sm.cli.core;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.Future;
 import org.openrdf.model.URI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +51,7 @@ import slib.sglib.model.impl.repo.URIFactoryMemory;
 import slib.sglib.model.repo.GraphRepository;
 import slib.sglib.model.repo.URIFactory;
 import slib.sml.sm.core.engine.SM_Engine;
+import slib.sml.sm.core.engine.SM_MatrixEngine;
 import slib.sml.sm.core.metrics.ic.utils.ICconf;
 import slib.sml.sm.core.utils.SMConstants;
 import slib.sml.sm.core.utils.SMconf;
@@ -76,7 +75,7 @@ import slib.utils.impl.QueryEntry;
 import slib.utils.impl.QueryFileIterator;
 import slib.utils.impl.QueryIterator;
 import slib.utils.impl.Util;
-import slib.utils.threads.PoolWorker;
+import slib.utils.threads.OrderedPipeline;
 import slib.utils.threads.ThreadManager;
 
 /**
@@ -160,6 +159,18 @@ public class SmCli implements SmlModuleCLI {
             simManager.computeIC(icConf);
         }
 
+        // resolve the measures once, before the computations start
+        for (SMconf m : conf.gConfPairwise) {
+            simManager.getPairwiseMeasure(m);
+        }
+        for (SMconf m : conf.gConfGroupwise) {
+            if (SMConstants.SIM_GROUPWISE_ADD_ON.containsKey(m.flag)) {
+                simManager.getGroupwiseAddOnMeasure(m);
+            } else {
+                simManager.getGroupwiseStandaloneMeasure(m);
+            }
+        }
+
 
         if (conf.getCachePairwiseResults() == null) {
             simManager.setCachePairwiseResults(CACHE_PAIRWISE_RESULTS);
@@ -301,6 +312,15 @@ public class SmCli implements SmlModuleCLI {
 
                     perform_cTOc(qloader, queryParam);
 
+                } else if (type.equals(Sm_XML_Cst.QUERIES_TYPE_CTOC_MATRIX)) {
+
+                    String precision = (String) gconf.getParam(Sm_XML_Cst.MATRIX_PRECISION_ATTR);
+
+                    if (precision != null && !precision.equals("float") && !precision.equals("double")) {
+                        throw new SLIB_Ex_Critic("Error loading query " + id + ", unsupported value " + precision + " for parameter " + Sm_XML_Cst.MATRIX_PRECISION_ATTR + ", expected float or double");
+                    }
+                    perform_cTOc_matrix(queryParam, "float".equals(precision));
+
                 } else {
                     throw new UnsupportedOperationException(type + " is not a supported " + XmlTags.TYPE_ATTR + " of queries");
                 }
@@ -310,237 +330,166 @@ public class SmCli implements SmlModuleCLI {
         }
     }
 
-    private void perform_oTOo(QueryIterator qloader, SMQueryParam queryParam) throws SLIB_Exception {
+    private void perform_oTOo(QueryIterator qloader, final SMQueryParam queryParam) throws SLIB_Exception {
 
 
         logger.info("Starting computing query " + Sm_XML_Cst.QUERIES_TYPE_OTOO);
 
-        ThreadManager threadManager = ThreadManager.getSingleton();
-        PoolWorker poolWorker = null;
-
-        try {
-
-
-            long queries_number = qloader.getNumberQueries();
-            logger.info("Number of query " + queries_number);
-
-            FileWriter fstream = new FileWriter(queryParam.getOutfile());
-            BufferedWriter file = new BufferedWriter(fstream);
+        // Build Header
+        String header = Sm_XML_Cst.E1_ATTR + "\t" + Sm_XML_Cst.E2_ATTR;
 
-            // Build Header
-            String header = Sm_XML_Cst.E1_ATTR + "\t" + Sm_XML_Cst.E2_ATTR;
+        final int nbMeasures = conf.gConfGroupwise.size();
 
-            int nbMeasures = conf.gConfGroupwise.size();
+        for (SMconf m : conf.gConfGroupwise) {
+            header += "\t" + m.label;
+        }
 
-            for (SMconf m : conf.gConfGroupwise) {
-                header += "\t" + m.label;
+        performQueries(qloader, queryParam, header, new OrderedPipeline.Worker<List<QueryEntry>, ThreadResultsQueryLoader>() {
+            @Override
+            public ThreadResultsQueryLoader process(List<QueryEntry> queriesBench) throws Exception {
+                return new EntityToEntity_Thread(queriesBench, SmCli.this, nbMeasures, queryParam).call();
             }
+        });
+    }
 
-            file.write(header + "\n");
-
-            int skipped = 0;
-            int setValue = 0;
-
-            // Compute measure results
-
-            poolWorker = threadManager.getMaxLoadPoolWorker();
-
-            long count = 0;
-
-            List<Future<ThreadResultsQueryLoader>> results = new ArrayList<Future<ThreadResultsQueryLoader>>();
-
-
-            while (qloader.hasNext()) {
-
-//                Thread.sleep(100);// To create thread wave
-//                logger.debug("Await Free Resource, load " + poolWorker.getLoad() + "/" + poolWorker.getCapacity());
-                poolWorker.awaitFreeResource();
-
-                List<QueryEntry> queriesBench = qloader.nextValids(SIZE_BENCH);
-
-                EntityToEntity_Thread callable = new EntityToEntity_Thread(poolWorker, queriesBench, this, nbMeasures, queryParam);
-
-                poolWorker.addTask();
-//                logger.debug("- Adding Thread task " + poolWorker.getLoad() + "/" + poolWorker.getCapacity());
-                Future<ThreadResultsQueryLoader> future = poolWorker.getPool().submit(callable);
+    private void perform_cTOc(QueryIterator qloader, final SMQueryParam queryParam) throws SLIB_Exception {
 
-                results.add(future);
 
-                // process results
-                Iterator<Future<ThreadResultsQueryLoader>> it = results.iterator();
-                while (it.hasNext()) {
+        logger.info("Starting computing query " + Sm_XML_Cst.QUERIES_TYPE_CTOC);
 
-                    Future<ThreadResultsQueryLoader> r = it.next();
+        // Build Header
+        String header = Sm_XML_Cst.C1_ATTR + "\t" + Sm_XML_Cst.C2_ATTR;
 
-                    if (r.isDone()) {
+        for (SMconf m : conf.gConfPairwise) {
+            header += "\t" + m.label;
+        }
 
-                        ThreadResultsQueryLoader rez = r.get();
+        performQueries(qloader, queryParam, header, new OrderedPipeline.Worker<List<QueryEntry>, ThreadResultsQueryLoader>() {
+            @Override
+            public ThreadResultsQueryLoader process(List<QueryEntry> queriesBench) throws Exception {
+                return new ConceptToConcept_Thread(queriesBench, SmCli.this, queryParam).call();
+            }
+        });
+    }
 
-                        file.write(rez.buffer.toString());
+    /**
+     * Compute the similarity matrices of all the classes. The classes are
+     * written to the output file, one per line, in the order of the rows and
+     * columns of the matrices. The matrix of each pairwise measure is written
+     * to the binary file output.[measure id].bin, see
+     * {@link SM_MatrixEngine#writeMatrix(SMconf, int[], String, boolean)}.
+     */
+    private void perform_cTOc_matrix(SMQueryParam queryParam, boolean singlePrecision) throws SLIB_Exception {
 
-                        skipped += rez.getSkipped();
-                        setValue += rez.getSetValue();
+        logger.info("Starting computing query " + Sm_XML_Cst.QUERIES_TYPE_CTOC_MATRIX);
 
-                        count += rez.getJobSize();
-                        logger.info("- " + count + " / " + queries_number + "\tskipped " + skipped + "\tsetted results " + setValue);
+        ThreadManager threadManager = ThreadManager.getSingleton();
+        int nbThreads = threadManager.reserveMaxLoad();
 
-                        it.remove();
+        try {
+            URIFactory factory = URIFactoryMemory.getSingleton();
+            int[] classes = new int[simManager.getClasses().size()];
+            int i = 0;
+
+            BufferedWriter file = new BufferedWriter(new FileWriter(queryParam.getOutfile()));
+            try {
+                for (URI c : simManager.getClasses()) {
+                    classes[i++] = simManager.getClassId(c);
+
+                    if (!queryParam.isOutputBaseName()) {
+                        file.write(c.getLocalName());
+                    } else if (queryParam.isUseLoadedURIprefixesOutput()) {
+                        file.write(factory.shortURIasString(c));
+                    } else {
+                        file.write(c.stringValue());
                     }
+                    file.write("\n");
                 }
+            } finally {
+                file.close();
             }
-            qloader.close();
 
-            poolWorker.shutdown();
+            logger.info("Number of classes " + classes.length + ", computing matrices using " + nbThreads + " thread(s)");
 
-            // process results
-            Iterator<Future<ThreadResultsQueryLoader>> it = results.iterator();
-            while (it.hasNext()) {
+            SM_MatrixEngine matrixEngine = new SM_MatrixEngine(simManager, nbThreads);
 
-                Future<ThreadResultsQueryLoader> r = it.next();
-
-                if (r.isDone()) {
-                    ThreadResultsQueryLoader rez = r.get();
-
-                    file.write(rez.buffer.toString());
-
-                    skipped += rez.getSkipped();
-                    setValue += rez.getSetValue();
-
-                    count += rez.getJobSize();
-                    logger.info("- " + count + " / " + queries_number + "\tskipped " + skipped + "\tsetted results " + setValue);
-
-                    it.remove();
-                }
+            for (SMconf m : conf.gConfPairwise) {
+                String matrixFile = queryParam.getOutfile() + "." + m.id + ".bin";
+                matrixEngine.writeMatrix(m, classes, matrixFile, singlePrecision);
+                logger.info("consult:" + matrixFile);
             }
-
-            file.close();
-            logger.info("skipped:" + skipped + "/" + queries_number + "(" + skipped * 100 / queries_number + "%)");
-            logger.info("setted :" + setValue + "/" + queries_number + "(" + setValue * 100 / queries_number + "%)");
             logger.info("consult:" + queryParam.getOutfile());
 
-        } catch (Exception e) {
-            if (logger.isDebugEnabled()) {
-                e.printStackTrace();
-            }
-
-            throw new SLIB_Exception(e);
+        } catch (IOException e) {
+            throw new SLIB_Ex_Critic("Error writing " + queryParam.getOutfile() + ": " + e.getMessage(), e);
         } finally {
-            if (poolWorker != null) {
-                poolWorker.forceShutdown();
-            }
+            threadManager.freeResource(nbThreads);
         }
     }
 
-    private void perform_cTOc(QueryIterator qloader, SMQueryParam queryParam) throws SLIB_Exception {
-
-
-        logger.info("Starting computing query " + Sm_XML_Cst.QUERIES_TYPE_CTOC);
+    /**
+     * Compute the queries using a pipeline: the queries are read by benches
+     * of {@link #SIZE_BENCH} entries, the benches are processed by all the
+     * threads allowed by the {@link ThreadManager} and the results are
+     * written in the order of the queries.
+     */
+    private void performQueries(final QueryIterator qloader,
+            SMQueryParam queryParam,
+            String header,
+            OrderedPipeline.Worker<List<QueryEntry>, ThreadResultsQueryLoader> worker) throws SLIB_Exception {
 
         ThreadManager threadManager = ThreadManager.getSingleton();
-        PoolWorker poolWorker = null;
+        int nbThreads = threadManager.reserveMaxLoad();
+        BufferedWriter file = null;
+        boolean queriesClosed = false;
 
         try {
 
-
-            long queries_number = qloader.getNumberQueries();
+            final long queries_number = qloader.getNumberQueries();
             logger.info("Number of query " + queries_number);
 
-
-
             FileWriter fstream = new FileWriter(queryParam.getOutfile());
-            BufferedWriter file = new BufferedWriter(fstream);
-
-            // Build Header
-            String header = Sm_XML_Cst.C1_ATTR + "\t" + Sm_XML_Cst.C2_ATTR;
-
-
-            for (SMconf m : conf.gConfPairwise) {
-                header += "\t" + m.label;
-            }
+            file = new BufferedWriter(fstream);
 
             file.write(header + "\n");
 
-            int skipped = 0;
-            int setValue = 0;
-
-            // Compute measure results
-
-            poolWorker = threadManager.getMaxLoadPoolWorker();
-
-            long count = 0;
-
-            List<Future<ThreadResultsQueryLoader>> results = new ArrayList<Future<ThreadResultsQueryLoader>>();
-
-
-            while (qloader.hasNext()) {
-
-//                Thread.sleep(100);// To create thread wave
-//				logger.debug("Await Free Ressource, load "+poolWorker.getLoad()+"/"+poolWorker.getCapacity());
-                poolWorker.awaitFreeResource();
-
-                List<QueryEntry> queriesBench = qloader.nextValids(SIZE_BENCH);
+            // count, skipped, setted results
+            final long[] counters = new long[3];
+            final BufferedWriter out = file;
 
-                ConceptToConcept_Thread callable = new ConceptToConcept_Thread(poolWorker, queriesBench, this, queryParam);
+            logger.info("Computing queries using " + nbThreads + " thread(s)");
 
+            OrderedPipeline<List<QueryEntry>, ThreadResultsQueryLoader> pipeline = new OrderedPipeline<List<QueryEntry>, ThreadResultsQueryLoader>(nbThreads);
 
-
-                poolWorker.addTask();
-//				logger.debug("- Adding Thread task "+poolWorker.getLoad()+"/"+poolWorker.getCapacity());
-                Future<ThreadResultsQueryLoader> future = poolWorker.getPool().submit(callable);
-
-                results.add(future);
-
-                // process results
-                Iterator<Future<ThreadResultsQueryLoader>> it = results.iterator();
-                while (it.hasNext()) {
-
-                    Future<ThreadResultsQueryLoader> r = it.next();
-
-                    if (r.isDone()) {
-
-                        ThreadResultsQueryLoader rez = r.get();
-
-                        file.write(rez.buffer.toString());
-
-                        skipped += rez.getSkipped();
-                        setValue += rez.getSetValue();
-
-                        count += rez.getJobSize();
-                        logger.info("- " + count + " / " + queries_number + "\tskipped " + skipped + "\tsetted results " + setValue);
-
-                        it.remove();
-                    }
+            pipeline.run(new OrderedPipeline.Reader<List<QueryEntry>>() {
+                @Override
+                public List<QueryEntry> next() throws Exception {
+                    return qloader.hasNext() ? qloader.nextValids(SIZE_BENCH) : null;
                 }
-            }
-            qloader.close();
+            }, worker, new OrderedPipeline.Writer<ThreadResultsQueryLoader>() {
+                @Override
+                public void write(ThreadResultsQueryLoader rez) throws Exception {
 
-            poolWorker.shutdown();
+                    out.write(rez.buffer.toString());
 
-            // process results
-            Iterator<Future<ThreadResultsQueryLoader>> it = results.iterator();
-            while (it.hasNext()) {
-
-                Future<ThreadResultsQueryLoader> r = it.next();
-
-                if (r.isDone()) {
-                    ThreadResultsQueryLoader rez = r.get();
-
-                    file.write(rez.buffer.toString());
-
-                    skipped += rez.getSkipped();
-                    setValue += rez.getSetValue();
-
-                    count += rez.getJobSize();
-                    logger.info("- " + count + " / " + queries_number + "\tskipped " + skipped + "\tsetted results " + setValue);
-
-                    it.remove();
+                    counters[0] += rez.getJobSize();
+                    counters[1] += rez.getSkipped();
+                    counters[2] += rez.getSetValue();
+                    logger.info("- " + counters[0] + " / " + queries_number + "\tskipped " + counters[1] + "\tsetted results " + counters[2]);
                 }
-            }
+            });
+            qloader.close();
+            queriesClosed = true;
 
             file.close();
+            file = null;
+
+            long skipped = counters[1];
+            long setValue = counters[2];
             logger.info("skipped:" + skipped + "/" + queries_number + " (" + skipped * 100 / queries_number + "%)");
             logger.info("setted :" + setValue + "/" + queries_number + " (" + setValue * 100 / queries_number + "%)");
             logger.info("consult:" + queryParam.getOutfile());
+            logger.info("pipeline: " + pipeline.getStats());
 
         } catch (Exception e) {
             if (logger.isDebugEnabled()) {
@@ -549,8 +498,20 @@ public class SmCli implements SmlModuleCLI {
 
             throw new SLIB_Exception(e);
         } finally {
-            if (poolWorker != null) {
-                poolWorker.forceShutdown();
+            threadManager.freeResource(nbThreads);
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    logger.error("Cannot close " + queryParam.getOutfile() + ": " + e.getMessage());
+                }
+            }
+            if (!queriesClosed) {
+                try {
+                    qloader.close();
+                } catch (Exception e) {
+                    logger.error("Cannot close the queries of " + queryParam.getId() + ": " + e.getMessage());
+                }
             }
         }
     }
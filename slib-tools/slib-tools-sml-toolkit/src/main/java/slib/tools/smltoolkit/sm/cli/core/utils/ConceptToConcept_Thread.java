@@ -46,7 +46,6 @@ import slib.sml.sm.core.utils.SMconf;
 import slib.tools.smltoolkit.sm.cli.core.SmCli;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.impl.QueryEntry;
-import slib.utils.threads.PoolWorker;
 
 /**
  *
@@ -55,7 +54,6 @@ import slib.utils.threads.PoolWorker;
 public class ConceptToConcept_Thread implements Callable<ThreadResultsQueryLoader> {
 
     Logger logger = LoggerFactory.getLogger(this.getClass());
-    PoolWorker poolWorker;
     int skipped = 0;
     int setValue = 0;
     Collection<QueryEntry> queriesBench;
@@ -65,13 +63,11 @@ public class ConceptToConcept_Thread implements Callable<ThreadResultsQueryLoade
 
     /**
      *
-     * @param poolWorker
      * @param queriesBench
      * @param sspM
      */
-    public ConceptToConcept_Thread(PoolWorker poolWorker, Collection<QueryEntry> queriesBench, SmCli sspM, SMQueryParam queryParam) {
+    public ConceptToConcept_Thread(Collection<QueryEntry> queriesBench, SmCli sspM, SMQueryParam queryParam) {
 
-        this.poolWorker = poolWorker;
         this.queriesBench = queriesBench;
         this.sspM = sspM;
         this.g = sspM.getGraph();
@@ -111,8 +107,8 @@ public class ConceptToConcept_Thread implements Callable<ThreadResultsQueryLoade
                 uriE2s = q.getValue();
 
                 try {
-                    e1 = factory.createURI(uriE1s, useLoadedPrefixes);
-                    e2 = factory.createURI(uriE2s, useLoadedPrefixes);
+                    e1 = factory.getURI(uriE1s, useLoadedPrefixes);
+                    e2 = factory.getURI(uriE2s, useLoadedPrefixes);
                 } catch (IllegalArgumentException e) {
 
                     throw new SLIB_Ex_Critic("Query file contains an invalid URI: " + e.getMessage());
@@ -192,8 +188,6 @@ public class ConceptToConcept_Thread implements Callable<ThreadResultsQueryLoade
                 e.printStackTrace();
             }
             throw new Exception(e);
-        } finally {
-            poolWorker.taskComplete();
         }
         return results;
     }
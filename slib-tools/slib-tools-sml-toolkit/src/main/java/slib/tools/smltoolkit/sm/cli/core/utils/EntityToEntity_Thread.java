@@ -51,7 +51,6 @@ import slib.sml.sm.core.utils.SMconf;
 import slib.tools.smltoolkit.sm.cli.core.SmCli;
 import slib.utils.ex.SLIB_Ex_Critic;
 import slib.utils.impl.QueryEntry;
-import slib.utils.threads.PoolWorker;
 
 /**
  *
@@ -60,7 +59,6 @@ import slib.utils.threads.PoolWorker;
 public class EntityToEntity_Thread implements Callable<ThreadResultsQueryLoader> {
 
     Logger logger = LoggerFactory.getLogger(this.getClass());
-    PoolWorker poolWorker;
     int skipped = 0;
     int setValue = 0;
     Collection<QueryEntry> queriesBench;
@@ -72,14 +70,12 @@ public class EntityToEntity_Thread implements Callable<ThreadResultsQueryLoader>
 
     /**
      *
-     * @param poolWorker
      * @param queriesBench
      * @param sspM
      * @param nbMeasures
      */
-    public EntityToEntity_Thread(PoolWorker poolWorker, Collection<QueryEntry> queriesBench, SmCli sspM, int nbMeasures, SMQueryParam queryParam) {
+    public EntityToEntity_Thread(Collection<QueryEntry> queriesBench, SmCli sspM, int nbMeasures, SMQueryParam queryParam) {
 
-        this.poolWorker = poolWorker;
         this.queriesBench = queriesBench;
         this.sspM = sspM;
         this.nbMeasures = nbMeasures;
@@ -123,8 +119,8 @@ public class EntityToEntity_Thread implements Callable<ThreadResultsQueryLoader>
                 uriE2s = q.getValue();
 
                 try {
-                    e1 = factory.createURI(uriE1s, useLoadedPrefixes);
-                    e2 = factory.createURI(uriE2s, useLoadedPrefixes);
+                    e1 = factory.getURI(uriE1s, useLoadedPrefixes);
+                    e2 = factory.getURI(uriE2s, useLoadedPrefixes);
 
                 } catch (IllegalArgumentException e) {
                     throw new SLIB_Ex_Critic("Query file contains an invalid URI: " + e.getMessage());
@@ -259,8 +255,6 @@ public class EntityToEntity_Thread implements Callable<ThreadResultsQueryLoader>
                 e.printStackTrace();
             }
             throw new Exception(e);
-        } finally {
-            poolWorker.taskComplete();
         }
         return results;
     }
@@ -40,6 +40,7 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 /**
  *
@@ -49,6 +50,7 @@ public class BigFileReader
 {
 	private String _currentLine;
 	private BufferedReader _reader;
+	private MappedLineReader _mappedReader;
 
 	/**
      *
@@ -59,12 +61,34 @@ public class BigFileReader
 		_reader = new BufferedReader(new FileReader(filePath));
 	}
 
+	/**
+     * Build a reader which can rely on a {@link MappedLineReader}. The
+     * memory mapped reader is only used if the default charset is
+     * supported by {@link MappedLineReader}, the lines are the same in both
+     * cases.
+     *
+     * @param filePath
+     * @param memoryMapped true if the file must be memory mapped
+     * @throws IOException
+     */
+    public BigFileReader(String filePath, boolean memoryMapped) throws IOException {
+		if (memoryMapped && MappedLineReader.isSupported(Charset.defaultCharset())) {
+			_mappedReader = new MappedLineReader(filePath);
+		} else {
+			_reader = new BufferedReader(new FileReader(filePath));
+		}
+	}
+
 	/**
      *
      * @throws IOException
      */
     public void close() throws IOException{
-		_reader.close();
+		if (_mappedReader != null) {
+			_mappedReader.close();
+		} else {
+			_reader.close();
+		}
 	}
 
 	/**
@@ -73,7 +97,11 @@ public class BigFileReader
      * @throws IOException
      */
     public boolean hasNext() throws IOException{
-		_currentLine = _reader.readLine();
+		if (_mappedReader != null) {
+			_currentLine = _mappedReader.nextLine() ? _mappedReader.lineAsString() : null;
+		} else {
+			_currentLine = _reader.readLine();
+		}
 		return _currentLine != null;
 	}
 
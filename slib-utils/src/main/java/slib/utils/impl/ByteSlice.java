@@ -0,0 +1,302 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.utils.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Mutable view over a range of bytes of a {@link ByteBuffer}, e.g. a line or
+ * a field of a line read by a {@link MappedLineReader}. No copy of the bytes
+ * is performed, a {@link String} is only built when {@link #toString()} is
+ * called.
+ *
+ * Views are reused by the readers: the content of a view is only valid until
+ * the reader moves to the next line. The text is expected to be encoded
+ * using an ASCII compatible charset (see
+ * {@link MappedLineReader#isSupported(Charset)}), i.e. a charset in which
+ * all the characters lower than 128 are encoded by the corresponding byte.
+ *
+ * @author Harispe Sébastien
+ */
+public final class ByteSlice implements CharSequence {
+
+    ByteBuffer buffer;
+    int offset;
+    int length;
+    final Charset charset;
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Build an empty view.
+     *
+     * @param charset the charset used to decode the bytes
+     */
+    public ByteSlice(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Build a view over the given bytes.
+     *
+     * @param bytes the bytes
+     * @param charset the charset used to decode the bytes
+     */
+    public ByteSlice(byte[] bytes, Charset charset) {
+        this(charset);
+        set(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Define the range of bytes of the view.
+     *
+     * @param buffer the buffer containing the bytes
+     * @param offset the index of the first byte in the buffer
+     * @param length the number of bytes
+     * @return this view
+     */
+    public ByteSlice set(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Define the range of this view as a range of another view.
+     *
+     * @param other the other view
+     * @param from the index of the first byte in the other view
+     * @param to the index following the last byte in the other view
+     * @return this view
+     */
+    public ByteSlice set(ByteSlice other, int from, int to) {
+        return set(other.buffer, other.offset + from, to - from);
+    }
+
+    /**
+     * @return the number of bytes of the view
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return true if the view does not contain any byte
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @param i the index of the byte in the view
+     * @return the byte
+     */
+    public byte byteAt(int i) {
+        return buffer.get(offset + i);
+    }
+
+    /**
+     * Access to a byte as a character, only meaningful for ASCII characters.
+     *
+     * @param i the index of the byte in the view
+     * @return the byte as a character
+     */
+    @Override
+    public char charAt(int i) {
+        return (char) (buffer.get(offset + i) & 0xFF);
+    }
+
+    /**
+     * Build a new view over a sub range of this view.
+     */
+    @Override
+    public ByteSlice subSequence(int from, int to) {
+        return new ByteSlice(charset).set(this, from, to);
+    }
+
+    /**
+     * Remove the leading and trailing bytes lower or equal to the space
+     * character, as {@link String#trim()} does.
+     *
+     * @return this view
+     */
+    public ByteSlice trim() {
+        int end = offset + length;
+        while (offset < end && (buffer.get(offset) & 0xFF) <= ' ') {
+            offset++;
+        }
+        while (end > offset && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        length = end - offset;
+        return this;
+    }
+
+    /**
+     * @param prefix an ASCII prefix
+     * @return true if the view starts with the given prefix
+     */
+    public boolean startsWith(String prefix) {
+        if (prefix.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer.get(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param s an ASCII string
+     * @return true if the view contains the given string
+     */
+    public boolean contentEquals(String s) {
+        return s.length() == length && startsWith(s);
+    }
+
+    /**
+     * @param b a byte
+     * @param from the index from which the search starts
+     * @return the index of the first occurrence of the byte from the given
+     * index or -1
+     */
+    public int indexOf(byte b, int from) {
+        for (int i = from; i < length; i++) {
+            if (buffer.get(offset + i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Split the view around the given separator, following the semantics of
+     * {@link String#split(String)}: trailing empty fields are discarded. The
+     * fields are stored into the given views, the fields which do not fit
+     * into the array are counted but not stored.
+     *
+     * @param separator the separator, an ASCII character
+     * @param fields the views to use to store the fields
+     * @return the number of fields, i.e. the length of the array which would
+     * have been returned by {@link String#split(String)}.
+     */
+    public int split(byte separator, ByteSlice[] fields) {
+
+        if (length == 0) {
+            if (fields.length > 0) {
+                fields[0].set(buffer, offset, 0);
+            }
+            return 1;
+        }
+
+        int nbFields = 0;
+        int lastNonEmpty = 0;
+        int start = 0;
+
+        for (int i = 0; i <= length; i++) {
+            if (i == length || buffer.get(offset + i) == separator) {
+                if (nbFields < fields.length) {
+                    fields[nbFields].set(buffer, offset + start, i - start);
+                }
+                nbFields++;
+                if (i > start) {
+                    lastNonEmpty = nbFields;
+                }
+                start = i + 1;
+            }
+        }
+        return lastNonEmpty;
+    }
+
+    /**
+     * Parse the view as a decimal integer.
+     *
+     * @return the value
+     * @throws NumberFormatException if the view is not a valid integer
+     */
+    public int parseInt() {
+
+        if (length == 0) {
+            throw new NumberFormatException("Empty value");
+        }
+        int i = 0;
+        boolean negative = false;
+        byte first = buffer.get(offset);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+            if (length == 1) {
+                throw new NumberFormatException(toString());
+            }
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            int d = buffer.get(offset + i) - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException(toString());
+            }
+            value = value * 10 + d;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException(toString());
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException(toString());
+        }
+        return (int) value;
+    }
+
+    /**
+     * Decode the bytes of the view.
+     *
+     * @return the decoded string
+     */
+    @Override
+    public String toString() {
+
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(offset + i);
+        }
+        return new String(scratch, 0, length, charset);
+    }
+}
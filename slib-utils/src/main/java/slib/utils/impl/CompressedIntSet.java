@@ -0,0 +1,604 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.utils.impl;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of non-negative integers stored in a compressed form. At
+ * construction, the most compact of the three following representations is
+ * selected:
+ * <ul>
+ * <li>a sorted array of values, suited to small sparse sets;</li>
+ * <li>a list of runs of consecutive values, suited to sets composed of
+ * intervals, e.g. the descendants of a class when the classes are numbered
+ * according to a depth-first traversal;</li>
+ * <li>a bitmap restricted to the range of words containing values, suited to
+ * dense sets.</li>
+ * </ul>
+ * Intersection and union cardinalities are computed without materializing
+ * the result, using popcounts when both sets are stored as bitmaps.
+ *
+ * @author Harispe Sébastien
+ */
+public final class CompressedIntSet {
+
+    private static final byte ARRAY = 0;
+    private static final byte RUNS = 1;
+    private static final byte BITMAP = 2;
+    /**
+     * The empty set.
+     */
+    public static final CompressedIntSet EMPTY = new CompressedIntSet(ARRAY, new int[0], null, 0, 0);
+    private final byte type;
+    /**
+     * ARRAY: the sorted values, RUNS: the runs as [start, end[ pairs.
+     */
+    private final int[] values;
+    private final long[] words;
+    private final int wordOffset;
+    private final int cardinality;
+
+    /**
+     * Iterator over the values of a set, in increasing order.
+     */
+    public interface IntIterator {
+
+        /**
+         * @return true if the iteration has more values
+         */
+        boolean hasNext();
+
+        /**
+         * @return the next value
+         * @throws NoSuchElementException if the iteration has no more values
+         */
+        int next();
+    }
+
+    private CompressedIntSet(byte type, int[] values, long[] words, int wordOffset, int cardinality) {
+        this.type = type;
+        this.values = values;
+        this.words = words;
+        this.wordOffset = wordOffset;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Build a set from an array of values sorted in increasing order, without
+     * duplicates. The given array is not modified nor referenced by the set.
+     *
+     * @param sorted the values
+     * @param length the number of values to consider in the array
+     * @return the set of values
+     */
+    public static CompressedIntSet fromSorted(int[] sorted, int length) {
+
+        if (length == 0) {
+            return EMPTY;
+        }
+        if (sorted[0] < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be stored: " + sorted[0]);
+        }
+
+        int nbRuns = 1;
+        for (int i = 1; i < length; i++) {
+            if (sorted[i] <= sorted[i - 1]) {
+                throw new IllegalArgumentException("Values must be sorted without duplicates, found " + sorted[i] + " after " + sorted[i - 1]);
+            }
+            if (sorted[i] != sorted[i - 1] + 1) {
+                nbRuns++;
+            }
+        }
+
+        int firstWord = sorted[0] >>> 6;
+        int lastWord = sorted[length - 1] >>> 6;
+
+        byte t = selectType(length, nbRuns, lastWord - firstWord + 1);
+
+        if (t == ARRAY) {
+            return new CompressedIntSet(ARRAY, Arrays.copyOf(sorted, length), null, 0, length);
+        } else if (t == RUNS) {
+            int[] runs = new int[nbRuns * 2];
+            int r = 0;
+            runs[0] = sorted[0];
+            for (int i = 1; i < length; i++) {
+                if (sorted[i] != sorted[i - 1] + 1) {
+                    runs[r + 1] = sorted[i - 1] + 1;
+                    r += 2;
+                    runs[r] = sorted[i];
+                }
+            }
+            runs[r + 1] = sorted[length - 1] + 1;
+            return new CompressedIntSet(RUNS, runs, null, 0, length);
+        }
+
+        long[] w = new long[lastWord - firstWord + 1];
+        for (int i = 0; i < length; i++) {
+            w[(sorted[i] >>> 6) - firstWord] |= 1L << sorted[i];
+        }
+        return new CompressedIntSet(BITMAP, null, w, firstWord, length);
+    }
+
+    /**
+     * Build a set from the bits set in a range of words of a bitmap, bit i of
+     * word w corresponding to the value w * 64 + i. The given array is not
+     * modified nor referenced by the set.
+     *
+     * @param bitmap the bitmap
+     * @param fromWord the index of the first word to consider
+     * @param toWord the index of the last word to consider (exclusive)
+     * @return the set of values
+     */
+    public static CompressedIntSet fromBitmap(long[] bitmap, int fromWord, int toWord) {
+
+        while (fromWord < toWord && bitmap[fromWord] == 0) {
+            fromWord++;
+        }
+        while (toWord > fromWord && bitmap[toWord - 1] == 0) {
+            toWord--;
+        }
+        if (fromWord == toWord) {
+            return EMPTY;
+        }
+
+        int card = 0;
+        int nbRuns = 0;
+        long carry = 0;
+        for (int i = fromWord; i < toWord; i++) {
+            long w = bitmap[i];
+            card += Long.bitCount(w);
+            nbRuns += Long.bitCount(w & ~((w << 1) | carry));
+            carry = w >>> 63;
+        }
+
+        byte t = selectType(card, nbRuns, toWord - fromWord);
+
+        if (t == BITMAP) {
+            return new CompressedIntSet(BITMAP, null, Arrays.copyOfRange(bitmap, fromWord, toWord), fromWord, card);
+        }
+
+        int[] sorted = new int[card];
+        int n = 0;
+        for (int i = fromWord; i < toWord; i++) {
+            long w = bitmap[i];
+            while (w != 0) {
+                sorted[n++] = (i << 6) + Long.numberOfTrailingZeros(w);
+                w &= w - 1;
+            }
+        }
+        return fromSorted(sorted, n);
+    }
+
+    private static byte selectType(int cardinality, int nbRuns, int nbWords) {
+
+        long arrayBytes = 4L * cardinality;
+        long runsBytes = 8L * nbRuns;
+        long bitmapBytes = 8L * nbWords;
+
+        if (arrayBytes <= runsBytes && arrayBytes <= bitmapBytes) {
+            return ARRAY;
+        } else if (runsBytes <= bitmapBytes) {
+            return RUNS;
+        }
+        return BITMAP;
+    }
+
+    /**
+     * @return the number of values of the set
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return true if the set does not contain any value
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * @return the smallest value of the set
+     * @throws NoSuchElementException if the set is empty
+     */
+    public int first() {
+
+        if (cardinality == 0) {
+            throw new NoSuchElementException();
+        }
+        if (type == BITMAP) {
+            return (wordOffset << 6) + Long.numberOfTrailingZeros(words[0]);
+        }
+        return values[0];
+    }
+
+    /**
+     * @return the greatest value of the set
+     * @throws NoSuchElementException if the set is empty
+     */
+    public int last() {
+
+        if (cardinality == 0) {
+            throw new NoSuchElementException();
+        }
+        if (type == BITMAP) {
+            return ((wordOffset + words.length) << 6) - 1 - Long.numberOfLeadingZeros(words[words.length - 1]);
+        } else if (type == RUNS) {
+            return values[values.length - 1] - 1;
+        }
+        return values[values.length - 1];
+    }
+
+    /**
+     * Check if the set contains a value.
+     *
+     * @param v the value
+     * @return true if the value belongs to the set
+     */
+    public boolean contains(int v) {
+
+        if (v < 0) {
+            return false;
+        }
+        if (type == ARRAY) {
+            return Arrays.binarySearch(values, v) >= 0;
+        } else if (type == BITMAP) {
+            int w = (v >>> 6) - wordOffset;
+            return w >= 0 && w < words.length && (words[w] & (1L << v)) != 0;
+        }
+        int run = searchRun(v);
+        return run >= 0 && v < values[2 * run + 1];
+    }
+
+    /**
+     * Search the index of the last run starting at or before v.
+     */
+    private int searchRun(int v) {
+
+        int lo = 0;
+        int hi = values.length / 2 - 1;
+        int found = -1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[2 * mid] <= v) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Count the values of the set included in the interval [from, to[.
+     *
+     * @param from the lower bound (inclusive)
+     * @param to the upper bound (exclusive)
+     * @return the number of values in the interval
+     */
+    public int cardinality(int from, int to) {
+
+        if (from < 0) {
+            from = 0;
+        }
+        if (to <= from || cardinality == 0) {
+            return 0;
+        }
+
+        if (type == ARRAY) {
+            return insertionPoint(values, to) - insertionPoint(values, from);
+        } else if (type == RUNS) {
+            int count = 0;
+            for (int r = Math.max(searchRun(from), 0); r < values.length / 2 && values[2 * r] < to; r++) {
+                int s = Math.max(values[2 * r], from);
+                int e = Math.min(values[2 * r + 1], to);
+                if (e > s) {
+                    count += e - s;
+                }
+            }
+            return count;
+        }
+
+        int firstWord = Math.max(from >>> 6, wordOffset);
+        int lastWord = Math.min((to - 1) >>> 6, wordOffset + words.length - 1);
+        int count = 0;
+
+        for (int i = firstWord; i <= lastWord; i++) {
+            long w = words[i - wordOffset];
+            if (i == from >>> 6) {
+                w &= -1L << from;
+            }
+            if (i == (to - 1) >>> 6) {
+                w &= -1L >>> (63 - ((to - 1) & 63));
+            }
+            count += Long.bitCount(w);
+        }
+        return count;
+    }
+
+    private static int insertionPoint(int[] sorted, int v) {
+        int i = Arrays.binarySearch(sorted, v);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Compute the number of values shared by this set and the given one.
+     *
+     * @param o the other set
+     * @return the cardinality of the intersection of the two sets
+     */
+    public int intersectionCardinality(CompressedIntSet o) {
+
+        if (cardinality == 0 || o.cardinality == 0) {
+            return 0;
+        }
+
+        if (type == BITMAP && o.type == BITMAP) {
+            int from = Math.max(wordOffset, o.wordOffset);
+            int to = Math.min(wordOffset + words.length, o.wordOffset + o.words.length);
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                count += Long.bitCount(words[i - wordOffset] & o.words[i - o.wordOffset]);
+            }
+            return count;
+        } else if (type == ARRAY && o.type == ARRAY) {
+            int i = 0, j = 0, count = 0;
+            while (i < values.length && j < o.values.length) {
+                if (values[i] < o.values[j]) {
+                    i++;
+                } else if (values[i] > o.values[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        } else if (type == ARRAY || o.type == ARRAY) {
+            CompressedIntSet array = type == ARRAY ? this : o;
+            CompressedIntSet other = type == ARRAY ? o : this;
+            int count = 0;
+            for (int v : array.values) {
+                if (other.contains(v)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // at least one of the sets is composed of runs
+        CompressedIntSet runs = type == RUNS ? this : o;
+        CompressedIntSet other = type == RUNS ? o : this;
+        int count = 0;
+        for (int r = 0; r < runs.values.length; r += 2) {
+            count += other.cardinality(runs.values[r], runs.values[r + 1]);
+        }
+        return count;
+    }
+
+    /**
+     * Compute the number of values contained in this set or in the given one.
+     *
+     * @param o the other set
+     * @return the cardinality of the union of the two sets
+     */
+    public int unionCardinality(CompressedIntSet o) {
+        return cardinality + o.cardinality - intersectionCardinality(o);
+    }
+
+    /**
+     * Set the bits corresponding to the values of the set in the given bitmap,
+     * bit i of word w corresponding to the value w * 64 + i.
+     *
+     * @param bitmap the bitmap to update, large enough to store the greatest
+     * value of the set
+     */
+    public void or(long[] bitmap) {
+
+        if (type == ARRAY) {
+            for (int v : values) {
+                bitmap[v >>> 6] |= 1L << v;
+            }
+        } else if (type == BITMAP) {
+            for (int i = 0; i < words.length; i++) {
+                bitmap[wordOffset + i] |= words[i];
+            }
+        } else {
+            for (int r = 0; r < values.length; r += 2) {
+                setRange(bitmap, values[r], values[r + 1]);
+            }
+        }
+    }
+
+    private static void setRange(long[] bitmap, int from, int to) {
+
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+
+        if (firstWord == lastWord) {
+            bitmap[firstWord] |= (-1L << from) & (-1L >>> -to);
+            return;
+        }
+        bitmap[firstWord] |= -1L << from;
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            bitmap[i] = -1L;
+        }
+        bitmap[lastWord] |= -1L >>> -to;
+    }
+
+    /**
+     * Copy the values of the set, in increasing order, into the given array.
+     *
+     * @param dest the destination array
+     * @param offset the position of the first value in the destination array
+     * @return the position following the last copied value
+     */
+    public int copyTo(int[] dest, int offset) {
+
+        if (type == ARRAY) {
+            System.arraycopy(values, 0, dest, offset, values.length);
+            return offset + values.length;
+        }
+
+        IntIterator it = iterator();
+        while (it.hasNext()) {
+            dest[offset++] = it.next();
+        }
+        return offset;
+    }
+
+    /**
+     * @return the values of the set sorted in increasing order
+     */
+    public int[] toArray() {
+        int[] a = new int[cardinality];
+        copyTo(a, 0);
+        return a;
+    }
+
+    /**
+     * @return an iterator over the values of the set in increasing order
+     */
+    public IntIterator iterator() {
+
+        if (type == ARRAY) {
+            return new IntIterator() {
+                int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < values.length;
+                }
+
+                @Override
+                public int next() {
+                    if (i >= values.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return values[i++];
+                }
+            };
+        } else if (type == RUNS) {
+            return new IntIterator() {
+                int r = 0;
+                int next = values.length == 0 ? 0 : values[0];
+
+                @Override
+                public boolean hasNext() {
+                    return r < values.length;
+                }
+
+                @Override
+                public int next() {
+                    if (r >= values.length) {
+                        throw new NoSuchElementException();
+                    }
+                    int v = next++;
+                    if (next == values[r + 1]) {
+                        r += 2;
+                        if (r < values.length) {
+                            next = values[r];
+                        }
+                    }
+                    return v;
+                }
+            };
+        }
+        return new IntIterator() {
+            int w = 0;
+            long word = words[0];
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0 && w < words.length - 1) {
+                    word = words[++w];
+                }
+                return word != 0;
+            }
+
+            @Override
+            public int next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int v = ((wordOffset + w) << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return v;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CompressedIntSet)) {
+            return false;
+        }
+        CompressedIntSet o = (CompressedIntSet) obj;
+        return cardinality == o.cardinality && intersectionCardinality(o) == cardinality;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        IntIterator it = iterator();
+        while (it.hasNext()) {
+            h = 31 * h + it.next();
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder s = new StringBuilder("[");
+        IntIterator it = iterator();
+        while (it.hasNext()) {
+            s.append(it.next());
+            if (it.hasNext()) {
+                s.append(", ");
+            }
+        }
+        return s.append(']').toString();
+    }
+}
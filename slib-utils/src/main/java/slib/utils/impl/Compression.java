@@ -0,0 +1,225 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.utils.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * Compression formats of the input files.
+ *
+ * The compression of a file is detected from its first bytes (see
+ * {@link #detect(String)}), compressed files are decompressed on the fly by
+ * a dedicated thread reading ahead of the consumer of the stream, see
+ * {@link PipelinedInputStream}. Compressed files can therefore be loaded
+ * without being decompressed on disk.
+ *
+ * The formats supported by the JDK, i.e. gzip and zip (first entry of the
+ * archive), and bzip2, through Apache Commons Compress, can be decompressed;
+ * zstd compressed files are detected in order to provide a meaningful error.
+ *
+ * @author Harispe Sébastien
+ */
+public enum Compression {
+
+    /**
+     * Uncompressed file.
+     */
+    NONE(new byte[0], null),
+    /**
+     * gzip compressed file, e.g. .gz files.
+     */
+    GZIP(new byte[]{0x1f, (byte) 0x8b}, ".gz"),
+    /**
+     * zip archive, only the first entry of the archive is considered.
+     */
+    ZIP(new byte[]{'P', 'K', 3, 4}, ".zip"),
+    /**
+     * bzip2 compressed file, e.g. .bz2 files. Concatenated streams, as
+     * produced by parallel compressors, are read entirely.
+     */
+    BZIP2(new byte[]{'B', 'Z', 'h'}, ".bz2"),
+    /**
+     * zstd compressed file, not supported.
+     */
+    ZSTD(new byte[]{0x28, (byte) 0xb5, 0x2f, (byte) 0xfd}, ".zst");
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final byte[] magic;
+    private final String extension;
+
+    private Compression(byte[] magic, String extension) {
+        this.magic = magic;
+        this.extension = extension;
+    }
+
+    /**
+     * @return the usual extension of the files, null for {@link #NONE}
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return true if the files using this compression can be decompressed
+     */
+    public boolean isSupported() {
+        return this != ZSTD;
+    }
+
+    /**
+     * Detect the compression of a file from its first bytes.
+     *
+     * @param path the location of the file
+     * @return the compression of the file, {@link #NONE} if the file does
+     * not start by the magic bytes of a known format
+     * @throws IOException if the file cannot be read
+     */
+    public static Compression detect(String path) throws IOException {
+
+        byte[] head = new byte[4];
+        int n = 0;
+        FileInputStream in = new FileInputStream(path);
+        try {
+            int r;
+            while (n < head.length && (r = in.read(head, n, head.length - n)) != -1) {
+                n += r;
+            }
+        } finally {
+            in.close();
+        }
+        for (Compression c : values()) {
+            if (c != NONE && n >= c.magic.length && Arrays.equals(c.magic, Arrays.copyOf(head, c.magic.length))) {
+                return c;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Resolve a compression from its name (case insensitive) or from the
+     * extension of a file, e.g. "gzip" or "gz".
+     *
+     * @param name the name, "auto" or null means that the compression has to
+     * be detected
+     * @return the compression, null if the compression has to be detected
+     * @throws IllegalArgumentException if the name does not correspond to a
+     * compression
+     */
+    public static Compression fromName(String name) {
+
+        if (name == null || name.trim().equalsIgnoreCase("auto")) {
+            return null;
+        }
+        String n = name.trim();
+        for (Compression c : values()) {
+            if (c.name().equalsIgnoreCase(n) || (c.extension != null && c.extension.substring(1).equalsIgnoreCase(n))) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression " + name + ", valids " + Arrays.toString(values()) + " or auto");
+    }
+
+    /**
+     * Open a file, decompressing it on the fly if it is compressed.
+     *
+     * @param path the location of the file
+     * @return a stream over the decompressed content of the file, a
+     * {@link FileInputStream} if the file is not compressed
+     * @throws IOException if the file cannot be read or uses an unsupported
+     * compression
+     */
+    public static InputStream open(String path) throws IOException {
+        return detect(path).openFile(path);
+    }
+
+    /**
+     * Open a file as a buffered reader, decompressing it on the fly if it is
+     * compressed.
+     *
+     * @param path the location of the file
+     * @param charset the charset of the (decompressed) file
+     * @return the reader
+     * @throws IOException if the file cannot be read or uses an unsupported
+     * compression
+     */
+    public static BufferedReader openReader(String path, Charset charset) throws IOException {
+        return new BufferedReader(new InputStreamReader(open(path), charset), BUFFER_SIZE);
+    }
+
+    /**
+     * Open a file compressed using this compression.
+     *
+     * @param path the location of the file
+     * @return a stream over the decompressed content of the file, a
+     * {@link FileInputStream} for {@link #NONE}
+     * @throws IOException if the file cannot be read or if the compression
+     * is not supported
+     */
+    public InputStream openFile(String path) throws IOException {
+
+        if (!isSupported()) {
+            throw new IOException("Cannot read " + path + ", " + this + " compressed files are not supported, please decompress the file or recompress it using gzip");
+        }
+        FileInputStream in = new FileInputStream(path);
+
+        try {
+            if (this == GZIP) {
+                return new PipelinedInputStream(new GZIPInputStream(in, BUFFER_SIZE));
+            } else if (this == ZIP) {
+                ZipInputStream zip = new ZipInputStream(in);
+                if (zip.getNextEntry() == null) {
+                    throw new IOException("Empty zip archive " + path);
+                }
+                return new PipelinedInputStream(zip);
+            } else if (this == BZIP2) {
+                // the decoder reads the compressed stream byte per byte
+                return new PipelinedInputStream(new BZip2CompressorInputStream(new BufferedInputStream(in, BUFFER_SIZE), true));
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.utils.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import slib.utils.threads.OrderedPipeline;
+
+/**
+ * Read a file by chunks of complete lines, the chunks can then be split into
+ * lines and processed independently, e.g. by the workers of an
+ * {@link OrderedPipeline}.
+ *
+ * A chunk always ends by a line terminator, i.e. a line feed, a carriage
+ * return or a carriage return followed by a line feed, except the last chunk
+ * of the file. The bytes following the last line terminator of the buffer
+ * are kept for the next chunk. The buffer is extended if it does not contain
+ * any line terminator.
+ * Subclasses can restrict the positions at which the chunks are cut, see
+ * {@link #cut(ByteBuffer, int)}.
+ *
+ * @author Harispe Sébastien
+ */
+public class LineChunkReader implements OrderedPipeline.Reader<byte[]> {
+
+    /**
+     * Default size of the chunks.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+    final ReadableByteChannel channel;
+    ByteBuffer buffer;
+
+    /**
+     * Build a reader using chunks of {@link #DEFAULT_CHUNK_SIZE} bytes.
+     *
+     * @param channel the channel to read, it is not closed by the reader
+     */
+    public LineChunkReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param channel the channel to read, it is not closed by the reader
+     * @param chunkSize the expected size of the chunks in bytes
+     */
+    public LineChunkReader(ReadableByteChannel channel, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The size of the chunks must be greater than 0, given " + chunkSize);
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(chunkSize);
+    }
+
+    /**
+     * Read the next chunk of complete lines.
+     *
+     * @return the chunk or null if the end of the file has been reached
+     * @throws IOException
+     */
+    @Override
+    public byte[] next() throws IOException {
+
+        while (true) {
+
+            boolean eof = channel.read(buffer) == -1;
+
+            if (!eof && buffer.hasRemaining()) {
+                continue;
+            }
+
+            int end = buffer.position();
+
+            if (eof && end == 0) {
+                return null;
+            }
+            if (!eof) {
+                end = cut(buffer, end);
+                if (end == 0) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                    continue;
+                }
+            }
+
+            byte[] chunk = new byte[end];
+            buffer.flip();
+            buffer.get(chunk);
+            buffer.compact();
+            return chunk;
+        }
+    }
+
+    /**
+     * Compute the position at which the chunk is cut, the bytes following
+     * this position are kept for the next chunk. By default the chunk is cut
+     * after the last line terminator.
+     *
+     * @param buffer the buffer containing the bytes read
+     * @param end the number of bytes of the buffer
+     * @return the position, 0 if the buffer cannot be cut
+     */
+    protected int cut(ByteBuffer buffer, int end) {
+        for (int p = end; p > 0; p--) {
+            if (isLineStart(buffer, p, end)) {
+                return p;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Check if a line starts at the given position of the buffer, i.e. if
+     * the position follows a line feed or a carriage return which is not
+     * followed by a line feed. A carriage return ending the buffer is not
+     * considered since the next byte, which can be a line feed, is unknown.
+     *
+     * @param buffer the buffer containing the bytes read
+     * @param p the position, greater than 0
+     * @param end the number of bytes of the buffer
+     * @return true if a line starts at the given position
+     */
+    protected static boolean isLineStart(ByteBuffer buffer, int p, int end) {
+        byte b = buffer.get(p - 1);
+        return b == '\n' || (b == '\r' && p < end && buffer.get(p) != '\n');
+    }
+}
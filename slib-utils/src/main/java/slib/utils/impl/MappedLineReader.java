@@ -0,0 +1,324 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.utils.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Line reader relying on memory mapped windows of a file.
+ *
+ * The lines are exposed as {@link ByteSlice} views over the mapped bytes,
+ * no {@link String} is built unless requested. Lines are delimited as
+ * {@link java.io.BufferedReader#readLine()} does, i.e. by a line feed, a
+ * carriage return or a carriage return followed by a line feed, the
+ * delimiters are not part of the lines.
+ *
+ * The file is mapped by windows (64MB by default) in order to process files
+ * larger than 2GB, a new window is mapped when a line crosses the end of the
+ * current window. The size of the window is increased if a line is larger
+ * than the window.
+ *
+ * Usage:
+ * <pre>
+ * MappedLineReader reader = new MappedLineReader(path);
+ * ByteSlice[] fields = MappedLineReader.newSlices(10, reader.getCharset());
+ * while (reader.nextLine()) {
+ *     int nbFields = reader.line().trim().split((byte) '\t', fields);
+ *     ...
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * The file must be encoded using an ASCII compatible charset, see
+ * {@link #isSupported(Charset)}.
+ *
+ * @author Harispe Sébastien
+ */
+public class MappedLineReader implements Closeable {
+
+    /**
+     * Default size of the mapped windows.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+    final RandomAccessFile file;
+    final FileChannel channel;
+    final long fileSize;
+    final Charset charset;
+    final ByteSlice line;
+    int windowSize;
+    long windowStart = 0;
+    MappedByteBuffer window;
+    int pos = 0;
+    long lineNumber = 0;
+
+    /**
+     * Build a reader decoding the file using the default charset of the
+     * platform, as {@link java.io.FileReader} does.
+     *
+     * @param filePath the path of the file
+     * @throws IOException
+     */
+    public MappedLineReader(String filePath) throws IOException {
+        this(filePath, Charset.defaultCharset());
+    }
+
+    /**
+     * Build a reader.
+     *
+     * @param filePath the path of the file
+     * @param charset the charset of the file
+     * @throws IOException
+     */
+    public MappedLineReader(String filePath, Charset charset) throws IOException {
+        this(filePath, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Build a reader.
+     *
+     * @param filePath the path of the file
+     * @param charset the charset of the file
+     * @param windowSize the initial size of the mapped windows in bytes
+     * @throws IOException
+     */
+    public MappedLineReader(String filePath, Charset charset, int windowSize) throws IOException {
+
+        if (!isSupported(charset)) {
+            throw new IllegalArgumentException("Charset " + charset + " is not supported, an ASCII compatible charset is required");
+        }
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("The size of the window must be greater than 0, given " + windowSize);
+        }
+        this.charset = charset;
+        this.windowSize = windowSize;
+        this.line = new ByteSlice(charset);
+        this.file = new RandomAccessFile(filePath, "r");
+        this.channel = file.getChannel();
+        this.fileSize = channel.size();
+        map(0);
+    }
+
+    /**
+     * Check if a charset can be used by the reader, i.e. if the ASCII
+     * characters are encoded by a single byte corresponding to their code
+     * (e.g. UTF-8, US-ASCII, ISO-8859-1 and other single byte charsets).
+     *
+     * @param charset the charset
+     * @return true if the charset can be used
+     */
+    public static boolean isSupported(Charset charset) {
+        String ascii = "\t\n\r !\"#,:;<>_09AZaz";
+        byte[] expected = new byte[ascii.length()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) ascii.charAt(i);
+        }
+        return charset.canEncode() && Arrays.equals(expected, ascii.getBytes(charset));
+    }
+
+    /**
+     * Build views which can be used to split the lines.
+     *
+     * @param nb the number of views
+     * @param charset the charset used to decode the views
+     * @return the views
+     */
+    public static ByteSlice[] newSlices(int nb, Charset charset) {
+        ByteSlice[] slices = new ByteSlice[nb];
+        for (int i = 0; i < nb; i++) {
+            slices[i] = new ByteSlice(charset);
+        }
+        return slices;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+        pos = 0;
+    }
+
+    /**
+     * Move to the next line.
+     *
+     * @return false if the end of the file has been reached
+     * @throws IOException
+     */
+    public boolean nextLine() throws IOException {
+
+        while (true) {
+
+            int limit = window.limit();
+            boolean lastWindow = windowStart + limit == fileSize;
+            int i = pos;
+
+            while (i < limit) {
+                byte b = window.get(i);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                i++;
+            }
+
+            int next = -1;
+
+            if (i < limit) {
+                if (window.get(i) == '\n') {
+                    next = i + 1;
+                } else if (i + 1 < limit) {
+                    next = window.get(i + 1) == '\n' ? i + 2 : i + 1;
+                } else if (lastWindow) {
+                    next = i + 1;
+                }
+            } else if (lastWindow) {
+                if (i == pos) {
+                    return false;
+                }
+                next = i;
+            }
+
+            if (next != -1) {
+                line.set(window, pos, i - pos);
+                pos = next;
+                lineNumber++;
+                return true;
+            }
+
+            // the line crosses the end of the window
+            if (pos == 0) {
+                if (windowSize == Integer.MAX_VALUE) {
+                    throw new IOException("Line " + (lineNumber + 1) + " is too long to be mapped");
+                }
+                windowSize = (int) Math.min(Integer.MAX_VALUE, windowSize * 2L);
+            }
+            map(windowStart + pos);
+        }
+    }
+
+    /**
+     * Access to the current line. The view is only valid until the next call
+     * to {@link #nextLine()}, it can be modified by the caller (e.g. using
+     * {@link ByteSlice#trim()}).
+     *
+     * @return the current line
+     */
+    public ByteSlice line() {
+        return line;
+    }
+
+    /**
+     * @return the current line as a string
+     */
+    public String lineAsString() {
+        return line.toString();
+    }
+
+    /**
+     * @return the number of lines read so far, i.e. the number of the current
+     * line starting from 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return the charset used to decode the lines
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+        file.close();
+    }
+
+    /**
+     * Count the lines of a file, i.e. the number of lines which would be read
+     * by {@link #nextLine()}.
+     *
+     * @param filePath the path of the file
+     * @return the number of lines
+     * @throws IOException
+     */
+    public static long countLines(String filePath) throws IOException {
+
+        RandomAccessFile file = new RandomAccessFile(filePath, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            long count = 0;
+            boolean previousCR = false;
+            boolean delimited = true;
+
+            for (long start = 0; start < size; start += DEFAULT_WINDOW_SIZE) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(DEFAULT_WINDOW_SIZE, size - start));
+                int limit = window.limit();
+                for (int i = 0; i < limit; i++) {
+                    byte b = window.get(i);
+                    if (b == '\n') {
+                        if (!previousCR) {
+                            count++;
+                        }
+                        previousCR = false;
+                    } else if (b == '\r') {
+                        count++;
+                        previousCR = true;
+                    } else {
+                        previousCR = false;
+                    }
+                }
+                byte last = window.get(limit - 1);
+                delimited = last == '\n' || last == '\r';
+            }
+            return delimited ? count : count + 1;
+        } finally {
+            file.close();
+        }
+    }
+}
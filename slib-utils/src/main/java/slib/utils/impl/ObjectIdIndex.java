@@ -0,0 +1,196 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.utils.impl;
+
+import java.util.Arrays;
+
+/**
+ * Bidirectional mapping between a set of objects and dense integer identifiers.
+ * Identifiers are attributed in insertion order and range from 0 to
+ * {@link #size()} - 1. The mapping relies on an open-addressing table of
+ * primitive integers, which makes it far more compact than a
+ * {@code Map<X, Integer>} when millions of objects have to be indexed.
+ *
+ * The index is not thread safe during insertion, concurrent reads are safe
+ * once the index is populated.
+ *
+ * @param <X> the type of objects to index
+ * @author Harispe Sébastien
+ */
+public class ObjectIdIndex<X> {
+
+    private static final int NOT_FOUND = -1;
+    private Object[] objects;
+    private int[] table;
+    private int mask;
+    private int size;
+
+    /**
+     * Create an empty index.
+     */
+    public ObjectIdIndex() {
+        this(16);
+    }
+
+    /**
+     * Create an empty index sized to store the expected number of objects
+     * without resizing.
+     *
+     * @param expectedSize the number of objects expected
+     */
+    public ObjectIdIndex(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        objects = new Object[Math.max(expectedSize, 16)];
+        table = new int[capacity];
+        Arrays.fill(table, NOT_FOUND);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    /**
+     * Add the given object to the index, nothing is done if the object is
+     * already indexed.
+     *
+     * @param o the object to add (not null)
+     * @return the identifier associated to the object
+     */
+    public int add(X o) {
+
+        if (o == null) {
+            throw new IllegalArgumentException("Cannot index null value");
+        }
+
+        int slot = slot(o);
+        if (table[slot] != NOT_FOUND) {
+            return table[slot];
+        }
+
+        if (size == objects.length) {
+            objects = Arrays.copyOf(objects, size * 2);
+        }
+        int id = size++;
+        objects[id] = o;
+        table[slot] = id;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Access to the identifier of an object.
+     *
+     * @param o the object
+     * @return the identifier of the object, -1 if the object is not indexed
+     */
+    public int getId(Object o) {
+        if (o == null) {
+            return NOT_FOUND;
+        }
+        return table[slot(o)];
+    }
+
+    /**
+     * Access to the object associated to an identifier.
+     *
+     * @param id the identifier
+     * @return the object associated to the identifier
+     * @throws ArrayIndexOutOfBoundsException if the identifier is not valid
+     */
+    @SuppressWarnings("unchecked")
+    public X get(int id) {
+        if (id >= size) {
+            throw new ArrayIndexOutOfBoundsException("No object associated to id " + id + " (size " + size + ")");
+        }
+        return (X) objects[id];
+    }
+
+    /**
+     * Check if the given object is indexed.
+     *
+     * @param o the object
+     * @return true if the object is associated to an identifier
+     */
+    public boolean contains(Object o) {
+        return getId(o) != NOT_FOUND;
+    }
+
+    /**
+     * @return the number of indexed objects
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Search the slot of the given object in the table, i.e. the slot storing
+     * its identifier or the empty slot in which it has to be stored.
+     */
+    private int slot(Object o) {
+        int i = mix(o.hashCode()) & mask;
+        while (table[i] != NOT_FOUND && !objects[table[i]].equals(o)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, NOT_FOUND);
+        mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = mix(objects[id].hashCode()) & mask;
+            while (table[i] != NOT_FOUND) {
+                i = (i + 1) & mask;
+            }
+            table[i] = id;
+        }
+    }
+
+    /**
+     * Spread the bits of the hash code, URIs often share long prefixes which
+     * produce poorly distributed low order bits.
+     */
+    private static int mix(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.utils.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream reading another stream ahead using a dedicated thread, e.g.
+ * to decompress a file while the decompressed data are parsed by the
+ * calling thread.
+ *
+ * The source is read by blocks which are handed over to the reader of the
+ * stream through a bounded queue, the source is therefore never read more
+ * than the given number of blocks ahead. An exception thrown while reading
+ * the source is rethrown to the reader of the stream once the blocks
+ * preceding the error have been consumed.
+ *
+ * @author Harispe Sébastien
+ */
+public class PipelinedInputStream extends InputStream {
+
+    /**
+     * Default size of the blocks.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+    /**
+     * Default number of blocks read ahead.
+     */
+    public static final int DEFAULT_NB_BLOCKS = 8;
+    private static final byte[] END = new byte[0];
+    private final InputStream source;
+    private final BlockingQueue<byte[]> blocks;
+    private final Thread producer;
+    private volatile IOException error;
+    private volatile boolean closed = false;
+    private byte[] block;
+    private int blockLength;
+    private int pos;
+
+    /**
+     * Build a stream reading the source by blocks of
+     * {@value #DEFAULT_BLOCK_SIZE} bytes, at most
+     * {@value #DEFAULT_NB_BLOCKS} blocks ahead.
+     *
+     * @param source the source, closed with this stream
+     */
+    public PipelinedInputStream(InputStream source) {
+        this(source, DEFAULT_BLOCK_SIZE, DEFAULT_NB_BLOCKS);
+    }
+
+    /**
+     * @param source the source, closed with this stream
+     * @param blockSize the size of the blocks in bytes
+     * @param nbBlocks the maximal number of blocks read ahead
+     */
+    public PipelinedInputStream(InputStream source, final int blockSize, int nbBlocks) {
+
+        if (blockSize < 1 || nbBlocks < 1) {
+            throw new IllegalArgumentException("The size and the number of blocks must be greater than 0");
+        }
+        this.source = source;
+        // one extra slot for the end marker
+        this.blocks = new ArrayBlockingQueue<byte[]>(nbBlocks + 1);
+
+        producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                produce(blockSize);
+            }
+        }, "slib-pipelined-input");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce(int blockSize) {
+
+        try {
+            while (!closed) {
+                byte[] b = new byte[blockSize];
+                int n = 0;
+                int r;
+                while (n < blockSize && (r = source.read(b, n, blockSize - n)) != -1) {
+                    n += r;
+                }
+                if (n == 0) {
+                    break;
+                }
+                blocks.put(n == blockSize ? b : Arrays.copyOf(b, n));
+                if (n < blockSize) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            return; // closed
+        } catch (RuntimeException e) {
+            error = new IOException(e.getMessage(), e);
+        }
+        try {
+            blocks.put(END);
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * @return false if the end of the stream has been reached
+     */
+    private boolean nextBlock() throws IOException {
+
+        if (block == END) {
+            return false;
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        try {
+            block = blocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+        pos = 0;
+        blockLength = block.length;
+
+        if (block == END) {
+            if (error != null) {
+                throw error;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (block == null || pos == blockLength) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        return block[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+        if (block == null || pos == blockLength) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, blockLength - pos);
+        System.arraycopy(block, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return block == null || block == END ? 0 : blockLength - pos;
+    }
+
+    /**
+     * Stop the thread reading the source and close the source.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        blocks.clear();
+        source.close();
+    }
+}
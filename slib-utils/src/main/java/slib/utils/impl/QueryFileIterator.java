@@ -42,6 +42,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
@@ -59,8 +60,11 @@ public class QueryFileIterator implements QueryIterator {
     Logger logger = LoggerFactory.getLogger(this.getClass());
     BufferedReader br;
     DataInputStream in;
+    MappedLineReader mappedReader;
+    ByteSlice[] fields;
     String filepath;
     String line;
+    boolean hasLine;
     final String uriPrefix;
 
     /**
@@ -88,26 +92,41 @@ public class QueryFileIterator implements QueryIterator {
         this.uriPrefix = uriPrefix;
 
 
-        FileInputStream fstream = new FileInputStream(filepath);
-        in = new DataInputStream(fstream);
-        br = new BufferedReader(new InputStreamReader(in));
-        line = br.readLine();
-
-
+        if (MappedLineReader.isSupported(Charset.defaultCharset())) {
+            mappedReader = new MappedLineReader(filepath);
+            fields = MappedLineReader.newSlices(2, mappedReader.getCharset());
+        } else {
+            FileInputStream fstream = new FileInputStream(filepath);
+            in = new DataInputStream(fstream);
+            br = new BufferedReader(new InputStreamReader(in));
+        }
+        readLine();
+    }
 
+    private void readLine() throws IOException {
+        if (mappedReader != null) {
+            hasLine = mappedReader.nextLine();
+        } else {
+            line = br.readLine();
+            hasLine = line != null;
+        }
     }
 
     @Override
     public boolean hasNext() {
-        if (line == null) {
+        if (!hasLine) {
             try {
-                in.close();
+                if (mappedReader != null) {
+                    mappedReader.close();
+                } else {
+                    in.close();
+                }
             } catch (IOException e) {
                 throw new IO_RuntimeException("Error reading file " + filepath + " original " + e.getMessage());
             }
         }
 
-        return line != null;
+        return hasLine;
     }
 
     /**
@@ -120,19 +139,36 @@ public class QueryFileIterator implements QueryIterator {
         QueryEntry entry = null;
 
         try {
-            String[] csvRow = line.split("\t");
+            if (mappedReader != null) {
 
+                // the fields are only decoded if the line is valid
+                if (mappedReader.line().split((byte) '\t', fields) == 2) {
 
-            if (csvRow.length == 2) {
+                    String e1 = fields[0].toString();
+                    String e2 = fields[1].toString();
 
-                if (uriPrefix != null) {
-                    entry = new QueryEntry(uriPrefix + csvRow[0], uriPrefix + csvRow[1]);
-                } else {
-                    entry = new QueryEntry(csvRow[0], csvRow[1]);
+                    if (uriPrefix != null) {
+                        entry = new QueryEntry(uriPrefix + e1, uriPrefix + e2);
+                    } else {
+                        entry = new QueryEntry(e1, e2);
+                    }
+                }
+            } else {
+
+                String[] csvRow = line.split("\t");
+
+
+                if (csvRow.length == 2) {
+
+                    if (uriPrefix != null) {
+                        entry = new QueryEntry(uriPrefix + csvRow[0], uriPrefix + csvRow[1]);
+                    } else {
+                        entry = new QueryEntry(csvRow[0], csvRow[1]);
+                    }
                 }
             }
 
-            line = br.readLine();
+            readLine();
 
         } catch (IOException e) {
             throw new IO_RuntimeException("Error reading file " + filepath + " original " + e.getMessage());
@@ -145,6 +181,9 @@ public class QueryFileIterator implements QueryIterator {
     @Override
     public void close() throws IOException {
 
+        if (mappedReader != null) {
+            mappedReader.close();
+        }
         if (br != null) {
             br.close();
         }
@@ -170,9 +209,14 @@ public class QueryFileIterator implements QueryIterator {
     @Override
     public long getNumberQueries() throws Exception {
 
+        if (MappedLineReader.isSupported(Charset.defaultCharset())) {
+            return MappedLineReader.countLines(filepath);
+        }
+
         LineNumberReader lnr;
         lnr = new LineNumberReader(new FileReader(new File(filepath)));
         lnr.skip(Long.MAX_VALUE);
+        lnr.close();
 
         return lnr.getLineNumber();
     }
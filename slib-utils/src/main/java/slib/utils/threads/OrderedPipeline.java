@@ -0,0 +1,338 @@
+/*
+
+ Copyright or © or Copr. Ecole des Mines d'Alès (2012) 
+
+ This software is a computer program whose purpose is to 
+ process semantic graphs.
+
+ This software is governed by the CeCILL  license under French law and
+ abiding by the rules of distribution of free software.  You can  use, 
+ modify and/ or redistribute the software under the terms of the CeCILL
+ license as circulated by CEA, CNRS and INRIA at the following URL
+ "http://www.cecill.info". 
+
+ As a counterpart to the access to the source code and  rights to copy,
+ modify and redistribute granted by the license, users are provided only
+ with a limited warranty  and the software's author,  the holder of the
+ economic rights,  and the successive licensors  have only  limited
+ liability. 
+
+ In this respect, the user's attention is drawn to the risks associated
+ with loading,  using,  modifying and/or developing or reproducing the
+ software by the user in light of its specific status of free software,
+ that may mean  that it is complicated to manipulate,  and  that  also
+ therefore means  that it is reserved for developers  and  experienced
+ professionals having in-depth computer knowledge. Users are therefore
+ encouraged to load and test the software's suitability as regards their
+ requirements in conditions enabling the security of their systems and/or 
+ data to be ensured and,  more generally, to use and operate it in the 
+ same conditions as regards security. 
+
+ The fact that you are presently reading this means that you have had
+ knowledge of the CeCILL license and that you accept its terms.
+
+ */
+package slib.utils.threads;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import slib.utils.ex.SLIB_Ex_Critic;
+
+/**
+ * Three stages pipeline: a reader stage producing work items, a pool of
+ * workers processing them and a single writer stage consuming the results in
+ * the order in which the items have been produced.
+ *
+ * The reader runs in its own thread and feeds a bounded queue shared by the
+ * workers, each idle worker takes the next available item. The writer runs
+ * in the thread calling {@link #run(Reader, Worker, Writer)} and buffers the
+ * results which are completed before the results of the items produced
+ * earlier. The number of items which have been read but not yet written is
+ * bounded, the reader is therefore blocked when the workers or the writer
+ * cannot keep up.
+ *
+ * The first exception thrown by a stage stops the pipeline and is reported
+ * by {@link #run(Reader, Worker, Writer)}.
+ *
+ * Each stage counts the items it has handled and the time spent handling
+ * them, see {@link #getStats()}.
+ *
+ * @param <I> the type of the items produced by the reader
+ * @param <O> the type of the results consumed by the writer
+ * @author Harispe Sébastien
+ */
+public class OrderedPipeline<I, O> {
+
+    /**
+     * Reader stage.
+     *
+     * @param <I> the type of the items
+     */
+    public interface Reader<I> {
+
+        /**
+         * @return the next item or null if all the items have been read
+         * @throws Exception
+         */
+        I next() throws Exception;
+    }
+
+    /**
+     * Processing stage, must be thread safe.
+     *
+     * @param <I> the type of the items
+     * @param <O> the type of the results
+     */
+    public interface Worker<I, O> {
+
+        /**
+         * @param item the item to process
+         * @return the result associated to the item
+         * @throws Exception
+         */
+        O process(I item) throws Exception;
+    }
+
+    /**
+     * Writer stage.
+     *
+     * @param <O> the type of the results
+     */
+    public interface Writer<O> {
+
+        /**
+         * @param result the next result, in reading order
+         * @throws Exception
+         */
+        void write(O result) throws Exception;
+    }
+    final int nbWorkers;
+    final int maxPending;
+    final AtomicLong readItems = new AtomicLong();
+    final AtomicLong readTime = new AtomicLong();
+    final AtomicLong processedItems = new AtomicLong();
+    final AtomicLong processTime = new AtomicLong();
+    final AtomicLong writtenItems = new AtomicLong();
+    final AtomicLong writeTime = new AtomicLong();
+    final AtomicLong writerIdleTime = new AtomicLong();
+    long wallTime = 0;
+
+    /**
+     * Build a pipeline.
+     *
+     * @param nbWorkers the number of workers (at least 1)
+     * @param maxPending the maximal number of items which have been read but
+     * not yet written (at least 1)
+     */
+    public OrderedPipeline(int nbWorkers, int maxPending) {
+
+        if (nbWorkers < 1) {
+            throw new IllegalArgumentException("The number of workers must be greater than 0, given " + nbWorkers);
+        }
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("The number of pending items must be greater than 0, given " + maxPending);
+        }
+        this.nbWorkers = nbWorkers;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Build a pipeline allowing four pending items per worker.
+     *
+     * @param nbWorkers the number of workers (at least 1)
+     */
+    public OrderedPipeline(int nbWorkers) {
+        this(nbWorkers, 4 * nbWorkers);
+    }
+
+    /**
+     * Run the pipeline until all the items produced by the reader have been
+     * written. A pipeline can be run several times, the counters are
+     * accumulated.
+     *
+     * @param reader the reader stage
+     * @param worker the processing stage
+     * @param writer the writer stage
+     * @throws SLIB_Ex_Critic if a stage throws an exception, the exception
+     * is the cause of the exception.
+     */
+    public void run(final Reader<I> reader, final Worker<I, O> worker, Writer<O> writer) throws SLIB_Ex_Critic {
+
+        long start = System.nanoTime();
+
+        final Semaphore pending = new Semaphore(maxPending);
+        final BlockingQueue<Slot<I, O>> todo = new ArrayBlockingQueue<Slot<I, O>>(maxPending + nbWorkers);
+        final BlockingQueue<Slot<I, O>> done = new LinkedBlockingQueue<Slot<I, O>>();
+        final Slot<I, O> endOfInput = new Slot<I, O>(-1, null);
+
+        ExecutorService threads = Executors.newFixedThreadPool(nbWorkers + 1);
+
+        try {
+            threads.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long seq = 0;
+                    try {
+                        while (true) {
+                            pending.acquire();
+                            long t = System.nanoTime();
+                            I item = reader.next();
+                            readTime.addAndGet(System.nanoTime() - t);
+                            if (item == null) {
+                                break;
+                            }
+                            readItems.incrementAndGet();
+                            todo.put(new Slot<I, O>(seq++, item));
+                        }
+                        for (int i = 0; i < nbWorkers; i++) {
+                            todo.put(endOfInput);
+                        }
+                        done.add(Slot.<I, O>end(seq));
+                    } catch (Throwable e) {
+                        done.add(Slot.<I, O>failure(e));
+                    }
+                }
+            });
+
+            for (int w = 0; w < nbWorkers; w++) {
+                threads.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Slot<I, O> slot;
+                            while ((slot = todo.take()) != endOfInput) {
+                                long t = System.nanoTime();
+                                slot.result = worker.process(slot.item);
+                                slot.item = null;
+                                processTime.addAndGet(System.nanoTime() - t);
+                                processedItems.incrementAndGet();
+                                done.add(slot);
+                            }
+                        } catch (Throwable e) {
+                            done.add(Slot.<I, O>failure(e));
+                        }
+                    }
+                });
+            }
+
+            // writer stage, results are reordered by sequence number
+            Map<Long, O> waiting = new HashMap<Long, O>();
+            long next = 0;
+            long total = -1;
+
+            while (total == -1 || next < total) {
+
+                long t = System.nanoTime();
+                Slot<I, O> slot = done.take();
+                writerIdleTime.addAndGet(System.nanoTime() - t);
+
+                if (slot.failure != null) {
+                    throw new SLIB_Ex_Critic(slot.failure);
+                }
+                if (slot.seq < 0) {
+                    total = -slot.seq - 2;
+                    continue;
+                }
+
+                waiting.put(slot.seq, slot.result);
+
+                while (waiting.containsKey(next)) {
+                    O result = waiting.remove(next);
+                    t = System.nanoTime();
+                    writer.write(result);
+                    writeTime.addAndGet(System.nanoTime() - t);
+                    writtenItems.incrementAndGet();
+                    pending.release();
+                    next++;
+                }
+            }
+        } catch (SLIB_Ex_Critic e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SLIB_Ex_Critic(e);
+        } finally {
+            threads.shutdownNow();
+            try {
+                threads.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            wallTime += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * @return a summary of the counters of each stage: number of items and
+     * time spent (in milliseconds). The time of the workers is summed over
+     * all the workers. The idle time of the writer is the time spent
+     * waiting for results.
+     */
+    public String getStats() {
+        return "reader: " + readItems.get() + " items in " + ms(readTime.get()) + "ms"
+                + ", workers (" + nbWorkers + "): " + processedItems.get() + " items in " + ms(processTime.get()) + "ms"
+                + ", writer: " + writtenItems.get() + " items in " + ms(writeTime.get()) + "ms"
+                + " (idle " + ms(writerIdleTime.get()) + "ms)"
+                + ", total " + ms(wallTime) + "ms";
+    }
+
+    /**
+     * @return the number of items read
+     */
+    public long getReadItems() {
+        return readItems.get();
+    }
+
+    /**
+     * @return the number of items processed by the workers
+     */
+    public long getProcessedItems() {
+        return processedItems.get();
+    }
+
+    /**
+     * @return the number of results written
+     */
+    public long getWrittenItems() {
+        return writtenItems.get();
+    }
+
+    private static long ms(long nanos) {
+        return nanos / 1000000;
+    }
+
+    /**
+     * Work item and its result. The end of the input and the failures are
+     * notified to the writer using specific slots: a negative sequence number
+     * which encodes the number of items, or a failure.
+     */
+    static final class Slot<I, O> {
+
+        final long seq;
+        I item;
+        O result;
+        Throwable failure;
+
+        Slot(long seq, I item) {
+            this.seq = seq;
+            this.item = item;
+        }
+
+        static <I, O> Slot<I, O> end(long nbItems) {
+            return new Slot<I, O>(-nbItems - 2, null);
+        }
+
+        static <I, O> Slot<I, O> failure(Throwable e) {
+            Slot<I, O> s = new Slot<I, O>(-1, null);
+            s.failure = e;
+            return s;
+        }
+    }
+}
@@ -48,7 +48,7 @@ import slib.utils.ex.SLIB_Ex_Critic;
  */
 public class ThreadManager extends PoolLocker{
 	
-	private static ThreadManager instance;
+	private static final ThreadManager instance = new ThreadManager();
 	
 	Logger logger = LoggerFactory.getLogger(ThreadManager.class);
 	
@@ -60,8 +60,6 @@ public class ThreadManager extends PoolLocker{
      * @return
      */
     public static ThreadManager getSingleton(){
-    	if(instance == null)
-    		instance = new ThreadManager();
     	return instance;
     }
     
@@ -118,8 +116,10 @@ public class ThreadManager extends PoolLocker{
      * @param maxThread
      */
     public void setMaxThread(int maxThread){
-		capacity = maxThread;
-		logger.info("Setting maximal number of threads to "+capacity);
+    	synchronized(lock) {
+    		capacity = maxThread;
+    	}
+		logger.info("Setting maximal number of threads to "+maxThread);
     }
     
     /**
@@ -127,7 +127,23 @@ public class ThreadManager extends PoolLocker{
      * @return
      */
     public int getMaxThread(){
-    	return capacity;
+    	synchronized(lock) {
+    		return capacity;
+    	}
+    }
+
+    /**
+     * Reserve all the threads which are not already used.
+     * The threads must be released using {@link #freeResource(int)}.
+     *
+     * @return the number of reserved threads, at least 1
+     */
+    public int reserveMaxLoad(){
+    	synchronized(lock) {
+    		int allowedSize = Math.max(1, capacity - running);
+    		running += allowedSize;
+    		return allowedSize;
+    	}
     }
 
 	/**
@@ -135,6 +151,9 @@ public class ThreadManager extends PoolLocker{
      * @param nbThread
      */
     public void freeResource(int nbThread) {
-		this.running -= nbThread;
+		synchronized(lock) {
+			this.running -= nbThread;
+			lock.notifyAll();
+		}
 	}
 }
\ No newline at end of file